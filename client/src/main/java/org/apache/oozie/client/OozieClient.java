@@ -739,6 +739,86 @@ public class OozieClient {
         }
     }
 
+    /**
+     * Listener of the status transitions of a job, see {@link OozieClient#subscribe(String, JobStatusListener, int)}.
+     */
+    public static interface JobStatusListener {
+
+        /**
+         * Invoked for the current status of the job and for each status transition after it.
+         *
+         * @param jobId job Id.
+         * @param status status of the job.
+         */
+        public void onStatus(String jobId, String status);
+    }
+
+    /**
+     * Subscribe to the status transitions of a workflow job or of a coordinator action.
+     * <p/>
+     * The call blocks until the job reaches a final status or until the timeout expires. The listener is invoked with
+     * the current status of the job and with each status transition after it.
+     *
+     * @param jobId workflow job Id or coordinator action Id.
+     * @param listener listener to invoke for each status.
+     * @param timeout maximum time to wait, in seconds, the Oozie server may enforce a lower value.
+     * @return the last status of the job, it is not a final status if the timeout expired.
+     * @throws OozieClientException thrown if the subscription could not be done.
+     */
+    public String subscribe(String jobId, JobStatusListener listener, int timeout) throws OozieClientException {
+        return new JobStatus(jobId, notNull(listener, "listener"), timeout).call();
+    }
+
+    /**
+     * Wait for a workflow job or a coordinator action to reach a final status.
+     *
+     * @param jobId workflow job Id or coordinator action Id.
+     * @param timeout maximum time to wait, in seconds, the Oozie server may enforce a lower value.
+     * @return the last status of the job, it is not a final status if the timeout expired.
+     * @throws OozieClientException thrown if the subscription could not be done.
+     */
+    public String waitFor(String jobId, int timeout) throws OozieClientException {
+        return new JobStatus(jobId, null, timeout).call();
+    }
+
+    private class JobStatus extends ClientCallable<String> {
+        private JobStatusListener listener;
+
+        JobStatus(String jobId, JobStatusListener listener, int timeout) {
+            super("GET", RestConstants.JOB, notEmpty(jobId, "jobId"), prepareParams(RestConstants.JOB_SHOW_PARAM,
+                    RestConstants.JOB_SHOW_STATUS, RestConstants.JOB_STATUS_TIMEOUT_PARAM, Integer.toString(timeout)));
+            this.listener = listener;
+        }
+
+        @Override
+        protected String call(HttpURLConnection conn) throws IOException, OozieClientException {
+            if ((conn.getResponseCode() == HttpURLConnection.HTTP_OK)) {
+                String status = null;
+                BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream(), "UTF-8"));
+                try {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (line.trim().length() > 0) {
+                            JSONObject json = (JSONObject) JSONValue.parse(line);
+                            status = (String) json.get(JsonTags.WORKFLOW_STATUS);
+                            if (listener != null) {
+                                listener.onStatus((String) json.get(JsonTags.JOB_ID), status);
+                            }
+                        }
+                    }
+                }
+                finally {
+                    reader.close();
+                }
+                return status;
+            }
+            else {
+                handleError(conn);
+            }
+            return null;
+        }
+    }
+
     private class CoordJobInfo extends ClientCallable<CoordinatorJob> {
 
         CoordJobInfo(String jobId, int start, int len) {
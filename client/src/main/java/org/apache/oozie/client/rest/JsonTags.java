@@ -117,6 +117,7 @@ public interface JsonTags {
     public static final String INSTR_TIMERS = "timers";
     public static final String INSTR_VARIABLES = "variables";
     public static final String INSTR_SAMPLERS = "samplers";
+    public static final String INSTR_LATENCIES = "latencies";
     public static final String INSTR_COUNTERS = "counters";
     public static final String INSTR_DATA = "data";
 
@@ -132,6 +133,18 @@ public interface JsonTags {
     public static final String INSTR_TIMER_OWN_MAX_TIME = "ownMaxTime";
     public static final String INSTR_TIMER_TOTAL_MIN_TIME = "totalMinTime";
     public static final String INSTR_TIMER_TOTAL_MAX_TIME = "totalMaxTime";
+    public static final String INSTR_TIMER_OWN_P50_TIME = "ownP50Time";
+    public static final String INSTR_TIMER_OWN_P99_TIME = "ownP99Time";
+    public static final String INSTR_TIMER_OWN_P999_TIME = "ownP999Time";
+    public static final String INSTR_TIMER_TOTAL_P50_TIME = "totalP50Time";
+    public static final String INSTR_TIMER_TOTAL_P99_TIME = "totalP99Time";
+    public static final String INSTR_TIMER_TOTAL_P999_TIME = "totalP999Time";
+
+    public static final String INSTR_LATENCY_COUNT = "count";
+    public static final String INSTR_LATENCY_P50_TIME = "p50Time";
+    public static final String INSTR_LATENCY_P99_TIME = "p99Time";
+    public static final String INSTR_LATENCY_P999_TIME = "p999Time";
+    public static final String INSTR_LATENCY_MAX_TIME = "maxTime";
 
     public static final String INSTR_VARIABLE_VALUE = "value";
 
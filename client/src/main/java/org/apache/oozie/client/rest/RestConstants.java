@@ -70,6 +70,10 @@ public interface RestConstants {
 
     public static final String JOB_SHOW_DEFINITION = "definition";
 
+    public static final String JOB_SHOW_STATUS = "status";
+
+    public static final String JOB_STATUS_TIMEOUT_PARAM = "timeout";
+
     public static final String JOB_COORD_RERUN_TYPE_PARAM = "type";
 
     public static final String JOB_COORD_RERUN_DATE = "date";
@@ -116,5 +120,7 @@ public interface RestConstants {
 
     public static final String MAX_EVENTS = "max-events";
 
+    public static final String SLA_WAIT = "wait";
+
     public static final String SLA = "sla";
 }
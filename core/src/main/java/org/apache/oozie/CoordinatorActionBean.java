@@ -19,6 +19,8 @@ import java.io.DataOutput;
 import java.io.IOException;
 import java.sql.Timestamp;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import javax.persistence.Basic;
 import javax.persistence.Column;
@@ -29,12 +31,15 @@ import javax.persistence.NamedNativeQueries;
 import javax.persistence.NamedNativeQuery;
 import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
+import javax.persistence.PostLoad;
 import javax.persistence.SqlResultSetMapping;
+import javax.persistence.Transient;
 
 import org.apache.hadoop.io.Writable;
 import org.apache.oozie.client.CoordinatorAction;
 import org.apache.oozie.client.rest.JsonCoordinatorAction;
 import org.apache.oozie.util.DateUtils;
+import org.apache.oozie.util.DirtyFieldTracker;
 import org.apache.oozie.util.WritableUtils;
 import org.apache.openjpa.persistence.jdbc.Index;
 
@@ -46,8 +51,6 @@ import org.apache.openjpa.persistence.jdbc.Index;
 @Entity
 @NamedQueries({
 
-    @NamedQuery(name = "UPDATE_COORD_ACTION", query = "update CoordinatorActionBean w set w.actionNumber = :actionNumber, w.actionXml = :actionXml, w.consoleUrl = :consoleUrl, w.createdConf = :createdConf, w.errorCode = :errorCode, w.errorMessage = :errorMessage, w.externalStatus = :externalStatus, w.missingDependencies = :missingDependencies, w.runConf = :runConf, w.timeOut = :timeOut, w.trackerUri = :trackerUri, w.type = :type, w.createdTimestamp = :createdTime, w.externalId = :externalId, w.jobId = :jobId, w.lastModifiedTimestamp = :lastModifiedTime, w.nominalTimestamp = :nominalTime, w.slaXml = :slaXml, w.status = :status where w.id = :id"),
-
     @NamedQuery(name = "UPDATE_COORD_ACTION_MIN", query = "update CoordinatorActionBean w set w.actionXml = :actionXml, w.missingDependencies = :missingDependencies, w.lastModifiedTimestamp = :lastModifiedTime, w.status = :status where w.id = :id"),
     
     @NamedQuery(name = "DELETE_COMPLETED_ACTIONS_FOR_COORDINATOR", query = "delete from CoordinatorActionBean a where a.jobId = :jobId and (a.status = 'SUCCEEDED' OR a.status = 'FAILED' OR a.status= 'KILLED')"),
@@ -76,6 +79,10 @@ import org.apache.openjpa.persistence.jdbc.Index;
 
     @NamedQuery(name = "GET_WAITING_SUBMITTED_ACTIONS_OLDER_THAN", query = "select OBJECT(a) from CoordinatorActionBean a where (a.status = 'WAITING' OR a.status = 'SUBMITTED') AND a.lastModifiedTimestamp <= :lastModifiedTime"),
 
+    @NamedQuery(name = "GET_RUNNING_ACTIONS_SUMMARY_OLDER_THAN", query = "select a.id, a.jobId, a.status, a.externalId, a.lastModifiedTimestamp from CoordinatorActionBean a where a.status = 'RUNNING' AND a.lastModifiedTimestamp <= :lastModifiedTime"),
+
+    @NamedQuery(name = "GET_WAITING_SUBMITTED_ACTIONS_SUMMARY_OLDER_THAN", query = "select a.id, a.jobId, a.status, a.externalId, a.lastModifiedTimestamp from CoordinatorActionBean a where (a.status = 'WAITING' OR a.status = 'SUBMITTED') AND a.lastModifiedTimestamp <= :lastModifiedTime"),
+
     @NamedQuery(name = "GET_ACTIONS_FOR_DATES", query = "select OBJECT(a) from CoordinatorActionBean a where a.jobId = :jobId AND (a.status = 'TIMEDOUT' OR a.status = 'SUCCEEDED' OR a.status = 'KILLED' OR a.status = 'FAILED') AND a.nominalTimestamp >= :startTime AND a.nominalTimestamp <= :endTime"),
 
     @NamedQuery(name = "GET_ACTION_FOR_NOMINALTIME", query = "select OBJECT(a) from CoordinatorActionBean a where a.jobId = :jobId AND a.nominalTimestamp = :nominalTime"),
@@ -126,6 +133,9 @@ public class CoordinatorActionBean extends JsonCoordinatorAction implements
     @Lob
     private String slaXml = null;
 
+    @Transient
+    private DirtyFieldTracker dirtyFields = new DirtyFieldTracker();
+
     public CoordinatorActionBean() {
     }
 
@@ -276,6 +286,61 @@ public class CoordinatorActionBean extends JsonCoordinatorAction implements
         this.slaXml = slaXml;
     }
 
+    /**
+     * Return the values of the persistent fields written by the store updates, keyed by field name.
+     *
+     * @return the values of the updatable persistent fields.
+     */
+    public Map<String, Object> getUpdatableFields() {
+        Map<String, Object> values = new LinkedHashMap<String, Object>();
+        values.put("actionNumber", getActionNumber());
+        values.put("actionXml", getActionXml());
+        values.put("consoleUrl", getConsoleUrl());
+        values.put("createdConf", getCreatedConf());
+        values.put("errorCode", getErrorCode());
+        values.put("errorMessage", getErrorMessage());
+        values.put("externalStatus", getExternalStatus());
+        values.put("missingDependencies", getMissingDependencies());
+        values.put("runConf", getRunConf());
+        values.put("timeOut", getTimeOut());
+        values.put("trackerUri", getTrackerUri());
+        values.put("type", getType());
+        values.put("createdTimestamp", createdTimestamp);
+        values.put("externalId", externalId);
+        values.put("jobId", jobId);
+        values.put("nominalTimestamp", nominalTimestamp);
+        values.put("slaXml", slaXml);
+        values.put("status", status);
+        return values;
+    }
+
+    /**
+     * Return the updatable persistent fields changed since the coordinator action was loaded or last updated.
+     *
+     * @return the changed fields with their current value, all the updatable fields if the coordinator action was not loaded.
+     */
+    public Map<String, Object> getDirtyFields() {
+        return dirtyFields.getDirtyFields(getUpdatableFields());
+    }
+
+    /**
+     * Mark the updatable persistent fields as not changed, invoked when the coordinator action is loaded.
+     */
+    @PostLoad
+    public void resetDirtyFields() {
+        dirtyFields.reset(getUpdatableFields());
+    }
+
+    /**
+     * Mark the updatable persistent fields as not changed since they had the given values, invoked when an update
+     * writing those values has been committed.
+     *
+     * @param values values of the updatable persistent fields written by the update.
+     */
+    public void resetDirtyFields(Map<String, Object> values) {
+        dirtyFields.reset(values);
+    }
+
     /**
      * @return true if in terminal status
      */
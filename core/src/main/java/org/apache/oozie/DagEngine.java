@@ -21,9 +21,7 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.oozie.client.CoordinatorJob;
 import org.apache.oozie.client.WorkflowJob;
 import org.apache.oozie.client.OozieClient;
-import org.apache.oozie.command.wf.CompletedActionCommand;
 import org.apache.oozie.command.CommandException;
-import org.apache.oozie.command.Command;
 import org.apache.oozie.command.wf.JobCommand;
 import org.apache.oozie.command.wf.JobsCommand;
 import org.apache.oozie.command.wf.KillCommand;
@@ -39,7 +37,7 @@ import org.apache.oozie.command.wf.DefinitionCommand;
 import org.apache.oozie.command.wf.ExternalIdCommand;
 import org.apache.oozie.command.wf.WorkflowActionInfoCommand;
 import org.apache.oozie.service.Services;
-import org.apache.oozie.service.CallableQueueService;
+import org.apache.oozie.service.CallbackService;
 import org.apache.oozie.util.ParamChecker;
 import org.apache.oozie.util.XConfiguration;
 import org.apache.oozie.util.XLog;
@@ -288,15 +286,17 @@ public class DagEngine extends BaseEngine {
      * @param actionId the action Id.
      * @param externalStatus the action external status.
      * @param actionData the action output data, <code>null</code> if none.
-     * @throws DagEngineException thrown if the callback could not be processed.
+     * @throws DagEngineException thrown if the callback could not be processed, with {@link ErrorCode#E0404} if there
+     * are too many pending callbacks or Oozie is shutting down and it should be retried later.
      */
     public void processCallback(String actionId, String externalStatus, Properties actionData)
             throws DagEngineException {
         XLog.Info.get().clearParameter(XLogService.GROUP);
         XLog.Info.get().clearParameter(XLogService.USER);
-        Command<Void, ?> command = new CompletedActionCommand(actionId, externalStatus, actionData, HIGH_PRIORITY);
-        if (!Services.get().get(CallableQueueService.class).queue(command)) {
-            XLog.getLog(this.getClass()).warn(XLog.OPS, "queue is full or system is in SAFEMODE, ignoring callback");
+        CallbackService callbackService = Services.get().get(CallbackService.class);
+        if (!callbackService.ingest(actionId, externalStatus, actionData, HIGH_PRIORITY)) {
+            throw new DagEngineException(ErrorCode.E0404, callbackService.getPendingCount(),
+                                         callbackService.getRetryAfter());
         }
     }
 
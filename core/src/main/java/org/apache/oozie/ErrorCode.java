@@ -65,6 +65,8 @@ public enum ErrorCode {
     E0401(XLog.STD, "Missing configuration property [{0}]"),
     E0402(XLog.STD, "Invalid callback ID [{0}]"),
     E0403(XLog.STD, "Invalid callback data, {0}"),
+    E0404(XLog.OPS, "Callback not accepted, [{0}] callbacks pending or shutting down, retry in [{1}] seconds"),
+    E0405(XLog.OPS, "Too many job status subscriptions, job [{0}]"),
 
     E0420(XLog.STD, "Invalid jobs filter [{0}], {1}"),
 
@@ -125,6 +127,7 @@ public enum ErrorCode {
     E0806(XLog.STD, "Action did not complete in previous run, action [{0}]"),
     E0807(XLog.STD, "Some skip actions were not executed [{0}]"),
     E0808(XLog.STD, "Disallowed user property [{0}]"),
+    E0809(XLog.STD, "Workflow changed while calling the action executor, workflow [{0}] command [{1}]"),
 
     E0900(XLog.OPS, "Jobtracker [{0}] not allowed, not in Oozie's whitelist"),
     E0901(XLog.OPS, "Namenode [{0}] not allowed, not in Oozie's whitelist"),
@@ -41,7 +41,9 @@ import org.json.simple.JSONObject;
 @Entity
 @NamedQueries({
 
-    @NamedQuery(name = "GET_SLA_EVENT_NEWER_SEQ_LIMITED", query = "select OBJECT(w) from SLAEventBean w where w.event_id > :id order by w.event_id")})
+    @NamedQuery(name = "GET_SLA_EVENT_NEWER_SEQ_LIMITED", query = "select OBJECT(w) from SLAEventBean w where w.event_id > :id order by w.event_id"),
+
+    @NamedQuery(name = "GET_SLA_EVENT_COLUMNS_NEWER_SEQ_LIMITED", query = "select w.event_id, w.slaId, w.appTypeStr, w.appName, w.user, w.groupName, w.parentClientId, w.parentSlaId, w.expectedStartTS, w.expectedEndTS, w.statusTimestampTS, w.notificationMsg, w.alertContact, w.devContact, w.qaContact, w.seContact, w.alertFrequency, w.alertPercentage, w.upstreamApps, w.jobStatusStr, w.jobData from SLAEventBean w where w.event_id > :id order by w.event_id")})
 public class SLAEventBean extends JsonSLAEvent implements Writable {
 
     @Basic
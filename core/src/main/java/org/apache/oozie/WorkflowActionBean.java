@@ -19,6 +19,8 @@ import java.io.DataOutput;
 import java.io.IOException;
 import java.sql.Timestamp;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Properties;
 
 import javax.persistence.Basic;
@@ -27,12 +29,14 @@ import javax.persistence.Entity;
 import javax.persistence.Lob;
 import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
+import javax.persistence.PostLoad;
 import javax.persistence.Transient;
 
 import org.apache.hadoop.io.Writable;
 import org.apache.oozie.client.WorkflowAction;
 import org.apache.oozie.client.rest.JsonWorkflowAction;
 import org.apache.oozie.util.DateUtils;
+import org.apache.oozie.util.DirtyFieldTracker;
 import org.apache.oozie.util.ParamChecker;
 import org.apache.oozie.util.PropertiesUtils;
 import org.apache.oozie.util.WritableUtils;
@@ -44,8 +48,6 @@ import org.apache.openjpa.persistence.jdbc.Index;
 @Entity
 @NamedQueries({
 
-    @NamedQuery(name = "UPDATE_ACTION", query = "update WorkflowActionBean a set a.conf = :conf, a.consoleUrl = :consoleUrl, a.data = :data, a.errorCode = :errorCode, a.errorMessage = :errorMessage, a.externalId = :externalId, a.externalStatus = :externalStatus, a.name = :name, a.retries = :retries, a.trackerUri = :trackerUri, a.transition = :transition, a.type = :type, a.endTimestamp = :endTime, a.executionPath = :executionPath, a.lastCheckTimestamp = :lastCheckTime, a.logToken = :logToken, a.pending = :pending, a.pendingAgeTimestamp = :pendingAge, a.signalValue = :signalValue, a.slaXml = :slaXml, a.startTimestamp = :startTime, a.status = :status, a.wfId=:wfId where a.id = :id"),
-
     @NamedQuery(name = "DELETE_ACTION", query = "delete from WorkflowActionBean a where a.id = :id"),
 
     @NamedQuery(name = "DELETE_ACTIONS_FOR_WORKFLOW", query = "delete from WorkflowActionBean a where a.wfId = :wfId"),
@@ -64,6 +66,10 @@ import org.apache.openjpa.persistence.jdbc.Index;
 
     @NamedQuery(name = "GET_RUNNING_ACTIONS", query = "select OBJECT(a) from WorkflowActionBean a where a.pending = 1 AND a.status = 'RUNNING' AND a.lastCheckTimestamp < :lastCheckTime"),
 
+    @NamedQuery(name = "GET_PENDING_ACTIONS_SUMMARY", query = "select a.id, a.wfId, a.type, a.status, a.externalId, a.pendingAgeTimestamp, a.lastCheckTimestamp from WorkflowActionBean a where a.pending = 1 AND a.pendingAgeTimestamp < :pendingAge AND a.status <> 'RUNNING'"),
+
+    @NamedQuery(name = "GET_RUNNING_ACTIONS_SUMMARY", query = "select a.id, a.wfId, a.type, a.status, a.externalId, a.pendingAgeTimestamp, a.lastCheckTimestamp, a.trackerUri, w.user, w.group from WorkflowActionBean a, WorkflowJobBean w where a.wfId = w.id AND a.pending = 1 AND a.status = 'RUNNING' AND a.lastCheckTimestamp < :lastCheckTime"),
+
     @NamedQuery(name = "GET_RETRY_MANUAL_ACTIONS", query = "select OBJECT(a) from WorkflowActionBean a where a.wfId = :wfId AND (a.status = 'START_RETRY' OR a.status = 'START_MANUAL' OR a.status = 'END_RETRY' OR a.status = 'END_MANUAL')") })
 
 public class WorkflowActionBean extends JsonWorkflowAction implements Writable {
@@ -120,6 +126,9 @@ public class WorkflowActionBean extends JsonWorkflowAction implements Writable {
     @Lob
     private String slaXml = null;
 
+    @Transient
+    private DirtyFieldTracker dirtyFields = new DirtyFieldTracker();
+
     /**
      * Default constructor.
      */
@@ -513,6 +522,66 @@ public class WorkflowActionBean extends JsonWorkflowAction implements Writable {
         this.lastCheckTimestamp = DateUtils.convertDateToTimestamp(lastCheckTime);
     }
 
+    /**
+     * Return the values of the persistent fields written by the store updates, keyed by field name.
+     *
+     * @return the values of the updatable persistent fields.
+     */
+    public Map<String, Object> getUpdatableFields() {
+        Map<String, Object> values = new LinkedHashMap<String, Object>();
+        values.put("conf", getConf());
+        values.put("consoleUrl", getConsoleUrl());
+        values.put("data", getData());
+        values.put("errorCode", getErrorCode());
+        values.put("errorMessage", getErrorMessage());
+        values.put("externalId", getExternalId());
+        values.put("externalStatus", getExternalStatus());
+        values.put("name", getName());
+        values.put("retries", getRetries());
+        values.put("trackerUri", getTrackerUri());
+        values.put("transition", getTransition());
+        values.put("type", getType());
+        values.put("endTimestamp", endTimestamp);
+        values.put("executionPath", executionPath);
+        values.put("lastCheckTimestamp", lastCheckTimestamp);
+        values.put("logToken", logToken);
+        values.put("pending", pending);
+        values.put("pendingAgeTimestamp", pendingAgeTimestamp);
+        values.put("signalValue", signalValue);
+        values.put("slaXml", slaXml);
+        values.put("startTimestamp", startTimestamp);
+        values.put("status", status);
+        values.put("wfId", wfId);
+        return values;
+    }
+
+    /**
+     * Return the updatable persistent fields changed since the action was loaded or last updated.
+     *
+     * @return the changed fields with their current value, all the updatable fields if the action was not loaded.
+     */
+    public Map<String, Object> getDirtyFields() {
+        return dirtyFields.getDirtyFields(getUpdatableFields());
+    }
+
+    /**
+     * Mark the updatable persistent fields as not changed, invoked when the action is loaded.
+     */
+    @PostLoad
+    public void resetDirtyFields() {
+        dirtyFields.reset(getUpdatableFields());
+    }
+
+    /**
+     * Mark the updatable persistent fields as not changed since they had the given values, invoked when an update
+     * writing those values has been committed.
+     *
+     * @param values values of the updatable persistent fields written by the update.
+     */
+    public void resetDirtyFields(Map<String, Object> values) {
+        dirtyFields.reset(values);
+    }
+
     public boolean getPending() {
         return this.pending == 1 ? true : false;
     }
@@ -19,6 +19,7 @@ import org.apache.oozie.workflow.lite.LiteWorkflowInstance;
 import org.apache.oozie.client.rest.JsonWorkflowJob;
 import org.apache.oozie.client.WorkflowJob;
 import org.apache.oozie.util.DateUtils;
+import org.apache.oozie.util.DirtyFieldTracker;
 import org.apache.oozie.util.WritableUtils;
 import org.apache.hadoop.io.Writable;
 
@@ -26,6 +27,8 @@ import java.io.DataInput;
 import java.io.IOException;
 import java.io.DataOutput;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import javax.persistence.Entity;
 import javax.persistence.Column;
@@ -33,6 +36,8 @@ import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
 import javax.persistence.Basic;
 import javax.persistence.Lob;
+import javax.persistence.PostLoad;
+import javax.persistence.Transient;
 
 import java.sql.Timestamp;
 
@@ -41,8 +46,6 @@ import org.apache.openjpa.persistence.jdbc.Index;
 @Entity
 @NamedQueries({
 
-    @NamedQuery(name = "UPDATE_WORKFLOW", query = "update WorkflowJobBean w set w.appName = :appName, w.appPath = :appPath, w.conf = :conf, w.group = :groupName, w.run = :run, w.user = :user, w.authToken = :authToken, w.createdTimestamp = :createdTime, w.endTimestamp = :endTime, w.externalId = :externalId, w.lastModifiedTimestamp = :lastModTime, w.logToken = :logToken, w.protoActionConf = :protoActionConf, w.slaXml =:slaXml, w.startTimestamp = :startTime, w.status = :status, w.wfInstance = :wfInstance where w.id = :id"),
-
     @NamedQuery(name = "DELETE_WORKFLOW", query = "delete from WorkflowJobBean w where w.id = :id"),
 
     @NamedQuery(name = "GET_WORKFLOWS", query = "select OBJECT(w) from WorkflowJobBean w order by w.startTimestamp desc"),
@@ -54,10 +57,14 @@ import org.apache.openjpa.persistence.jdbc.Index;
 
     @NamedQuery(name = "GET_COMPLETED_WORKFLOWS_OLDER_THAN", query = "select w from WorkflowJobBean w where w.endTimestamp < :endTime"),
 
+    @NamedQuery(name = "GET_COMPLETED_WORKFLOW_IDS_OLDER_THAN", query = "select w.id from WorkflowJobBean w where w.endTimestamp < :endTime"),
+
     @NamedQuery(name = "GET_WORKFLOW", query = "select OBJECT(w) from WorkflowJobBean w where w.id = :id"),
 
     @NamedQuery(name = "GET_WORKFLOW_FOR_UPDATE", query = "select OBJECT(w) from WorkflowJobBean w where w.id = :id"),
 
+    @NamedQuery(name = "GET_WORKFLOW_SUMMARY", query = "select w.id, w.status, w.user, w.group, w.lastModifiedTimestamp, w.version from WorkflowJobBean w where w.id = :id"),
+
     @NamedQuery(name = "GET_WORKFLOW_ID_FOR_EXTERNAL_ID", query = "select  w.id from WorkflowJobBean w where w.externalId = :externalId"),
 
     @NamedQuery(name = "GET_WORKFLOWS_COUNT_WITH_STATUS", query = "select count(w) from WorkflowJobBean w where w.status = :status"),
@@ -107,6 +114,11 @@ public class WorkflowJobBean extends JsonWorkflowJob implements Writable {
     @Column(name = "last_modified_time")
     private java.sql.Timestamp lastModifiedTimestamp = null;
 
+    // incremented by every store update of the workflow, the default value is for the rows created before the column
+    @Basic
+    @Column(name = "version", columnDefinition = "INTEGER DEFAULT 0 NOT NULL")
+    private int version = 0;
+
     // @Basic(fetch = FetchType.LAZY)
     // @Column(name="wfinstance",columnDefinition="blob")
     @Column(name = "wf_instance")
@@ -117,6 +129,9 @@ public class WorkflowJobBean extends JsonWorkflowJob implements Writable {
     @Lob
     private String slaXml = null;
 
+    @Transient
+    private DirtyFieldTracker dirtyFields = new DirtyFieldTracker();
+
     /**
      * Default constructor.
      */
@@ -347,6 +362,68 @@ public class WorkflowJobBean extends JsonWorkflowJob implements Writable {
         this.endTimestamp = DateUtils.convertDateToTimestamp(endTime);
     }
 
+    /**
+     * Return the version of the workflow, incremented by every store update of the workflow.
+     *
+     * @return the version of the workflow as loaded.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Return the values of the persistent fields written by the store updates, keyed by field name.
+     *
+     * @return the values of the updatable persistent fields.
+     */
+    public Map<String, Object> getUpdatableFields() {
+        Map<String, Object> values = new LinkedHashMap<String, Object>();
+        values.put("appName", getAppName());
+        values.put("appPath", getAppPath());
+        values.put("conf", getConf());
+        values.put("group", getGroup());
+        values.put("run", getRun());
+        values.put("user", getUser());
+        values.put("authToken", authToken);
+        values.put("createdTimestamp", createdTimestamp);
+        values.put("endTimestamp", endTimestamp);
+        values.put("externalId", externalId);
+        values.put("logToken", logToken);
+        values.put("protoActionConf", protoActionConf);
+        values.put("slaXml", slaXml);
+        values.put("startTimestamp", startTimestamp);
+        values.put("status", status);
+        values.put("wfInstance", wfInstance);
+        return values;
+    }
+
+    /**
+     * Return the updatable persistent fields changed since the workflow was loaded or last updated.
+     *
+     * @return the changed fields with their current value, all the updatable fields if the workflow was not loaded.
+     */
+    public Map<String, Object> getDirtyFields() {
+        return dirtyFields.getDirtyFields(getUpdatableFields());
+    }
+
+    /**
+     * Mark the updatable persistent fields as not changed, invoked when the workflow is loaded.
+     */
+    @PostLoad
+    public void resetDirtyFields() {
+        dirtyFields.reset(getUpdatableFields());
+    }
+
+    /**
+     * Mark the updatable persistent fields as not changed since they had the given values, invoked when an update
+     * writing those values has been committed.
+     *
+     * @param values values of the updatable persistent fields written by the update.
+     */
+    public void resetDirtyFields(Map<String, Object> values) {
+        dirtyFields.reset(values);
+    }
+
     private WorkflowInstance get(byte[] array) {
         LiteWorkflowInstance pInstance = WritableUtils.fromByteArray(array, LiteWorkflowInstance.class);
         return pInstance;
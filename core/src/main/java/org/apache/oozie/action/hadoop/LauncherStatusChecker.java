@@ -0,0 +1,134 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.action.hadoop;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.hadoop.mapred.JobClient;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.JobStatus;
+import org.apache.oozie.action.ActionExecutor;
+import org.apache.oozie.service.ActionService;
+import org.apache.oozie.service.HadoopAccessorException;
+import org.apache.oozie.service.HadoopAccessorService;
+import org.apache.oozie.service.Services;
+import org.apache.oozie.store.WorkflowActionSummary;
+import org.apache.oozie.util.XLog;
+
+/**
+ * Checks the launcher jobs of running Hadoop actions in bulk.
+ * <p/>
+ * The actions are grouped by JobTracker and by user, the incomplete jobs of each group are fetched with a single
+ * {@link JobClient#jobsToComplete()} call. An action which external job is among them is still running, checking it
+ * with {@link JavaActionExecutor#check} would only set its external status to RUNNING again, so it does not have to
+ * be checked individually.
+ */
+public class LauncherStatusChecker {
+    private static final String HADOOP_JOB_TRACKER = "mapred.job.tracker";
+
+    private int listings;
+
+    /**
+     * Return the actions which external job is still running.
+     * <p/>
+     * Actions not run by a Hadoop action executor, without external job, or whose JobTracker could not be queried
+     * are not returned, they have to be checked individually.
+     *
+     * @param actions running workflow actions, with their tracker URI and workflow job owner.
+     * @return the IDs of the actions which external job is still running.
+     */
+    public Set<String> getRunningActions(List<WorkflowActionSummary> actions) {
+        Map<String, List<WorkflowActionSummary>> groups = new LinkedHashMap<String, List<WorkflowActionSummary>>();
+        Map<String, Boolean> hadoopTypes = new HashMap<String, Boolean>();
+        for (WorkflowActionSummary action : actions) {
+            if (action.getExternalId() != null && action.getTrackerUri() != null && action.getUser() != null
+                    && isHadoopType(action.getType(), hadoopTypes)) {
+                String key = action.getTrackerUri() + "#" + action.getUser() + "#" + action.getGroup();
+                List<WorkflowActionSummary> group = groups.get(key);
+                if (group == null) {
+                    group = new ArrayList<WorkflowActionSummary>();
+                    groups.put(key, group);
+                }
+                group.add(action);
+            }
+        }
+
+        Set<String> running = new HashSet<String>();
+        for (List<WorkflowActionSummary> group : groups.values()) {
+            WorkflowActionSummary first = group.get(0);
+            try {
+                Set<String> jobIds = getIncompleteJobs(first.getTrackerUri(), first.getUser(), first.getGroup());
+                for (WorkflowActionSummary action : group) {
+                    if (jobIds.contains(action.getExternalId())) {
+                        running.add(action.getId());
+                    }
+                }
+            }
+            catch (Exception ex) {
+                XLog.getLog(getClass()).warn("Could not list the jobs of JobTracker [{0}] for user [{1}], {2}",
+                                             first.getTrackerUri(), first.getUser(), ex.getMessage(), ex);
+            }
+        }
+        return running;
+    }
+
+    /**
+     * Return the number of JobTracker listings done.
+     *
+     * @return the number of JobTracker listings done.
+     */
+    public int getListings() {
+        return listings;
+    }
+
+    private boolean isHadoopType(String type, Map<String, Boolean> hadoopTypes) {
+        Boolean hadoopType = hadoopTypes.get(type);
+        if (hadoopType == null) {
+            ActionExecutor executor = Services.get().get(ActionService.class).getExecutor(type);
+            hadoopType = executor instanceof JavaActionExecutor;
+            hadoopTypes.put(type, hadoopType);
+        }
+        return hadoopType;
+    }
+
+    private Set<String> getIncompleteJobs(String jobTracker, String user, String group)
+            throws HadoopAccessorException, IOException {
+        JobConf jobConf = new JobConf();
+        jobConf.set(HADOOP_JOB_TRACKER, jobTracker);
+        JobClient jobClient = Services.get().get(HadoopAccessorService.class).createJobClient(user, group, jobConf);
+        try {
+            listings++;
+            Set<String> jobIds = new HashSet<String>();
+            JobStatus[] statuses = jobClient.jobsToComplete();
+            if (statuses != null) {
+                for (JobStatus status : statuses) {
+                    jobIds.add(status.getJobID().toString());
+                }
+            }
+            return jobIds;
+        }
+        finally {
+            jobClient.close();
+        }
+    }
+
+}
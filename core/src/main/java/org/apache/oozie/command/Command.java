@@ -27,6 +27,7 @@ import org.apache.oozie.XException;
 import org.apache.oozie.service.CallableQueueService;
 import org.apache.oozie.service.DagXLogInfoService;
 import org.apache.oozie.service.InstrumentationService;
+import org.apache.oozie.service.JobStatusService;
 import org.apache.oozie.service.MemoryLocksService;
 import org.apache.oozie.service.Services;
 import org.apache.oozie.service.StoreService;
@@ -56,6 +57,11 @@ public abstract class Command<T, S extends Store> implements XCallable<T> {
      */
     private static final String INSTRUMENTATION_JOB_GROUP = "jobs";
 
+    /**
+     * The instrumentation group used for the time the store transactions of Commands are open.
+     */
+    private static final String INSTRUMENTATION_TRX_GROUP = "commands.transactions";
+
     private static final long LOCK_TIMEOUT = 1000;
     protected static final long LOCK_FAILURE_REQUEUE_INTERVAL = 30000;
 
@@ -64,6 +70,7 @@ public abstract class Command<T, S extends Store> implements XCallable<T> {
     private List<XCallable<Void>> delayedCallables;
     private long delay = 0;
     private List<XCallable<Void>> exceptionCallables;
+    private List<String[]> jobStatuses;
     private String name;
     private int priority;
     private int logMask;
@@ -71,6 +78,9 @@ public abstract class Command<T, S extends Store> implements XCallable<T> {
     protected boolean dryrun = false;
     protected String type;
     private ArrayList<LockToken> locks = null;
+    private boolean trxActive;
+    private long trxStart;
+    private long trxTime;
 
     /**
      * This variable is package private for testing purposes only.
@@ -185,19 +195,21 @@ public abstract class Command<T, S extends Store> implements XCallable<T> {
         XLog.Info.get().setParameters(logInfo);
         XLog log = XLog.getLog(getClass());
         log.trace(logMask, "Start");
-        Instrumentation.Cron cron = new Instrumentation.Cron();
-        cron.start();
+        long start = System.currentTimeMillis();
         callables = new ArrayList<XCallable<Void>>();
         delayedCallables = new ArrayList<XCallable<Void>>();
         exceptionCallables = new ArrayList<XCallable<Void>>();
+        jobStatuses = new ArrayList<String[]>();
         delay = 0;
+        trxActive = false;
+        trxTime = 0;
         S store = null;
         boolean exception = false;
 
         try {
             if (withStore) {
                 store = (S) Services.get().get(StoreService.class).getStore(getStoreClass());
-                store.beginTrx();
+                beginTrx(store);
             }
             T result = execute(store);
             /*
@@ -213,7 +225,7 @@ public abstract class Command<T, S extends Store> implements XCallable<T> {
                 if (FaultInjection.isActive("org.apache.oozie.command.SkipCommitFaultInjection")) {
                     throw new RuntimeException("Skipping Commit for Failover Testing");
                 }
-                store.commitTrx();
+                commitTrx(store);
             }
 
             // TODO figure out the reject due to concurrency problems and remove
@@ -228,6 +240,13 @@ public abstract class Command<T, S extends Store> implements XCallable<T> {
                 logQueueCallableFalse(delayedCallables);
             }
 
+            JobStatusService jobStatusService = Services.get().get(JobStatusService.class);
+            if (jobStatusService != null) {
+                for (String[] jobStatus : jobStatuses) {
+                    jobStatusService.publish(jobStatus[0], jobStatus[1]);
+                }
+            }
+
             return result;
         }
         catch (XException ex) {
@@ -287,8 +306,15 @@ public abstract class Command<T, S extends Store> implements XCallable<T> {
         }
         finally {
             FaultInjection.deactivate("org.apache.oozie.command.SkipCommitFaultInjection");
-            cron.stop();
-            instrumentation.addCron(INSTRUMENTATION_GROUP, name, cron);
+            long time = System.currentTimeMillis() - start;
+            instrumentation.addTime(INSTRUMENTATION_GROUP, name, time, time);
+            instrumentation.addLatency(INSTRUMENTATION_GROUP, name, time);
+            if (withStore) {
+                if (trxActive) {
+                    trxTime += System.currentTimeMillis() - trxStart;
+                }
+                instrumentation.addTime(INSTRUMENTATION_TRX_GROUP, name, trxTime, trxTime);
+            }
             incrCommandCounter(1);
             log.trace(logMask, "End");
             if (locks != null) {
@@ -318,6 +344,32 @@ public abstract class Command<T, S extends Store> implements XCallable<T> {
         }
     }
 
+    /**
+     * Begin a transaction of the command store. <p/> The transaction of the command is begun before invoking {@link
+     * #execute(Store)}. Commands calling external systems, which can take long, commit it with {@link #commitTrx(Store)}
+     * before the call and begin a new one after it, so the call does not hold a database connection. <p/> The time the
+     * transactions of the command are open is instrumented.
+     *
+     * @param store the command store.
+     */
+    protected void beginTrx(S store) {
+        store.beginTrx();
+        trxActive = true;
+        trxStart = System.currentTimeMillis();
+    }
+
+    /**
+     * Commit a transaction of the command store begun with {@link #beginTrx(Store)}. <p/> The callables queued by the
+     * command are queued for execution after the last transaction of the command commits.
+     *
+     * @param store the command store.
+     */
+    protected void commitTrx(S store) {
+        store.commitTrx();
+        trxActive = false;
+        trxTime += System.currentTimeMillis() - trxStart;
+    }
+
     /**
      * Queue a callable for execution after the current callable call invocation completes and the {@link WorkflowStore}
      * transaction commits. <p/> All queued callables, regardless of the number of queue invocations, are queued for a
@@ -357,6 +409,17 @@ public abstract class Command<T, S extends Store> implements XCallable<T> {
         this.delay = Math.max(this.delay, delay);
     }
 
+    /**
+     * Publish the status of a job to its subscribers after the current callable call invocation completes and the
+     * store transaction commits. <p/> If the call invocation throws an exception the status is not published.
+     *
+     * @param jobId ID of the job, or of the coordinator action.
+     * @param status new status of the job.
+     */
+    protected void publishJobStatus(String jobId, Enum<?> status) {
+        jobStatuses.add(new String[]{jobId, status.toString()});
+    }
+
     /**
      * Queue a callable for execution only in the event of an exception being thrown during the call invocation. <p/> If
      * an exception does not happen, all the callables queued by this method are discarded, they are not queued for
@@ -16,8 +16,10 @@ package org.apache.oozie.command.coord;
 
 import java.io.IOException;
 import java.io.StringReader;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
@@ -28,6 +30,7 @@ import org.apache.oozie.client.OozieClient;
 import org.apache.oozie.command.CommandException;
 import org.apache.oozie.coord.CoordELEvaluator;
 import org.apache.oozie.coord.CoordELFunctions;
+import org.apache.oozie.service.DependencyCheckService;
 import org.apache.oozie.service.HadoopAccessorException;
 import org.apache.oozie.service.HadoopAccessorService;
 import org.apache.oozie.service.Services;
@@ -222,6 +225,10 @@ public class CoordActionInputCheckCommand extends CoordinatorCommand<Void> {
                 continue;
             }
             ELEvaluator eval = CoordELEvaluator.createLazyEvaluator(actualTime, nominalTime, dEvent, conf);
+            // the waiting actions are checked every requeue interval, the listings made in the same interval are
+            // shared by their checks and the listings of a previous interval are not reused
+            eval.setVariable(CoordELFunctions.LISTED_SINCE,
+                             actualTime.getTime() - actualTime.getTime() % COMMAND_REQUEUE_INTERVAL);
             String uresolvedInstance = dEvent.getChild("unresolved-instances", dEvent.getNamespace()).getTextTrim();
             String unresolvedList[] = uresolvedInstance.split(CoordELFunctions.INSTANCE_SEPARATOR);
             StringBuffer resolvedTmp = new StringBuffer();
@@ -279,11 +286,18 @@ public class CoordActionInputCheckCommand extends CoordinatorCommand<Void> {
 
         String[] uriList = nonExistList.toString().split(CoordELFunctions.INSTANCE_SEPARATOR);
         nonExistList.delete(0, nonExistList.length());
+        String user = ParamChecker.notEmpty(conf.get(OozieClient.USER_NAME), OozieClient.USER_NAME);
+        String group = ParamChecker.notEmpty(conf.get(OozieClient.GROUP_NAME), OozieClient.GROUP_NAME);
+        // without the DependencyCheckService the URIs are checked one by one
+        DependencyCheckService dcs = Services.get().get(DependencyCheckService.class);
+        Map<String, Boolean> exists = (dcs != null)
+                ? dcs.checkExists(Arrays.asList(uriList), user, group, conf, true) : null;
         boolean allExists = true;
         String existSeparator = "", nonExistSeparator = "";
         for (int i = 0; i < uriList.length; i++) {
             if (allExists) {
-                allExists = pathExists(uriList[i], conf);
+                allExists = (exists != null) ? Boolean.TRUE.equals(exists.get(uriList[i]))
+                        : pathExists(uriList[i], user, group, conf);
                 log.info("[" + actionId + "]::ActionInputCheck:: File:" + uriList[i] + ", Exists? :" + allExists);
             }
             if (allExists) {
@@ -298,11 +312,10 @@ public class CoordActionInputCheckCommand extends CoordinatorCommand<Void> {
         return allExists;
     }
 
-    private boolean pathExists(String sPath, Configuration actionConf) throws IOException {
+    private boolean pathExists(String sPath, String user, String group, Configuration actionConf)
+            throws IOException {
         log.debug("checking for the file " + sPath);
         Path path = new Path(sPath);
-        String user = ParamChecker.notEmpty(actionConf.get(OozieClient.USER_NAME), OozieClient.USER_NAME);
-        String group = ParamChecker.notEmpty(actionConf.get(OozieClient.GROUP_NAME), OozieClient.GROUP_NAME);
         try {
             return Services.get().get(HadoopAccessorService.class).
                     createFileSystem(user, group, path.toUri(), actionConf).exists(path);
@@ -81,6 +81,7 @@ public class CoordActionUpdateCommand extends CoordinatorCommand<Void> {
                     SLADbOperations.writeStausEvent(caction.getSlaXml(), caction.getId(), cstore, slaStatus,
                                                     SlaAppType.COORDINATOR_ACTION);
                 }
+                publishJobStatus(caction.getId(), caction.getStatus());
                 queueCallable(new CoordActionReadyCommand(caction.getJobId()));
             }
         }
@@ -15,17 +15,20 @@
 package org.apache.oozie.command.coord;
 
 import java.sql.Timestamp;
+import java.util.Date;
 
 import org.apache.oozie.CoordinatorJobBean;
 import org.apache.oozie.client.CoordinatorJob;
 import org.apache.oozie.command.CommandException;
+import org.apache.oozie.service.CoordJobMatLookupTriggerService;
+import org.apache.oozie.service.Services;
 import org.apache.oozie.store.CoordinatorStore;
 import org.apache.oozie.store.StoreException;
 import org.apache.oozie.util.DateUtils;
 import org.apache.oozie.util.XLog;
 
 public class CoordJobMatLookupCommand extends CoordinatorCommand<Void> {
-    private static final int LOOKAHEAD_WINDOW = 300; // We look ahead 5 minutes for materialization;
+    public static final int LOOKAHEAD_WINDOW = 300; // We look ahead 5 minutes for materialization;
     
     private final XLog log = XLog.getLog(getClass());
     private int materializationWindow;
@@ -55,9 +58,16 @@ public class CoordJobMatLookupCommand extends CoordinatorCommand<Void> {
             return null;
         }
 
+        if (coordJob.getNextMaterializedTime() != null && coordJob.getPauseTime() != null
+                && coordJob.getPauseTime().compareTo(coordJob.getNextMaterializedTime()) <= 0) {
+            log.debug("CoordJobMatLookupCommand for jobId=" + jobId + " job is paused");
+            return null;
+        }
+
         if (coordJob.getNextMaterializedTimestamp() != null
                 && coordJob.getNextMaterializedTimestamp().compareTo(new Timestamp(System.currentTimeMillis())) >= 0) {
             log.debug("CoordJobMatLookupCommand for jobId=" + jobId + " job is already materialized");
+            scheduleLookup(coordJob.getNextMaterializedTime(), true);
             return null;
         }
 
@@ -67,6 +77,7 @@ public class CoordJobMatLookupCommand extends CoordinatorCommand<Void> {
             
             if (startTime.after(new Timestamp(System.currentTimeMillis() + LOOKAHEAD_WINDOW * 1000))) {
                 log.debug("CoordJobMatLookupCommand for jobId=" + jobId + " job's start time is not reached yet - nothing to materialize");
+                scheduleLookup(coordJob.getStartTime(), false);
                 return null;
             }
         }
@@ -89,9 +100,25 @@ public class CoordJobMatLookupCommand extends CoordinatorCommand<Void> {
                 + ", window=" + materializationWindow + ", status=PREMATER");
         queueCallable(new CoordActionMaterializeCommand(jobId, DateUtils.toDate(startTime), DateUtils.toDate(endTime)),
                 100);
+        if (endTime.compareTo(jobEndTime) < 0) {
+            scheduleLookup(DateUtils.toDate(endTime), true);
+        }
         return null;
     }
 
+    /**
+     * Schedule the next materialization lookup of the job.
+     *
+     * @param time next materialized time of the job or, if the job has not been materialized, its start time.
+     * @param materialized if the job has been materialized.
+     */
+    private void scheduleLookup(Date time, boolean materialized) {
+        CoordJobMatLookupTriggerService service = Services.get().get(CoordJobMatLookupTriggerService.class);
+        if (service != null) {
+            service.schedule(jobId, time, materialized);
+        }
+    }
+
     @Override
     protected Void execute(CoordinatorStore store) throws StoreException, CommandException {
         log.info("STARTED CoordJobMatLookupCommand jobId=" + jobId + ", materializationWindow="
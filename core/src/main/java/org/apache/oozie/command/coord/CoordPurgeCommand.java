@@ -14,26 +14,70 @@
  */
 package org.apache.oozie.command.coord;
 
+import java.util.List;
+
+import org.apache.oozie.service.PurgeService;
 import org.apache.oozie.store.CoordinatorStore;
 import org.apache.oozie.store.StoreException;
 import org.apache.oozie.util.XLog;
 import org.apache.oozie.command.CommandException;
 
+/**
+ * Purges the completed coordinator jobs older than a given age, one chunk per execution.
+ * <p/>
+ * See {@link org.apache.oozie.command.wf.PurgeCommand} for the chunking and throttling.
+ */
 public class CoordPurgeCommand extends CoordinatorCommand<Void> {
     private static XLog LOG = XLog.getLog(CoordPurgeCommand.class);
     private int olderThan;
     private int limit;
+    private int rowsPerSecond;
+    private long purgedJobs;
+    private long purgedActions;
 
     public CoordPurgeCommand(int olderThan, int limit) {
+        this(olderThan, limit, 0, 0, 0);
+    }
+
+    /**
+     * Create a coordinator purge command for the next chunk of a purge.
+     *
+     * @param olderThan age of the completed coordinator jobs to purge, in days.
+     * @param limit maximum number of coordinator jobs deleted per chunk.
+     * @param rowsPerSecond maximum rate of deleted rows, <code>0</code> for no throttling.
+     * @param purgedJobs coordinator jobs purged by the previous chunks.
+     * @param purgedActions coordinator actions purged by the previous chunks.
+     */
+    public CoordPurgeCommand(int olderThan, int limit, int rowsPerSecond, long purgedJobs, long purgedActions) {
         super("coord_purge", "coord_purge", 0, XLog.OPS);
         this.olderThan = olderThan;
         this.limit = limit;
+        this.rowsPerSecond = rowsPerSecond;
+        this.purgedJobs = purgedJobs;
+        this.purgedActions = purgedActions;
     }
 
     protected Void call(CoordinatorStore store) throws StoreException, CommandException {
         LOG.debug("STARTED Coord Purge to purge Jobs older than [{0}] days.", olderThan);
-        store.purge(olderThan, limit);
-        LOG.debug("Coord-Purge succeeded");
+        List<String> jobIds = store.getCompletedCoordinatorJobIdsOlderThan(olderThan, limit);
+        int actions = store.purgeCoordinatorJobs(jobIds);
+        purgedJobs += jobIds.size();
+        purgedActions += actions;
+        getInstrumentation().incr(PurgeService.INSTRUMENTATION_GROUP, PurgeService.INSTR_CHUNKS_COUNTER, 1);
+        getInstrumentation().incr(PurgeService.INSTRUMENTATION_GROUP, PurgeService.INSTR_COORD_JOBS_COUNTER,
+                                  jobIds.size());
+        getInstrumentation().incr(PurgeService.INSTRUMENTATION_GROUP, PurgeService.INSTR_COORD_ACTIONS_COUNTER,
+                                  actions);
+        if (limit > 0 && jobIds.size() == limit) {
+            LOG.debug("Coord-Purge chunk deleted jobs [{0}] and actions [{1}], queuing next chunk", jobIds.size(),
+                      actions);
+            CoordPurgeCommand next = new CoordPurgeCommand(olderThan, limit, rowsPerSecond, purgedJobs,
+                                                           purgedActions);
+            queueCallable(next, PurgeService.getThrottleDelay(jobIds.size() + actions, rowsPerSecond));
+        }
+        else {
+            LOG.info("Coord-Purge succeeded, deleted jobs [{0}] and actions [{1}]", purgedJobs, purgedActions);
+        }
         return null;
     }
 
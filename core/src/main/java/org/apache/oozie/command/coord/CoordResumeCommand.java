@@ -56,6 +56,7 @@ public class CoordResumeCommand extends CoordinatorCommand<Void> {
                     }
                 }
                 store.updateCoordinatorJob(coordJob);
+                scheduleMaterialization(coordJob);
             }
             // TODO queueCallable(new NotificationCommand(coordJob));
             else {
@@ -168,6 +168,7 @@ public class CoordSubmitCommand extends CoordinatorCommand<String> {
                 // submit a command to materialize jobs for the next 1 hour (3600 secs)
                 // so we don't wait 10 mins for the Service to run.
                 queueCallable(new CoordJobMatLookupCommand(jobId, 3600), 100);
+                scheduleMaterialization(coordJob);
             }
             else {
                 Date startTime = coordJob.getStartTime();
@@ -18,7 +18,9 @@ import org.apache.oozie.CoordinatorJobBean;
 import org.apache.oozie.WorkflowJobBean;
 import org.apache.oozie.command.Command;
 import org.apache.oozie.command.CommandException;
+import org.apache.oozie.service.CoordJobMatLookupTriggerService;
 import org.apache.oozie.service.DagXLogInfoService;
+import org.apache.oozie.service.Services;
 import org.apache.oozie.service.XLogService;
 import org.apache.oozie.store.CoordinatorStore;
 import org.apache.oozie.store.Store;
@@ -45,4 +47,16 @@ public abstract class CoordinatorCommand<T> extends Command<T, CoordinatorStore>
     public Class<? extends Store> getStoreClass() {
         return CoordinatorStore.class;
     }
+
+    /**
+     * Schedule the materialization lookup of a coordinator job with the {@link CoordJobMatLookupTriggerService}.
+     *
+     * @param coordJob coordinator job.
+     */
+    protected void scheduleMaterialization(CoordinatorJobBean coordJob) {
+        CoordJobMatLookupTriggerService service = Services.get().get(CoordJobMatLookupTriggerService.class);
+        if (service != null) {
+            service.schedule(coordJob);
+        }
+    }
 }
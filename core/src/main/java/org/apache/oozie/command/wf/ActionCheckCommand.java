@@ -85,11 +85,22 @@ public class ActionCheckCommand extends ActionCommand<Void> {
                         context = new ActionCommand.ActionExecutorContext(workflow, action, isRetry);
                         incrActionCounter(action.getType(), 1);
 
+                        commitTrxBeforeExecutor(store, workflow);
+                        ActionExecutorException executorEx = null;
                         Instrumentation.Cron cron = new Instrumentation.Cron();
                         cron.start();
-                        executor.check(context, action);
-                        cron.stop();
-                        addActionCron(action.getType(), cron);
+                        try {
+                            executor.check(context, action);
+                            cron.stop();
+                            addActionCron(action.getType(), cron);
+                        }
+                        catch (ActionExecutorException ex) {
+                            executorEx = ex;
+                        }
+                        beginTrxAfterExecutor(store, workflow);
+                        if (executorEx != null) {
+                            throw executorEx;
+                        }
 
                         if (action.isExecutionComplete()) {
                             if (!context.isExecuted()) {
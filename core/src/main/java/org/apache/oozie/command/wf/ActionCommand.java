@@ -25,6 +25,7 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.oozie.DagELFunctions;
+import org.apache.oozie.ErrorCode;
 import org.apache.oozie.WorkflowActionBean;
 import org.apache.oozie.WorkflowJobBean;
 import org.apache.oozie.action.ActionExecutor;
@@ -57,6 +58,8 @@ public abstract class ActionCommand<T> extends WorkflowCommand<Void> {
 
     protected static final String RECOVERY_ID_SEPARATOR = "@";
 
+    private int workflowVersion;
+
     public ActionCommand(String name, String type, int priority) {
         super(name, type, priority, XLog.STD);
     }
@@ -179,6 +182,67 @@ public abstract class ActionCommand<T> extends WorkflowCommand<Void> {
         }
     }
 
+    /**
+     * Commit the transaction of the command before calling the action executor. <p/> Executors submit and query Hadoop
+     * jobs and read from HDFS, which can take long, the transaction is committed not to hold a database connection and
+     * the workflow row lock meanwhile. Nothing must have been written to the store yet, the changes to the action and
+     * to the workflow are written after the executor call, in the transaction begun by {@link
+     * #beginTrxAfterExecutor(WorkflowStore, WorkflowJobBean)}.
+     *
+     * @param store the workflow store.
+     * @param workflow the workflow of the action, as read in the committed transaction.
+     */
+    protected void commitTrxBeforeExecutor(WorkflowStore store, WorkflowJobBean workflow) {
+        workflowVersion = workflow.getVersion();
+        commitTrx(store);
+    }
+
+    /**
+     * Begin a new transaction after calling the action executor. <p/> The workflow must not have been modified by
+     * another command while the executor was called, its version is checked against the one read
+     * before committing the previous transaction. If it has been modified, the executor call outcome is discarded,
+     * the action is left pending and it is picked up again by the recovery service.
+     *
+     * @param store the workflow store.
+     * @param workflow the workflow of the action.
+     * @throws StoreException thrown if the workflow could not be read.
+     * @throws CommandException thrown if the workflow has been modified while calling the executor.
+     */
+    protected void beginTrxAfterExecutor(WorkflowStore store, WorkflowJobBean workflow) throws StoreException,
+            CommandException {
+        beginTrx(store);
+        if (isWorkflowModified(store, workflow)) {
+            throw new CommandException(ErrorCode.E0809, workflow.getId(), getName());
+        }
+    }
+
+    /**
+     * Begin a new transaction after the action executor started the action. <p/> As {@link
+     * #beginTrxAfterExecutor(WorkflowStore, WorkflowJobBean)}, but if the workflow has been modified the action is
+     * written before failing. The executor has already submitted the external job, discarding its start data (external
+     * id, tracker URI, console URL) would submit the job again when the action is retried. The action is left pending
+     * and it is picked up again by the recovery service, the changes to the workflow are discarded.
+     *
+     * @param store the workflow store.
+     * @param workflow the workflow of the action.
+     * @param action the action started by the executor.
+     * @throws StoreException thrown if the workflow could not be read or the action could not be written.
+     * @throws CommandException thrown if the workflow has been modified while calling the executor.
+     */
+    protected void beginTrxAfterStart(WorkflowStore store, WorkflowJobBean workflow, WorkflowActionBean action)
+            throws StoreException, CommandException {
+        beginTrx(store);
+        if (isWorkflowModified(store, workflow)) {
+            store.updateAction(action);
+            commitTrx(store);
+            throw new CommandException(ErrorCode.E0809, workflow.getId(), getName());
+        }
+    }
+
+    private boolean isWorkflowModified(WorkflowStore store, WorkflowJobBean workflow) throws StoreException {
+        return store.getWorkflowSummary(workflow.getId()).getVersion() != workflowVersion;
+    }
+
     private void incrActionErrorCounter(String type, String error, int count) {
         getInstrumentation().incr(INSTRUMENTATION_GROUP, type + "#ex." + error, count);
     }
@@ -87,11 +87,22 @@ public class ActionEndCommand extends ActionCommand<Void> {
                         workflow.setWorkflowInstance(wfInstance);
                         incrActionCounter(action.getType(), 1);
 
+                        commitTrxBeforeExecutor(store, workflow);
+                        ActionExecutorException executorEx = null;
                         Instrumentation.Cron cron = new Instrumentation.Cron();
                         cron.start();
-                        executor.end(context, action);
-                        cron.stop();
-                        addActionCron(action.getType(), cron);
+                        try {
+                            executor.end(context, action);
+                            cron.stop();
+                            addActionCron(action.getType(), cron);
+                        }
+                        catch (ActionExecutorException ex) {
+                            executorEx = ex;
+                        }
+                        beginTrxAfterExecutor(store, workflow);
+                        if (executorEx != null) {
+                            throw executorEx;
+                        }
 
                         if (!context.isEnded()) {
                             XLog.getLog(getClass()).warn(XLog.OPS,
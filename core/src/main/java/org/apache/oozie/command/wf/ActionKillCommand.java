@@ -53,11 +53,22 @@ public class ActionKillCommand extends ActionCommand<Void> {
                     ActionExecutorContext context = new ActionCommand.ActionExecutorContext(workflow, action, isRetry);
                     incrActionCounter(action.getType(), 1);
 
+                    commitTrxBeforeExecutor(store, workflow);
+                    ActionExecutorException executorEx = null;
                     Instrumentation.Cron cron = new Instrumentation.Cron();
                     cron.start();
-                    executor.kill(context, action);
-                    cron.stop();
-                    addActionCron(action.getType(), cron);
+                    try {
+                        executor.kill(context, action);
+                        cron.stop();
+                        addActionCron(action.getType(), cron);
+                    }
+                    catch (ActionExecutorException ex) {
+                        executorEx = ex;
+                    }
+                    beginTrxAfterExecutor(store, workflow);
+                    if (executorEx != null) {
+                        throw executorEx;
+                    }
 
                     action.resetPending();
                     action.setStatus(WorkflowActionBean.Status.KILLED);
@@ -123,12 +123,24 @@ public class ActionStartCommand extends ActionCommand<Void> {
                         action.setErrorInfo(null, null);
                         incrActionCounter(action.getType(), 1);
 
+                        commitTrxBeforeExecutor(store, workflow);
+                        ActionExecutorException executorEx = null;
                         Instrumentation.Cron cron = new Instrumentation.Cron();
                         cron.start();
-                        executor.start(context, action);
-                        cron.stop();
-                        FaultInjection.activate("org.apache.oozie.command.SkipCommitFaultInjection");
-                        addActionCron(action.getType(), cron);
+                        try {
+                            executor.start(context, action);
+                            cron.stop();
+                            FaultInjection.activate("org.apache.oozie.command.SkipCommitFaultInjection");
+                            addActionCron(action.getType(), cron);
+                        }
+                        catch (ActionExecutorException ex) {
+                            executorEx = ex;
+                        }
+                        if (executorEx != null) {
+                            beginTrxAfterExecutor(store, workflow);
+                            throw executorEx;
+                        }
+                        beginTrxAfterStart(store, workflow, action);
 
                         action.setRetries(0);
                         if (action.isExecutionComplete()) {
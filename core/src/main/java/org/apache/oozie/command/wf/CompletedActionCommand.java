@@ -33,6 +33,8 @@ public class CompletedActionCommand extends WorkflowCommand<Void> {
     private String actionId;
     private String externalStatus;
     private Properties actionData;
+    private boolean synchronous;
+    private ActionCheckCommand checkCommand;
 
     public CompletedActionCommand(String actionId, String externalStatus, Properties actionData, int priority) {
         super("callback", "callback", priority, XLog.STD);
@@ -54,7 +56,10 @@ public class CompletedActionCommand extends WorkflowCommand<Void> {
             // this is done because oozie notifications (of sub-wfs) is send
             // every status change, not only on completion.
             if (executor.isCompleted(externalStatus)) {
-                queueCallable(new ActionCheckCommand(action.getId(), getPriority(), -1));
+                checkCommand = new ActionCheckCommand(action.getId(), getPriority(), -1);
+                if (!synchronous) {
+                    queueCallable(checkCommand);
+                }
             }
         }
         else {
@@ -63,4 +68,21 @@ public class CompletedActionCommand extends WorkflowCommand<Void> {
         return null;
     }
 
+    /**
+     * Process the callback in the calling thread, the action check is executed once the callback command completes
+     * instead of being queued.
+     * <p/>
+     * It is used to process the pending callbacks on shutdown, when the queued commands would be discarded.
+     *
+     * @throws CommandException thrown if the callback or the action check could not be processed.
+     */
+    public void callSynchronously() throws CommandException {
+        synchronous = true;
+        checkCommand = null;
+        call();
+        if (checkCommand != null) {
+            checkCommand.call();
+        }
+    }
+
 }
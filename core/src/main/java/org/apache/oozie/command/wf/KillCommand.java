@@ -87,6 +87,7 @@ public class KillCommand extends WorkflowCommand<Void> {
                 }
                 store.updateWorkflow(workflow);
                 queueCallable(new NotificationCommand(workflow));
+                publishJobStatus(workflow.getId(), workflow.getStatus());
             }
             return null;
         }
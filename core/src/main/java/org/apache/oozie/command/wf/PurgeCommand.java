@@ -14,27 +14,70 @@
  */
 package org.apache.oozie.command.wf;
 
+import java.util.List;
+
+import org.apache.oozie.service.PurgeService;
 import org.apache.oozie.store.StoreException;
 import org.apache.oozie.store.WorkflowStore;
 import org.apache.oozie.util.XLog;
 import org.apache.oozie.command.CommandException;
 
+/**
+ * Purges the completed workflows older than a given age, one chunk per execution.
+ * <p/>
+ * Each execution selects at most <code>limit</code> workflow IDs and deletes them and their actions with bulk deletes
+ * in its own transaction. If the chunk was full the command queues itself for the next chunk, delayed to keep the
+ * deleted rows within the rows per second budget.
+ */
 public class PurgeCommand extends WorkflowCommand<Void> {
     private static XLog LOG = XLog.getLog(PurgeCommand.class);
     private int olderThan;
     private int limit;
+    private int rowsPerSecond;
+    private long purgedJobs;
+    private long purgedActions;
 
     public PurgeCommand(int olderThan, int limit) {
+        this(olderThan, limit, 0, 0, 0);
+    }
+
+    /**
+     * Create a purge command for the next chunk of a purge.
+     *
+     * @param olderThan age of the completed workflows to purge, in days.
+     * @param limit maximum number of workflows deleted per chunk.
+     * @param rowsPerSecond maximum rate of deleted rows, <code>0</code> for no throttling.
+     * @param purgedJobs workflows purged by the previous chunks.
+     * @param purgedActions actions purged by the previous chunks.
+     */
+    public PurgeCommand(int olderThan, int limit, int rowsPerSecond, long purgedJobs, long purgedActions) {
         super("purge", "purge", 0, XLog.OPS);
         this.olderThan = olderThan;
         this.limit = limit;
+        this.rowsPerSecond = rowsPerSecond;
+        this.purgedJobs = purgedJobs;
+        this.purgedActions = purgedActions;
     }
 
     @Override
     protected Void call(WorkflowStore store) throws StoreException, CommandException {
         LOG.debug("Attempting to purge Jobs older than [{0}] days.", olderThan);
-        store.purge(olderThan, limit);
-        LOG.debug("Purge succeeded ");
+        List<String> wfIds = store.getCompletedWorkflowIdsOlderThan(olderThan, limit);
+        int actions = store.purgeWorkflows(wfIds);
+        purgedJobs += wfIds.size();
+        purgedActions += actions;
+        getInstrumentation().incr(PurgeService.INSTRUMENTATION_GROUP, PurgeService.INSTR_CHUNKS_COUNTER, 1);
+        getInstrumentation().incr(PurgeService.INSTRUMENTATION_GROUP, PurgeService.INSTR_WF_JOBS_COUNTER,
+                                  wfIds.size());
+        getInstrumentation().incr(PurgeService.INSTRUMENTATION_GROUP, PurgeService.INSTR_WF_ACTIONS_COUNTER, actions);
+        if (limit > 0 && wfIds.size() == limit) {
+            LOG.debug("Purge chunk deleted jobs [{0}] and actions [{1}], queuing next chunk", wfIds.size(), actions);
+            PurgeCommand next = new PurgeCommand(olderThan, limit, rowsPerSecond, purgedJobs, purgedActions);
+            queueCallable(next, PurgeService.getThrottleDelay(wfIds.size() + actions, rowsPerSecond));
+        }
+        else {
+            LOG.info("Purge succeeded, deleted jobs [{0}] and actions [{1}]", purgedJobs, purgedActions);
+        }
         return null;
     }
 
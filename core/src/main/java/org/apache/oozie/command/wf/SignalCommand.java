@@ -106,6 +106,7 @@ public class SignalCommand extends WorkflowCommand<Void> {
                             writeSLARegistrationForAllActions(workflowInstance.getApp().getDefinition(), workflow
                                     .getUser(), workflow.getGroup(), workflow.getConf(), store);
                             queueCallable(new NotificationCommand(workflow));
+                            publishJobStatus(workflow.getId(), workflow.getStatus());
                         }
                         else {
                             throw new CommandException(ErrorCode.E0801, workflow.getId());
@@ -164,6 +165,7 @@ public class SignalCommand extends WorkflowCommand<Void> {
                         SLADbOperations.writeStausEvent(workflow.getSlaXml(), jobId, store, slaStatus,
                                                         SlaAppType.WORKFLOW_JOB);
                         queueCallable(new NotificationCommand(workflow));
+                        publishJobStatus(workflow.getId(), workflow.getStatus());
                         if (workflow.getStatus() == WorkflowJob.Status.SUCCEEDED) {
                             incrJobCounter(INSTR_SUCCEEDED_JOBS_COUNTER_NAME, 1);
                         }
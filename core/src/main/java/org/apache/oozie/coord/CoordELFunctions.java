@@ -15,8 +15,12 @@
 package org.apache.oozie.coord;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
 import java.util.TimeZone;
 
 import org.apache.hadoop.conf.Configuration;
@@ -27,6 +31,7 @@ import org.apache.oozie.util.DateUtils;
 import org.apache.oozie.util.ELEvaluator;
 import org.apache.oozie.util.ParamChecker;
 import org.apache.oozie.util.XLog;
+import org.apache.oozie.service.DependencyCheckService;
 import org.apache.oozie.service.HadoopAccessorException;
 import org.apache.oozie.service.Services;
 import org.apache.oozie.service.HadoopAccessorService;
@@ -39,11 +44,15 @@ public class CoordELFunctions {
     final private static String DATASET = "oozie.coord.el.dataset.bean";
     final private static String COORD_ACTION = "oozie.coord.el.app.bean";
     final public static String CONFIGURATION = "oozie.coord.el.conf";
+    // time, in milliseconds, since which directory listings are reused by coord:latest() and coord:future()
+    final public static String LISTED_SINCE = "oozie.coord.el.listed.since";
     // INSTANCE_SEPARATOR is used to separate multiple directories into one tag.
     final public static String INSTANCE_SEPARATOR = "#";
     final public static String DIR_SEPARATOR = ",";
     // TODO: in next release, support flexibility
     private static String END_OF_OPERATION_INDICATOR_FILE = "_SUCCESS";
+    // maximum number of instances checked at once by coord:latest() and coord:future()
+    private static final int INSTANCE_BATCH = 100;
 
     /**
      * Used in defining the frequency in 'day' unit. <p/> domain: <code> val &gt; 0</code> and should be integer.
@@ -244,31 +253,38 @@ public class CoordELFunctions {
             String group = ParamChecker.notEmpty((String) eval.getVariable(OozieClient.GROUP_NAME),
                     OozieClient.GROUP_NAME);
             String doneFlag = ds.getDoneFlag();
-            while (instance >= checkedInstance) {
-                ELEvaluator uriEval = getUriEvaluator(nominalInstanceCal);
-                String uriPath = uriEval.evaluate(uriTemplate, String.class);
-                String pathWithDoneFlag = uriPath;
-                if (doneFlag.length() > 0) {
-                    pathWithDoneFlag += "/" + doneFlag;
+            ELEvaluator uriEval = new ELEvaluator();
+            long listedSince = getListedSince(eval);
+            // the first batch is enough if the instances are available, the next ones are larger
+            int batchSize = Math.min(n + 1, INSTANCE_BATCH);
+            while (!resolved && instance >= checkedInstance) {
+                // next batch of instances, from the current one forwards
+                List<Calendar> instances = new ArrayList<Calendar>();
+                List<String> uriPaths = new ArrayList<String>();
+                while (instances.size() < batchSize && instance >= checkedInstance) {
+                    instances.add(nominalInstanceCal);
+                    uriPaths.add(evaluateUri(uriEval, uriTemplate, nominalInstanceCal));
+                    nominalInstanceCal = (Calendar) initInstance.clone();
+                    instCount[0]++;
+                    nominalInstanceCal.add(dsTimeUnit.getCalendarUnit(), instCount[0] * datasetFrequency);
+                    checkedInstance++;
                 }
-                if (isPathAvailable(pathWithDoneFlag, user, group, conf)) {
-                    XLog.getLog(CoordELFunctions.class).debug("Found future(" + available + "): " + pathWithDoneFlag);
-                    if (available == n) {
-                        XLog.getLog(CoordELFunctions.class).debug("Found future File: " + pathWithDoneFlag);
-                        resolved = true;
-                        retVal = DateUtils.formatDateUTC(nominalInstanceCal);
-                        eval.setVariable("resolved_path", uriPath);
-                        break;
+                batchSize = Math.min(batchSize * 2, INSTANCE_BATCH);
+                Map<String, Boolean> listed = listInstances(uriPaths, user, group, conf, listedSince);
+                for (int i = 0; i < instances.size(); i++) {
+                    String uriPath = uriPaths.get(i);
+                    if (isInstanceAvailable(uriPath, doneFlag, listed, user, group, conf, listedSince)) {
+                        XLog.getLog(CoordELFunctions.class).debug("Found future(" + available + "): " + uriPath);
+                        if (available == n) {
+                            XLog.getLog(CoordELFunctions.class).debug("Found future File: " + uriPath);
+                            resolved = true;
+                            retVal = DateUtils.formatDateUTC(instances.get(i));
+                            eval.setVariable("resolved_path", uriPath);
+                            break;
+                        }
+                        available++;
                     }
-                    available++;
                 }
-                // nominalInstanceCal.add(dsTimeUnit.getCalendarUnit(),
-                // -datasetFrequency);
-                nominalInstanceCal = (Calendar) initInstance.clone();
-                instCount[0]++;
-                nominalInstanceCal.add(dsTimeUnit.getCalendarUnit(), instCount[0] * datasetFrequency);
-                checkedInstance++;
-                // DateUtils.moveToEnd(nominalInstanceCal, getDSEndOfFlag());
             }
             if (!resolved) {
                 // return unchanged future function with variable 'is_resolved'
@@ -725,31 +741,37 @@ public class CoordELFunctions {
             String group = ParamChecker.notEmpty((String) eval.getVariable(OozieClient.GROUP_NAME),
                                                  OozieClient.GROUP_NAME);
             String doneFlag = ds.getDoneFlag();
-            while (nominalInstanceCal.compareTo(initInstance) >= 0) {
-                ELEvaluator uriEval = getUriEvaluator(nominalInstanceCal);
-                String uriPath = uriEval.evaluate(uriTemplate, String.class);
-                String pathWithDoneFlag = uriPath;
-                if (doneFlag.length() > 0) {
-                    pathWithDoneFlag += "/" + doneFlag;
+            ELEvaluator uriEval = new ELEvaluator();
+            long listedSince = getListedSince(eval);
+            // the first batch is enough if the instances are available, the next ones are larger
+            int batchSize = Math.min(1 - offset, INSTANCE_BATCH);
+            while (!resolved && nominalInstanceCal.compareTo(initInstance) >= 0) {
+                // next batch of instances, from the current one backwards
+                List<Calendar> instances = new ArrayList<Calendar>();
+                List<String> uriPaths = new ArrayList<String>();
+                while (instances.size() < batchSize && nominalInstanceCal.compareTo(initInstance) >= 0) {
+                    instances.add(nominalInstanceCal);
+                    uriPaths.add(evaluateUri(uriEval, uriTemplate, nominalInstanceCal));
+                    nominalInstanceCal = (Calendar) initInstance.clone();
+                    instCount[0]--;
+                    nominalInstanceCal.add(dsTimeUnit.getCalendarUnit(), instCount[0] * datasetFrequency);
                 }
-                if (isPathAvailable(pathWithDoneFlag, user, group, conf)) {
-                    XLog.getLog(CoordELFunctions.class).debug("Found latest(" + available + "): " + pathWithDoneFlag);
-                    if (available == offset) {
-                        XLog.getLog(CoordELFunctions.class).debug("Found Latest File: " + pathWithDoneFlag);
-                        resolved = true;
-                        retVal = DateUtils.formatDateUTC(nominalInstanceCal);
-                        eval.setVariable("resolved_path", uriPath);
-                        break;
+                batchSize = Math.min(batchSize * 2, INSTANCE_BATCH);
+                Map<String, Boolean> listed = listInstances(uriPaths, user, group, conf, listedSince);
+                for (int i = 0; i < instances.size(); i++) {
+                    String uriPath = uriPaths.get(i);
+                    if (isInstanceAvailable(uriPath, doneFlag, listed, user, group, conf, listedSince)) {
+                        XLog.getLog(CoordELFunctions.class).debug("Found latest(" + available + "): " + uriPath);
+                        if (available == offset) {
+                            XLog.getLog(CoordELFunctions.class).debug("Found Latest File: " + uriPath);
+                            resolved = true;
+                            retVal = DateUtils.formatDateUTC(instances.get(i));
+                            eval.setVariable("resolved_path", uriPath);
+                            break;
+                        }
+                        available--;
                     }
-
-                    available--;
                 }
-                // nominalInstanceCal.add(dsTimeUnit.getCalendarUnit(),
-                // -datasetFrequency);
-                nominalInstanceCal = (Calendar) initInstance.clone();
-                instCount[0]--;
-                nominalInstanceCal.add(dsTimeUnit.getCalendarUnit(), instCount[0] * datasetFrequency);
-                // DateUtils.moveToEnd(nominalInstanceCal, getDSEndOfFlag());
             }
             if (!resolved) {
                 // return unchanged latest function with variable 'is_resolved'
@@ -767,8 +789,70 @@ public class CoordELFunctions {
         return retVal;
     }
 
-    // TODO : Not an efficient way. In a loop environment, we could do something
-    // outside the loop
+    /**
+     * Return the time since which directory listings are reused to resolve the instances.
+     * <p/>
+     * A stale listing would miss the instances created since. The input check sets the start of its check cycle, the
+     * listings are shared by the actions checked in the same cycle. Otherwise only the listings of the resolution are
+     * reused.
+     *
+     * @param eval evaluator of the resolution.
+     * @return the time, in milliseconds, since which directory listings are reused.
+     */
+    private static long getListedSince(ELEvaluator eval) {
+        Long listedSince = (Long) eval.getVariable(LISTED_SINCE);
+        return (listedSince != null) ? listedSince : System.currentTimeMillis();
+    }
+
+    /**
+     * Check the existence of the directories of a batch of dataset instances.
+     * <p/>
+     * The parent directories of the instances are listed, once each, instead of checking the instances one by one.
+     * Only the listings made since <code>listedSince</code> are reused, so instances created since an older listing are
+     * not missed. The existing instances are remembered, see {@link DependencyCheckService}.
+     *
+     * @param uriPaths URIs of the instances.
+     * @param listedSince time, in milliseconds, listings made before are not reused.
+     * @return the existence of the instances, <code>null</code> if the DependencyCheckService is not available.
+     * @throws IOException thrown if a filesystem could not be accessed.
+     */
+    private static Map<String, Boolean> listInstances(List<String> uriPaths, String user, String group,
+                                                      Configuration conf, long listedSince) throws IOException {
+        DependencyCheckService dcs = Services.get().get(DependencyCheckService.class);
+        return (dcs != null) ? dcs.checkExists(uriPaths, user, group, conf, false, true, listedSince) : null;
+    }
+
+    /**
+     * Check whether a dataset instance is available, its done flag is checked only if the instance exists.
+     *
+     * @param uriPath URI of the instance.
+     * @param doneFlag done flag of the dataset, empty if the instance directory is the done flag.
+     * @param listed existence of the instances, from {@link #listInstances}, it may be <code>null</code>.
+     * @param listedSince time, in milliseconds, listings made before are not reused.
+     * @return whether the instance is available.
+     */
+    private static boolean isInstanceAvailable(String uriPath, String doneFlag, Map<String, Boolean> listed,
+                                               String user, String group, Configuration conf, long listedSince)
+            throws IOException, HadoopAccessorException {
+        if (listed != null) {
+            if (!listed.get(uriPath)) {
+                return false;
+            }
+            if (doneFlag.length() == 0) {
+                return true;
+            }
+            String pathWithDoneFlag = uriPath + "/" + doneFlag;
+            return Services.get().get(DependencyCheckService.class).checkExists(
+                    Collections.singletonList(pathWithDoneFlag), user, group, conf, false, false, listedSince)
+                    .get(pathWithDoneFlag);
+        }
+        String pathWithDoneFlag = uriPath;
+        if (doneFlag.length() > 0) {
+            pathWithDoneFlag += "/" + doneFlag;
+        }
+        return isPathAvailable(pathWithDoneFlag, user, group, conf);
+    }
+
     /**
      * Check whether a URI path exists
      *
@@ -792,6 +876,23 @@ public class CoordELFunctions {
      */
     private static ELEvaluator getUriEvaluator(Calendar tm) {
         ELEvaluator retEval = new ELEvaluator();
+        setUriVariables(retEval, tm);
+        return retEval;
+    }
+
+    /**
+     * @param uriEval evaluator to reuse for the URI-template evaluation
+     * @param uriTemplate URI-template
+     * @param tm instance time
+     * @return the URI of the instance
+     * @throws Exception
+     */
+    private static String evaluateUri(ELEvaluator uriEval, String uriTemplate, Calendar tm) throws Exception {
+        setUriVariables(uriEval, tm);
+        return uriEval.evaluate(uriTemplate, String.class);
+    }
+
+    private static void setUriVariables(ELEvaluator retEval, Calendar tm) {
         retEval.setVariable("YEAR", tm.get(Calendar.YEAR));
         retEval.setVariable("MONTH", (tm.get(Calendar.MONTH) + 1) < 10 ? "0" + (tm.get(Calendar.MONTH) + 1) : (tm
                 .get(Calendar.MONTH) + 1));
@@ -801,7 +902,6 @@ public class CoordELFunctions {
                 .get(Calendar.HOUR_OF_DAY));
         retEval.setVariable("MINUTE", tm.get(Calendar.MINUTE) < 10 ? "0" + tm.get(Calendar.MINUTE) : tm
                 .get(Calendar.MINUTE));
-        return retEval;
     }
 
     /**
@@ -917,33 +1017,19 @@ public class CoordELFunctions {
         Date datasetInitialInstance = getInitialInstance();
         TimeUnit dsTimeUnit = getDSTimeUnit();
         TimeZone dsTZ = getDatasetTZ();
-        // Convert Date to Calendar for corresponding TZ
-        Calendar current = Calendar.getInstance();
-        current.setTime(datasetInitialInstance);
-        current.setTimeZone(dsTZ);
-
-        Calendar calEffectiveTime = Calendar.getInstance();
-        calEffectiveTime.setTime(effectiveTime);
-        calEffectiveTime.setTimeZone(dsTZ);
+        int frequency = getDSFrequency();
         instanceCount[0] = 0;
-        if (current.compareTo(calEffectiveTime) > 0) {
+        int index = DatasetInstanceCalculator.getCurrentIndex(datasetInitialInstance, dsTZ, dsTimeUnit, frequency,
+                                                              effectiveTime);
+        if (index < 0) {
             // Nominal Time < initial Instance
             // TODO: getClass() call doesn't work from static method.
             // XLog.getLog("CoordELFunction.class").warn("ACTION CREATED BEFORE INITIAL INSTACE "+
             // current.getTime());
             return null;
         }
-        Calendar origCurrent = (Calendar) current.clone();
-        while (current.compareTo(calEffectiveTime) <= 0) {
-            current = (Calendar) origCurrent.clone();
-            instanceCount[0]++;
-            current.add(dsTimeUnit.getCalendarUnit(), instanceCount[0] * getDSFrequency());
-        }
-        instanceCount[0]--;
-
-        current = (Calendar) origCurrent.clone();
-        current.add(dsTimeUnit.getCalendarUnit(), instanceCount[0] * getDSFrequency());
-        return current;
+        instanceCount[0] = index;
+        return DatasetInstanceCalculator.getInstance(datasetInitialInstance, dsTZ, dsTimeUnit, frequency, index);
     }
 
     private static Calendar getEffectiveNominalTime() {
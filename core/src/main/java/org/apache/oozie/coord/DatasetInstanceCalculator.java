@@ -0,0 +1,159 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.coord;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.TimeZone;
+
+import org.apache.oozie.util.LRUCache;
+import org.apache.oozie.util.ParamChecker;
+
+/**
+ * Computes the instances of a synchronous dataset without iterating from its initial instance.
+ * <p/>
+ * The n-th instance of a dataset is its initial instance plus <code>n * frequency</code> time units, added with a
+ * {@link Calendar} in the dataset time zone. Day and month units are calendar units, their length in milliseconds
+ * depends on daylight saving time changes and on the month.
+ * <p/>
+ * The index of the instance of a given time is estimated dividing the time elapsed since an anchor instance by the
+ * approximate length of an instance, then the estimate is corrected comparing it with the exact instance times, the
+ * correction takes a few steps at most. The anchor is the last instance resolved for the dataset, kept in a bounded
+ * cache, or the initial instance.
+ * <p/>
+ * All methods are thread safe.
+ */
+public class DatasetInstanceCalculator {
+
+    private static final int MAX_ANCHORS = 1000;
+
+    private static final long MINUTE_MILLIS = 60 * 1000L;
+    private static final long HOUR_MILLIS = 60 * MINUTE_MILLIS;
+    private static final long DAY_MILLIS = 24 * HOUR_MILLIS;
+    // average length of a month in the Gregorian calendar, 365.2425 / 12 days
+    private static final long MONTH_MILLIS = 2629746000L;
+
+    private static final LRUCache<String, Anchor> ANCHORS = new LRUCache<String, Anchor>(MAX_ANCHORS, MAX_ANCHORS);
+
+    /**
+     * Last resolved instance of a dataset.
+     */
+    private static class Anchor {
+        private final int index;
+        private final long time;
+
+        private Anchor(int index, long time) {
+            this.index = index;
+            this.time = time;
+        }
+    }
+
+    private DatasetInstanceCalculator() {
+    }
+
+    /**
+     * Return the index of the instance of a dataset current at a given time, the last instance not after the time.
+     *
+     * @param initialInstance initial instance of the dataset.
+     * @param timeZone time zone of the dataset.
+     * @param timeUnit time unit of the dataset frequency.
+     * @param frequency dataset frequency, in time units.
+     * @param time time to get the current instance for.
+     * @return the index of the current instance, <code>-1</code> if the time is before the initial instance.
+     */
+    public static int getCurrentIndex(Date initialInstance, TimeZone timeZone, TimeUnit timeUnit, int frequency,
+                                      Date time) {
+        ParamChecker.checkGTZero(frequency, "frequency");
+        long initial = initialInstance.getTime();
+        long effective = time.getTime();
+        if (effective < initial) {
+            return -1;
+        }
+        String key = initial + "#" + timeZone.getID() + "#" + timeUnit + "#" + frequency;
+        Anchor anchor = ANCHORS.get(key);
+        if (anchor == null) {
+            anchor = new Anchor(0, initial);
+        }
+
+        long estimate = anchor.index + (effective - anchor.time) / (getApproximateMillis(timeUnit) * frequency);
+        int index = (int) Math.max(0, Math.min(estimate, Integer.MAX_VALUE / frequency - 1));
+        long instance = getInstanceTime(initial, timeZone, timeUnit, frequency, index);
+        while (instance > effective) {
+            index--;
+            instance = getInstanceTime(initial, timeZone, timeUnit, frequency, index);
+        }
+        long next = getInstanceTime(initial, timeZone, timeUnit, frequency, index + 1);
+        while (next <= effective) {
+            index++;
+            instance = next;
+            next = getInstanceTime(initial, timeZone, timeUnit, frequency, index + 1);
+        }
+        if (index != anchor.index) {
+            ANCHORS.put(key, new Anchor(index, instance));
+        }
+        return index;
+    }
+
+    /**
+     * Return an instance of a dataset.
+     *
+     * @param initialInstance initial instance of the dataset.
+     * @param timeZone time zone of the dataset.
+     * @param timeUnit time unit of the dataset frequency.
+     * @param frequency dataset frequency, in time units.
+     * @param index index of the instance, it may be negative.
+     * @return the instance, a calendar in the dataset time zone.
+     */
+    public static Calendar getInstance(Date initialInstance, TimeZone timeZone, TimeUnit timeUnit, int frequency,
+                                       int index) {
+        Calendar cal = Calendar.getInstance(timeZone);
+        cal.setTime(initialInstance);
+        cal.add(timeUnit.getCalendarUnit(), index * frequency);
+        return cal;
+    }
+
+    private static long getInstanceTime(long initial, TimeZone timeZone, TimeUnit timeUnit, int frequency,
+                                        int index) {
+        switch (timeUnit) {
+            case MINUTE:
+                return initial + index * frequency * MINUTE_MILLIS;
+            case HOUR:
+                return initial + index * frequency * HOUR_MILLIS;
+            default:
+                Calendar cal = Calendar.getInstance(timeZone);
+                cal.setTimeInMillis(initial);
+                cal.add(timeUnit.getCalendarUnit(), index * frequency);
+                return cal.getTimeInMillis();
+        }
+    }
+
+    private static long getApproximateMillis(TimeUnit timeUnit) {
+        switch (timeUnit) {
+            case MINUTE:
+                return MINUTE_MILLIS;
+            case HOUR:
+                return HOUR_MILLIS;
+            case DAY:
+            case END_OF_DAY:
+                return DAY_MILLIS;
+            case MONTH:
+            case END_OF_MONTH:
+                return MONTH_MILLIS;
+            default:
+                throw new IllegalArgumentException("Invalid dataset time unit: " + timeUnit);
+        }
+    }
+
+}
@@ -15,16 +15,20 @@
 package org.apache.oozie.service;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.hadoop.conf.Configuration;
-import org.apache.oozie.CoordinatorActionBean;
-import org.apache.oozie.WorkflowActionBean;
+import org.apache.oozie.action.hadoop.LauncherStatusChecker;
 import org.apache.oozie.command.coord.CoordActionCheckCommand;
 import org.apache.oozie.command.wf.ActionCheckCommand;
+import org.apache.oozie.store.CoordinatorActionSummary;
 import org.apache.oozie.store.CoordinatorStore;
 import org.apache.oozie.store.Store;
 import org.apache.oozie.store.StoreException;
+import org.apache.oozie.store.WorkflowActionSummary;
 import org.apache.oozie.store.WorkflowStore;
 import org.apache.oozie.util.XCallable;
 import org.apache.oozie.util.XLog;
@@ -51,20 +55,35 @@ public class ActionCheckerService implements Service {
      */
     public static final String CONF_CALLABLE_BATCH_SIZE = CONF_PREFIX + "callable.batch.size";
 
+    /**
+     * Indicates if the launcher jobs of running Hadoop actions are checked in bulk.
+     */
+    public static final String CONF_BULK_CHECK = CONF_PREFIX + "bulk.check";
+
+    private static final int BULK_UPDATE_SIZE = 100;
+
     protected static final String INSTRUMENTATION_GROUP = "actionchecker";
     protected static final String INSTR_CHECK_ACTIONS_COUNTER = "checks_wf_actions";
     protected static final String INSTR_CHECK_COORD_ACTIONS_COUNTER = "checks_coord_actions";
+    protected static final String INSTR_UNCHANGED_ACTIONS_COUNTER = "unchanged_wf_actions";
+    protected static final String INSTR_LISTINGS_COUNTER = "jobtracker_listings";
 
     /**
      * {@link ActionCheckRunnable} is the runnable which is scheduled to run and queue Action checks.
      */
     static class ActionCheckRunnable<S extends Store> implements Runnable {
         private int actionCheckDelay;
+        private boolean bulkCheck;
         private List<XCallable<Void>> callables;
         private StringBuilder msg = null;
 
         public ActionCheckRunnable(int actionCheckDelay) {
+            this(actionCheckDelay, false);
+        }
+
+        public ActionCheckRunnable(int actionCheckDelay, boolean bulkCheck) {
             this.actionCheckDelay = actionCheckDelay;
+            this.bulkCheck = bulkCheck;
         }
 
         public void run() {
@@ -96,17 +115,47 @@ public class ActionCheckerService implements Service {
             try {
                 store = (WorkflowStore) Services.get().get(StoreService.class).getStore(WorkflowStore.class);
                 store.beginTrx();
-                List<WorkflowActionBean> actions = store.getRunningActions(actionCheckDelay);
+                List<WorkflowActionSummary> actions = store.getRunningActionSummaries(actionCheckDelay);
+                store.commitTrx();
                 msg.append(" WF_ACTIONS : " + actions.size());
-                for (WorkflowActionBean action : actions) {
+
+                // the JobTrackers are queried with no transaction open
+                Set<String> running = Collections.emptySet();
+                if (bulkCheck) {
+                    LauncherStatusChecker checker = new LauncherStatusChecker();
+                    running = checker.getRunningActions(actions);
                     Services.get().get(InstrumentationService.class).get().incr(INSTRUMENTATION_GROUP,
-                                                                                INSTR_CHECK_ACTIONS_COUNTER, 1);
-                    queueCallable(new ActionCheckCommand(action.getId()));
+                                                                                INSTR_LISTINGS_COUNTER,
+                                                                                checker.getListings());
+                }
+                List<String> unchanged = new ArrayList<String>();
+                for (WorkflowActionSummary action : actions) {
+                    if (running.contains(action.getId())) {
+                        unchanged.add(action.getId());
+                    }
+                    else {
+                        Services.get().get(InstrumentationService.class).get().incr(INSTRUMENTATION_GROUP,
+                                                                                    INSTR_CHECK_ACTIONS_COUNTER, 1);
+                        queueCallable(new ActionCheckCommand(action.getId()));
+                    }
+                }
+
+                if (!unchanged.isEmpty()) {
+                    msg.append(" WF_ACTIONS_UNCHANGED : " + unchanged.size());
+                    Services.get().get(InstrumentationService.class).get().incr(INSTRUMENTATION_GROUP,
+                                                                                INSTR_UNCHANGED_ACTIONS_COUNTER,
+                                                                                unchanged.size());
+                    Date now = new Date();
+                    store.beginTrx();
+                    for (int i = 0; i < unchanged.size(); i += BULK_UPDATE_SIZE) {
+                        store.updateActionsLastCheckTime(
+                                unchanged.subList(i, Math.min(i + BULK_UPDATE_SIZE, unchanged.size())), now);
+                    }
+                    store.commitTrx();
                 }
-                store.commitTrx();
             }
             catch (StoreException ex) {
-                if (store != null) {
+                if (store != null && store.isActive()) {
                     store.rollbackTrx();
                 }
                 log.warn("Exception while accessing the store", ex);
@@ -150,9 +199,9 @@ public class ActionCheckerService implements Service {
             try {
                 store = Services.get().get(StoreService.class).getStore(CoordinatorStore.class);
                 store.beginTrx();
-                List<CoordinatorActionBean> cactions = store.getRunningActionsOlderThan(actionCheckDelay, false);
+                List<CoordinatorActionSummary> cactions = store.getRunningActionSummariesOlderThan(actionCheckDelay);
                 msg.append(" COORD_ACTIONS : " + cactions.size());
-                for (CoordinatorActionBean caction : cactions) {
+                for (CoordinatorActionSummary caction : cactions) {
                     Services.get().get(InstrumentationService.class).get().incr(INSTRUMENTATION_GROUP,
                                                                                 INSTR_CHECK_COORD_ACTIONS_COUNTER, 1);
                     queueCallable(new CoordActionCheckCommand(caction.getId(), actionCheckDelay));
@@ -225,7 +274,8 @@ public class ActionCheckerService implements Service {
     @Override
     public void init(Services services) {
         Configuration conf = services.getConf();
-        Runnable actionCheckRunnable = new ActionCheckRunnable(conf.getInt(CONF_ACTION_CHECK_DELAY, 600));
+        Runnable actionCheckRunnable = new ActionCheckRunnable(conf.getInt(CONF_ACTION_CHECK_DELAY, 600),
+                                                               conf.getBoolean(CONF_BULK_CHECK, true));
         services.get(SchedulerService.class).schedule(actionCheckRunnable, 10,
                                                       conf.getInt(CONF_ACTION_CHECK_INTERVAL, 60), SchedulerService.Unit.SEC);
     }
@@ -26,20 +26,25 @@ import java.util.Set;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
-import org.apache.oozie.CoordinatorJobBean;
 import org.apache.oozie.ErrorCode;
-import org.apache.oozie.WorkflowJobBean;
 import org.apache.oozie.client.XOozieClient;
+import org.apache.oozie.store.CoordinatorJobSummary;
 import org.apache.oozie.store.CoordinatorStore;
+import org.apache.oozie.store.Store;
 import org.apache.oozie.store.StoreException;
+import org.apache.oozie.store.WorkflowJobSummary;
 import org.apache.oozie.store.WorkflowStore;
+import org.apache.oozie.util.Instrumentable;
 import org.apache.oozie.util.Instrumentation;
+import org.apache.oozie.util.LRUCache;
 import org.apache.oozie.util.XLog;
 
 /**
  * The authorization service provides all authorization checks.
+ * <p/>
+ * The user and group of the jobs are kept in an LRU cache, the ownership of a job does not change after submission.
  */
-public class AuthorizationService implements Service {
+public class AuthorizationService implements Service, Instrumentable {
 
     public static final String CONF_PREFIX = Service.CONF_PREFIX + "AuthorizationService.";
 
@@ -48,6 +53,11 @@ public class AuthorizationService implements Service {
      */
     public static final String CONF_SECURITY_ENABLED = CONF_PREFIX + "security.enabled";
 
+    /**
+     * Maximum number of jobs kept in the job owner cache, if zero or less jobs are not cached.
+     */
+    public static final String CONF_JOB_OWNER_CACHE_SIZE = CONF_PREFIX + "job.owner.cache.size";
+
     /**
      * File that contains list of admin users for Oozie.
      */
@@ -63,6 +73,8 @@ public class AuthorizationService implements Service {
 
     private Set<String> adminUsers;
     private boolean securityEnabled;
+    // job id -> {user, group}
+    private LRUCache<String, String[]> ownerCache;
 
     private final XLog log = XLog.getLog(getClass());
     private Instrumentation instrumentation;
@@ -77,6 +89,8 @@ public class AuthorizationService implements Service {
     public void init(Services services) throws ServiceException {
         adminUsers = new HashSet<String>();
         securityEnabled = services.getConf().getBoolean(CONF_SECURITY_ENABLED, false);
+        int ownerCacheSize = services.getConf().getInt(CONF_JOB_OWNER_CACHE_SIZE, 10000);
+        ownerCache = (ownerCacheSize > 0) ? new LRUCache<String, String[]>(ownerCacheSize, Long.MAX_VALUE) : null;
         instrumentation = Services.get().get(InstrumentationService.class).get();
         if (securityEnabled) {
             log.info("Oozie running with security enabled");
@@ -87,6 +101,19 @@ public class AuthorizationService implements Service {
         }
     }
 
+    /**
+     * Instruments the authorization service.
+     * <p/>
+     * It exposes the hits, misses, evictions and entries of the job owner cache.
+     *
+     * @param instr instance to instrument the authorization service to.
+     */
+    public void instrument(Instrumentation instr) {
+        if (ownerCache != null) {
+            ownerCache.instrument(instr, INSTRUMENTATION_GROUP, "job.owner.cache");
+        }
+    }
+
     /**
      * Return if security is enabled or not.
      *
@@ -330,110 +357,118 @@ public class AuthorizationService implements Service {
      */
     public void authorizeForJob(String user, String jobId, boolean write) throws AuthorizationException {
         if (securityEnabled && write && !isAdmin(user)) {
-            // handle workflow jobs
-            if (jobId.endsWith("-W")) {
-                WorkflowJobBean jobBean = null;
-                WorkflowStore store = null;
-                try {
-                    store = Services.get().get(WorkflowStoreService.class).create();
-                    store.beginTrx();
-                    jobBean = store.getWorkflow(jobId, false);
-                    store.commitTrx();
-                }
-                catch (StoreException ex) {
+            String[] owner = getJobOwner(jobId);
+            if (!owner[0].equals(user)) {
+                if (!isUserInGroup(user, owner[1])) {
                     incrCounter(INSTR_FAILED_AUTH_COUNTER, 1);
-                    if (store != null) {
-                        store.rollbackTrx();
-                    }
-                    throw new AuthorizationException(ex);
+                    // handle workflow jobs and coordinator jobs
+                    throw new AuthorizationException((jobId.endsWith("-W")) ? ErrorCode.E0508 : ErrorCode.E0509,
+                                                     user, jobId);
                 }
-                catch (Exception ex) {
-                    incrCounter(INSTR_FAILED_AUTH_COUNTER, 1);
-                    log.error("Exception, {0}", ex.getMessage(), ex);
-                    if (store != null && store.isActive()) {
-                        try {
-                            store.rollbackTrx();
-                        }
-                        catch (RuntimeException rex) {
-                            log.warn("openjpa error, {0}", rex.getMessage(), rex);
-                        }
-                    }
-                    throw new AuthorizationException(ErrorCode.E0501, ex);
+            }
+        }
+    }
+
+    /**
+     * Return the user and group of a job. <p/> The ownership of a job does not change after submission, it is read
+     * from the store the first time and then served from the job owner cache.
+     *
+     * @param jobId job id.
+     * @return array with the user and the group of the job.
+     * @throws AuthorizationException thrown if the job could not be read from the store.
+     */
+    private String[] getJobOwner(String jobId) throws AuthorizationException {
+        String[] owner = (ownerCache != null) ? ownerCache.get(jobId) : null;
+        if (owner != null) {
+            return owner;
+        }
+        // handle workflow jobs
+        if (jobId.endsWith("-W")) {
+            WorkflowStore store = null;
+            try {
+                store = Services.get().get(WorkflowStoreService.class).create();
+                store.beginTrx();
+                WorkflowJobSummary job = store.getWorkflowSummary(jobId);
+                owner = new String[]{job.getUser(), job.getGroup()};
+                store.commitTrx();
+            }
+            catch (StoreException ex) {
+                incrCounter(INSTR_FAILED_AUTH_COUNTER, 1);
+                if (store != null) {
+                    store.rollbackTrx();
                 }
-                finally {
-                    if (store != null) {
-                        if (!store.isActive()) {
-                            try {
-                                store.closeTrx();
-                            }
-                            catch (RuntimeException rex) {
-                                log.warn("Exception while attempting to close store", rex);
-                            }
-                        }
-                        else {
-                            log.warn("transaction is not committed or rolled back before closing entitymanager.");
-                        }
+                throw new AuthorizationException(ex);
+            }
+            catch (Exception ex) {
+                incrCounter(INSTR_FAILED_AUTH_COUNTER, 1);
+                log.error("Exception, {0}", ex.getMessage(), ex);
+                if (store != null && store.isActive()) {
+                    try {
+                        store.rollbackTrx();
                     }
-                }
-                if (jobBean != null && !jobBean.getUser().equals(user)) {
-                    if (!isUserInGroup(user, jobBean.getGroup())) {
-                        incrCounter(INSTR_FAILED_AUTH_COUNTER, 1);
-                        throw new AuthorizationException(ErrorCode.E0508, user, jobId);
+                    catch (RuntimeException rex) {
+                        log.warn("openjpa error, {0}", rex.getMessage(), rex);
                     }
                 }
+                throw new AuthorizationException(ErrorCode.E0501, ex);
             }
-            // handle coordinator jobs
-            else {
-                CoordinatorJobBean jobBean = null;
-                CoordinatorStore store = null;
-                try {
-                    store = Services.get().get(CoordinatorStoreService.class).create();
-                    store.beginTrx();
-                    jobBean = store.getCoordinatorJob(jobId, false);
-                    store.commitTrx();
+            finally {
+                closeStore(store);
+            }
+        }
+        // handle coordinator jobs
+        else {
+            CoordinatorStore store = null;
+            try {
+                store = Services.get().get(CoordinatorStoreService.class).create();
+                store.beginTrx();
+                CoordinatorJobSummary job = store.getCoordinatorJobSummary(jobId);
+                owner = new String[]{job.getUser(), job.getGroup()};
+                store.commitTrx();
+            }
+            catch (StoreException ex) {
+                incrCounter(INSTR_FAILED_AUTH_COUNTER, 1);
+                if (store != null) {
+                    store.rollbackTrx();
                 }
-                catch (StoreException ex) {
-                    incrCounter(INSTR_FAILED_AUTH_COUNTER, 1);
-                    if (store != null) {
+                throw new AuthorizationException(ex);
+            }
+            catch (Exception ex) {
+                incrCounter(INSTR_FAILED_AUTH_COUNTER, 1);
+                log.error("Exception, {0}", ex.getMessage(), ex);
+                if (store != null && store.isActive()) {
+                    try {
                         store.rollbackTrx();
                     }
-                    throw new AuthorizationException(ex);
-                }
-                catch (Exception ex) {
-                    incrCounter(INSTR_FAILED_AUTH_COUNTER, 1);
-                    log.error("Exception, {0}", ex.getMessage(), ex);
-                    if (store != null && store.isActive()) {
-                        try {
-                            store.rollbackTrx();
-                        }
-                        catch (RuntimeException rex) {
-                            log.warn("openjpa error, {0}", rex.getMessage(), rex);
-                        }
+                    catch (RuntimeException rex) {
+                        log.warn("openjpa error, {0}", rex.getMessage(), rex);
                     }
-                    throw new AuthorizationException(ErrorCode.E0501, ex);
                 }
-                finally {
-                    if (store != null) {
-                        if (!store.isActive()) {
-                            try {
-                                store.closeTrx();
-                            }
-                            catch (RuntimeException rex) {
-                                log.warn("Exception while attempting to close store", rex);
-                            }
-                        }
-                        else {
-                            log.warn("transaction is not committed or rolled back before closing entitymanager.");
-                        }
-                    }
+                throw new AuthorizationException(ErrorCode.E0501, ex);
+            }
+            finally {
+                closeStore(store);
+            }
+        }
+        if (ownerCache != null) {
+            ownerCache.put(jobId, owner);
+        }
+        return owner;
+    }
+
+    private void closeStore(Store store) {
+        if (store != null) {
+            if (!store.isActive()) {
+                try {
+                    store.closeTrx();
                 }
-                if (jobBean != null && !jobBean.getUser().equals(user)) {
-                    if (!isUserInGroup(user, jobBean.getGroup())) {
-                        incrCounter(INSTR_FAILED_AUTH_COUNTER, 1);
-                        throw new AuthorizationException(ErrorCode.E0509, user, jobId);
-                    }
+                catch (RuntimeException rex) {
+                    log.warn("Exception while attempting to close store", rex);
                 }
             }
+            else {
+                log.warn("transaction is not committed or rolled back before closing entitymanager.");
+            }
         }
     }
 
@@ -15,10 +15,13 @@
 package org.apache.oozie.service;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -26,9 +29,11 @@ import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.oozie.client.OozieClient.SYSTEM_MODE;
+import org.apache.oozie.util.BlockingPriorityDelayQueue;
 import org.apache.oozie.util.Instrumentable;
 import org.apache.oozie.util.Instrumentation;
 import org.apache.oozie.util.PriorityDelayQueue;
+import org.apache.oozie.util.ShardedPriorityDelayQueue;
 import org.apache.oozie.util.XCallable;
 import org.apache.oozie.util.XLog;
 import org.apache.oozie.util.PriorityDelayQueue.QueueElement;
@@ -53,6 +58,14 @@ import org.apache.oozie.util.PriorityDelayQueue.QueueElement;
  * of threads is reached, commands remain the queue until threads become available. Sets up a priority queue for the
  * execution of Commands via a ThreadPool. Sets up a Delayed Queue to handle actions which will be ready for execution
  * sometime in the future.
+ * <p/>
+ * {@link #CONF_CALLABLE_CONCURRENCY} maximum number of callables of the same type running concurrently. Default value
+ * is 3. It can be set for a specific callable type with the <code>CONF_CALLABLE_CONCURRENCY + "." + TYPE</code>
+ * property. Callables exceeding the concurrency of their type wait in a per type list until a running callable of the
+ * same type ends.
+ * <p/>
+ * {@link #CONF_QUEUE_SHARDED} if <code>true</code> the lock-free {@link ShardedPriorityDelayQueue} is used instead of
+ * the {@link PriorityDelayQueue}. Default value is <code>false</code>.
  */
 public class CallableQueueService implements Service, Instrumentable {
     private static final String INSTRUMENTATION_GROUP = "callablequeue";
@@ -66,41 +79,122 @@ public class CallableQueueService implements Service, Instrumentable {
     public static final String CONF_PREFIX = Service.CONF_PREFIX + "CallableQueueService.";
 
     public static final String CONF_QUEUE_SIZE = CONF_PREFIX + "queue.size";
+    public static final String CONF_QUEUE_SHARDED = CONF_PREFIX + "queue.sharded";
     public static final String CONF_THREADS = CONF_PREFIX + "threads";
     public static final String CONF_CALLABLE_CONCURRENCY = CONF_PREFIX + "callable.concurrency";
 
-    public static final int CONCURRENCY_DELAY = 500;
-
     public static final int SAFE_MODE_DELAY = 60000;
 
-    final private Map<String, AtomicInteger> activeCallables = new HashMap<String, AtomicInteger>();
+    private static final String INSTR_ACTIVE_VARIABLE = "#active";
+    private static final String INSTR_WAITING_VARIABLE = "#waiting";
+    private static final String INSTR_EXCEEDED_CONCURRENCY_COUNTER = "#exceeded.concurrency";
+    private static final String INSTR_REJECTED_COUNTER = "#rejected";
+
+    final private ConcurrentHashMap<String, Throttle> throttles = new ConcurrentHashMap<String, Throttle>();
+    final private AtomicInteger parked = new AtomicInteger();
+    final private AtomicLong parkingSeq = new AtomicLong();
     private int maxCallableConcurrency;
+    private Configuration conf;
+
+    // parked callables are handed a slot by priority, callables of the same priority in the order they were parked
+    private static final Comparator<CallableWrapper> PARKING_ORDER = new Comparator<CallableWrapper>() {
+        public int compare(CallableWrapper w1, CallableWrapper w2) {
+            if (w1.getPriority() != w2.getPriority()) {
+                return (w1.getPriority() > w2.getPriority()) ? -1 : 1;
+            }
+            return (w1.parkingOrder < w2.parkingOrder) ? -1 : ((w1.parkingOrder == w2.parkingOrder) ? 0 : 1);
+        }
+    };
 
-    private boolean callableBegin(XCallable callable) {
-        synchronized (activeCallables) {
-            AtomicInteger counter = activeCallables.get(callable.getType());
-            if (counter == null) {
-                counter = new AtomicInteger(1);
-                activeCallables.put(callable.getType(), counter);
+    /**
+     * Concurrency throttle for a callable type.
+     * <p/>
+     * Callables exceeding the concurrency of their type are parked in the throttle waiting list, when a running
+     * callable of the type ends its slot is handed to the highest priority parked callable which is queued again for
+     * execution. Parked callables count towards the queue size.
+     */
+    class Throttle {
+        private final String type;
+        private final int concurrency;
+        private final Semaphore slots;
+        private final PriorityBlockingQueue<CallableWrapper> waiting =
+                new PriorityBlockingQueue<CallableWrapper>(11, PARKING_ORDER);
+
+        public Throttle(String type, int concurrency) {
+            this.type = type;
+            this.concurrency = concurrency;
+            slots = new Semaphore(concurrency);
+        }
+
+        /**
+         * Take a concurrency slot for a callable, if there are no slots available the callable is parked.
+         *
+         * @param wrapper callable wrapper.
+         * @return <code>true</code> if the callable got a slot and it can be executed, <code>false</code> if it has
+         *         been parked.
+         */
+        public boolean begin(CallableWrapper wrapper) {
+            if (wrapper.hasSlot || slots.tryAcquire()) {
+                wrapper.hasSlot = false;
                 return true;
             }
-            else {
-                int i = counter.incrementAndGet();
-                return i <= maxCallableConcurrency;
+            wrapper.parkingOrder = parkingSeq.incrementAndGet();
+            parked.incrementAndGet();
+            waiting.offer(wrapper);
+            log.debug("max concurrency for callable [{0}] exceeded, parking it", type);
+            incrCounter(type + INSTR_EXCEEDED_CONCURRENCY_COUNTER, 1);
+            // a slot may have been freed while the callable was being parked
+            dispatch();
+            return false;
+        }
+
+        /**
+         * Give back the concurrency slot of a callable.
+         */
+        public void end() {
+            slots.release();
+            dispatch();
+        }
+
+        private void dispatch() {
+            while (!waiting.isEmpty() && slots.tryAcquire()) {
+                CallableWrapper wrapper = waiting.poll();
+                if (wrapper == null) {
+                    slots.release();
+                    break;
+                }
+                parked.decrementAndGet();
+                wrapper.hasSlot = true;
+                wrapper.setDelay(0, TimeUnit.MILLISECONDS);
+                if (!queue(wrapper, true)) {
+                    // the executor is shutting down, the callable is dropped and its slot is not used
+                    wrapper.hasSlot = false;
+                    slots.release();
+                }
             }
         }
+
+        public int getActive() {
+            return concurrency - slots.availablePermits();
+        }
+
+        public int getWaiting() {
+            return waiting.size();
+        }
     }
 
-    private void callableEnd(XCallable callable) {
-        synchronized (activeCallables) {
-            AtomicInteger counter = activeCallables.get(callable.getType());
-            if (counter == null) {
-                throw new IllegalStateException("It should not happen");
-            }
-            else {
-                counter.decrementAndGet();
+    private Throttle getThrottle(String type) {
+        Throttle throttle = throttles.get(type);
+        if (throttle == null) {
+            int concurrency = conf.getInt(CONF_CALLABLE_CONCURRENCY + "." + type, maxCallableConcurrency);
+            Throttle newThrottle = new Throttle(type, concurrency);
+            throttle = throttles.putIfAbsent(type, newThrottle);
+            if (throttle == null) {
+                throttle = newThrottle;
+                instrumentThrottle(throttle);
             }
         }
+        return throttle;
     }
 
     // Callables are wrapped with the this wrapper for execution, for logging
@@ -109,6 +203,8 @@ public class CallableQueueService implements Service, Instrumentable {
     // executor and a priority queue.
     class CallableWrapper extends PriorityDelayQueue.QueueElement<XCallable<?>> implements Runnable {
         private Instrumentation.Cron cron;
+        private volatile boolean hasSlot;
+        private long parkingOrder;
 
         public CallableWrapper(XCallable<?> callable, long delay) {
             super(callable, callable.getPriority(), delay, TimeUnit.MILLISECONDS);
@@ -121,12 +217,17 @@ public class CallableQueueService implements Service, Instrumentable {
                 log.info("Oozie is in SAFEMODE, requeuing callable [{0}] with [{1}]ms delay", getElement().getType(),
                         SAFE_MODE_DELAY);
                 setDelay(SAFE_MODE_DELAY, TimeUnit.MILLISECONDS);
+                if (hasSlot) {
+                    hasSlot = false;
+                    getThrottle(getElement().getType()).end();
+                }
                 queue(this, true);
                 return;
             }
             XCallable<?> callable = getElement();
-            try {
-                if (callableBegin(callable)) {
+            Throttle throttle = getThrottle(callable.getType());
+            if (throttle.begin(this)) {
+                try {
                     cron.stop();
                     addInQueueCron(cron);
                     XLog.Info.get().clear();
@@ -145,17 +246,10 @@ public class CallableQueueService implements Service, Instrumentable {
                         XLog.Info.get().clear();
                     }
                 }
-                else {
-                    log.warn("max concurrency for callable [{0}] exceeded, requeueing with [{1}]ms delay", callable
-                            .getType(), CONCURRENCY_DELAY);
-                    setDelay(CONCURRENCY_DELAY, TimeUnit.MILLISECONDS);
-                    queue(this, true);
-                    incrCounter(callable.getType() + "#exceeded.concurrency", 1);
+                finally {
+                    throttle.end();
                 }
             }
-            finally {
-                callableEnd(callable);
-            }
         }
 
         /**
@@ -262,7 +356,7 @@ public class CallableQueueService implements Service, Instrumentable {
     private XLog log = XLog.getLog(getClass());
 
     private int queueSize;
-    private PriorityDelayQueue<CallableWrapper> queue;
+    private BlockingPriorityDelayQueue<CallableWrapper> queue;
     private AtomicLong delayQueueExecCounter = new AtomicLong(0);
     private ThreadPoolExecutor executor;
     private Instrumentation instrumentation;
@@ -293,17 +387,27 @@ public class CallableQueueService implements Service, Instrumentable {
     @Override
     @SuppressWarnings("unchecked")
     public void init(Services services) {
-        Configuration conf = services.getConf();
+        conf = services.getConf();
 
         queueSize = conf.getInt(CONF_QUEUE_SIZE, 10000);
         int threads = conf.getInt(CONF_THREADS, 10);
 
-        queue = new PriorityDelayQueue<CallableWrapper>(3, 1000 * 30, TimeUnit.MILLISECONDS, queueSize) {
-            @Override
-            protected void debug(String msgTemplate, Object... msgArgs) {
-                log.trace(msgTemplate, msgArgs);
-            }
-        };
+        if (conf.getBoolean(CONF_QUEUE_SHARDED, false)) {
+            queue = new ShardedPriorityDelayQueue<CallableWrapper>(3, 1000 * 30, TimeUnit.MILLISECONDS, queueSize) {
+                @Override
+                protected void debug(String msgTemplate, Object... msgArgs) {
+                    log.trace(msgTemplate, msgArgs);
+                }
+            };
+        }
+        else {
+            queue = new PriorityDelayQueue<CallableWrapper>(3, 1000 * 30, TimeUnit.MILLISECONDS, queueSize) {
+                @Override
+                protected void debug(String msgTemplate, Object... msgArgs) {
+                    log.trace(msgTemplate, msgArgs);
+                }
+            };
+        }
 
         // IMPORTANT: The ThreadPoolExecutor does not always the execute
         // commands out of the queue, there are
@@ -367,22 +471,30 @@ public class CallableQueueService implements Service, Instrumentable {
     }
 
     /**
-     * @return int size of queue
+     * @return int size of queue, including the callables parked because their type exceeded its concurrency
      */
     public synchronized int queueSize() {
-        return queue.size();
+        return queue.size() + parked.get();
     }
 
     private boolean queue(CallableWrapper wrapper, boolean ignoreQueueSize) {
-        if (!ignoreQueueSize && queue.size() >= queueSize) {
+        if (!ignoreQueueSize && queue.size() + parked.get() >= queueSize) {
             log.warn("queue if full, ignoring queuing for [{0}]", wrapper.getElement());
+            incrCounter(wrapper.getElement().getType() + INSTR_REJECTED_COUNTER, 1);
             return false;
         }
         if (!executor.isShutdown()) {
-            executor.execute(wrapper);
+            try {
+                executor.execute(wrapper);
+            }
+            catch (RejectedExecutionException ex) {
+                log.warn("Executor shutting down, ignoring queueing of [{0}]", wrapper.getElement());
+                return false;
+            }
         }
         else {
             log.warn("Executor shutting down, ignoring queueing of [{0}]", wrapper.getElement());
+            return false;
         }
         return true;
     }
@@ -473,6 +585,23 @@ public class CallableQueueService implements Service, Instrumentable {
         return queued;
     }
 
+    private void instrumentThrottle(final Throttle throttle) {
+        if (instrumentation != null) {
+            instrumentation.addVariable(INSTRUMENTATION_GROUP, throttle.type + INSTR_ACTIVE_VARIABLE,
+                                        new Instrumentation.Variable<Long>() {
+                public Long getValue() {
+                    return (long) throttle.getActive();
+                }
+            });
+            instrumentation.addVariable(INSTRUMENTATION_GROUP, throttle.type + INSTR_WAITING_VARIABLE,
+                                        new Instrumentation.Variable<Long>() {
+                public Long getValue() {
+                    return (long) throttle.getWaiting();
+                }
+            });
+        }
+    }
+
     /**
      * Instruments the callable queue service.
      *
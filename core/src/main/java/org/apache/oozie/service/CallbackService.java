@@ -14,25 +14,111 @@
  */
 package org.apache.oozie.service;
 
+import org.apache.oozie.command.wf.CompletedActionCommand;
 import org.apache.oozie.service.Service;
 import org.apache.oozie.service.Services;
+import org.apache.oozie.util.Instrumentable;
+import org.apache.oozie.util.Instrumentation;
+import org.apache.oozie.util.LRUCache;
 import org.apache.oozie.util.ParamChecker;
+import org.apache.oozie.util.XLog;
 import org.apache.hadoop.conf.Configuration;
 
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
 
 /**
- * Service that generates and parses callback URLs.
+ * Service that generates and parses callback URLs and ingests the callbacks.
+ * <p/>
+ * Callbacks are not queued one command per HTTP request. They are kept pending per action ID, a callback for an action
+ * already pending replaces the pending one, and a callback repeating the external status of a callback dispatched
+ * within the dedupe window is discarded. The pending callbacks are dispatched at a fixed interval as batches of {@link
+ * CompletedActionCommand}, each batch taking a single slot of the {@link CallableQueueService} queue. A batch holds the
+ * callbacks of a single workflow job, callbacks of different jobs are processed in parallel.
+ * <p/>
+ * If the batches cannot be queued the callbacks stay pending, once the maximum number of pending callbacks is reached
+ * new callbacks are rejected so the caller can retry them later. Callbacks are rejected as well while the service is
+ * being destroyed.
  */
-public class CallbackService implements Service {
+public class CallbackService implements Service, Instrumentable {
 
     public static final String CONF_PREFIX = Service.CONF_PREFIX + "CallbackService.";
 
     public static final String CONF_BASE_URL = CONF_PREFIX + "base.url";
 
+    /**
+     * Time, in seconds, a callback repeating the external status of a dispatched callback is discarded.
+     */
+    public static final String CONF_DEDUPE_WINDOW = CONF_PREFIX + "dedupe.window";
+
+    /**
+     * Maximum number of pending callbacks, callbacks for other actions are rejected beyond it.
+     */
+    public static final String CONF_MAX_PENDING = CONF_PREFIX + "max.pending";
+
+    /**
+     * Maximum number of callbacks dispatched in a single queued batch, a batch has callbacks of a single job.
+     */
+    public static final String CONF_BATCH_SIZE = CONF_PREFIX + "batch.size";
+
+    /**
+     * Interval, in milliseconds, at which the pending callbacks are dispatched.
+     */
+    public static final String CONF_DISPATCH_INTERVAL = CONF_PREFIX + "dispatch.interval";
+
+    public static final String INSTRUMENTATION_GROUP = "callback";
+    public static final String INSTR_ACCEPTED_COUNTER = "accepted";
+    public static final String INSTR_DEDUPED_COUNTER = "deduped";
+    public static final String INSTR_DROPPED_COUNTER = "dropped";
+    public static final String INSTR_DISPATCHED_COUNTER = "dispatched";
+    public static final String INSTR_BATCHES_COUNTER = "batches";
+
+    private static class Callback {
+        private final String actionId;
+        private final String jobId;
+        private final String externalStatus;
+        private final Properties actionData;
+        private final int priority;
+
+        private Callback(String actionId, String externalStatus, Properties actionData, int priority) {
+            this.actionId = actionId;
+            int index = actionId.indexOf("@");
+            jobId = (index > -1) ? actionId.substring(0, index) : actionId;
+            this.externalStatus = externalStatus;
+            this.actionData = actionData;
+            this.priority = priority;
+        }
+    }
+
+    private static class Dispatched {
+        private final String externalStatus;
+        private final long time;
+
+        private Dispatched(String externalStatus, long time) {
+            this.externalStatus = externalStatus;
+            this.time = time;
+        }
+    }
+
+    private final XLog log = XLog.getLog(getClass());
+    private Services services;
     private Configuration oozieConf;
+    private final Map<String, Callback> pending = new LinkedHashMap<String, Callback>();
+    private LRUCache<String, Dispatched> dispatched;
+    private long dedupeWindow;
+    private int maxPending;
+    private int batchSize;
+    private long dispatchInterval;
+    private boolean destroyed;
+    private Instrumentation instrumentation;
 
     /**
      * Initialize the service.
@@ -40,13 +126,50 @@ public class CallbackService implements Service {
      * @param services services instance.
      */
     public void init(Services services) {
+        this.services = services;
         oozieConf = services.getConf();
+        dedupeWindow = oozieConf.getLong(CONF_DEDUPE_WINDOW, 30) * 1000;
+        maxPending = oozieConf.getInt(CONF_MAX_PENDING, 10000);
+        batchSize = oozieConf.getInt(CONF_BATCH_SIZE, 50);
+        dispatchInterval = oozieConf.getLong(CONF_DISPATCH_INTERVAL, 200);
+        dispatched = new LRUCache<String, Dispatched>(Math.max(maxPending, 1), Long.MAX_VALUE);
+        Runnable dispatcher = new Runnable() {
+            public void run() {
+                dispatch();
+            }
+        };
+        services.get(SchedulerService.class).schedule(dispatcher, dispatchInterval, dispatchInterval,
+                                                      SchedulerService.Unit.MILLISEC);
     }
 
     /**
      * Destroy the service.
+     * <p/>
+     * New callbacks are rejected. The pending callbacks have already been acknowledged to their callers, they are
+     * processed synchronously as the queued commands are discarded on shutdown. The service must be destroyed before
+     * the {@link ActionService}, the stores and the {@link CallableQueueService}, it is listed after them.
      */
     public void destroy() {
+        synchronized (pending) {
+            destroyed = true;
+        }
+        List<Callback> remaining;
+        synchronized (pending) {
+            remaining = new ArrayList<Callback>(pending.values());
+            pending.clear();
+        }
+        if (!remaining.isEmpty()) {
+            log.warn(XLog.OPS, "Processing [{0}] pending callbacks before shutting down", remaining.size());
+            for (Callback callback : remaining) {
+                try {
+                    createCommand(callback).callSynchronously();
+                }
+                catch (Exception ex) {
+                    log.warn(XLog.OPS, "Could not process callback for action [{0}], {1}", callback.actionId,
+                             ex.getMessage(), ex);
+                }
+            }
+        }
     }
 
     /**
@@ -58,6 +181,154 @@ public class CallbackService implements Service {
         return CallbackService.class;
     }
 
+    /**
+     * Instrument the callback service.
+     *
+     * @param instr instance to instrument the callback service to.
+     */
+    public void instrument(Instrumentation instr) {
+        instrumentation = instr;
+        instr.addVariable(INSTRUMENTATION_GROUP, "pending", new Instrumentation.Variable<Long>() {
+            public Long getValue() {
+                synchronized (pending) {
+                    return (long) pending.size();
+                }
+            }
+        });
+    }
+
+    /**
+     * Ingest an action callback, it is dispatched asynchronously.
+     *
+     * @param actionId action ID of the callback.
+     * @param externalStatus action external status of the callback.
+     * @param actionData action output data, <code>null</code> if none.
+     * @param priority priority of the command processing the callback.
+     * @return <code>true</code> if the callback was accepted or it was a duplicate, <code>false</code> if it was
+     *         rejected because there are too many pending callbacks or the service is being destroyed.
+     */
+    public boolean ingest(String actionId, String externalStatus, Properties actionData, int priority) {
+        ParamChecker.notEmpty(actionId, "actionId");
+        ParamChecker.notEmpty(externalStatus, "externalStatus");
+        Dispatched last = dispatched.get(actionId);
+        if (last != null && last.externalStatus.equals(externalStatus) &&
+                System.currentTimeMillis() - last.time < dedupeWindow) {
+            log.debug("Discarding duplicate callback for action [{0}], status [{1}]", actionId, externalStatus);
+            incr(INSTR_DEDUPED_COUNTER);
+            return true;
+        }
+        synchronized (pending) {
+            if (destroyed) {
+                log.warn(XLog.OPS, "Shutting down, rejecting callback for action [{0}]", actionId);
+                incr(INSTR_DROPPED_COUNTER);
+                return false;
+            }
+            Callback previous = pending.get(actionId);
+            if (previous == null && pending.size() >= maxPending) {
+                log.warn(XLog.OPS, "[{0}] callbacks pending, rejecting callback for action [{1}]", pending.size(),
+                         actionId);
+                incr(INSTR_DROPPED_COUNTER);
+                return false;
+            }
+            pending.put(actionId, new Callback(actionId, externalStatus, actionData, priority));
+            incr((previous == null) ? INSTR_ACCEPTED_COUNTER : INSTR_DEDUPED_COUNTER);
+        }
+        return true;
+    }
+
+    /**
+     * Return the number of pending callbacks.
+     *
+     * @return the number of pending callbacks.
+     */
+    public int getPendingCount() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * Return the time, in seconds, a rejected caller should wait before retrying a callback.
+     *
+     * @return the time, in seconds, to wait before retrying.
+     */
+    public int getRetryAfter() {
+        return (int) Math.max(1, (dispatchInterval + 999) / 1000);
+    }
+
+    /**
+     * Dispatch the pending callbacks in batches per workflow job, until there are no pending callbacks or a batch
+     * cannot be queued.
+     */
+    void dispatch() {
+        CallableQueueService queueService = services.get(CallableQueueService.class);
+        List<List<Callback>> batches;
+        synchronized (pending) {
+            // once destroyed the pending callbacks are processed by destroy()
+            if (destroyed) {
+                return;
+            }
+            batches = createBatches(pending.values());
+            pending.clear();
+        }
+        for (int i = 0; i < batches.size(); i++) {
+            List<Callback> batch = batches.get(i);
+            List<CompletedActionCommand> commands = new ArrayList<CompletedActionCommand>();
+            for (Callback callback : batch) {
+                commands.add(createCommand(callback));
+            }
+            if (!queueService.queueSerial(commands)) {
+                synchronized (pending) {
+                    for (List<Callback> notQueued : batches.subList(i, batches.size())) {
+                        for (Callback callback : notQueued) {
+                            if (!pending.containsKey(callback.actionId)) {
+                                pending.put(callback.actionId, callback);
+                            }
+                        }
+                    }
+                }
+                log.warn(XLog.OPS, "queue is full or system is in SAFEMODE, [{0}] callbacks kept pending",
+                         getPendingCount());
+                break;
+            }
+            long now = System.currentTimeMillis();
+            for (Callback callback : batch) {
+                dispatched.put(callback.actionId, new Dispatched(callback.externalStatus, now));
+            }
+            if (instrumentation != null) {
+                instrumentation.incr(INSTRUMENTATION_GROUP, INSTR_DISPATCHED_COUNTER, batch.size());
+                instrumentation.incr(INSTRUMENTATION_GROUP, INSTR_BATCHES_COUNTER, 1);
+            }
+        }
+    }
+
+    // callbacks of the same job, in arrival order, in batches of up to batch size callbacks
+    private List<List<Callback>> createBatches(Collection<Callback> callbacks) {
+        List<List<Callback>> batches = new ArrayList<List<Callback>>();
+        Map<String, List<Callback>> jobBatches = new HashMap<String, List<Callback>>();
+        for (Callback callback : callbacks) {
+            List<Callback> batch = jobBatches.get(callback.jobId);
+            if (batch == null || batch.size() >= batchSize) {
+                batch = new ArrayList<Callback>();
+                jobBatches.put(callback.jobId, batch);
+                batches.add(batch);
+            }
+            batch.add(callback);
+        }
+        return batches;
+    }
+
+    private CompletedActionCommand createCommand(Callback callback) {
+        return new CompletedActionCommand(callback.actionId, callback.externalStatus, callback.actionData,
+                                          callback.priority);
+    }
+
+    private void incr(String name) {
+        if (instrumentation != null) {
+            instrumentation.incr(INSTRUMENTATION_GROUP, name, 1);
+        }
+    }
+
     private static final String ID_PARAM = "id=";
     private static final String STATUS_PARAM = "&status=";
     private static final String CALL_BACK_QUERY_STRING = "{0}?" + ID_PARAM + "{1}" + STATUS_PARAM + "{2}&";
@@ -16,13 +16,18 @@ package org.apache.oozie.service;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.oozie.CoordinatorJobBean;
 import org.apache.oozie.command.coord.CoordJobMatLookupCommand;
 import org.apache.oozie.store.CoordinatorStore;
 import org.apache.oozie.store.StoreException;
+import org.apache.oozie.util.Instrumentable;
+import org.apache.oozie.util.Instrumentation;
 import org.apache.oozie.util.XCallable;
 import org.apache.oozie.util.XLog;
 
@@ -30,8 +35,15 @@ import org.apache.oozie.util.XLog;
  * The coordinator Materialization Lookup trigger service schedule lookup trigger command for every interval (default is
  * 5 minutes ). This interval could be configured through oozie configuration defined is either oozie-default.xml or
  * oozie-site.xml using the property name oozie.service.CoordJobMatLookupTriggerService.lookup.interval
+ * <p/>
+ * In event driven mode (oozie.service.CoordJobMatLookupTriggerService.event.driven) the service keeps the next
+ * materialization time of the coordinator jobs in memory, ordered by time. The coordinator commands that change the
+ * materialization time of a job (submit, change, resume and materialization lookup) update it, and the lookup command
+ * of a job is queued when the job is due. The in memory schedule is seeded from the database at startup and it is
+ * reconciled with the database every reconciliation interval
+ * (oozie.service.CoordJobMatLookupTriggerService.reconciliation.interval).
  */
-public class CoordJobMatLookupTriggerService implements Service {
+public class CoordJobMatLookupTriggerService implements Service, Instrumentable {
     public static final String CONF_PREFIX = Service.CONF_PREFIX + "CoordJobMatLookupTriggerService.";
     /**
      * Time interval, in seconds, at which the Job materialization service will be scheduled to run.
@@ -45,12 +57,252 @@ public class CoordJobMatLookupTriggerService implements Service {
      * The number of callables to be queued in a batch.
      */
     public static final String CONF_CALLABLE_BATCH_SIZE = CONF_PREFIX + "callable.batch.size";
+    /**
+     * If the materialization lookup commands are queued when the jobs are due instead of polling the database.
+     */
+    public static final String CONF_EVENT_DRIVEN = CONF_PREFIX + "event.driven";
+    /**
+     * Time interval, in seconds, at which due jobs are checked in event driven mode.
+     */
+    public static final String CONF_SCHEDULER_INTERVAL = CONF_PREFIX + "scheduler.interval";
+    /**
+     * Time interval, in seconds, at which the in memory schedule is reconciled with the database in event driven
+     * mode.
+     */
+    public static final String CONF_RECONCILIATION_INTERVAL = CONF_PREFIX + "reconciliation.interval";
 
     private static final String INSTRUMENTATION_GROUP = "coord_job_mat_lookup";
     private static final String INSTR_MAT_JOBS_COUNTER = "jobs";
+    private static final String INSTR_RECONCILED_JOBS_COUNTER = "reconciled.jobs";
     private static final int CONF_LOOKUP_INTERVAL_DEFAULT = 300;
     private static final int CONF_MATERIALIZATION_WINDOW_DEFAULT = 3600;
 
+    private MaterializationSchedule schedule;
+
+    /**
+     * In memory schedule of the next materialization time of the coordinator jobs.
+     * <p/>
+     * A job has at most one scheduled time, scheduling a job again replaces its scheduled time. Replaced times are
+     * left in the queue and skipped when they come up.
+     */
+    static class MaterializationSchedule {
+        private final PriorityQueue<Entry> queue = new PriorityQueue<Entry>();
+        private final Map<String, Long> times = new HashMap<String, Long>();
+
+        private static class Entry implements Comparable<Entry> {
+            private final String jobId;
+            private final long time;
+
+            private Entry(String jobId, long time) {
+                this.jobId = jobId;
+                this.time = time;
+            }
+
+            public int compareTo(Entry other) {
+                return (time < other.time) ? -1 : ((time == other.time) ? 0 : 1);
+            }
+        }
+
+        /**
+         * Schedule a job, replacing its scheduled time if any.
+         *
+         * @param jobId coordinator job ID.
+         * @param time time the job is due.
+         */
+        synchronized void schedule(String jobId, Date time) {
+            Long previous = times.put(jobId, time.getTime());
+            if (previous == null || previous != time.getTime()) {
+                queue.add(new Entry(jobId, time.getTime()));
+            }
+            // replaced entries are dropped when they outnumber the scheduled jobs
+            if (queue.size() > 2 * times.size() + 16) {
+                PriorityQueue<Entry> live = new PriorityQueue<Entry>(Math.max(1, times.size()));
+                for (Map.Entry<String, Long> entry : times.entrySet()) {
+                    live.add(new Entry(entry.getKey(), entry.getValue()));
+                }
+                queue.clear();
+                queue.addAll(live);
+            }
+        }
+
+        /**
+         * Schedule a job only if it is not scheduled.
+         *
+         * @param jobId coordinator job ID.
+         * @param time time the job is due.
+         * @return <code>true</code> if the job was not scheduled.
+         */
+        synchronized boolean scheduleIfAbsent(String jobId, Date time) {
+            if (times.containsKey(jobId)) {
+                return false;
+            }
+            schedule(jobId, time);
+            return true;
+        }
+
+        /**
+         * Remove and return the jobs that are due.
+         *
+         * @param now current time.
+         * @return the IDs of the jobs that are due.
+         */
+        synchronized List<String> pollDue(long now) {
+            List<String> due = new ArrayList<String>();
+            while (!queue.isEmpty() && queue.peek().time <= now) {
+                Entry entry = queue.poll();
+                Long time = times.get(entry.jobId);
+                if (time != null && time == entry.time) {
+                    times.remove(entry.jobId);
+                    due.add(entry.jobId);
+                }
+            }
+            return due;
+        }
+
+        /**
+         * Return the number of scheduled jobs.
+         *
+         * @return the number of scheduled jobs.
+         */
+        synchronized int size() {
+            return times.size();
+        }
+    }
+
+    /**
+     * This runnable queues the materialization lookup commands of the jobs that are due.
+     */
+    static class CoordJobMatSchedulerRunnable implements Runnable {
+        private MaterializationSchedule schedule;
+        private int materializationWindow;
+        private long retryInterval;
+
+        public CoordJobMatSchedulerRunnable(MaterializationSchedule schedule, int materializationWindow,
+                                            long retryInterval) {
+            this.schedule = schedule;
+            this.materializationWindow = materializationWindow;
+            this.retryInterval = retryInterval;
+        }
+
+        @Override
+        public void run() {
+            List<String> due = schedule.pollDue(System.currentTimeMillis());
+            if (due.isEmpty()) {
+                return;
+            }
+            int batchSize = Services.get().getConf().getInt(CONF_CALLABLE_BATCH_SIZE, 10);
+            List<XCallable<Void>> callables = new ArrayList<XCallable<Void>>();
+            List<String> jobIds = new ArrayList<String>();
+            for (String jobId : due) {
+                callables.add(new CoordJobMatLookupCommand(jobId, materializationWindow));
+                jobIds.add(jobId);
+                if (callables.size() == batchSize) {
+                    queue(callables, jobIds);
+                    callables = new ArrayList<XCallable<Void>>();
+                    jobIds = new ArrayList<String>();
+                }
+            }
+            if (!callables.isEmpty()) {
+                queue(callables, jobIds);
+            }
+        }
+
+        private void queue(List<XCallable<Void>> callables, List<String> jobIds) {
+            if (Services.get().get(CallableQueueService.class).queueSerial(callables)) {
+                Services.get().get(InstrumentationService.class).get().incr(INSTRUMENTATION_GROUP,
+                                                                            INSTR_MAT_JOBS_COUNTER, jobIds.size());
+            }
+            else {
+                XLog.getLog(getClass()).warn(
+                        "Unable to queue the callables commands for CoordJobMatSchedulerRunnable. "
+                                + "Most possibly command queue is full. Queue size is :"
+                                + Services.get().get(CallableQueueService.class).queueSize());
+                Date retry = new Date(System.currentTimeMillis() + retryInterval);
+                for (String jobId : jobIds) {
+                    schedule.scheduleIfAbsent(jobId, retry);
+                }
+            }
+        }
+    }
+
+    /**
+     * This runnable seeds and reconciles the in memory schedule with the next materialization time of the jobs in the
+     * database. Jobs missing from the schedule are scheduled.
+     */
+    static class CoordJobMatReconciliationRunnable implements Runnable {
+        private MaterializationSchedule schedule;
+
+        public CoordJobMatReconciliationRunnable(MaterializationSchedule schedule) {
+            this.schedule = schedule;
+        }
+
+        @Override
+        public void run() {
+            XLog.Info.get().clear();
+            XLog log = XLog.getLog(getClass());
+            CoordinatorStore store = null;
+            try {
+                store = Services.get().get(StoreService.class).getStore(CoordinatorStore.class);
+                store.beginTrx();
+                Map<String, Date> times = store.getCoordinatorJobsMaterializationTimes();
+                store.commitTrx();
+                int reconciled = 0;
+                for (Map.Entry<String, Date> entry : times.entrySet()) {
+                    if (schedule.scheduleIfAbsent(entry.getKey(), getDueTime(entry.getValue(), false))) {
+                        reconciled++;
+                    }
+                }
+                Services.get().get(InstrumentationService.class).get().incr(INSTRUMENTATION_GROUP,
+                                                                            INSTR_RECONCILED_JOBS_COUNTER, reconciled);
+                log.debug("CoordJobMatLookupTriggerService - jobs to materialize = " + times.size()
+                        + ", missing from the schedule = " + reconciled);
+            }
+            catch (StoreException ex) {
+                if (store != null && store.isActive()) {
+                    store.rollbackTrx();
+                }
+                log.warn("Exception while accessing the store", ex);
+            }
+            catch (Exception ex) {
+                log.error("Exception, {0}", ex.getMessage(), ex);
+                if (store != null && store.isActive()) {
+                    try {
+                        store.rollbackTrx();
+                    }
+                    catch (RuntimeException rex) {
+                        log.warn("openjpa error, {0}", rex.getMessage(), rex);
+                    }
+                }
+            }
+            finally {
+                if (store != null) {
+                    if (!store.isActive()) {
+                        try {
+                            store.closeTrx();
+                        }
+                        catch (RuntimeException rex) {
+                            log.warn("Exception while attempting to close store", rex);
+                        }
+                    }
+                    else {
+                        log.warn("transaction is not committed or rolled back before closing entitymanager.");
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the time a job is due for materialization lookup.
+     *
+     * @param time next materialized time of the job or, if the job has not been materialized, its start time.
+     * @param materialized if the job has been materialized.
+     * @return the time the job is due, jobs not materialized are due a lookahead window before their start time.
+     */
+    private static Date getDueTime(Date time, boolean materialized) {
+        return (materialized) ? time : new Date(time.getTime() - CoordJobMatLookupCommand.LOOKAHEAD_WINDOW * 1000);
+    }
+
     /**
      * This runnable class will run in every "interval" to queue CoordJobMatLookupTriggerCommand.
      */
@@ -208,18 +460,87 @@ public class CoordJobMatLookupTriggerService implements Service {
     @Override
     public void init(Services services) throws ServiceException {
         Configuration conf = services.getConf();
-        Runnable lookupTriggerJobsRunnable = new CoordJobMatLookupTriggerRunnable(conf.getInt(
-                CONF_MATERIALIZATION_WINDOW, CONF_MATERIALIZATION_WINDOW_DEFAULT));// Default is 1 hour
-        services.get(SchedulerService.class).schedule(lookupTriggerJobsRunnable, 10,
-                                                      conf.getInt(CONF_LOOKUP_INTERVAL, CONF_LOOKUP_INTERVAL_DEFAULT),// Default is 5 minutes
-                                                      SchedulerService.Unit.SEC);
-        return;
+        int materializationWindow = conf.getInt(CONF_MATERIALIZATION_WINDOW,
+                                                CONF_MATERIALIZATION_WINDOW_DEFAULT);// Default is 1 hour
+        if (conf.getBoolean(CONF_EVENT_DRIVEN, true)) {
+            schedule = new MaterializationSchedule();
+            int schedulerInterval = conf.getInt(CONF_SCHEDULER_INTERVAL, 10);
+            services.get(SchedulerService.class).schedule(new CoordJobMatReconciliationRunnable(schedule), 10,
+                                                          conf.getInt(CONF_RECONCILIATION_INTERVAL, 3600),
+                                                          SchedulerService.Unit.SEC);
+            services.get(SchedulerService.class).schedule(
+                    new CoordJobMatSchedulerRunnable(schedule, materializationWindow, schedulerInterval * 1000L),
+                    schedulerInterval, schedulerInterval, SchedulerService.Unit.SEC);
+        }
+        else {
+            Runnable lookupTriggerJobsRunnable = new CoordJobMatLookupTriggerRunnable(materializationWindow);
+            services.get(SchedulerService.class).schedule(lookupTriggerJobsRunnable, 10,
+                                                          conf.getInt(CONF_LOOKUP_INTERVAL, CONF_LOOKUP_INTERVAL_DEFAULT),// Default is 5 minutes
+                                                          SchedulerService.Unit.SEC);
+        }
     }
 
     @Override
     public void destroy() {
-        // TODO Auto-generated method stub
+        schedule = null;
+    }
 
+    /**
+     * Instruments the service, in event driven mode the number of scheduled jobs is exposed.
+     *
+     * @param instr instance to instrument the service to.
+     */
+    public void instrument(Instrumentation instr) {
+        final MaterializationSchedule finalSchedule = schedule;
+        if (finalSchedule != null) {
+            instr.addVariable(INSTRUMENTATION_GROUP, "scheduled.jobs", new Instrumentation.Variable<Long>() {
+                public Long getValue() {
+                    return (long) finalSchedule.size();
+                }
+            });
+        }
+    }
+
+    /**
+     * Schedule the materialization lookup of a coordinator job, replacing its scheduled time if any.
+     * <p/>
+     * It is a no-op if the service is not in event driven mode.
+     *
+     * @param jobId coordinator job ID.
+     * @param time next materialized time of the job or, if the job has not been materialized, its start time.
+     * @param materialized if the job has been materialized.
+     */
+    public void schedule(String jobId, Date time, boolean materialized) {
+        MaterializationSchedule finalSchedule = schedule;
+        if (finalSchedule != null) {
+            finalSchedule.schedule(jobId, getDueTime(time, materialized));
+        }
+    }
+
+    /**
+     * Schedule the materialization lookup of a coordinator job based on its start and next materialized times.
+     * <p/>
+     * It is a no-op if the service is not in event driven mode.
+     *
+     * @param coordJob coordinator job.
+     */
+    public void schedule(CoordinatorJobBean coordJob) {
+        if (coordJob.getNextMaterializedTime() != null) {
+            schedule(coordJob.getId(), coordJob.getNextMaterializedTime(), true);
+        }
+        else {
+            schedule(coordJob.getId(), coordJob.getStartTime(), false);
+        }
+    }
+
+    /**
+     * Return the number of jobs in the materialization schedule, 0 if the service is not in event driven mode.
+     *
+     * @return the number of scheduled jobs.
+     */
+    public int getScheduledJobs() {
+        MaterializationSchedule finalSchedule = schedule;
+        return (finalSchedule != null) ? finalSchedule.size() : 0;
     }
 
     @Override
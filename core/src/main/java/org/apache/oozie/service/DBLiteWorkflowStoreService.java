@@ -27,9 +27,11 @@ import org.apache.oozie.store.StoreException;
 import org.apache.oozie.store.WorkflowStore;
 import org.apache.oozie.util.Instrumentable;
 import org.apache.oozie.util.Instrumentation;
+import org.apache.oozie.util.LRUCache;
 import org.apache.oozie.util.XLog;
 import org.apache.oozie.workflow.WorkflowLib;
 import org.apache.oozie.workflow.lite.DBLiteWorkflowLib;
+import org.apache.oozie.workflow.lite.LiteWorkflowApp;
 
 public class DBLiteWorkflowStoreService extends LiteWorkflowStoreService implements Instrumentable {
     private boolean selectForUpdate;
@@ -39,12 +41,17 @@ public class DBLiteWorkflowStoreService extends LiteWorkflowStoreService impleme
     public static final String CONF_PREFIX = Service.CONF_PREFIX + "DBLiteWorkflowStoreService.";
     public static final String CONF_METRICS_INTERVAL_MINS = CONF_PREFIX + "status.metrics.collection.interval";
     public static final String CONF_METRICS_INTERVAL_WINDOW = CONF_PREFIX + "status.metrics.window";
+    public static final String CONF_INSTANCE_COMPRESSION = CONF_PREFIX + "instance.compression";
+    public static final String CONF_INSTANCE_APP_CACHE_SIZE = CONF_PREFIX + "instance.app.cache.size";
+    public static final String CONF_INSTANCE_ORIGINAL_FORMAT = CONF_PREFIX + "instance.original.format";
 
     private static final String INSTRUMENTATION_GROUP = "jobstatus";
     private static final String INSTRUMENTATION_GROUP_WINDOW = "windowjobstatus";
+    private static final String INSTRUMENTATION_GROUP_INSTANCE = "workflowinstance";
 
     private Map<String, Integer> statusCounts = new HashMap<String, Integer>();
     private Map<String, Integer> statusWindowCounts = new HashMap<String, Integer>();
+    private LRUCache<String, LiteWorkflowApp> appCache;
 
     /**
      * Gets the number of workflows for each status and populates the hash.
@@ -105,6 +112,8 @@ public class DBLiteWorkflowStoreService extends LiteWorkflowStoreService impleme
         int statusMetricsCollectionInterval = conf.getInt(CONF_METRICS_INTERVAL_MINS, 5);
         log = XLog.getLog(getClass());
         selectForUpdate = false;
+        int appCacheSize = conf.getInt(CONF_INSTANCE_APP_CACHE_SIZE, 100);
+        appCache = (appCacheSize > 0) ? new LRUCache<String, LiteWorkflowApp>(appCacheSize, Long.MAX_VALUE) : null;
 
         WorkflowJob.Status[] wfStatusArr = WorkflowJob.Status.values();
         for (WorkflowJob.Status aWfStatusArr : wfStatusArr) {
@@ -119,6 +128,15 @@ public class DBLiteWorkflowStoreService extends LiteWorkflowStoreService impleme
     public void destroy() {
     }
 
+    /**
+     * Return the cache of the decoded workflow definitions of the workflow instances, keyed by definition digest.
+     *
+     * @return the cache of the decoded workflow definitions, <code>null</code> if caching is disabled.
+     */
+    public LRUCache<String, LiteWorkflowApp> getAppCache() {
+        return appCache;
+    }
+
     /**
      * Return the workflow lib without DB connection. Will be used for parsing purpose.
      *
@@ -171,5 +189,8 @@ public class DBLiteWorkflowStoreService extends LiteWorkflowStoreService impleme
                 }
             });
         }
+        if (appCache != null) {
+            appCache.instrument(instr, INSTRUMENTATION_GROUP_INSTANCE, "app.cache");
+        }
     }
 }
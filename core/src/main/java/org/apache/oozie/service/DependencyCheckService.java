@@ -0,0 +1,330 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.service;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.oozie.util.Instrumentable;
+import org.apache.oozie.util.Instrumentation;
+import org.apache.oozie.util.LRUCache;
+import org.apache.oozie.util.XLog;
+
+/**
+ * The DependencyCheckService checks the existence of coordinator input dependencies in batch.
+ * <p/>
+ * The URIs to check are deduplicated and grouped by parent directory, a group with more than one URI is resolved with
+ * a single <code>listStatus()</code> of the parent directory instead of one <code>exists()</code> per URI.
+ * <p/>
+ * Existing URIs are cached, a dataset that exists stays existing. Directory listings are cached for a short time, so
+ * waiting actions of the same user depending on the same directories share the listings instead of issuing their own
+ * calls. Both caches are per user, a user does not learn the existence of paths through the checks of another user.
+ */
+public class DependencyCheckService implements Service, Instrumentable {
+
+    public static final String CONF_PREFIX = Service.CONF_PREFIX + "DependencyCheckService.";
+
+    /**
+     * Maximum number of existing URIs kept in memory.
+     */
+    public static final String CONF_CACHE_MAX_ENTRIES = CONF_PREFIX + "cache.max.entries";
+
+    /**
+     * Time, in seconds, a directory listing is reused, if 0 listings are not cached.
+     */
+    public static final String CONF_LISTING_TTL = CONF_PREFIX + "listing.ttl";
+
+    /**
+     * Maximum total number of directory entries of the cached listings.
+     */
+    public static final String CONF_LISTING_MAX_SIZE = CONF_PREFIX + "listing.max.size";
+
+    private static final String INSTRUMENTATION_GROUP = "dependency_check";
+    private static final String INSTR_URIS_COUNTER = "uris";
+    private static final String INSTR_CACHED_COUNTER = "uris.cached";
+    private static final String INSTR_EXISTS_COUNTER = "exists.calls";
+    private static final String INSTR_LIST_COUNTER = "listStatus.calls";
+
+    private static class Listing {
+        private final Set<String> names;
+        private final long listed;
+
+        private Listing(Set<String> names, long listed) {
+            this.names = names;
+            this.listed = listed;
+        }
+    }
+
+    private final XLog log = XLog.getLog(getClass());
+    private LRUCache<String, Boolean> existing;
+    private LRUCache<String, Listing> listings;
+    private long listingTTL;
+    private Instrumentation instrumentation;
+
+    /**
+     * Initialize the dependency check service.
+     *
+     * @param services services instance.
+     */
+    public void init(Services services) {
+        Configuration conf = services.getConf();
+        existing = new LRUCache<String, Boolean>(conf.getInt(CONF_CACHE_MAX_ENTRIES, 100000), Long.MAX_VALUE);
+        listingTTL = conf.getLong(CONF_LISTING_TTL, 30) * 1000;
+        listings = new LRUCache<String, Listing>(Integer.MAX_VALUE, conf.getLong(CONF_LISTING_MAX_SIZE, 100000)) {
+            @Override
+            protected long weigh(String key, Listing value) {
+                return value.names.size() + 1;
+            }
+        };
+    }
+
+    /**
+     * Destroy the dependency check service.
+     */
+    public void destroy() {
+        existing.clear();
+        listings.clear();
+    }
+
+    /**
+     * Return the public interface for dependency check service.
+     *
+     * @return {@link DependencyCheckService}.
+     */
+    public Class<? extends Service> getInterface() {
+        return DependencyCheckService.class;
+    }
+
+    /**
+     * Instrument the dependency check service.
+     *
+     * @param instr instance to instrument the dependency check service to.
+     */
+    public void instrument(Instrumentation instr) {
+        instrumentation = instr;
+        existing.instrument(instr, INSTRUMENTATION_GROUP, "cache");
+        listings.instrument(instr, INSTRUMENTATION_GROUP, "listing.cache");
+    }
+
+    /**
+     * Check the existence of a list of URIs.
+     * <p/>
+     * The URIs are checked in order, a URI is checked together with all the other URIs of the list in the same
+     * directory. If <code>stopAtMissing</code> is set, the check stops at the first missing URI and the URIs after it
+     * that were not checked with it are not in the returned map.
+     *
+     * @param uris URIs to check.
+     * @param user user the checks are done as.
+     * @param group group the checks are done as.
+     * @param conf configuration to access the filesystems.
+     * @param stopAtMissing indicates if the check stops at the first missing URI.
+     * @return a map with the existence of the checked URIs.
+     * @throws IOException thrown if a filesystem could not be accessed.
+     */
+    public Map<String, Boolean> checkExists(List<String> uris, String user, String group, Configuration conf,
+                                            boolean stopAtMissing) throws IOException {
+        return checkExists(uris, user, group, conf, stopAtMissing, false);
+    }
+
+    /**
+     * Check the existence of a list of URIs.
+     * <p/>
+     * Same as {@link #checkExists(List, String, String, Configuration, boolean)}, but if <code>alwaysList</code> is set a
+     * directory is listed even if a single URI of the list is in it. It is meant for the URIs of dataset instances
+     * probed in sequence, the listing is shared by the next probes of the instances in the same directory.
+     *
+     * @param uris URIs to check.
+     * @param user user the checks are done as.
+     * @param group group the checks are done as.
+     * @param conf configuration to access the filesystems.
+     * @param stopAtMissing indicates if the check stops at the first missing URI.
+     * @param alwaysList indicates if directories are listed even to check a single URI.
+     * @return a map with the existence of the checked URIs.
+     * @throws IOException thrown if a filesystem could not be accessed.
+     */
+    public Map<String, Boolean> checkExists(List<String> uris, String user, String group, Configuration conf,
+                                            boolean stopAtMissing, boolean alwaysList) throws IOException {
+        return checkExists(uris, user, group, conf, stopAtMissing, alwaysList, 0);
+    }
+
+    /**
+     * Check the existence of a list of URIs.
+     * <p/>
+     * Same as {@link #checkExists(List, String, String, Configuration, boolean, boolean)}, but only the listings made
+     * since <code>listedSince</code> are reused. It is meant for checks where a stale listing gives a wrong result
+     * instead of a delayed one, like the resolution of the latest available dataset instance, the listings are then
+     * shared only by the checks done since.
+     *
+     * @param uris URIs to check.
+     * @param user user the checks are done as.
+     * @param group group the checks are done as.
+     * @param conf configuration to access the filesystems.
+     * @param stopAtMissing indicates if the check stops at the first missing URI.
+     * @param alwaysList indicates if directories are listed even to check a single URI.
+     * @param listedSince time, in milliseconds, listings made before are not reused.
+     * @return a map with the existence of the checked URIs.
+     * @throws IOException thrown if a filesystem could not be accessed.
+     */
+    public Map<String, Boolean> checkExists(List<String> uris, String user, String group, Configuration conf,
+                                            boolean stopAtMissing, boolean alwaysList, long listedSince)
+            throws IOException {
+        Map<String, Boolean> result = new HashMap<String, Boolean>();
+        Map<String, List<String>> directories = new LinkedHashMap<String, List<String>>();
+        for (String uri : uris) {
+            if (!result.containsKey(uri)) {
+                result.put(uri, null);
+                String parent = getParent(uri);
+                List<String> siblings = directories.get(parent);
+                if (siblings == null) {
+                    siblings = new ArrayList<String>();
+                    directories.put(parent, siblings);
+                }
+                siblings.add(uri);
+            }
+        }
+        incr(INSTR_URIS_COUNTER, result.size());
+        result.clear();
+
+        Map<URI, FileSystem> fileSystems = new HashMap<URI, FileSystem>();
+        for (String uri : uris) {
+            if (!result.containsKey(uri)) {
+                String parent = getParent(uri);
+                List<String> unknown = new ArrayList<String>();
+                for (String sibling : directories.get(parent)) {
+                    if (existing.get(getKey(user, sibling)) != null) {
+                        result.put(sibling, Boolean.TRUE);
+                        incr(INSTR_CACHED_COUNTER, 1);
+                    }
+                    else {
+                        unknown.add(sibling);
+                    }
+                }
+                if (!unknown.isEmpty()) {
+                    check(parent, unknown, user, group, conf, fileSystems, result, alwaysList, listedSince);
+                }
+            }
+            if (stopAtMissing && !result.get(uri)) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    private void check(String parent, List<String> uris, String user, String group, Configuration conf,
+                       Map<URI, FileSystem> fileSystems, Map<String, Boolean> result, boolean alwaysList,
+                       long listedSince) throws IOException {
+        Set<String> names = null;
+        String listingKey = getKey(user, parent);
+        if (listingTTL > 0) {
+            Listing listing = listings.get(listingKey);
+            if (listing != null && listing.listed + listingTTL > System.currentTimeMillis() &&
+                    listing.listed >= listedSince) {
+                names = listing.names;
+            }
+        }
+        if (names == null) {
+            if (uris.size() == 1 && !alwaysList) {
+                Path path = new Path(uris.get(0));
+                boolean exists = getFileSystem(path, user, group, conf, fileSystems).exists(path);
+                incr(INSTR_EXISTS_COUNTER, 1);
+                setExists(uris.get(0), user, exists, result);
+                return;
+            }
+            long listed = System.currentTimeMillis();
+            names = list(new Path(parent), user, group, conf, fileSystems);
+            if (listingTTL > 0) {
+                listings.put(listingKey, new Listing(names, listed));
+            }
+        }
+        for (String uri : uris) {
+            setExists(uri, user, names.contains(new Path(uri).getName()), result);
+        }
+    }
+
+    private Set<String> list(Path dir, String user, String group, Configuration conf,
+                             Map<URI, FileSystem> fileSystems) throws IOException {
+        Set<String> names = new HashSet<String>();
+        FileStatus[] statuses;
+        try {
+            statuses = getFileSystem(dir, user, group, conf, fileSystems).listStatus(dir);
+        }
+        catch (FileNotFoundException ex) {
+            statuses = null;
+        }
+        incr(INSTR_LIST_COUNTER, 1);
+        if (statuses != null) {
+            for (FileStatus status : statuses) {
+                names.add(status.getPath().getName());
+            }
+        }
+        log.trace("Listed [{0}], [{1}] entries", dir, names.size());
+        return Collections.unmodifiableSet(names);
+    }
+
+    private void setExists(String uri, String user, boolean exists, Map<String, Boolean> result) {
+        result.put(uri, exists);
+        if (exists) {
+            existing.put(getKey(user, uri), Boolean.TRUE);
+        }
+        log.debug("Dependency [{0}] exists [{1}]", uri, exists);
+    }
+
+    private FileSystem getFileSystem(Path path, String user, String group, Configuration conf,
+                                     Map<URI, FileSystem> fileSystems) throws IOException {
+        URI uri = path.toUri();
+        URI fsUri = URI.create((uri.getScheme() == null ? "" : uri.getScheme() + "://") +
+                (uri.getAuthority() == null ? "" : uri.getAuthority()) + "/");
+        FileSystem fs = fileSystems.get(fsUri);
+        if (fs == null) {
+            try {
+                fs = Services.get().get(HadoopAccessorService.class).createFileSystem(user, group, uri, conf);
+            }
+            catch (HadoopAccessorException ex) {
+                throw new IOException(ex);
+            }
+            fileSystems.put(fsUri, fs);
+        }
+        return fs;
+    }
+
+    private String getParent(String uri) {
+        Path parent = new Path(uri).getParent();
+        return (parent != null) ? parent.toString() : uri;
+    }
+
+    private String getKey(String user, String uri) {
+        return user + "#" + uri;
+    }
+
+    private void incr(String name, long count) {
+        if (instrumentation != null && count > 0) {
+            instrumentation.incr(INSTRUMENTATION_GROUP, name, count);
+        }
+    }
+
+}
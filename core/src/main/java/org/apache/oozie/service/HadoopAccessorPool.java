@@ -0,0 +1,310 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.oozie.util.Instrumentation;
+import org.apache.oozie.util.XLog;
+
+/**
+ * Pool of Hadoop accessors (filesystems, job clients) keyed by user, group and service URI.
+ * <p/>
+ * A shared pool hands the same instance to all the borrowers of a key, it is meant for thread safe instances that are
+ * never closed by their users, like filesystems. An exclusive pool hands an instance to a single borrower at a time,
+ * the borrower gives it back with {@link #release}.
+ * <p/>
+ * Instances not used for longer than the idle timeout are evicted by {@link #evictIdle()}. The pool keeps at most the
+ * maximum size instances, exceeding instances are evicted. An instance is closed with {@link #close} when it is
+ * evicted, never while it is borrowed from an exclusive pool.
+ * <p/>
+ * The pool keeps the number of created instances, pool hits and evictions, they can be exposed as instrumentation
+ * variables with {@link #instrument(Instrumentation, String, String)}.
+ */
+public class HadoopAccessorPool<T> {
+    private final XLog log = XLog.getLog(getClass());
+    private final boolean shared;
+    private final int maxSize;
+    private final long idleTimeout;
+    private final Map<String, LinkedList<Entry<T>>> pool = new HashMap<String, LinkedList<Entry<T>>>();
+    private int size;
+    private long created;
+    private long hits;
+    private long evictions;
+
+    private static class Entry<T> {
+        private final T instance;
+        private long lastUsed;
+
+        private Entry(T instance) {
+            this.instance = instance;
+            lastUsed = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Create a pool.
+     *
+     * @param shared indicates if instances are shared by all the borrowers of a key.
+     * @param maxSize maximum number of pooled instances.
+     * @param idleTimeout time, in milliseconds, after which an unused instance is evicted.
+     */
+    public HadoopAccessorPool(boolean shared, int maxSize, long idleTimeout) {
+        this.shared = shared;
+        this.maxSize = maxSize;
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Close an evicted instance, by default it does nothing.
+     *
+     * @param instance evicted instance.
+     * @throws Exception thrown if the instance could not be closed.
+     */
+    protected void close(T instance) throws Exception {
+    }
+
+    /**
+     * Borrow an instance.
+     * <p/>
+     * If there is no pooled instance for the key the caller creates it and adds it to the pool, with {@link #add} for a
+     * shared pool or with {@link #release} when done with it for an exclusive pool.
+     *
+     * @param key pool key.
+     * @return a pooled instance, <code>null</code> if there is none for the key.
+     */
+    public synchronized T borrow(String key) {
+        LinkedList<Entry<T>> entries = pool.get(key);
+        if (entries == null || entries.isEmpty()) {
+            created++;
+            return null;
+        }
+        hits++;
+        Entry<T> entry;
+        if (shared) {
+            entry = entries.getFirst();
+            entry.lastUsed = System.currentTimeMillis();
+        }
+        else {
+            entry = entries.removeFirst();
+            size--;
+            if (entries.isEmpty()) {
+                pool.remove(key);
+            }
+        }
+        return entry.instance;
+    }
+
+    /**
+     * Add a created instance to a shared pool.
+     * <p/>
+     * If another instance was added for the key meanwhile, that instance is returned and the given one is not pooled.
+     *
+     * @param key pool key.
+     * @param instance created instance.
+     * @return the pooled instance to use.
+     */
+    public T add(String key, T instance) {
+        List<T> evicted = new ArrayList<T>();
+        synchronized (this) {
+            LinkedList<Entry<T>> entries = pool.get(key);
+            if (entries != null && !entries.isEmpty()) {
+                return entries.getFirst().instance;
+            }
+            if (size >= maxSize) {
+                evictOldest(evicted);
+            }
+            if (size < maxSize) {
+                put(key, new Entry<T>(instance));
+            }
+        }
+        closeAll(evicted);
+        return instance;
+    }
+
+    /**
+     * Give back an instance borrowed from an exclusive pool, it is closed if the pool is full.
+     *
+     * @param key pool key.
+     * @param instance borrowed instance.
+     */
+    public void release(String key, T instance) {
+        synchronized (this) {
+            if (size < maxSize) {
+                put(key, new Entry<T>(instance));
+                return;
+            }
+            evictions++;
+        }
+        closeAll(Collections.singletonList(instance));
+    }
+
+    /**
+     * Evict and close the instances not used for longer than the idle timeout.
+     */
+    public void evictIdle() {
+        List<T> evicted = new ArrayList<T>();
+        long limit = System.currentTimeMillis() - idleTimeout;
+        synchronized (this) {
+            Iterator<Map.Entry<String, LinkedList<Entry<T>>>> it = pool.entrySet().iterator();
+            while (it.hasNext()) {
+                LinkedList<Entry<T>> entries = it.next().getValue();
+                while (!entries.isEmpty() && entries.getLast().lastUsed < limit) {
+                    evicted.add(entries.removeLast().instance);
+                    size--;
+                }
+                if (entries.isEmpty()) {
+                    it.remove();
+                }
+            }
+            evictions += evicted.size();
+        }
+        closeAll(evicted);
+    }
+
+    /**
+     * Evict and close all the pooled instances.
+     */
+    public void clear() {
+        List<T> evicted = new ArrayList<T>();
+        synchronized (this) {
+            for (LinkedList<Entry<T>> entries : pool.values()) {
+                for (Entry<T> entry : entries) {
+                    evicted.add(entry.instance);
+                }
+            }
+            pool.clear();
+            size = 0;
+        }
+        closeAll(evicted);
+    }
+
+    private void put(String key, Entry<T> entry) {
+        LinkedList<Entry<T>> entries = pool.get(key);
+        if (entries == null) {
+            entries = new LinkedList<Entry<T>>();
+            pool.put(key, entries);
+        }
+        entries.addFirst(entry);
+        size++;
+    }
+
+    private void evictOldest(List<T> evicted) {
+        String oldestKey = null;
+        long oldest = Long.MAX_VALUE;
+        for (Map.Entry<String, LinkedList<Entry<T>>> entry : pool.entrySet()) {
+            if (entry.getValue().getLast().lastUsed < oldest) {
+                oldest = entry.getValue().getLast().lastUsed;
+                oldestKey = entry.getKey();
+            }
+        }
+        if (oldestKey != null) {
+            LinkedList<Entry<T>> entries = pool.get(oldestKey);
+            evicted.add(entries.removeLast().instance);
+            if (entries.isEmpty()) {
+                pool.remove(oldestKey);
+            }
+            size--;
+            evictions++;
+        }
+    }
+
+    private void closeAll(List<T> instances) {
+        for (T instance : instances) {
+            try {
+                close(instance);
+            }
+            catch (Exception ex) {
+                log.warn("Could not close evicted instance [{0}], {1}", instance, ex.getMessage(), ex);
+            }
+        }
+    }
+
+    /**
+     * Return the number of pooled instances.
+     *
+     * @return the number of pooled instances.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Return the number of borrows that did not find a pooled instance and had to create one.
+     *
+     * @return the number of created instances.
+     */
+    public synchronized long getCreated() {
+        return created;
+    }
+
+    /**
+     * Return the number of borrows that found a pooled instance.
+     *
+     * @return the number of pool hits.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Return the number of evicted instances.
+     *
+     * @return the number of evicted instances.
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Expose the created instances, pool hits, evictions and pool size as instrumentation variables.
+     * <p/>
+     * The variables are named <code>[PREFIX].created</code>, <code>[PREFIX].pool.hits</code>,
+     * <code>[PREFIX].pool.evictions</code> and <code>[PREFIX].pool.size</code>.
+     *
+     * @param instr instrumentation instance.
+     * @param group instrumentation group.
+     * @param prefix variable names prefix.
+     */
+    public void instrument(Instrumentation instr, String group, String prefix) {
+        instr.addVariable(group, prefix + ".created", new Instrumentation.Variable<Long>() {
+            public Long getValue() {
+                return getCreated();
+            }
+        });
+        instr.addVariable(group, prefix + ".pool.hits", new Instrumentation.Variable<Long>() {
+            public Long getValue() {
+                return getHits();
+            }
+        });
+        instr.addVariable(group, prefix + ".pool.evictions", new Instrumentation.Variable<Long>() {
+            public Long getValue() {
+                return getEvictions();
+            }
+        });
+        instr.addVariable(group, prefix + ".pool.size", new Instrumentation.Variable<Long>() {
+            public Long getValue() {
+                return (long) size();
+            }
+        });
+    }
+
+}
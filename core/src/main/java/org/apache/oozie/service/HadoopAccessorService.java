@@ -22,6 +22,8 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.security.UserGroupInformation;
 import org.apache.hadoop.filecache.DistributedCache;
 import org.apache.oozie.ErrorCode;
+import org.apache.oozie.util.Instrumentable;
+import org.apache.oozie.util.Instrumentation;
 import org.apache.oozie.util.ParamChecker;
 import org.apache.oozie.util.XConfiguration;
 import org.apache.oozie.util.XLog;
@@ -38,17 +40,49 @@ import java.util.HashSet;
  * default accessor used is the base accessor which just injects the UGI into the configuration instance used to
  * create/obtain JobClient and ileSystem instances. <p/> The HadoopAccess class to use can be configured in the
  * <code>oozie-site.xml</code> using the <code>oozie.service.HadoopAccessorService.accessor.class</code> property.
+ * <p/>
+ * FileSystem and JobClient instances are pooled by user, group and NameNode/JobTracker. Pooled filesystems are shared,
+ * a pooled job client is used by one caller at a time, closing it gives it back to the pool.
  */
-public class HadoopAccessorService implements Service {
+public class HadoopAccessorService implements Service, Instrumentable {
 
     public static final String CONF_PREFIX = Service.CONF_PREFIX + "HadoopAccessorService.";
     public static final String JOB_TRACKER_WHITELIST = CONF_PREFIX + "jobTracker.whitelist";
     public static final String NAME_NODE_WHITELIST = CONF_PREFIX + "nameNode.whitelist";
+    public static final String CONF_POOL_MAX_SIZE = CONF_PREFIX + "pool.max.size";
+    public static final String CONF_POOL_IDLE_TIMEOUT = CONF_PREFIX + "pool.idle.timeout";
+
+    private static final String INSTRUMENTATION_GROUP = "hadoop";
 
     private Set<String> jobTrackerWhitelist = new HashSet<String>();
     private Set<String> nameNodeWhitelist = new HashSet<String>();
+    private HadoopAccessorPool<FileSystem> fileSystemPool;
+    private HadoopAccessorPool<PooledJobClient> jobClientPool;
 
     public void init(Services services) throws ServiceException {
+        int poolMaxSize = services.getConf().getInt(CONF_POOL_MAX_SIZE, 500);
+        int idleTimeout = services.getConf().getInt(CONF_POOL_IDLE_TIMEOUT, 600);
+        if (poolMaxSize > 0) {
+            // filesystems are owned by the Hadoop FileSystem cache, they are not closed on eviction
+            fileSystemPool = new HadoopAccessorPool<FileSystem>(true, poolMaxSize, idleTimeout * 1000L);
+            jobClientPool = new HadoopAccessorPool<PooledJobClient>(false, poolMaxSize, idleTimeout * 1000L) {
+                @Override
+                protected void close(PooledJobClient jobClient) throws Exception {
+                    jobClient.destroy();
+                }
+            };
+            Runnable evictor = new Runnable() {
+                public void run() {
+                    fileSystemPool.evictIdle();
+                    jobClientPool.evictIdle();
+                }
+            };
+            SchedulerService scheduler = services.get(SchedulerService.class);
+            if (scheduler != null) {
+                int interval = Math.max(1, Math.min(idleTimeout, 60));
+                scheduler.schedule(evictor, interval, interval, SchedulerService.Unit.SEC);
+            }
+        }
         for (String name : services.getConf().getStringCollection(JOB_TRACKER_WHITELIST)) {
             String tmp = name.toLowerCase().trim();
             if (tmp.length() == 0) {
@@ -76,12 +110,110 @@ public class HadoopAccessorService implements Service {
     }
 
     public void destroy() {
+        if (fileSystemPool != null) {
+            fileSystemPool.clear();
+            jobClientPool.clear();
+        }
     }
 
     public Class<? extends Service> getInterface() {
         return HadoopAccessorService.class;
     }
 
+    /**
+     * Instrument the hadoop accessor service, it exposes the creation count, pool hits and pool size of the
+     * filesystems and job clients.
+     *
+     * @param instr instance to instrument the hadoop accessor service to.
+     */
+    public void instrument(Instrumentation instr) {
+        if (fileSystemPool != null) {
+            fileSystemPool.instrument(instr, INSTRUMENTATION_GROUP, "filesystem");
+            jobClientPool.instrument(instr, INSTRUMENTATION_GROUP, "jobclient");
+        }
+    }
+
+    /**
+     * Return the pooled JobClient for a user, group and JobTracker.
+     *
+     * @param user user name.
+     * @param group group name.
+     * @param jobTracker JobTracker address.
+     * @return the pooled JobClient, <code>null</code> if there is none or pooling is disabled.
+     */
+    protected JobClient getPooledJobClient(String user, String group, String jobTracker) {
+        if (jobClientPool != null) {
+            PooledJobClient jobClient = jobClientPool.borrow(getPoolKey(user, group, jobTracker));
+            if (jobClient != null) {
+                jobClient.borrow();
+                return jobClient;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Create a JobClient, it is given back to the pool when closed if pooling is enabled.
+     * <p/>
+     * It must be invoked with the credentials of the user.
+     *
+     * @param user user name.
+     * @param group group name.
+     * @param conf JobConf with all necessary information to create the JobClient.
+     * @return the created JobClient.
+     * @throws IOException thrown if the JobClient could not be created.
+     */
+    protected JobClient newJobClient(String user, String group, JobConf conf) throws IOException {
+        if (jobClientPool != null) {
+            return new PooledJobClient(jobClientPool, getPoolKey(user, group, conf.get("mapred.job.tracker")), conf);
+        }
+        return new JobClient(conf);
+    }
+
+    /**
+     * Return the pooled FileSystem for a user, group and filesystem URI.
+     *
+     * @param user user name.
+     * @param group group name.
+     * @param uri filesystem URI, if it has no scheme the default filesystem of the configuration is used.
+     * @param conf configuration.
+     * @return the pooled FileSystem, <code>null</code> if there is none or pooling is disabled.
+     */
+    protected FileSystem getPooledFileSystem(String user, String group, URI uri, Configuration conf) {
+        return (fileSystemPool != null) ? fileSystemPool.borrow(getPoolKey(user, group, uri, conf)) : null;
+    }
+
+    /**
+     * Add a created FileSystem to the pool.
+     *
+     * @param user user name.
+     * @param group group name.
+     * @param uri filesystem URI, if it has no scheme the default filesystem of the configuration is used.
+     * @param conf configuration.
+     * @param fs created FileSystem.
+     * @return the pooled FileSystem to use.
+     */
+    protected FileSystem poolFileSystem(String user, String group, URI uri, Configuration conf, FileSystem fs) {
+        return (fileSystemPool != null) ? fileSystemPool.add(getPoolKey(user, group, uri, conf), fs) : fs;
+    }
+
+    private String getPoolKey(String user, String group, URI uri, Configuration conf) {
+        String fsUri;
+        if (uri == null || uri.getScheme() == null) {
+            fsUri = conf.get("fs.default.name");
+        }
+        else {
+            fsUri = uri.getScheme() + "://" + ((uri.getAuthority() != null) ? uri.getAuthority() : "");
+        }
+        return getPoolKey(user, group, fsUri);
+    }
+
+    private String getPoolKey(String user, String group, String uri) {
+        ParamChecker.notEmpty(user, "user");
+        ParamChecker.notEmpty(group, "group");
+        return user + "," + group + "," + ((uri != null) ? uri.toLowerCase() : "");
+    }
+
     /**
      * Return a JobClient created with the provided user/group.
      * 
@@ -93,8 +225,12 @@ public class HadoopAccessorService implements Service {
     public JobClient createJobClient(String user, String group, JobConf conf) throws HadoopAccessorException {
         validateJobTracker(conf.get("mapred.job.tracker"));
         conf = createConfiguration(user, group, conf);
+        JobClient jobClient = getPooledJobClient(user, group, conf.get("mapred.job.tracker"));
+        if (jobClient != null) {
+            return jobClient;
+        }
         try {
-            return new JobClient(conf);
+            return newJobClient(user, group, conf);
         }
         catch (IOException e) {
             throw new HadoopAccessorException(ErrorCode.E0902, e);
@@ -112,8 +248,12 @@ public class HadoopAccessorService implements Service {
     public FileSystem createFileSystem(String user, String group, Configuration conf) throws HadoopAccessorException {
         try {
             validateNameNode(new URI(conf.get("fs.default.name")).getAuthority());
+            FileSystem fs = getPooledFileSystem(user, group, null, conf);
+            if (fs != null) {
+                return fs;
+            }
             conf = createConfiguration(user, group, conf);
-            return FileSystem.get(conf);
+            return poolFileSystem(user, group, null, conf, FileSystem.get(conf));
         }
         catch (IOException e) {
             throw new HadoopAccessorException(ErrorCode.E0902, e);
@@ -136,9 +276,13 @@ public class HadoopAccessorService implements Service {
     public FileSystem createFileSystem(String user, String group, URI uri, Configuration conf)
             throws HadoopAccessorException {
         validateNameNode(uri.getAuthority());
+        FileSystem fs = getPooledFileSystem(user, group, uri, conf);
+        if (fs != null) {
+            return fs;
+        }
         conf = createConfiguration(user, group, conf);
         try {
-            return FileSystem.get(uri, conf);
+            return poolFileSystem(user, group, uri, conf, FileSystem.get(uri, conf));
         }
         catch (IOException e) {
             throw new HadoopAccessorException(ErrorCode.E0902, e);
@@ -0,0 +1,221 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.oozie.util.Instrumentable;
+import org.apache.oozie.util.Instrumentation;
+import org.apache.oozie.util.ParamChecker;
+
+/**
+ * The JobStatusService delivers the status transitions of jobs to the clients subscribed to them.
+ * <p/>
+ * Commands publish the status of a job when they change it, the status is delivered once the command transaction
+ * commits. Subscriptions are kept only while there are subscribers, publishing the status of a job without
+ * subscribers is a map lookup.
+ */
+public class JobStatusService implements Service, Instrumentable {
+
+    public static final String CONF_PREFIX = Service.CONF_PREFIX + "JobStatusService.";
+
+    /**
+     * Maximum number of concurrent subscriptions, each one holds a request thread.
+     */
+    public static final String CONF_MAX_SUBSCRIPTIONS = CONF_PREFIX + "max.subscriptions";
+
+    /**
+     * Maximum time, in seconds, a subscription is kept open.
+     */
+    public static final String CONF_MAX_SUBSCRIPTION_TIME = CONF_PREFIX + "max.subscription.time";
+
+    private static final String INSTRUMENTATION_GROUP = "job_status";
+    private static final String INSTR_PUBLISHED_COUNTER = "published";
+    private static final String INSTR_DELIVERED_COUNTER = "delivered";
+    private static final String INSTR_REJECTED_COUNTER = "rejected";
+
+    /**
+     * A subscription to the status transitions of a job.
+     */
+    public static class Subscription {
+        private final String jobId;
+        private final BlockingQueue<String> statuses = new LinkedBlockingQueue<String>();
+
+        private Subscription(String jobId) {
+            this.jobId = jobId;
+        }
+
+        /**
+         * Return the ID of the job of the subscription.
+         *
+         * @return the job ID.
+         */
+        public String getJobId() {
+            return jobId;
+        }
+
+        /**
+         * Return the next status published for the job, waiting for it up to the given time.
+         *
+         * @param timeout maximum time to wait, in milliseconds.
+         * @return the next status, <code>null</code> if no status was published within the timeout.
+         * @throws InterruptedException thrown if the waiting thread is interrupted.
+         */
+        public String next(long timeout) throws InterruptedException {
+            return statuses.poll(timeout, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private final Map<String, List<Subscription>> subscriptions = new HashMap<String, List<Subscription>>();
+    private int count;
+    private int maxSubscriptions;
+    private long maxSubscriptionTime;
+    private Instrumentation instrumentation;
+
+    /**
+     * Initialize the job status service.
+     *
+     * @param services services instance.
+     */
+    public void init(Services services) {
+        Configuration conf = services.getConf();
+        maxSubscriptions = conf.getInt(CONF_MAX_SUBSCRIPTIONS, 1000);
+        maxSubscriptionTime = conf.getLong(CONF_MAX_SUBSCRIPTION_TIME, 600) * 1000;
+    }
+
+    /**
+     * Destroy the job status service.
+     */
+    public void destroy() {
+        synchronized (subscriptions) {
+            subscriptions.clear();
+            count = 0;
+        }
+    }
+
+    /**
+     * Return the public interface for job status service.
+     *
+     * @return {@link JobStatusService}.
+     */
+    public Class<? extends Service> getInterface() {
+        return JobStatusService.class;
+    }
+
+    /**
+     * Instrument the job status service.
+     *
+     * @param instr instance to instrument the job status service to.
+     */
+    public void instrument(Instrumentation instr) {
+        instrumentation = instr;
+        instr.addVariable(INSTRUMENTATION_GROUP, "subscriptions", new Instrumentation.Variable<Long>() {
+            public Long getValue() {
+                synchronized (subscriptions) {
+                    return (long) count;
+                }
+            }
+        });
+    }
+
+    /**
+     * Return the maximum time a subscription is kept open.
+     *
+     * @return the maximum time, in milliseconds.
+     */
+    public long getMaxSubscriptionTime() {
+        return maxSubscriptionTime;
+    }
+
+    /**
+     * Subscribe to the status transitions of a job.
+     * <p/>
+     * The subscription must be released with {@link #unsubscribe(Subscription)}.
+     *
+     * @param jobId job ID.
+     * @return the subscription, <code>null</code> if the maximum number of subscriptions has been reached.
+     */
+    public Subscription subscribe(String jobId) {
+        ParamChecker.notEmpty(jobId, "jobId");
+        synchronized (subscriptions) {
+            if (count >= maxSubscriptions) {
+                incr(INSTR_REJECTED_COUNTER, 1);
+                return null;
+            }
+            List<Subscription> list = subscriptions.get(jobId);
+            if (list == null) {
+                list = new ArrayList<Subscription>();
+                subscriptions.put(jobId, list);
+            }
+            Subscription subscription = new Subscription(jobId);
+            list.add(subscription);
+            count++;
+            return subscription;
+        }
+    }
+
+    /**
+     * Release a subscription.
+     *
+     * @param subscription subscription to release.
+     */
+    public void unsubscribe(Subscription subscription) {
+        synchronized (subscriptions) {
+            List<Subscription> list = subscriptions.get(subscription.getJobId());
+            if (list != null && list.remove(subscription)) {
+                count--;
+                if (list.isEmpty()) {
+                    subscriptions.remove(subscription.getJobId());
+                }
+            }
+        }
+    }
+
+    /**
+     * Publish the status of a job to its subscribers.
+     *
+     * @param jobId job ID.
+     * @param status new status of the job.
+     */
+    public void publish(String jobId, String status) {
+        incr(INSTR_PUBLISHED_COUNTER, 1);
+        List<Subscription> list;
+        synchronized (subscriptions) {
+            list = subscriptions.get(jobId);
+            if (list == null) {
+                return;
+            }
+            list = new ArrayList<Subscription>(list);
+        }
+        for (Subscription subscription : list) {
+            subscription.statuses.offer(status);
+        }
+        incr(INSTR_DELIVERED_COUNTER, list.size());
+    }
+
+    private void incr(String name, long count) {
+        if (instrumentation != null) {
+            instrumentation.incr(INSTRUMENTATION_GROUP, name, count);
+        }
+    }
+
+}
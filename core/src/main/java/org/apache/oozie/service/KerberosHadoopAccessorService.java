@@ -118,17 +118,21 @@ public class KerberosHadoopAccessorService extends HadoopAccessorService {
      * @return JobClient created with the provided user/group.
      * @throws HadoopAccessorException if the client could not be created.
      */
-    public JobClient createJobClient(String user, String group, final JobConf conf) throws HadoopAccessorException {
+    public JobClient createJobClient(final String user, final String group, final JobConf conf)
+            throws HadoopAccessorException {
         ParamChecker.notEmpty(user, "user");
         ParamChecker.notEmpty(group, "group");
         validateJobTracker(conf.get("mapred.job.tracker"));
         try {
             UserGroupInformation ugi = getUGI(user);
-            JobClient jobClient = ugi.doAs(new PrivilegedExceptionAction<JobClient>() {
-                public JobClient run() throws Exception {
-                    return new JobClient(conf);
-                }
-            });
+            JobClient jobClient = getPooledJobClient(user, group, conf.get("mapred.job.tracker"));
+            if (jobClient == null) {
+                jobClient = ugi.doAs(new PrivilegedExceptionAction<JobClient>() {
+                    public JobClient run() throws Exception {
+                        return newJobClient(user, group, conf);
+                    }
+                });
+            }
             Token<DelegationTokenIdentifier> mrdt = jobClient.getDelegationToken(new Text("mr token"));
             conf.getCredentials().addToken(new Text("mr token"), mrdt);
             return jobClient;
@@ -154,14 +158,19 @@ public class KerberosHadoopAccessorService extends HadoopAccessorService {
         ParamChecker.notEmpty(group, "group");
         try {
             validateNameNode(new URI(conf.get("fs.default.name")).getAuthority());
+            FileSystem fs = getPooledFileSystem(user, group, null, conf);
+            if (fs != null) {
+                return fs;
+            }
             UserGroupInformation ugi = getUGI(user);
-            return ugi.doAs(new PrivilegedExceptionAction<FileSystem>() {
+            fs = ugi.doAs(new PrivilegedExceptionAction<FileSystem>() {
                 public FileSystem run() throws Exception {
                     Configuration defaultConf = new Configuration();
                     XConfiguration.copy(conf, defaultConf);
                     return FileSystem.get(defaultConf);
                 }
             });
+            return poolFileSystem(user, group, null, conf, fs);
         }
         catch (InterruptedException ex) {
             throw new HadoopAccessorException(ErrorCode.E0902, ex);
@@ -187,9 +196,13 @@ public class KerberosHadoopAccessorService extends HadoopAccessorService {
         ParamChecker.notEmpty(user, "user");
         ParamChecker.notEmpty(group, "group");
         validateNameNode(uri.getAuthority());
+        FileSystem fs = getPooledFileSystem(user, group, uri, conf);
+        if (fs != null) {
+            return fs;
+        }
         try {
             UserGroupInformation ugi = getUGI(user);
-            return ugi.doAs(new PrivilegedExceptionAction<FileSystem>() {
+            fs = ugi.doAs(new PrivilegedExceptionAction<FileSystem>() {
                 public FileSystem run() throws Exception {
                     Configuration defaultConf = new Configuration();
 
@@ -200,6 +213,7 @@ public class KerberosHadoopAccessorService extends HadoopAccessorService {
                     return FileSystem.get(uri, defaultConf);
                 }
             });
+            return poolFileSystem(user, group, uri, conf, fs);
         }
         catch (InterruptedException ex) {
             throw new HadoopAccessorException(ErrorCode.E0902, ex);
@@ -14,18 +14,71 @@
  */
 package org.apache.oozie.service;
 
+import java.io.UnsupportedEncodingException;
+
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
 import org.apache.oozie.client.OozieClient;
 import org.apache.oozie.workflow.WorkflowApp;
 import org.apache.oozie.workflow.WorkflowException;
 import org.apache.oozie.workflow.WorkflowLib;
 import org.apache.oozie.service.Services;
+import org.apache.oozie.util.IOUtils;
+import org.apache.oozie.util.Instrumentable;
+import org.apache.oozie.util.Instrumentation;
+import org.apache.oozie.util.LRUCache;
 import org.apache.oozie.util.ParamChecker;
 
 /**
  * Service that provides workflow application definition reading, parsing and creating proto configuration.
+ * <p/>
+ * Parsed workflow applications are cached by application path, modification time and content digest, resubmissions
+ * of an unchanged application (i.e. by coordinator jobs) are not parsed again. The parsed applications are
+ * complete, they cannot be modified and are shared by all the jobs of the application.
  */
-public class LiteWorkflowAppService extends WorkflowAppService {
+public class LiteWorkflowAppService extends WorkflowAppService implements Instrumentable {
+    private static final String INSTRUMENTATION_GROUP = "workflowapp";
+
+    // parsed applications by definition digest
+    private LRUCache<String, WorkflowApp> appCache;
+
+    // definition digests by user, application path, modification time and length
+    private LRUCache<String, String> digestCache;
+
+    /**
+     * Initialize the workflow application service.
+     *
+     * @param services services instance.
+     */
+    @Override
+    public void init(Services services) {
+        super.init(services);
+        int maxEntries = services.getConf().getInt(CONF_CACHE_MAX_ENTRIES, 500);
+        long maxSize = services.getConf().getLong(CONF_CACHE_MAX_SIZE, 10 * 1024 * 1024);
+        if (maxEntries > 0) {
+            appCache = new LRUCache<String, WorkflowApp>(maxEntries, maxSize) {
+                @Override
+                protected long weigh(String key, WorkflowApp app) {
+                    return app.getDefinition().length();
+                }
+            };
+            digestCache = new LRUCache<String, String>(maxEntries * 2, Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Instruments the workflow application service.
+     * <p/>
+     * It exposes the hits, misses, evictions, entries and size of the parsed application cache.
+     *
+     * @param instr instance to instrument the workflow application service to.
+     */
+    public void instrument(Instrumentation instr) {
+        if (appCache != null) {
+            appCache.instrument(instr, INSTRUMENTATION_GROUP, "cache");
+        }
+    }
+
     /**
      * Parse workflow definition.
      *
@@ -37,12 +90,43 @@ public class LiteWorkflowAppService extends WorkflowAppService {
         String appPath = ParamChecker.notEmpty(jobConf.get(OozieClient.APP_PATH), OozieClient.APP_PATH);
         String user = ParamChecker.notEmpty(jobConf.get(OozieClient.USER_NAME), OozieClient.USER_NAME);
         String group = ParamChecker.notEmpty(jobConf.get(OozieClient.GROUP_NAME), OozieClient.GROUP_NAME);
-        String workflowXml = readDefinition(appPath, user, group, authToken);
-        return parseDef(workflowXml);
+        if (appCache == null) {
+            String workflowXml = readDefinition(appPath, user, group, authToken);
+            return parseDef(workflowXml);
+        }
+
+        // the user is part of the key, a definition the user cannot read is never served from the cache
+        FileStatus status = getDefinitionStatus(appPath, user, group);
+        String statusKey = user + "#" + appPath + "#" + status.getModificationTime() + "#" + status.getLen();
+        String digest = digestCache.get(statusKey);
+        WorkflowApp app = (digest != null) ? appCache.get(digest) : null;
+        if (app == null) {
+            String workflowXml = readDefinition(appPath, user, group, authToken);
+            String xmlDigest = digest(workflowXml);
+            if (!xmlDigest.equals(digest)) {
+                // the same definition may be cached for another path or an earlier modification time
+                app = appCache.get(xmlDigest);
+            }
+            if (app == null) {
+                app = parseDef(workflowXml);
+                appCache.put(xmlDigest, app);
+            }
+            digestCache.put(statusKey, xmlDigest);
+        }
+        return app;
     }
 
     public WorkflowApp parseDef(String workflowXml) throws WorkflowException {
         WorkflowLib workflowLib = Services.get().get(WorkflowStoreService.class).getWorkflowLibWithNoDB();
         return workflowLib.parseDef(workflowXml);
     }
+
+    private static String digest(String workflowXml) {
+        try {
+            return IOUtils.digest(workflowXml.getBytes("UTF-8"));
+        }
+        catch (UnsupportedEncodingException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
 }
@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.service;
+
+import java.io.IOException;
+
+import org.apache.hadoop.mapred.JobClient;
+import org.apache.hadoop.mapred.JobConf;
+
+/**
+ * JobClient handed out by the {@link HadoopAccessorService} job client pool.
+ * <p/>
+ * Closing it gives it back to the pool, the connection to the JobTracker is closed when the pool evicts it.
+ */
+public class PooledJobClient extends JobClient {
+    private final HadoopAccessorPool<PooledJobClient> pool;
+    private final String key;
+    private boolean borrowed;
+
+    /**
+     * Create a pooled job client, it is borrowed.
+     *
+     * @param pool pool the job client is given back to.
+     * @param key pool key of the job client.
+     * @param conf job client configuration.
+     * @throws IOException thrown if the job client could not be created.
+     */
+    public PooledJobClient(HadoopAccessorPool<PooledJobClient> pool, String key, JobConf conf) throws IOException {
+        super(conf);
+        this.pool = pool;
+        this.key = key;
+        borrowed = true;
+    }
+
+    /**
+     * Mark the job client as borrowed from the pool.
+     */
+    synchronized void borrow() {
+        borrowed = true;
+    }
+
+    /**
+     * Give the job client back to the pool, closing it more than once has no effect.
+     */
+    @Override
+    public void close() {
+        boolean release;
+        synchronized (this) {
+            release = borrowed;
+            borrowed = false;
+        }
+        if (release) {
+            pool.release(key, this);
+        }
+    }
+
+    /**
+     * Close the connection to the JobTracker, invoked by the pool on eviction.
+     *
+     * @throws IOException thrown if the job client could not be closed.
+     */
+    void destroy() throws IOException {
+        super.close();
+    }
+
+}
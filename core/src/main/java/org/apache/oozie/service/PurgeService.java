@@ -38,25 +38,45 @@ public class PurgeService implements Service {
      */
     public static final String CONF_PURGE_INTERVAL = CONF_PREFIX + "purge.interval";
     private static final String COORD_PURGE_LIMIT = CONF_PREFIX + "coord.purge.limit";
+    /**
+     * Maximum number of rows deleted per second by a purge, <code>0</code> for no throttling.
+     */
+    public static final String CONF_PURGE_ROWS_PER_SECOND = CONF_PREFIX + "purge.rows.per.second";
+
+    public static final String INSTRUMENTATION_GROUP = "purge";
+    public static final String INSTR_CHUNKS_COUNTER = "chunks";
+    public static final String INSTR_WF_JOBS_COUNTER = "wf.jobs";
+    public static final String INSTR_WF_ACTIONS_COUNTER = "wf.actions";
+    public static final String INSTR_COORD_JOBS_COUNTER = "coord.jobs";
+    public static final String INSTR_COORD_ACTIONS_COUNTER = "coord.actions";
 
     /**
      * PurgeRunnable is the runnable which is scheduled to run at the configured interval. PurgeCommand is queued to
-     * remove completed jobs and associated actions older than the configured age.
+     * remove completed jobs and associated actions older than the configured age, in chunks of <code>limit</code>
+     * jobs.
      */
     static class PurgeRunnable implements Runnable {
         private int olderThan;
         private int coordOlderThan;
         private int limit;
+        private int rowsPerSecond;
 
         public PurgeRunnable(int olderThan, int coordOlderThan, int limit) {
+            this(olderThan, coordOlderThan, limit, 0);
+        }
+
+        public PurgeRunnable(int olderThan, int coordOlderThan, int limit, int rowsPerSecond) {
             this.olderThan = olderThan;
             this.coordOlderThan = coordOlderThan;
             this.limit = limit;
+            this.rowsPerSecond = rowsPerSecond;
         }
 
         public void run() {
-            Services.get().get(CallableQueueService.class).queue(new PurgeCommand(olderThan, limit));
-            Services.get().get(CallableQueueService.class).queue(new CoordPurgeCommand(coordOlderThan, limit));
+            Services.get().get(CallableQueueService.class).queue(
+                    new PurgeCommand(olderThan, limit, rowsPerSecond, 0, 0));
+            Services.get().get(CallableQueueService.class).queue(
+                    new CoordPurgeCommand(coordOlderThan, limit, rowsPerSecond, 0, 0));
         }
 
     }
@@ -71,11 +91,23 @@ public class PurgeService implements Service {
         Configuration conf = services.getConf();
         Runnable purgeJobsRunnable = new PurgeRunnable(conf.getInt(
                 CONF_OLDER_THAN, 30), conf.getInt(COORD_CONF_OLDER_THAN, 7),
-                                      conf.getInt(COORD_PURGE_LIMIT, 100));
+                                      conf.getInt(COORD_PURGE_LIMIT, 100),
+                                      conf.getInt(CONF_PURGE_ROWS_PER_SECOND, 1000));
         services.get(SchedulerService.class).schedule(purgeJobsRunnable, 10, conf.getInt(CONF_PURGE_INTERVAL, 3600),
                                                       SchedulerService.Unit.SEC);
     }
 
+    /**
+     * Return the delay before purging the next chunk that keeps a purge within its rows per second budget.
+     *
+     * @param rows number of rows deleted by the last chunk.
+     * @param rowsPerSecond maximum number of rows deleted per second, <code>0</code> for no throttling.
+     * @return the delay in milliseconds.
+     */
+    public static long getThrottleDelay(long rows, int rowsPerSecond) {
+        return (rowsPerSecond > 0) ? rows * 1000 / rowsPerSecond : 0;
+    }
+
     /**
      * Destroy the Purge Jobs Service.
      */
@@ -19,10 +19,10 @@ import java.util.Date;
 import java.util.List;
 
 import org.apache.hadoop.conf.Configuration;
-import org.apache.oozie.CoordinatorActionBean;
 import org.apache.oozie.CoordinatorJobBean;
-import org.apache.oozie.WorkflowActionBean;
+import org.apache.oozie.client.CoordinatorAction;
 import org.apache.oozie.client.CoordinatorJob;
+import org.apache.oozie.client.WorkflowAction;
 import org.apache.oozie.command.coord.CoordActionInputCheckCommand;
 import org.apache.oozie.command.coord.CoordActionReadyCommand;
 import org.apache.oozie.command.coord.CoordActionStartCommand;
@@ -30,9 +30,12 @@ import org.apache.oozie.command.coord.CoordRecoveryCommand;
 import org.apache.oozie.command.wf.ActionEndCommand;
 import org.apache.oozie.command.wf.ActionStartCommand;
 import org.apache.oozie.command.wf.SignalCommand;
+import org.apache.oozie.store.CoordinatorActionSummary;
+import org.apache.oozie.store.CoordinatorJobSummary;
 import org.apache.oozie.store.CoordinatorStore;
 import org.apache.oozie.store.Store;
 import org.apache.oozie.store.StoreException;
+import org.apache.oozie.store.WorkflowActionSummary;
 import org.apache.oozie.store.WorkflowStore;
 import org.apache.oozie.util.XCallable;
 import org.apache.oozie.util.XLog;
@@ -130,11 +133,11 @@ public class RecoveryService implements Service {
 
                 // get list of all jobs that have lastModifiedTimestamp older
                 // than the specified interval
-                List<CoordinatorJobBean> jobs = store.getCoordinatorJobsOlderThanStatus(coordOlderThan,
-                                                                                        CoordinatorJob.Status.PREMATER.toString(), 50, false);
+                List<CoordinatorJobSummary> jobs = store.getCoordinatorJobSummariesOlderThanStatus(coordOlderThan,
+                                                                                                   CoordinatorJob.Status.PREMATER.toString(), 50);
                 //log.debug("QUEUING[{0}] PREMATER coord jobs for potential recovery", jobs.size());
                 msg.append(", COORD_JOBS : " + jobs.size());
-                for (CoordinatorJobBean coordJob : jobs) {
+                for (CoordinatorJobSummary coordJob : jobs) {
                     Services.get().get(InstrumentationService.class).get().incr(INSTRUMENTATION_GROUP,
                                                                                 INSTR_RECOVERED_COORD_JOBS_COUNTER, 1);
                     queueCallable(new CoordRecoveryCommand(coordJob.getId()));
@@ -188,18 +191,18 @@ public class RecoveryService implements Service {
                 store = Services.get().get(StoreService.class).getStore(CoordinatorStore.class);
                 store.beginTrx();
 
-                List<CoordinatorActionBean> cactions = store.getRecoveryActionsOlderThan(coordOlderThan, false);
+                List<CoordinatorActionSummary> cactions = store.getRecoveryActionSummariesOlderThan(coordOlderThan);
                 //log.debug("QUEUING[{0}] WAITING and SUBMITTED coord actions for potential recovery", cactions.size());
                 msg.append(", COORD_ACTIONS : " + cactions.size());
-                for (CoordinatorActionBean caction : cactions) {
+                for (CoordinatorActionSummary caction : cactions) {
                     Services.get().get(InstrumentationService.class).get().incr(INSTRUMENTATION_GROUP,
                                                                                 INSTR_RECOVERED_COORD_ACTIONS_COUNTER, 1);
-                    if (caction.getStatus() == CoordinatorActionBean.Status.WAITING) {
+                    if (caction.getStatus() == CoordinatorAction.Status.WAITING) {
                         queueCallable(new CoordActionInputCheckCommand(caction.getId()));
                         log.info("Recover a WAITTING coord action :" + caction.getId());
                     }
                     else {
-                        if (caction.getStatus() == CoordinatorActionBean.Status.SUBMITTED) {
+                        if (caction.getStatus() == CoordinatorAction.Status.SUBMITTED) {
                             CoordinatorJobBean coordJob = store.getCoordinatorJob(caction.getJobId(), false);
                             queueCallable(new CoordActionStartCommand(caction.getId(), coordJob.getUser(), coordJob
                                     .getAuthToken()));
@@ -308,9 +311,9 @@ public class RecoveryService implements Service {
             try {
                 store = Services.get().get(StoreService.class).getStore(WorkflowStore.class);
                 store.beginTrx();
-                List<WorkflowActionBean> actions = null;
+                List<WorkflowActionSummary> actions = null;
                 try {
-                    actions = store.getPendingActions(olderThan);
+                    actions = store.getPendingActionSummaries(olderThan);
                 }
                 catch (StoreException ex) {
                     log.warn("Exception while reading pending actions from storage", ex);
@@ -318,33 +321,33 @@ public class RecoveryService implements Service {
                 //log.debug("QUEUING[{0}] pending wf actions for potential recovery", actions.size());
                 msg.append(" WF_ACTIONS " + actions.size());
 
-                for (WorkflowActionBean action : actions) {
+                for (WorkflowActionSummary action : actions) {
                     Services.get().get(InstrumentationService.class).get().incr(INSTRUMENTATION_GROUP,
                                                                                 INSTR_RECOVERED_ACTIONS_COUNTER, 1);
-                    if (action.getStatus() == WorkflowActionBean.Status.PREP
-                            || action.getStatus() == WorkflowActionBean.Status.START_MANUAL) {
+                    if (action.getStatus() == WorkflowAction.Status.PREP
+                            || action.getStatus() == WorkflowAction.Status.START_MANUAL) {
                         queueCallable(new ActionStartCommand(action.getId(), action.getType()));
                     }
                     else {
-                        if (action.getStatus() == WorkflowActionBean.Status.START_RETRY) {
+                        if (action.getStatus() == WorkflowAction.Status.START_RETRY) {
                             Date nextRunTime = action.getPendingAge();
                             queueCallable(new ActionStartCommand(action.getId(), action.getType()), nextRunTime.getTime()
                                     - System.currentTimeMillis());
                         }
                         else {
-                            if (action.getStatus() == WorkflowActionBean.Status.DONE
-                                    || action.getStatus() == WorkflowActionBean.Status.END_MANUAL) {
+                            if (action.getStatus() == WorkflowAction.Status.DONE
+                                    || action.getStatus() == WorkflowAction.Status.END_MANUAL) {
                                 queueCallable(new ActionEndCommand(action.getId(), action.getType()));
                             }
                             else {
-                                if (action.getStatus() == WorkflowActionBean.Status.END_RETRY) {
+                                if (action.getStatus() == WorkflowAction.Status.END_RETRY) {
                                     Date nextRunTime = action.getPendingAge();
                                     queueCallable(new ActionEndCommand(action.getId(), action.getType()), nextRunTime.getTime()
                                             - System.currentTimeMillis());
                                 }
                                 else {
-                                    if (action.getStatus() == WorkflowActionBean.Status.OK
-                                            || action.getStatus() == WorkflowActionBean.Status.ERROR) {
+                                    if (action.getStatus() == WorkflowAction.Status.OK
+                                            || action.getStatus() == WorkflowAction.Status.ERROR) {
                                         queueCallable(new SignalCommand(action.getJobId(), action.getId()));
                                     }
                                 }
@@ -28,8 +28,10 @@ import org.apache.oozie.store.SLAStore;
 import org.apache.oozie.store.Store;
 import org.apache.oozie.store.WorkflowStore;
 import org.apache.oozie.store.CoordinatorStore;
+import org.apache.oozie.store.GroupCommitter;
 import org.apache.oozie.util.Instrumentable;
 import org.apache.oozie.ErrorCode;
+import org.apache.openjpa.enhance.PersistenceCapable;
 import org.apache.openjpa.persistence.OpenJPAEntityManagerFactorySPI;
 import org.apache.hadoop.conf.Configuration;
 
@@ -64,8 +66,11 @@ public class StoreService implements Service {
     public static final String CONF_PASSWORD = CONF_PREFIX + "jdbc.password";
     public static final String CONF_MAX_ACTIVE_CONN = CONF_PREFIX + "pool.max.active.conn";
     public static final String CONF_CREATE_DB_SCHEMA = CONF_PREFIX + "create.db.schema";
+    public static final String CONF_GROUP_COMMIT = CONF_PREFIX + "group.commit";
+    public static final String CONF_GROUP_COMMIT_MAX_WRITES = CONF_PREFIX + "group.commit.max.writes";
 
     private EntityManagerFactory factory;
+    private GroupCommitter groupCommitter;
 
     /**
      * Return instance of store.
@@ -123,6 +128,26 @@ public class StoreService implements Service {
         return StoreService.class;
     }
 
+    /**
+     * Return if the JPA entities have been enhanced at build time.
+     * <p/>
+     * The persistence units do not support unenhanced entities, when running with classes that have not been enhanced
+     * (i.e. compiled by an IDE) the service falls back to runtime enhancement.
+     *
+     * @return <code>true</code> if all the JPA entities have been enhanced.
+     */
+    public static boolean isEnhanced() {
+        Class[] entities = {WorkflowJobBean.class, WorkflowActionBean.class, CoordinatorJobBean.class,
+                CoordinatorActionBean.class, SLAEventBean.class, JsonWorkflowJob.class, JsonWorkflowAction.class,
+                JsonCoordinatorJob.class, JsonCoordinatorAction.class, JsonSLAEvent.class};
+        for (Class entity : entities) {
+            if (!PersistenceCapable.class.isAssignableFrom(entity)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Initializes the {@link StoreService}.
      *
@@ -164,6 +189,11 @@ public class StoreService implements Service {
         if (autoSchemaCreation) {
             props.setProperty("openjpa.jdbc.SynchronizeMappings", "buildSchema(ForeignKeys=true)");
         }
+        if (!isEnhanced()) {
+            XLog.getLog(getClass()).warn(XLog.OPS, "JPA entities are not enhanced, using runtime enhancement, " +
+                    "loads and flushes are slower");
+            props.setProperty("openjpa.RuntimeUnenhancedClasses", "supported");
+        }
 
         factory = Persistence.createEntityManagerFactory(persistentUnit, props);
 
@@ -188,15 +218,38 @@ public class StoreService implements Service {
         XLog.getLog(getClass()).info("JPA configuration: {0}", spi.getConfiguration().getConnectionProperties());
         entityManager.getTransaction().commit();
         entityManager.close();
+
+        if (conf.getBoolean(CONF_GROUP_COMMIT, false)) {
+            groupCommitter = new GroupCommitter(factory, conf.getInt(CONF_GROUP_COMMIT_MAX_WRITES, 100));
+            InstrumentationService instrService = services.get(InstrumentationService.class);
+            if (instrService != null) {
+                groupCommitter.setInstrumentation(instrService.get());
+            }
+            groupCommitter.start();
+            XLog.getLog(getClass()).info("Group commit enabled");
+        }
     }
 
     /**
      * Destroy the StoreService
      */
     public void destroy() {
+        if (groupCommitter != null) {
+            groupCommitter.stop();
+            groupCommitter = null;
+        }
         factory.close();
     }
 
+    /**
+     * Return the group committer.
+     *
+     * @return the group committer, <code>null</code> if group commit is disabled.
+     */
+    public GroupCommitter getGroupCommitter() {
+        return groupCommitter;
+    }
+
     /**
      * Return EntityManager
      */
@@ -56,6 +56,10 @@ public abstract class WorkflowAppService implements Service {
 
     public static final String HADOOP_NN_KERBEROS_NAME = "dfs.namenode.kerberos.principal";
 
+    public static final String CONF_CACHE_MAX_ENTRIES = CONF_PREFIX + "cache.max.entries";
+
+    public static final String CONF_CACHE_MAX_SIZE = CONF_PREFIX + "cache.max.size";
+
     private Path systemLibPath;
 
     /**
@@ -121,6 +125,36 @@ public abstract class WorkflowAppService implements Service {
         }
     }
 
+    /**
+     * Return the file status of the workflow definition.
+     *
+     * @param appPath application path.
+     * @param user user name.
+     * @param group group name.
+     * @return file status of the workflow definition.
+     * @throws WorkflowException thrown if the file status could not be read.
+     */
+    protected FileStatus getDefinitionStatus(String appPath, String user, String group) throws WorkflowException {
+        try {
+            URI uri = new URI(appPath);
+            FileSystem fs = Services.get().get(HadoopAccessorService.class).
+                    createFileSystem(user, group, uri, new Configuration());
+            return fs.getFileStatus(new Path(uri.getPath()));
+        }
+        catch (IOException ex) {
+            throw new WorkflowException(ErrorCode.E0710, ex.getMessage(), ex);
+        }
+        catch (URISyntaxException ex) {
+            throw new WorkflowException(ErrorCode.E0711, appPath, ex.getMessage(), ex);
+        }
+        catch (HadoopAccessorException ex) {
+            throw new WorkflowException(ex);
+        }
+        catch (Exception ex) {
+            throw new WorkflowException(ErrorCode.E0710, ex.getMessage(), ex);
+        }
+    }
+
     /**
      * Create proto configuration. <p/> The proto configuration includes the user,group and the paths which need to be
      * added to distributed cache. These paths include .jar,.so and the resource file paths.
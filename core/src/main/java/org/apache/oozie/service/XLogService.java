@@ -20,6 +20,7 @@ import org.apache.log4j.PropertyConfigurator;
 import org.apache.oozie.util.Instrumentable;
 import org.apache.oozie.util.Instrumentation;
 import org.apache.oozie.util.XLog;
+import org.apache.oozie.util.XLogIndex;
 import org.apache.oozie.util.XLogStreamer;
 import org.apache.oozie.util.XConfiguration;
 import org.apache.oozie.BuildInfo;
@@ -35,6 +36,11 @@ import java.net.URL;
 import java.util.Properties;
 import java.util.Map;
 import java.util.Date;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Built-in service that initializes and manages Logging via  Log4j.
@@ -54,6 +60,11 @@ import java.util.Date;
  * <p/>
  * the automatic reloading interval is defined by the Java System property <code>oozie.log4j.reload</code>.
  * The default value is 10 seconds.
+ * <p/>
+ * The rotated Oozie log files are indexed by job ID in the background, for log streaming to read only the log
+ * statements of the job. Indexing is enabled by the Java System property <code>oozie.log.index</code>, it is enabled
+ * by default, new rotated log files are indexed at the interval defined by the Java System property
+ * <code>oozie.log.index.interval</code>. The default value is 300 seconds.
  */
 public class XLogService implements Service, Instrumentable {
     private static final String INSTRUMENTATION_GROUP = "logging";
@@ -73,6 +84,16 @@ public class XLogService implements Service, Instrumentable {
      */
     public static final String LOG4J_RELOAD = "oozie.log4j.reload";
 
+    /**
+     * System property that indicates if rotated log files are indexed for log streaming.
+     */
+    public static final String LOG_INDEX = "oozie.log.index";
+
+    /**
+     * System property that indicates the interval, in seconds, at which new rotated log files are indexed.
+     */
+    public static final String LOG_INDEX_INTERVAL = "oozie.log.index.interval";
+
     /**
      * Default value for the log4j configuration file if {@link #LOG4J_FILE} is not set.
      */
@@ -83,6 +104,11 @@ public class XLogService implements Service, Instrumentable {
      */
     public static final String DEFAULT_RELOAD_INTERVAL = "10";
 
+    /**
+     * Default value for the index interval if {@link #LOG_INDEX_INTERVAL} is not set.
+     */
+    public static final String DEFAULT_INDEX_INTERVAL = "300";
+
     private XLog log;
     private long interval;
     private boolean fromClasspath;
@@ -98,6 +124,8 @@ public class XLogService implements Service, Instrumentable {
     private String oozieLogPath;
     private String oozieLogName;
     private int oozieLogRotation = -1;
+    private ScheduledExecutorService indexer;
+    private final AtomicLong indexedFiles = new AtomicLong();
 
     public XLogService() {
     }
@@ -170,6 +198,9 @@ public class XLogService implements Service, Instrumentable {
             ClassLoader cl = Thread.currentThread().getContextClassLoader();
             InputStream is = (fromClasspath) ? cl.getResourceAsStream(log4jFileName) : new FileInputStream(log4jFile);
             extractInfoForLogWebService(is);
+            if (logOverWS && Boolean.parseBoolean(System.getProperty(LOG_INDEX, "true"))) {
+                startIndexer(Long.parseLong(System.getProperty(LOG_INDEX_INTERVAL, DEFAULT_INDEX_INTERVAL)));
+            }
         }
         catch (IOException ex) {
             throw new ServiceException(ErrorCode.E0010, ex.getMessage(), ex);
@@ -229,10 +260,41 @@ public class XLogService implements Service, Instrumentable {
         }
     }
 
+    /**
+     * Start the thread that indexes the rotated log files, see {@link XLogIndex}.
+     *
+     * @param interval interval, in seconds, at which new rotated log files are indexed.
+     */
+    private void startIndexer(long interval) {
+        indexer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "oozie-log-indexer");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+        indexer.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                try {
+                    indexedFiles.addAndGet(XLogIndex.indexDirectory(new File(oozieLogPath), oozieLogName));
+                }
+                catch (Throwable ex) {
+                    log.warn("Could not index log files in [{0}], {1}", oozieLogPath, ex.getMessage(), ex);
+                }
+            }
+        }, 10, interval, TimeUnit.SECONDS);
+        log.info("Log index interval [{0}] sec", interval);
+    }
+
     /**
      * Destroy the log service.
      */
     public void destroy() {
+        if (indexer != null) {
+            indexer.shutdownNow();
+            indexer = null;
+        }
         LogManager.shutdown();
         XLog.Info.reset();
         XLogStreamer.Filter.reset();
@@ -289,6 +351,11 @@ public class XLogService implements Service, Instrumentable {
                 return logOverWS;
             }
         });
+        instr.addVariable(INSTRUMENTATION_GROUP, "indexed.files", new Instrumentation.Variable<Long>() {
+            public Long getValue() {
+                return indexedFiles.get();
+            }
+        });
     }
 
     /**
@@ -138,6 +138,24 @@ public abstract class BaseAdminServlet extends JsonRestServlet {
                     dataJson.put(JsonTags.INSTR_TIMER_OWN_MAX_TIME, timer.getOwnMax());
                     dataJson.put(JsonTags.INSTR_TIMER_TOTAL_MIN_TIME, timer.getTotalMin());
                     dataJson.put(JsonTags.INSTR_TIMER_TOTAL_MAX_TIME, timer.getTotalMax());
+                    dataJson.put(JsonTags.INSTR_TIMER_OWN_P50_TIME, timer.getOwnPercentile(50));
+                    dataJson.put(JsonTags.INSTR_TIMER_OWN_P99_TIME, timer.getOwnPercentile(99));
+                    dataJson.put(JsonTags.INSTR_TIMER_OWN_P999_TIME, timer.getOwnPercentile(99.9));
+                    dataJson.put(JsonTags.INSTR_TIMER_TOTAL_P50_TIME, timer.getTotalPercentile(50));
+                    dataJson.put(JsonTags.INSTR_TIMER_TOTAL_P99_TIME, timer.getTotalPercentile(99));
+                    dataJson.put(JsonTags.INSTR_TIMER_TOTAL_P999_TIME, timer.getTotalPercentile(99.9));
+                }
+                else if (value instanceof Instrumentation.Latency) {
+                    Instrumentation.Latency latency = (Instrumentation.Latency) value;
+                    for (int minutes : Instrumentation.Latency.WINDOWS) {
+                        JSONObject windowJson = new JSONObject();
+                        windowJson.put(JsonTags.INSTR_LATENCY_COUNT, latency.getCount(minutes));
+                        windowJson.put(JsonTags.INSTR_LATENCY_P50_TIME, latency.getPercentile(minutes, 50));
+                        windowJson.put(JsonTags.INSTR_LATENCY_P99_TIME, latency.getPercentile(minutes, 99));
+                        windowJson.put(JsonTags.INSTR_LATENCY_P999_TIME, latency.getPercentile(minutes, 99.9));
+                        windowJson.put(JsonTags.INSTR_LATENCY_MAX_TIME, latency.getMax(minutes));
+                        dataJson.put(minutes + "m", windowJson);
+                    }
                 }
                 else {
                     dataJson.put(JsonTags.INSTR_VARIABLE_VALUE, value);
@@ -157,6 +175,7 @@ public abstract class BaseAdminServlet extends JsonRestServlet {
         json.put(JsonTags.INSTR_SAMPLERS, instrElementsToJson(instr.getSamplers()));
         json.put(JsonTags.INSTR_COUNTERS, instrElementsToJson(instr.getCounters()));
         json.put(JsonTags.INSTR_TIMERS, instrElementsToJson(instr.getTimers()));
+        json.put(JsonTags.INSTR_LATENCIES, instrElementsToJson(instr.getLatencies()));
         return json;
     }
 
@@ -49,7 +49,8 @@ public abstract class BaseJobServlet extends JsonRestServlet {
     static {
         RESOURCES_INFO[0] = new ResourceInfo("*", Arrays.asList("PUT", "GET"), Arrays.asList(new ParameterInfo(
                 RestConstants.ACTION_PARAM, String.class, true, Arrays.asList("PUT")), new ParameterInfo(
-                RestConstants.JOB_SHOW_PARAM, String.class, false, Arrays.asList("GET"))));
+                RestConstants.JOB_SHOW_PARAM, String.class, false, Arrays.asList("GET")), new ParameterInfo(
+                RestConstants.JOB_STATUS_TIMEOUT_PARAM, Integer.class, false, Arrays.asList("GET"))));
     }
 
     public BaseJobServlet(String instrumentationName) {
@@ -215,6 +216,10 @@ public abstract class BaseJobServlet extends JsonRestServlet {
             response.setContentType(TEXT_UTF8);
             streamJobLog(request, response);
         }
+        else if (show.equals(RestConstants.JOB_SHOW_STATUS)) {
+            response.setContentType(TEXT_UTF8);
+            streamJobStatus(request, response);
+        }
         else if (show.equals(RestConstants.JOB_SHOW_DEFINITION)) {
             stopCron();
             response.setContentType(XML_UTF8);
@@ -332,4 +337,15 @@ public abstract class BaseJobServlet extends JsonRestServlet {
     abstract void streamJobLog(HttpServletRequest request, HttpServletResponse response) throws XServletException,
             IOException;
 
+    /**
+     * abstract method to stream the status transitions of a job, either workflow or coordinator action
+     *
+     * @param request
+     * @param response
+     * @throws XServletException
+     * @throws IOException
+     */
+    abstract void streamJobStatus(HttpServletRequest request, HttpServletResponse response)
+            throws XServletException, IOException;
+
 }
@@ -42,6 +42,8 @@ public class CallbackServlet extends JsonRestServlet {
 
     public final static String CONF_MAX_DATA_LEN = "oozie.servlet.CallbackServlet.max.data.len";
 
+    private static final String RETRY_AFTER_HEADER = "Retry-After";
+
     private static int maxDataLen;
 
     private XLog log = null;
@@ -89,7 +91,7 @@ public class CallbackServlet extends JsonRestServlet {
             dagEngine.processCallback(actionId, callbackService.getExternalStatus(queryString), null);
         }
         catch (DagEngineException ex) {
-            throw new XServletException(HttpServletResponse.SC_BAD_REQUEST, ex);
+            throw toServletException(response, ex);
         }
     }
 
@@ -140,7 +142,20 @@ public class CallbackServlet extends JsonRestServlet {
             }
         }
         catch (DagEngineException ex) {
-            throw new XServletException(HttpServletResponse.SC_BAD_REQUEST, ex);
+            throw toServletException(response, ex);
+        }
+    }
+
+    /**
+     * Convert a callback processing exception, a callback rejected because there are too many pending callbacks is
+     * reported as unavailable with the time to wait before retrying it.
+     */
+    private XServletException toServletException(HttpServletResponse response, DagEngineException ex) {
+        if (ex.getErrorCode() == ErrorCode.E0404) {
+            response.setHeader(RETRY_AFTER_HEADER,
+                               Integer.toString(Services.get().get(CallbackService.class).getRetryAfter()));
+            return new XServletException(HttpServletResponse.SC_SERVICE_UNAVAILABLE, ex);
         }
+        return new XServletException(HttpServletResponse.SC_BAD_REQUEST, ex);
     }
 }
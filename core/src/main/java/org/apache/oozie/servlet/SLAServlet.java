@@ -15,8 +15,8 @@
 package org.apache.oozie.servlet;
 
 import java.io.IOException;
+import java.io.Writer;
 import java.util.Arrays;
-import java.util.List;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
@@ -24,22 +24,30 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.apache.oozie.ErrorCode;
 import org.apache.oozie.SLAEventBean;
-import org.apache.oozie.XException;
 import org.apache.oozie.client.rest.RestConstants;
-import org.apache.oozie.command.CommandException;
-import org.apache.oozie.command.coord.SLAEventsCommand;
 import org.apache.oozie.service.SLAStoreService;
 import org.apache.oozie.service.Services;
+import org.apache.oozie.store.SLAEventNotifier;
 import org.apache.oozie.store.SLAStore;
 import org.apache.oozie.store.StoreException;
 import org.apache.oozie.util.XLog;
-import org.apache.oozie.util.XmlUtils;
-import org.jdom.Element;
-import org.jdom.JDOMException;
+import org.jdom.output.Format;
+import org.jdom.output.XMLOutputter;
 
 public class SLAServlet extends JsonRestServlet {
     private static final String INSTRUMENTATION_NAME = "sla";
 
+    /**
+     * Maximum time, in seconds, a request can wait for new SLA events.
+     */
+    public static final String CONF_MAX_WAIT = "oozie.servlet.SLAServlet.max.wait";
+
+    /**
+     * Time to re-query after a notification that did not return events, the inserting transaction may not have
+     * committed yet.
+     */
+    private static final long COMMIT_RECHECK_MS = 500;
+
     private static final JsonRestServlet.ResourceInfo RESOURCES_INFO[] = new JsonRestServlet.ResourceInfo[1];
 
     static {
@@ -49,17 +57,69 @@ public class SLAServlet extends JsonRestServlet {
                         RestConstants.SLA_GT_SEQUENCE_ID, String.class, true,
                         Arrays.asList("GET")),
                 new JsonRestServlet.ParameterInfo(RestConstants.MAX_EVENTS,
+                                                  String.class, false, Arrays.asList("GET")),
+                new JsonRestServlet.ParameterInfo(RestConstants.SLA_WAIT,
                                                   String.class, false, Arrays.asList("GET"))));
     }
 
+    private static int maxWait;
+
     public SLAServlet() {
         super(INSTRUMENTATION_NAME, RESOURCES_INFO);
     }
 
+    @Override
+    public void init() {
+        maxWait = Services.get().getConf().getInt(CONF_MAX_WAIT, 60);
+    }
+
+    /**
+     * Writes the SLA events to the response as they are read from the database. The document is started on the first
+     * event, so errors before it are still reported with an error status.
+     */
+    private static class XmlEventWriter implements SLAStore.SLAEventHandler {
+        private final HttpServletResponse response;
+        private final XMLOutputter outputter = new XMLOutputter(Format.getPrettyFormat());
+        private Writer writer;
+        private int count;
+
+        XmlEventWriter(HttpServletResponse response) {
+            this.response = response;
+        }
+
+        private void start() throws IOException {
+            if (writer == null) {
+                response.setContentType(XML_UTF8);
+                response.setStatus(HttpServletResponse.SC_OK);
+                writer = response.getWriter();
+                writer.write("<sla-message>\n");
+            }
+        }
+
+        public void handle(SLAEventBean event) throws IOException {
+            start();
+            outputter.output(event.toXml(), writer);
+            writer.write("\n");
+            count++;
+        }
+
+        int getCount() {
+            return count;
+        }
+
+        void end(long lastSeqId) throws IOException {
+            start();
+            writer.write("<last-sequence-id>" + lastSeqId + "</last-sequence-id>\n</sla-message>\n");
+            writer.flush();
+        }
+    }
+
     /**
      * Return information about SLA Events.
+     * <p/>
+     * The events are streamed from the database to the response. If the <code>wait</code> parameter is set and there
+     * are no newer events, the request blocks up to that many seconds until new events are inserted.
      */
-    @SuppressWarnings("unchecked")
     public void doGet(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
 
@@ -68,33 +128,26 @@ public class SLAServlet extends JsonRestServlet {
                     .getParameter(RestConstants.SLA_GT_SEQUENCE_ID);
             String strMaxEvents = request
                     .getParameter(RestConstants.MAX_EVENTS);
+            String strWait = request.getParameter(RestConstants.SLA_WAIT);
             int maxNoEvents = 100; // Default
             XLog.getLog(getClass()).debug(
                     "Got SLA GET request for :" + gtSequenceNum
-                            + " and max-events :" + strMaxEvents);
+                            + " and max-events :" + strMaxEvents + " and wait :" + strWait);
             if (strMaxEvents != null && strMaxEvents.length() > 0) {
                 maxNoEvents = Integer.parseInt(strMaxEvents);
             }
+            long waitMs = 0;
+            if (strWait != null && strWait.length() > 0) {
+                waitMs = Math.min(Integer.parseInt(strWait), maxWait) * 1000L;
+            }
             if (gtSequenceNum != null) {
                 long seqId = Long.parseLong(gtSequenceNum);
                 stopCron();
-                SLAEventsCommand seCommand = new SLAEventsCommand(seqId, maxNoEvents);
-                List<SLAEventBean> slaEvntList = seCommand.call();
-                long lastSeqId = seCommand.getLastSeqId();
-
-                Element eResponse = new Element("sla-message");
-                for (SLAEventBean event : slaEvntList) {
-                    eResponse.addContent(event.toXml());
-                }
-                Element eLastSeq = new Element("last-sequence-id");
-                eLastSeq.addContent(String.valueOf(lastSeqId));
-                eResponse.addContent(eLastSeq);
-                response.setContentType(XML_UTF8);
+                XmlEventWriter eventWriter = new XmlEventWriter(response);
+                long lastSeqId = streamEvents(seqId, maxNoEvents, waitMs, eventWriter);
                 XLog.getLog(getClass()).debug("Writing back SLA Servlet  Caller with last-seq-id " + lastSeqId);
                 startCron();
-                response.setStatus(HttpServletResponse.SC_OK);
-                response.getWriter().write(
-                        XmlUtils.prettyPrint(eResponse) + "\n");
+                eventWriter.end(lastSeqId);
             }
             else {
                 XLog.getLog(getClass()).error(
@@ -103,10 +156,9 @@ public class SLAServlet extends JsonRestServlet {
                                             ErrorCode.E0401, "Not implemented without gtSeqID");
             }
         }
-        catch (CommandException ce) {
-            ce.printStackTrace();
-            XLog.getLog(getClass()).error("Command exception ", ce);
-            throw new XServletException(HttpServletResponse.SC_BAD_REQUEST, ce);
+        catch (StoreException se) {
+            XLog.getLog(getClass()).error("Store exception ", se);
+            throw new XServletException(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, se);
         }
         catch (RuntimeException re) {
             re.printStackTrace();
@@ -115,4 +167,55 @@ public class SLAServlet extends JsonRestServlet {
         }
     }
 
+    /**
+     * Stream the events newer than the sequence id, waiting up to the given time for new events if there are none.
+     *
+     * @return the sequence id of the last event written.
+     */
+    private long streamEvents(long seqId, int maxNoEvents, long waitMs, XmlEventWriter eventWriter)
+            throws StoreException {
+        long deadline = System.currentTimeMillis() + waitMs;
+        SLAStore store = Services.get().get(SLAStoreService.class).create();
+        try {
+            long version = SLAEventNotifier.getVersion();
+            long lastSeqId = streamEvents(store, seqId, maxNoEvents, eventWriter);
+            boolean recheck = false;
+            long remaining = deadline - System.currentTimeMillis();
+            while (eventWriter.getCount() == 0 && remaining > 0) {
+                long current = SLAEventNotifier.await(version,
+                                                      recheck ? Math.min(remaining, COMMIT_RECHECK_MS) : remaining);
+                if (current == version && !recheck) {
+                    break;
+                }
+                recheck = current != version;
+                version = current;
+                lastSeqId = streamEvents(store, seqId, maxNoEvents, eventWriter);
+                remaining = deadline - System.currentTimeMillis();
+            }
+            return lastSeqId;
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return seqId;
+        }
+        finally {
+            store.closeTrx();
+        }
+    }
+
+    private long streamEvents(SLAStore store, long seqId, int maxNoEvents, XmlEventWriter eventWriter)
+            throws StoreException {
+        store.beginTrx();
+        try {
+            long lastSeqId = store.streamSLAEventsNewerSeqLimited(seqId, maxNoEvents, eventWriter);
+            store.commitTrx();
+            return lastSeqId;
+        }
+        finally {
+            if (store.isActive()) {
+                store.rollbackTrx();
+            }
+        }
+    }
+
 }
@@ -23,6 +23,7 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.oozie.DagEngine;
 import org.apache.oozie.DagEngineException;
 import org.apache.oozie.client.rest.JsonBean;
+import org.apache.oozie.client.rest.RestConstants;
 import org.apache.oozie.service.DagEngineService;
 import org.apache.oozie.service.Services;
 import org.json.simple.JSONObject;
@@ -197,4 +198,14 @@ public class V0JobServlet extends BaseJobServlet {
         }
     }
 
+    /*
+     * v0 service method to stream the status transitions of a job
+     */
+    @Override
+    protected void streamJobStatus(HttpServletRequest request, HttpServletResponse response)
+            throws XServletException, IOException {
+        throw new XServletException(HttpServletResponse.SC_BAD_REQUEST, ErrorCode.E0303,
+                                    RestConstants.JOB_SHOW_PARAM, RestConstants.JOB_SHOW_STATUS);
+    }
+
 }
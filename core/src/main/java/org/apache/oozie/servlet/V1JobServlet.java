@@ -15,7 +15,11 @@
 package org.apache.oozie.servlet;
 
 import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import javax.servlet.ServletInputStream;
 import javax.servlet.http.HttpServletRequest;
@@ -36,6 +40,7 @@ import org.apache.oozie.client.rest.JsonTags;
 import org.apache.oozie.client.rest.RestConstants;
 import org.apache.oozie.service.CoordinatorEngineService;
 import org.apache.oozie.service.DagEngineService;
+import org.apache.oozie.service.JobStatusService;
 import org.apache.oozie.service.Services;
 import org.apache.oozie.util.XLog;
 import org.json.simple.JSONObject;
@@ -45,6 +50,12 @@ public class V1JobServlet extends BaseJobServlet {
 
     private static final String INSTRUMENTATION_NAME = "v1job";
 
+    /**
+     * Statuses after which a job does not change status anymore, they end a job status stream.
+     */
+    private static final Set<String> FINAL_STATUSES = new HashSet<String>(Arrays.asList("SUCCEEDED", "KILLED",
+                                                                                      "FAILED", "TIMEDOUT"));
+
     public V1JobServlet() {
         super(INSTRUMENTATION_NAME);
     }
@@ -244,6 +255,86 @@ public class V1JobServlet extends BaseJobServlet {
         }
     }
 
+    /*
+     * protected method to stream the status transitions of a job into response object
+     */
+    @Override
+    protected void streamJobStatus(HttpServletRequest request, HttpServletResponse response)
+            throws XServletException, IOException {
+        String jobId = getResourceName(request);
+        if (!jobId.endsWith("-W") && !jobId.contains("-C@")) {
+            throw new XServletException(HttpServletResponse.SC_BAD_REQUEST, ErrorCode.E0303,
+                                        RestConstants.JOB_SHOW_PARAM, RestConstants.JOB_SHOW_STATUS);
+        }
+        JobStatusService jobStatusService = Services.get().get(JobStatusService.class);
+        long timeout = jobStatusService.getMaxSubscriptionTime();
+        String timeoutStr = request.getParameter(RestConstants.JOB_STATUS_TIMEOUT_PARAM);
+        if (timeoutStr != null) {
+            timeout = Math.min(timeout, Long.parseLong(timeoutStr) * 1000);
+        }
+        // subscribing before reading the current status, a transition in between is not lost
+        JobStatusService.Subscription subscription = jobStatusService.subscribe(jobId);
+        if (subscription == null) {
+            throw new XServletException(HttpServletResponse.SC_SERVICE_UNAVAILABLE, ErrorCode.E0405, jobId);
+        }
+        try {
+            String status = getJobStatus(request, jobId);
+            response.setStatus(HttpServletResponse.SC_OK);
+            Writer writer = response.getWriter();
+            writeJobStatus(writer, jobId, status);
+            long deadline = System.currentTimeMillis() + timeout;
+            long remaining = timeout;
+            while (!FINAL_STATUSES.contains(status) && remaining > 0) {
+                String next = subscription.next(remaining);
+                if (next == null) {
+                    break;
+                }
+                if (!next.equals(status)) {
+                    status = next;
+                    writeJobStatus(writer, jobId, status);
+                }
+                remaining = deadline - System.currentTimeMillis();
+            }
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            jobStatusService.unsubscribe(subscription);
+        }
+    }
+
+    private String getJobStatus(HttpServletRequest request, String jobId) throws XServletException {
+        try {
+            if (jobId.endsWith("-W")) {
+                DagEngine dagEngine = Services.get().get(DagEngineService.class).getDagEngine(getUser(request),
+                                                                                              getAuthToken(request));
+                return dagEngine.getJob(jobId).getStatus().toString();
+            }
+            else {
+                CoordinatorEngine coordEngine = Services.get().get(CoordinatorEngineService.class)
+                        .getCoordinatorEngine(getUser(request), getAuthToken(request));
+                return coordEngine.getCoordAction(jobId).getStatus().toString();
+            }
+        }
+        catch (BaseEngineException ex) {
+            throw new XServletException(HttpServletResponse.SC_BAD_REQUEST, ex);
+        }
+    }
+
+    /**
+     * Write a status of the job as a JSON object in its own line and flush it to the client.
+     */
+    @SuppressWarnings("unchecked")
+    private void writeJobStatus(Writer writer, String jobId, String status) throws IOException {
+        JSONObject json = new JSONObject();
+        json.put(JsonTags.JOB_ID, jobId);
+        json.put(JsonTags.WORKFLOW_STATUS, status);
+        writer.write(json.toJSONString());
+        writer.write("\n");
+        writer.flush();
+    }
+
     /**
      * @param request
      * @param response
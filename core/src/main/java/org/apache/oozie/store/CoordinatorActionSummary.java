@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.store;
+
+import java.util.Date;
+
+import org.apache.oozie.client.CoordinatorAction;
+
+/**
+ * Immutable view of the status columns of a coordinator action.
+ * <p/>
+ * It is loaded with a projection query, the action XML, configuration and SLA LOBs are not fetched.
+ */
+public class CoordinatorActionSummary {
+    private final String id;
+    private final String jobId;
+    private final CoordinatorAction.Status status;
+    private final String externalId;
+    private final Date lastModifiedTime;
+
+    /**
+     * Create a coordinator action summary.
+     *
+     * @param id action id.
+     * @param jobId coordinator job id of the action.
+     * @param status action status.
+     * @param externalId action external id, the workflow job id.
+     * @param lastModifiedTime action last modified time.
+     */
+    public CoordinatorActionSummary(String id, String jobId, CoordinatorAction.Status status, String externalId,
+                                    Date lastModifiedTime) {
+        this.id = id;
+        this.jobId = jobId;
+        this.status = status;
+        this.externalId = externalId;
+        this.lastModifiedTime = lastModifiedTime;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public CoordinatorAction.Status getStatus() {
+        return status;
+    }
+
+    public String getExternalId() {
+        return externalId;
+    }
+
+    public Date getLastModifiedTime() {
+        return lastModifiedTime;
+    }
+
+}
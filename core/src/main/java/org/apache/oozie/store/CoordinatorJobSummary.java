@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.store;
+
+import java.util.Date;
+
+import org.apache.oozie.client.CoordinatorJob;
+
+/**
+ * Immutable view of the status and ownership columns of a coordinator job.
+ * <p/>
+ * It is loaded with a projection query, the configuration and coordinator XML LOBs are not fetched.
+ */
+public class CoordinatorJobSummary {
+    private final String id;
+    private final CoordinatorJob.Status status;
+    private final String user;
+    private final String group;
+    private final Date lastModifiedTime;
+
+    /**
+     * Create a coordinator job summary.
+     *
+     * @param id coordinator job id.
+     * @param status coordinator job status.
+     * @param user coordinator job owner.
+     * @param group coordinator job group.
+     * @param lastModifiedTime coordinator job last modified time.
+     */
+    public CoordinatorJobSummary(String id, CoordinatorJob.Status status, String user, String group,
+                                 Date lastModifiedTime) {
+        this.id = id;
+        this.status = status;
+        this.user = user;
+        this.group = group;
+        this.lastModifiedTime = lastModifiedTime;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public CoordinatorJob.Status getStatus() {
+        return status;
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    public Date getLastModifiedTime() {
+        return lastModifiedTime;
+    }
+
+}
@@ -18,6 +18,7 @@ import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
@@ -29,6 +30,8 @@ import org.apache.oozie.CoordinatorActionBean;
 import org.apache.oozie.CoordinatorJobBean;
 import org.apache.oozie.CoordinatorJobInfo;
 import org.apache.oozie.ErrorCode;
+import org.apache.oozie.client.CoordinatorAction;
+import org.apache.oozie.client.CoordinatorJob;
 import org.apache.oozie.client.CoordinatorJob.Status;
 import org.apache.oozie.client.CoordinatorJob.Timeunit;
 import org.apache.oozie.service.InstrumentationService;
@@ -122,6 +125,74 @@ public class CoordinatorStore extends Store {
         return cjBean;
     }
 
+    /**
+     * Load the status and ownership of a CoordinatorJob, without its configuration and XML definitions.
+     *
+     * @param id Job ID
+     * @return the coordinator job summary.
+     * @throws StoreException if the coordinator job does not exist.
+     */
+    public CoordinatorJobSummary getCoordinatorJobSummary(final String id) throws StoreException {
+        ParamChecker.notEmpty(id, "CoordJobId");
+        return doOperation("getCoordinatorJobSummary", new Callable<CoordinatorJobSummary>() {
+            @SuppressWarnings("unchecked")
+            public CoordinatorJobSummary call() throws StoreException {
+                Query q = entityManager.createNamedQuery("GET_COORD_JOB_SUMMARY");
+                q.setParameter("id", id);
+                List<Object[]> rows = q.getResultList();
+                if (rows.size() == 0) {
+                    throw new StoreException(ErrorCode.E0604, id);
+                }
+                return getCoordinatorJobSummaryFromArray(rows.get(0));
+            }
+        });
+    }
+
+    /**
+     * Load the status and ownership of the Coordinator Jobs with the given status and last modified time older than
+     * checkAgeSecs, without their configuration and XML definitions.
+     *
+     * @param checkAgeSecs Job age in Seconds
+     * @param status Coordinator Job Status
+     * @param limit Number of results to return
+     * @return List of Coordinator Job summaries that are matched with the parameters.
+     * @throws StoreException
+     */
+    public List<CoordinatorJobSummary> getCoordinatorJobSummariesOlderThanStatus(final long checkAgeSecs,
+                                                                                final String status,
+                                                                                final int limit)
+            throws StoreException {
+        ParamChecker.notNull(status, "Coord Job Status");
+        return doOperation("getCoordinatorJobSummariesOlderThanStatus", new Callable<List<CoordinatorJobSummary>>() {
+            @SuppressWarnings("unchecked")
+            public List<CoordinatorJobSummary> call() throws StoreException {
+                List<CoordinatorJobSummary> jobs = new ArrayList<CoordinatorJobSummary>();
+                try {
+                    Query q = entityManager.createNamedQuery("GET_COORD_JOBS_SUMMARY_OLDER_THAN_STATUS");
+                    Timestamp ts = new Timestamp(System.currentTimeMillis() - checkAgeSecs * 1000);
+                    q.setParameter("lastModTime", ts);
+                    q.setParameter("status", status);
+                    if (limit > 0) {
+                        q.setMaxResults(limit);
+                    }
+                    List<Object[]> rows = q.getResultList();
+                    for (Object[] row : rows) {
+                        jobs.add(getCoordinatorJobSummaryFromArray(row));
+                    }
+                }
+                catch (Exception e) {
+                    throw new StoreException(ErrorCode.E0603, e.getMessage(), e);
+                }
+                return jobs;
+            }
+        });
+    }
+
+    private CoordinatorJobSummary getCoordinatorJobSummaryFromArray(Object[] row) {
+        return new CoordinatorJobSummary((String) row[0], CoordinatorJob.Status.valueOf((String) row[1]),
+                                         (String) row[2], (String) row[3], (Date) row[4]);
+    }
+
     /**
      * Get a list of Coordinator Jobs that should be materialized. Jobs with a 'last materialized time' older than the
      * argument will be returned.
@@ -168,6 +239,36 @@ public class CoordinatorStore extends Store {
         return cjBeans;
     }
 
+    /**
+     * Return the next materialization time of all the coordinator jobs that have actions to be materialized.
+     * <p/>
+     * The next materialization time is the next materialized time of the job, if the job has not been materialized yet
+     * it is the start time of the job.
+     *
+     * @return map with the next materialization time of the jobs keyed by job ID.
+     * @throws StoreException thrown if the materialization times could not be retrieved.
+     */
+    public Map<String, Date> getCoordinatorJobsMaterializationTimes() throws StoreException {
+        return doOperation("getCoordinatorJobsMaterializationTimes", new Callable<Map<String, Date>>() {
+            @SuppressWarnings("unchecked")
+            public Map<String, Date> call() throws StoreException {
+                Map<String, Date> times = new HashMap<String, Date>();
+                try {
+                    Query q = entityManager.createNamedQuery("GET_COORD_JOBS_MATERIALIZATION_TIMES");
+                    List<Object[]> rows = q.getResultList();
+                    for (Object[] row : rows) {
+                        Timestamp time = (row[2] != null) ? (Timestamp) row[2] : (Timestamp) row[1];
+                        times.put((String) row[0], DateUtils.toDate(time));
+                    }
+                }
+                catch (Exception e) {
+                    throw new StoreException(ErrorCode.E0603, e.getMessage(), e);
+                }
+                return times;
+            }
+        });
+    }
+
     /**
      * A list of Coordinator Jobs that are matched with the status and have last materialized time' older than
      * checkAgeSecs will be returned.
@@ -344,6 +445,9 @@ public class CoordinatorStore extends Store {
 
     /**
      * Update the given action bean to DB.
+     * <p/>
+     * Only the fields changed since the bean was loaded or last updated are written, plus the last modified time. The
+     * fields are marked as not changed once the transaction commits, a retry after a rollback writes them again.
      *
      * @param action Action Bean
      * @throws StoreException if action doesn't exist
@@ -352,10 +456,19 @@ public class CoordinatorStore extends Store {
         ParamChecker.notNull(action, "CoordinatorActionBean");
         doOperation("updateCoordinatorAction", new Callable<Void>() {
             public Void call() throws StoreException {
-                Query q = entityManager.createNamedQuery("UPDATE_COORD_ACTION");
-                q.setParameter("id", action.getId());
-                setActionQueryParameters(action, q);
-                q.executeUpdate();
+                final Map<String, Object> values = action.getUpdatableFields();
+                PartialUpdate update = new PartialUpdate("CoordinatorActionBean", action.getId(),
+                                                         action.getDirtyFields());
+                update.set("lastModifiedTimestamp", new Date());
+                applyWrite(update);
+                afterCommit(new Runnable() {
+                    public void run() {
+                        action.resetDirtyFields(values);
+                    }
+                });
+                Services.get().get(InstrumentationService.class).get().incr(INSTR_GROUP,
+                                                                             "updateCoordinatorAction.bytes",
+                                                                             update.getBytes());
                 return null;
             }
         });
@@ -377,7 +490,7 @@ public class CoordinatorStore extends Store {
                 q.setParameter("lastModifiedTime", new Date());
                 q.setParameter("status", action.getStatus().toString());
                 q.setParameter("actionXml", action.getActionXml());
-                q.executeUpdate();
+                executeUpdate(q);
                 return null;
             }
         });
@@ -396,7 +509,7 @@ public class CoordinatorStore extends Store {
                 Query q = entityManager.createNamedQuery("UPDATE_COORD_JOB");
                 q.setParameter("id", job.getId());
                 setJobQueryParameters(job, q);
-                q.executeUpdate();
+                executeUpdate(q);
                 return null;
             }
         });
@@ -410,7 +523,7 @@ public class CoordinatorStore extends Store {
                 q.setParameter("id", job.getId());
                 q.setParameter("status", job.getStatus().toString());
                 q.setParameter("lastModifiedTime", new Date());
-                q.executeUpdate();
+                executeUpdate(q);
                 return null;
             }
         });
@@ -418,16 +531,14 @@ public class CoordinatorStore extends Store {
 
     private <V> V doOperation(String name, Callable<V> command) throws StoreException {
         try {
-            Instrumentation.Cron cron = new Instrumentation.Cron();
-            cron.start();
-            V retVal;
-            try {
-                retVal = command.call();
-            }
-            finally {
-                cron.stop();
-            }
-            Services.get().get(InstrumentationService.class).get().addCron(INSTR_GROUP, name, cron);
+            // writes deferred by a workflow store sharing the transaction must be visible to the operation
+            applyDeferredWrites();
+            long start = System.currentTimeMillis();
+            V retVal = command.call();
+            long time = System.currentTimeMillis() - start;
+            Instrumentation instrumentation = Services.get().get(InstrumentationService.class).get();
+            instrumentation.addTime(INSTR_GROUP, name, time, time);
+            instrumentation.addLatency(INSTR_GROUP, name, time);
             return retVal;
         }
         catch (StoreException ex) {
@@ -466,62 +577,63 @@ public class CoordinatorStore extends Store {
         q.setParameter("timeUnit", jBean.getTimeUnitStr());
     }
 
-    private void setActionQueryParameters(CoordinatorActionBean aBean, Query q) {
-        q.setParameter("actionNumber", aBean.getActionNumber());
-        q.setParameter("actionXml", aBean.getActionXml());
-        q.setParameter("consoleUrl", aBean.getConsoleUrl());
-        q.setParameter("createdConf", aBean.getCreatedConf());
-        q.setParameter("errorCode", aBean.getErrorCode());
-        q.setParameter("errorMessage", aBean.getErrorMessage());
-        q.setParameter("externalStatus", aBean.getExternalStatus());
-        q.setParameter("missingDependencies", aBean.getMissingDependencies());
-        q.setParameter("runConf", aBean.getRunConf());
-        q.setParameter("timeOut", aBean.getTimeOut());
-        q.setParameter("trackerUri", aBean.getTrackerUri());
-        q.setParameter("type", aBean.getType());
-        q.setParameter("createdTime", aBean.getCreatedTimestamp());
-        q.setParameter("externalId", aBean.getExternalId());
-        q.setParameter("jobId", aBean.getJobId());
-        q.setParameter("lastModifiedTime", new Date());
-        q.setParameter("nominalTime", aBean.getNominalTimestamp());
-        q.setParameter("slaXml", aBean.getSlaXml());
-        q.setParameter("status", aBean.getStatus().toString());
-    }
-
     
     /**
-     * Purge the coordinators completed older than given days.
+     * Get the IDs of the coordinators completed older than given days.
      *
      * @param olderThanDays number of days for which to preserve the coordinators
-     * @param limit maximum number of coordinator jobs to be purged
+     * @param limit maximum number of IDs to return
+     * @return the IDs of the coordinator jobs to purge
      * @throws StoreException
      */
-    public void purge(final long olderThanDays, final int limit) throws StoreException {
-        doOperation("coord-purge", new Callable<Void>() {
-            public Void call() throws SQLException, StoreException, WorkflowException {
+    public List<String> getCompletedCoordinatorJobIdsOlderThan(final long olderThanDays, final int limit)
+            throws StoreException {
+        return doOperation("getCompletedCoordinatorJobIdsOlderThan", new Callable<List<String>>() {
+            @SuppressWarnings("unchecked")
+            public List<String> call() throws SQLException, StoreException {
                 Timestamp lastModTm = new Timestamp(System.currentTimeMillis() - (olderThanDays * DAY_IN_MS));
-                Query jobQ = entityManager.createNamedQuery("GET_COMPLETED_COORD_JOBS_OLDER_THAN_STATUS");
+                Query jobQ = entityManager.createNamedQuery("GET_COMPLETED_COORD_JOB_IDS_OLDER_THAN_STATUS");
                 jobQ.setParameter("lastModTime", lastModTm);
                 jobQ.setMaxResults(limit);
-                List<CoordinatorJobBean> coordJobs = jobQ.getResultList();
-                
-                int actionDeleted = 0;
-                if (coordJobs.size() != 0) {
-                    for (CoordinatorJobBean coord : coordJobs) {
-                        String jobId = coord.getId();
-                        entityManager.remove(coord);
-                        Query g = entityManager.createNamedQuery("DELETE_COMPLETED_ACTIONS_FOR_COORDINATOR");
-                        g.setParameter("jobId", jobId);
-                        actionDeleted += g.executeUpdate();
-                    }
-                }
-                
-                XLog.getLog(getClass()).debug("ENDED Coord Purge deleted jobs :" + coordJobs.size() + " and actions " + actionDeleted);
-                return null;
+                return jobQ.getResultList();
+            }
+        });
+    }
+
+    /**
+     * Delete the given coordinator jobs and their completed actions with bulk deletes.
+     *
+     * @param jobIds IDs of the coordinator jobs to delete, the caller bounds their number
+     * @return the number of actions deleted
+     * @throws StoreException
+     */
+    public int purgeCoordinatorJobs(final List<String> jobIds) throws StoreException {
+        return doOperation("coord-purge", new Callable<Integer>() {
+            public Integer call() throws SQLException, StoreException {
+                int actionDeleted = bulkDelete("delete from CoordinatorActionBean e", "jobId", jobIds,
+                                               "(e.status = 'SUCCEEDED' OR e.status = 'FAILED' OR e.status = 'KILLED')");
+                int jobDeleted = bulkDelete("delete from CoordinatorJobBean e", "id", jobIds, null);
+                XLog.getLog(getClass()).debug("Coord Purge deleted jobs :" + jobDeleted + " and actions " +
+                        actionDeleted);
+                return actionDeleted;
             }
         });
     }
 
+    /**
+     * Purge the coordinators completed older than given days.
+     *
+     * @param olderThanDays number of days for which to preserve the coordinators
+     * @param limit maximum number of coordinator jobs to be purged
+     * @return the number of coordinator jobs purged
+     * @throws StoreException
+     */
+    public int purge(final long olderThanDays, final int limit) throws StoreException {
+        List<String> jobIds = getCompletedCoordinatorJobIdsOlderThan(olderThanDays, limit);
+        purgeCoordinatorJobs(jobIds);
+        return jobIds.size();
+    }
+
     public void commit() throws StoreException {
     }
 
@@ -881,6 +993,61 @@ public class CoordinatorStore extends Store {
         return actions;
     }
 
+    /**
+     * Load the status of the running actions with last modified time older than checkAgeSecs, without their XML
+     * definitions and configuration.
+     *
+     * @param checkAgeSecs action age in seconds.
+     * @return list of coordinator action summaries.
+     * @throws StoreException
+     */
+    public List<CoordinatorActionSummary> getRunningActionSummariesOlderThan(final long checkAgeSecs)
+            throws StoreException {
+        return doOperation("getRunningActionSummariesOlderThan", new Callable<List<CoordinatorActionSummary>>() {
+            public List<CoordinatorActionSummary> call() throws StoreException {
+                return getActionSummariesOlderThan("GET_RUNNING_ACTIONS_SUMMARY_OLDER_THAN", checkAgeSecs);
+            }
+        });
+    }
+
+    /**
+     * Load the status of the WAITING and SUBMITTED actions with last modified time older than checkAgeSecs, without
+     * their XML definitions and configuration.
+     *
+     * @param checkAgeSecs action age in seconds.
+     * @return list of coordinator action summaries.
+     * @throws StoreException
+     */
+    public List<CoordinatorActionSummary> getRecoveryActionSummariesOlderThan(final long checkAgeSecs)
+            throws StoreException {
+        return doOperation("getRecoveryActionSummariesOlderThan", new Callable<List<CoordinatorActionSummary>>() {
+            public List<CoordinatorActionSummary> call() throws StoreException {
+                return getActionSummariesOlderThan("GET_WAITING_SUBMITTED_ACTIONS_SUMMARY_OLDER_THAN", checkAgeSecs);
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<CoordinatorActionSummary> getActionSummariesOlderThan(String queryName, long checkAgeSecs)
+            throws StoreException {
+        List<CoordinatorActionSummary> actions = new ArrayList<CoordinatorActionSummary>();
+        try {
+            Query q = entityManager.createNamedQuery(queryName);
+            Timestamp ts = new Timestamp(System.currentTimeMillis() - checkAgeSecs * 1000);
+            q.setParameter("lastModifiedTime", ts);
+            List<Object[]> rows = q.getResultList();
+            for (Object[] row : rows) {
+                actions.add(new CoordinatorActionSummary((String) row[0], (String) row[1],
+                                                         CoordinatorAction.Status.valueOf((String) row[2]),
+                                                         (String) row[3], (Date) row[4]));
+            }
+        }
+        catch (IllegalStateException e) {
+            throw new StoreException(ErrorCode.E0601, e.getMessage(), e);
+        }
+        return actions;
+    }
+
     /**
      * Get coordinator action beans for given start date and end date
      *
@@ -0,0 +1,244 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.store;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceException;
+
+import org.apache.oozie.util.Instrumentation;
+import org.apache.oozie.util.XLog;
+
+/**
+ * Group commit of the deferred writes of many stores in a single database transaction.
+ * <p/>
+ * Stores in group commit mode do not execute their update statements within their own transaction, they defer them
+ * until {@link Store#commitTrx()}. At commit time the deferred writes are handed to the group committer and the
+ * committing thread waits until they are committed to the database.
+ * <p/>
+ * A single committer thread takes all the writes pending at the time (up to a maximum number of writes), applies them
+ * in one transaction and commits it, thus paying one database commit for many stores. If the transaction fails, the
+ * writes of each store are retried in their own transaction so a failing store does not fail the others.
+ */
+public class GroupCommitter {
+    private static final String INSTRUMENTATION_GROUP = "db";
+    private static final String INSTR_COMMIT_TIMER = "group.commit";
+    private static final String INSTR_BATCHES_COUNTER = "group.commit.batches";
+    private static final String INSTR_STORES_COUNTER = "group.commit.stores";
+    private static final String INSTR_WRITES_COUNTER = "group.commit.writes";
+    private static final String INSTR_FAILED_COUNTER = "group.commit.failed";
+
+    /**
+     * A deferred write, it is applied with the entity manager of the group commit transaction.
+     */
+    public interface Write {
+
+        /**
+         * Apply the write.
+         *
+         * @param entityManager entity manager of the group commit transaction.
+         */
+        void apply(EntityManager entityManager);
+    }
+
+    private static class Commit {
+        private final List<Write> writes;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private RuntimeException error;
+
+        private Commit(List<Write> writes) {
+            this.writes = writes;
+        }
+    }
+
+    private final XLog log = XLog.getLog(getClass());
+    private final EntityManagerFactory factory;
+    private final int maxWrites;
+    private final LinkedBlockingQueue<Commit> pending = new LinkedBlockingQueue<Commit>();
+    private Instrumentation instrumentation;
+    private volatile boolean running;
+    private Thread committer;
+
+    /**
+     * Create a group committer.
+     *
+     * @param factory entity manager factory for the group commit transactions.
+     * @param maxWrites maximum number of writes in a group commit transaction, the writes of a single store are never
+     * split.
+     */
+    public GroupCommitter(EntityManagerFactory factory, int maxWrites) {
+        this.factory = factory;
+        this.maxWrites = maxWrites;
+    }
+
+    /**
+     * Set the instrumentation for the group commit timers and counters.
+     *
+     * @param instrumentation instrumentation instance.
+     */
+    public void setInstrumentation(Instrumentation instrumentation) {
+        this.instrumentation = instrumentation;
+    }
+
+    /**
+     * Start the committer thread.
+     */
+    public synchronized void start() {
+        running = true;
+        committer = new Thread(new Runnable() {
+            public void run() {
+                while (running) {
+                    try {
+                        Commit commit = pending.poll(1, TimeUnit.SECONDS);
+                        if (commit != null) {
+                            List<Commit> commits = new ArrayList<Commit>();
+                            commits.add(commit);
+                            int writes = commit.writes.size();
+                            while (writes < maxWrites && (commit = pending.poll()) != null) {
+                                commits.add(commit);
+                                writes += commit.writes.size();
+                            }
+                            commit(commits);
+                        }
+                    }
+                    catch (InterruptedException ex) {
+                        // stopping
+                    }
+                }
+            }
+        }, "oozie-group-commit");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    /**
+     * Stop the committer thread, commits still pending fail.
+     */
+    public synchronized void stop() {
+        running = false;
+        if (committer != null) {
+            committer.interrupt();
+            try {
+                committer.join(30 * 1000);
+            }
+            catch (InterruptedException ex) {
+                log.warn("Interrupted while waiting for the group committer to stop");
+            }
+            committer = null;
+        }
+        Commit commit = pending.poll();
+        while (commit != null) {
+            commit.error = new PersistenceException("Group committer stopped");
+            commit.done.countDown();
+            commit = pending.poll();
+        }
+    }
+
+    /**
+     * Commit a list of writes to the database, the invoking thread waits until they are committed.
+     *
+     * @param writes writes to commit.
+     * @throws PersistenceException thrown if the writes could not be committed.
+     */
+    public void commit(List<Write> writes) {
+        if (!running) {
+            throw new PersistenceException("Group committer not running");
+        }
+        Commit commit = new Commit(writes);
+        pending.add(commit);
+        try {
+            commit.done.await();
+        }
+        catch (InterruptedException ex) {
+            // the commit is not withdrawn, it may still be committed
+            Thread.currentThread().interrupt();
+            throw new PersistenceException("Interrupted while waiting for group commit", ex);
+        }
+        if (commit.error != null) {
+            throw commit.error;
+        }
+    }
+
+    private void commit(List<Commit> commits) {
+        Instrumentation.Cron cron = new Instrumentation.Cron();
+        cron.start();
+        RuntimeException error = apply(commits);
+        if (error != null && commits.size() > 1) {
+            log.warn("Group commit of [{0}] stores failed, committing them one by one, {1}", commits.size(),
+                     error.getMessage(), error);
+            for (Commit commit : commits) {
+                commit.error = apply(Collections.singletonList(commit));
+            }
+        }
+        else {
+            for (Commit commit : commits) {
+                commit.error = error;
+            }
+        }
+        cron.stop();
+        int writes = 0;
+        int failed = 0;
+        for (Commit commit : commits) {
+            writes += commit.writes.size();
+            if (commit.error != null) {
+                failed++;
+            }
+            commit.done.countDown();
+        }
+        if (instrumentation != null) {
+            instrumentation.addCron(INSTRUMENTATION_GROUP, INSTR_COMMIT_TIMER, cron);
+            instrumentation.incr(INSTRUMENTATION_GROUP, INSTR_BATCHES_COUNTER, 1);
+            instrumentation.incr(INSTRUMENTATION_GROUP, INSTR_STORES_COUNTER, commits.size());
+            instrumentation.incr(INSTRUMENTATION_GROUP, INSTR_WRITES_COUNTER, writes);
+            instrumentation.incr(INSTRUMENTATION_GROUP, INSTR_FAILED_COUNTER, failed);
+        }
+    }
+
+    private RuntimeException apply(List<Commit> commits) {
+        EntityManager entityManager = factory.createEntityManager();
+        try {
+            entityManager.getTransaction().begin();
+            for (Commit commit : commits) {
+                for (Write write : commit.writes) {
+                    write.apply(entityManager);
+                }
+            }
+            entityManager.getTransaction().commit();
+            return null;
+        }
+        catch (RuntimeException ex) {
+            if (entityManager.getTransaction().isActive()) {
+                try {
+                    entityManager.getTransaction().rollback();
+                }
+                catch (RuntimeException rex) {
+                    log.warn("openjpa error, group commit rollback, {0}", rex.getMessage(), rex);
+                }
+            }
+            return ex;
+        }
+        finally {
+            entityManager.close();
+        }
+    }
+
+}
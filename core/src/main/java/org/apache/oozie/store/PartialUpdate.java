@@ -0,0 +1,159 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.store;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+import org.apache.oozie.util.DirtyFieldTracker;
+
+/**
+ * Update statement of the changed persistent fields of an entity.
+ * <p/>
+ * The statement sets only the given fields, an update without fields is a no-op. The field values are captured when
+ * the update is created, applying it more than once (i.e. a group commit retry) writes the same values.
+ * <p/>
+ * A deferred partial update replacing a previous deferred partial update of the same entity must be {@link
+ * #merge}d with it, otherwise the fields changed by the previous update only would be lost.
+ */
+public class PartialUpdate implements GroupCommitter.Write {
+    private final String entity;
+    private final String id;
+    private final Map<String, Object> fields;
+    private final Set<String> increments = new LinkedHashSet<String>();
+
+    /**
+     * Create a partial update.
+     *
+     * @param entity entity name.
+     * @param id entity id.
+     * @param fields persistent fields to update with their values, keyed by field name.
+     */
+    public PartialUpdate(String entity, String id, Map<String, Object> fields) {
+        this.entity = entity;
+        this.id = id;
+        this.fields = new LinkedHashMap<String, Object>(fields);
+    }
+
+    /**
+     * Set a field, replacing its value if already set.
+     *
+     * @param field field name.
+     * @param value field value.
+     */
+    public void set(String field, Object value) {
+        fields.put(field, value);
+    }
+
+    /**
+     * Increment a numeric field by one, in the database. A merged update increments the field once.
+     *
+     * @param field field name.
+     */
+    public void increment(String field) {
+        increments.add(field);
+    }
+
+    /**
+     * Add the fields of a previous update of the entity that are not set by this update.
+     *
+     * @param previous previous update of the entity.
+     */
+    public void merge(PartialUpdate previous) {
+        for (Map.Entry<String, Object> entry : previous.fields.entrySet()) {
+            if (!fields.containsKey(entry.getKey())) {
+                fields.put(entry.getKey(), entry.getValue());
+            }
+        }
+        increments.addAll(previous.increments);
+    }
+
+    /**
+     * Return the names of the updated fields.
+     *
+     * @return the names of the updated fields.
+     */
+    public Iterable<String> getFields() {
+        return fields.keySet();
+    }
+
+    /**
+     * Return if the update does not set any field.
+     *
+     * @return <code>true</code> if the update does not set any field.
+     */
+    public boolean isEmpty() {
+        return fields.isEmpty() && increments.isEmpty();
+    }
+
+    /**
+     * Return the approximate number of bytes of the values written by the update.
+     *
+     * @return the approximate number of bytes written.
+     */
+    public long getBytes() {
+        long bytes = 0;
+        for (Object value : fields.values()) {
+            bytes += DirtyFieldTracker.sizeOf(value);
+        }
+        return bytes;
+    }
+
+    /**
+     * Return the JPQL update statement, parameters are named after the position of the fields.
+     *
+     * @return the JPQL update statement.
+     */
+    String getStatement() {
+        StringBuilder sb = new StringBuilder("update ").append(entity).append(" e set ");
+        int i = 0;
+        for (String field : fields.keySet()) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append("e.").append(field).append(" = :p").append(i++);
+        }
+        for (String field : increments) {
+            if (i++ > 0) {
+                sb.append(", ");
+            }
+            sb.append("e.").append(field).append(" = e.").append(field).append(" + 1");
+        }
+        return sb.append(" where e.id = :id").toString();
+    }
+
+    /**
+     * Execute the update.
+     *
+     * @param entityManager entity manager to execute the update with.
+     */
+    public void apply(EntityManager entityManager) {
+        if (!isEmpty()) {
+            Query q = entityManager.createQuery(getStatement());
+            int i = 0;
+            for (Object value : fields.values()) {
+                q.setParameter("p" + i++, value);
+            }
+            q.setParameter("id", id);
+            q.executeUpdate();
+        }
+    }
+
+}
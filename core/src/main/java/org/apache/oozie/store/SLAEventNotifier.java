@@ -0,0 +1,69 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.store;
+
+/**
+ * Signals the insertion of SLA events to the readers long-polling for new events.
+ * <p/>
+ * Every insert bumps a version, readers wait for the version to change instead of polling the database. A
+ * notification is sent when the event is inserted, which may be before its transaction commits, readers must re-query
+ * shortly after a notification that did not return new events.
+ */
+public class SLAEventNotifier {
+    private static final Object LOCK = new Object();
+    private static long version = 0;
+
+    /**
+     * Notify the waiting readers that SLA events have been inserted.
+     */
+    public static void notifyNewEvents() {
+        synchronized (LOCK) {
+            version++;
+            LOCK.notifyAll();
+        }
+    }
+
+    /**
+     * Return the current version, to be read before querying for events.
+     *
+     * @return the current version.
+     */
+    public static long getVersion() {
+        synchronized (LOCK) {
+            return version;
+        }
+    }
+
+    /**
+     * Wait until SLA events are inserted after the given version or until the timeout expires.
+     *
+     * @param lastVersion version read before the last query for events.
+     * @param timeout maximum time to wait, in milliseconds.
+     * @return the current version, equal to <code>lastVersion</code> if the timeout expired.
+     * @throws InterruptedException thrown if the waiting thread is interrupted.
+     */
+    public static long await(long lastVersion, long timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout;
+        synchronized (LOCK) {
+            long remaining = timeout;
+            while (version == lastVersion && remaining > 0) {
+                LOCK.wait(remaining);
+                remaining = deadline - System.currentTimeMillis();
+            }
+            return version;
+        }
+    }
+
+}
@@ -14,10 +14,12 @@
  */
 package org.apache.oozie.store;
 
+import java.io.IOException;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.Callable;
 
@@ -31,10 +33,31 @@ import org.apache.oozie.service.InstrumentationService;
 import org.apache.oozie.service.Services;
 import org.apache.oozie.util.Instrumentation;
 import org.apache.oozie.util.ParamChecker;
+import org.apache.openjpa.persistence.OpenJPAPersistence;
+import org.apache.openjpa.persistence.OpenJPAQuery;
+import org.apache.openjpa.persistence.jdbc.FetchDirection;
+import org.apache.openjpa.persistence.jdbc.JDBCFetchPlan;
+import org.apache.openjpa.persistence.jdbc.LRSSizeAlgorithm;
+import org.apache.openjpa.persistence.jdbc.ResultSetType;
 
 public class SLAStore extends Store {
     private EntityManager entityManager;
     private static final String INSTR_GROUP = "db";
+    private static final int STREAM_FETCH_SIZE = 100;
+
+    /**
+     * Handler of the SLA events read by {@link SLAStore#streamSLAEventsNewerSeqLimited}.
+     */
+    public static interface SLAEventHandler {
+
+        /**
+         * Handle an SLA event, the event is not managed and it is not referenced by the store once handled.
+         *
+         * @param event the SLA event.
+         * @throws IOException thrown if the event could not be handled, it stops the stream.
+         */
+        public void handle(SLAEventBean event) throws IOException;
+    }
 
     public SLAStore() throws StoreException {
         super();
@@ -63,6 +86,7 @@ public class SLAStore extends Store {
                 return null;
             }
         });
+        SLAEventNotifier.notifyNewEvents();
     }
 
     /**
@@ -106,6 +130,80 @@ public class SLAStore extends Store {
         return eventList;
     }
 
+    /**
+     * Stream the SLA events newer than a specific sequence to a handler, with limit clause.
+     * <p/>
+     * The events are read with a forward only cursor and handed one at a time, they are not materialized as a list nor
+     * loaded into the persistence context.
+     *
+     * @param seqId sequence id
+     * @param limitLen maximum number of events to stream
+     * @param handler handler the events are streamed to
+     * @return the sequence id of the last streamed event, <code>seqId</code> if there were no newer events
+     * @throws StoreException
+     */
+    public long streamSLAEventsNewerSeqLimited(final long seqId, final int limitLen, final SLAEventHandler handler)
+            throws StoreException {
+        ParamChecker.checkGTZero(limitLen, "SLAEventsNewerSeqLimited");
+        ParamChecker.notNull(handler, "handler");
+        return doOperation("streamSLAEventsNewerSeqLimited", new Callable<Long>() {
+            @SuppressWarnings("unchecked")
+            public Long call() throws StoreException, IOException {
+                long lastSeqId = seqId;
+                Query q = entityManager.createNamedQuery("GET_SLA_EVENT_COLUMNS_NEWER_SEQ_LIMITED");
+                q.setParameter("id", seqId);
+                q.setMaxResults(limitLen);
+                OpenJPAQuery kq = OpenJPAPersistence.cast(q);
+                JDBCFetchPlan fetch = (JDBCFetchPlan) kq.getFetchPlan();
+                fetch.setFetchBatchSize(Math.min(limitLen, STREAM_FETCH_SIZE));
+                fetch.setResultSetType(ResultSetType.FORWARD_ONLY);
+                fetch.setFetchDirection(FetchDirection.FORWARD);
+                fetch.setLRSSizeAlgorithm(LRSSizeAlgorithm.UNKNOWN);
+                try {
+                    Iterator<Object[]> it = ((List<Object[]>) q.getResultList()).iterator();
+                    while (it.hasNext()) {
+                        SLAEventBean event = getBeanForSLAEventFromArray(it.next());
+                        handler.handle(event);
+                        lastSeqId = Math.max(lastSeqId, event.getEvent_id());
+                    }
+                }
+                catch (IllegalStateException e) {
+                    throw new StoreException(ErrorCode.E0601, e.getMessage(), e);
+                }
+                finally {
+                    kq.closeAll();
+                }
+                return lastSeqId;
+            }
+        });
+    }
+
+    private SLAEventBean getBeanForSLAEventFromArray(Object[] arr) {
+        SLAEventBean event = new SLAEventBean();
+        event.setEvent_id((Long) arr[0]);
+        event.setSlaId((String) arr[1]);
+        event.setAppTypeStr((String) arr[2]);
+        event.setAppName((String) arr[3]);
+        event.setUser((String) arr[4]);
+        event.setGroupName((String) arr[5]);
+        event.setParentClientId((String) arr[6]);
+        event.setParentSlaId((String) arr[7]);
+        event.setExpectedStart((Timestamp) arr[8]);
+        event.setExpectedEnd((Timestamp) arr[9]);
+        event.setStatusTimestamp((Timestamp) arr[10]);
+        event.setNotificationMsg((String) arr[11]);
+        event.setAlertContact((String) arr[12]);
+        event.setDevContact((String) arr[13]);
+        event.setQaContact((String) arr[14]);
+        event.setSeContact((String) arr[15]);
+        event.setAlertFrequency((String) arr[16]);
+        event.setAlertPercentage((String) arr[17]);
+        event.setUpstreamApps((String) arr[18]);
+        event.setJobStatusStr((String) arr[19]);
+        event.setJobData((String) arr[20]);
+        return event;
+    }
+
     private SLAEventBean copyEventBean(SLAEventBean e) {
         SLAEventBean event = new SLAEventBean();
         event.setAlertContact(e.getAlertContact());
@@ -137,16 +235,14 @@ public class SLAStore extends Store {
 
     private <V> V doOperation(String name, Callable<V> command) throws StoreException {
         try {
-            Instrumentation.Cron cron = new Instrumentation.Cron();
-            cron.start();
-            V retVal;
-            try {
-                retVal = command.call();
-            }
-            finally {
-                cron.stop();
-            }
-            Services.get().get(InstrumentationService.class).get().addCron(INSTR_GROUP, name, cron);
+            // writes deferred by a workflow store sharing the transaction must be visible to the operation
+            applyDeferredWrites();
+            long start = System.currentTimeMillis();
+            V retVal = command.call();
+            long time = System.currentTimeMillis() - start;
+            Instrumentation instrumentation = Services.get().get(InstrumentationService.class).get();
+            instrumentation.addTime(INSTR_GROUP, name, time, time);
+            instrumentation.addLatency(INSTR_GROUP, name, time);
             return retVal;
         }
         catch (StoreException ex) {
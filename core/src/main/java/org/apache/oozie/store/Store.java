@@ -19,6 +19,7 @@ package org.apache.oozie.store;
 import javax.persistence.EntityManager;
 import javax.persistence.FlushModeType;
 import javax.persistence.PersistenceUnit;
+import javax.persistence.Query;
 /*
  import javax.persistence.Persistence;
  import org.apache.oozie.CoordinatorActionBean;
@@ -40,6 +41,13 @@ import org.apache.openjpa.persistence.OpenJPAPersistence;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @PersistenceUnit(unitName = "oozie")
 /**
@@ -47,13 +55,33 @@ import java.sql.SQLException;
  */
 public abstract class Store {
 
+    // writes of a transaction, shared by all the stores using the transaction
+    private static class TrxWrites {
+        private final Map<String, GroupCommitter.Write> deferred = new LinkedHashMap<String, GroupCommitter.Write>();
+        private final Set<Object> deferredEntities = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+        private final List<Runnable> committed = new ArrayList<Runnable>();
+        private boolean direct;
+
+        private void clear() {
+            deferred.clear();
+            deferredEntities.clear();
+            committed.clear();
+            direct = false;
+        }
+    }
+
     private EntityManager entityManager;
+    private GroupCommitter groupCommitter;
+    private TrxWrites trxWrites;
 
     /**
      * create a fresh transaction
      */
     public Store() {
-        entityManager = Services.get().get(StoreService.class).getEntityManager();
+        StoreService storeService = Services.get().get(StoreService.class);
+        entityManager = storeService.getEntityManager();
+        groupCommitter = storeService.getGroupCommitter();
+        trxWrites = new TrxWrites();
     }
 
     /**
@@ -61,6 +89,8 @@ public abstract class Store {
      */
     public Store(Store store) {
         entityManager = store.getEntityManager();
+        groupCommitter = store.groupCommitter;
+        trxWrites = store.trxWrites;
     }
 
     /**
@@ -80,9 +110,184 @@ public abstract class Store {
 
     /**
      * Commit current transaction
+     * <p/>
+     * If the transaction has deferred writes only, they are committed by the group committer, the entities they update
+     * are detached so their changes are not flushed by the transaction as well. If it has other writes, the deferred
+     * writes are applied within the transaction and all the writes are committed together.
+     * <p/>
+     * Once the writes are committed the callbacks registered with {@link #afterCommit(Runnable)} are invoked.
      */
     public void commitTrx() {
-        entityManager.getTransaction().commit();
+        List<Runnable> callbacks = new ArrayList<Runnable>(trxWrites.committed);
+        if (trxWrites.deferred.isEmpty()) {
+            entityManager.getTransaction().commit();
+            trxWrites.clear();
+        }
+        else if (hasDirectWrites()) {
+            applyDeferredWrites();
+            entityManager.getTransaction().commit();
+            trxWrites.clear();
+        }
+        else {
+            ArrayList<GroupCommitter.Write> writes = new ArrayList<GroupCommitter.Write>(trxWrites.deferred.values());
+            trxWrites.clear();
+            entityManager.clear();
+            entityManager.getTransaction().commit();
+            groupCommitter.commit(writes);
+        }
+        for (Runnable callback : callbacks) {
+            callback.run();
+        }
+    }
+
+    /**
+     * Register a callback to invoke once the transaction commits, the callback is discarded if the transaction rolls
+     * back.
+     * <p/>
+     * Stores use it to mark the fields written by an update as not changed only when the update is durable, if the
+     * transaction fails a retry writes them again.
+     *
+     * @param callback the callback.
+     */
+    protected void afterCommit(Runnable callback) {
+        trxWrites.committed.add(callback);
+    }
+
+    /**
+     * Defer a write until the transaction commits, when the store is in group commit mode.
+     * <p/>
+     * A deferred write replaces any previous deferred write with the same key, a {@link PartialUpdate} is merged with
+     * the {@link PartialUpdate} it replaces. At {@link #commitTrx()} the deferred writes of a transaction without other
+     * writes are committed together with the deferred writes of other stores in a single database transaction,
+     * {@link #commitTrx()} does not return until they have been committed.
+     * <p/>
+     * Store operations must call {@link #applyDeferredWrites()} before querying, otherwise they do not see the deferred
+     * writes.
+     *
+     * @param key key of the write, typically the statement name and the entity id.
+     * @param entity the entity the write updates, its changes are written by the write.
+     * @param write the write to defer.
+     * @return <code>true</code> if the write has been deferred, <code>false</code> if the store is not in group commit
+     *         mode and the write must be applied right away.
+     */
+    protected boolean deferWrite(String key, Object entity, GroupCommitter.Write write) {
+        if (groupCommitter == null) {
+            return false;
+        }
+        GroupCommitter.Write previous = trxWrites.deferred.remove(key);
+        if (previous instanceof PartialUpdate && write instanceof PartialUpdate) {
+            ((PartialUpdate) write).merge((PartialUpdate) previous);
+        }
+        trxWrites.deferred.put(key, write);
+        trxWrites.deferredEntities.add(entity);
+        return true;
+    }
+
+    /**
+     * Apply the deferred writes within the store transaction, they are visible to the queries done afterwards and they
+     * are committed with the transaction.
+     */
+    protected void applyDeferredWrites() {
+        if (!trxWrites.deferred.isEmpty()) {
+            for (GroupCommitter.Write write : trxWrites.deferred.values()) {
+                applyWrite(write);
+            }
+            trxWrites.deferred.clear();
+            trxWrites.deferredEntities.clear();
+        }
+    }
+
+    /**
+     * Apply a write within the store transaction.
+     *
+     * @param write the write to apply.
+     */
+    protected void applyWrite(GroupCommitter.Write write) {
+        trxWrites.direct = true;
+        write.apply(entityManager);
+    }
+
+    /**
+     * Execute an update or delete query within the store transaction.
+     * <p/>
+     * Stores must execute their update and delete queries with this method, in group commit mode a transaction with
+     * writes of its own does not hand its deferred writes to the group committer.
+     *
+     * @param query the update or delete query.
+     * @return number of updated or deleted rows.
+     */
+    protected int executeUpdate(Query query) {
+        trxWrites.direct = true;
+        return query.executeUpdate();
+    }
+
+    // update and delete queries, entities persisted, removed or changed other than by deferred writes are direct writes
+    private boolean hasDirectWrites() {
+        if (trxWrites.direct) {
+            return true;
+        }
+        for (Object entity : OpenJPAPersistence.cast(entityManager).getDirtyObjects()) {
+            if (!trxWrites.deferredEntities.contains(entity)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Delete the entities with the given values in a field using a single bulk <code>IN (...)</code> delete.
+     * <p/>
+     * The caller is responsible for bounding the number of values, the statement has one parameter per value.
+     *
+     * @param statement JPQL delete statement without the condition, with <code>e</code> as the entity alias.
+     * @param field field the values are matched against.
+     * @param values field values of the entities to delete.
+     * @param condition additional condition, <code>null</code> if none.
+     * @return number of deleted rows.
+     */
+    protected int bulkDelete(String statement, String field, List<String> values, String condition) {
+        if (values.isEmpty()) {
+            return 0;
+        }
+        return executeUpdate(createBulkQuery(statement, field, values, condition));
+    }
+
+    /**
+     * Update the entities with the given values in a field using a single bulk <code>IN (...)</code> update.
+     * <p/>
+     * The caller is responsible for bounding the number of values, the statement has one parameter per value.
+     *
+     * @param statement JPQL update statement without the condition, with <code>e</code> as the entity alias.
+     * @param parameters named parameters of the statement.
+     * @param field field the values are matched against.
+     * @param values field values of the entities to update.
+     * @return number of updated rows.
+     */
+    protected int bulkUpdate(String statement, Map<String, Object> parameters, String field, List<String> values) {
+        if (values.isEmpty()) {
+            return 0;
+        }
+        Query q = createBulkQuery(statement, field, values, null);
+        for (Map.Entry<String, Object> entry : parameters.entrySet()) {
+            q.setParameter(entry.getKey(), entry.getValue());
+        }
+        return executeUpdate(q);
+    }
+
+    private Query createBulkQuery(String statement, String field, List<String> values, String condition) {
+        StringBuilder sb = new StringBuilder(statement).append(" where e.").append(field).append(" IN (");
+        for (int i = 0; i < values.size(); i++) {
+            sb.append((i > 0) ? ", :v" : ":v").append(i);
+        }
+        sb.append(")");
+        if (condition != null) {
+            sb.append(" AND ").append(condition);
+        }
+        Query q = entityManager.createQuery(sb.toString());
+        for (int i = 0; i < values.size(); i++) {
+            q.setParameter("v" + i, values.get(i));
+        }
+        return q;
     }
 
     /**
@@ -96,6 +301,7 @@ public abstract class Store {
      * Rollback transaction
      */
     public void rollbackTrx() {
+        trxWrites.clear();
         entityManager.getTransaction().rollback();
     }
 
@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.store;
+
+import java.util.Date;
+
+import org.apache.oozie.client.WorkflowAction;
+
+/**
+ * Immutable view of the status columns of a workflow action.
+ * <p/>
+ * It is loaded with a projection query, the configuration, data and SLA LOBs are not fetched.
+ */
+public class WorkflowActionSummary {
+    private final String id;
+    private final String jobId;
+    private final String type;
+    private final WorkflowAction.Status status;
+    private final String externalId;
+    private final Date pendingAge;
+    private final Date lastCheckTime;
+    private final String trackerUri;
+    private final String user;
+    private final String group;
+
+    /**
+     * Create a workflow action summary.
+     *
+     * @param id action id.
+     * @param jobId workflow job id of the action.
+     * @param type action type.
+     * @param status action status.
+     * @param externalId action external id.
+     * @param pendingAge action pending age.
+     * @param lastCheckTime action last check time.
+     * @param trackerUri action tracker URI, <code>null</code> if not loaded.
+     * @param user workflow job owner, <code>null</code> if not loaded.
+     * @param group workflow job group, <code>null</code> if not loaded.
+     */
+    public WorkflowActionSummary(String id, String jobId, String type, WorkflowAction.Status status,
+                                 String externalId, Date pendingAge, Date lastCheckTime, String trackerUri,
+                                 String user, String group) {
+        this.id = id;
+        this.jobId = jobId;
+        this.type = type;
+        this.status = status;
+        this.externalId = externalId;
+        this.pendingAge = pendingAge;
+        this.lastCheckTime = lastCheckTime;
+        this.trackerUri = trackerUri;
+        this.user = user;
+        this.group = group;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public WorkflowAction.Status getStatus() {
+        return status;
+    }
+
+    public String getExternalId() {
+        return externalId;
+    }
+
+    public Date getPendingAge() {
+        return pendingAge;
+    }
+
+    public Date getLastCheckTime() {
+        return lastCheckTime;
+    }
+
+    public String getTrackerUri() {
+        return trackerUri;
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+}
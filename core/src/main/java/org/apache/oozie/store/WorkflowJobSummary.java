@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.store;
+
+import java.util.Date;
+
+import org.apache.oozie.client.WorkflowJob;
+
+/**
+ * Immutable view of the status and ownership columns of a workflow job.
+ * <p/>
+ * It is loaded with a projection query, the configuration and workflow instance LOBs are not fetched.
+ */
+public class WorkflowJobSummary {
+    private final String id;
+    private final WorkflowJob.Status status;
+    private final String user;
+    private final String group;
+    private final Date lastModifiedTime;
+    private final int version;
+
+    /**
+     * Create a workflow job summary.
+     *
+     * @param id workflow job id.
+     * @param status workflow job status.
+     * @param user workflow job owner.
+     * @param group workflow job group.
+     * @param lastModifiedTime workflow job last modified time.
+     * @param version workflow job version, incremented by every update of the workflow job.
+     */
+    public WorkflowJobSummary(String id, WorkflowJob.Status status, String user, String group,
+                              Date lastModifiedTime, int version) {
+        this.id = id;
+        this.status = status;
+        this.user = user;
+        this.group = group;
+        this.lastModifiedTime = lastModifiedTime;
+        this.version = version;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public WorkflowJob.Status getStatus() {
+        return status;
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    public Date getLastModifiedTime() {
+        return lastModifiedTime;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+}
@@ -19,6 +19,7 @@ import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
@@ -31,6 +32,8 @@ import org.apache.oozie.WorkflowActionBean;
 import org.apache.oozie.WorkflowJobBean;
 import org.apache.oozie.WorkflowsInfo;
 import org.apache.oozie.client.OozieClient;
+import org.apache.oozie.client.WorkflowAction;
+import org.apache.oozie.client.WorkflowJob;
 import org.apache.oozie.client.WorkflowJob.Status;
 import org.apache.oozie.service.InstrumentationService;
 import org.apache.oozie.service.SchemaService;
@@ -142,6 +145,32 @@ public class WorkflowStore extends Store {
         return wfBean;
     }
 
+    /**
+     * Load the status and ownership of a Workflow, without its configuration and instance.
+     *
+     * @param id Workflow ID
+     * @return the workflow job summary.
+     * @throws StoreException if the workflow does not exist.
+     */
+    public WorkflowJobSummary getWorkflowSummary(final String id) throws StoreException {
+        ParamChecker.notEmpty(id, "WorkflowID");
+        return doOperation("getWorkflowSummary", new Callable<WorkflowJobSummary>() {
+            @SuppressWarnings("unchecked")
+            public WorkflowJobSummary call() throws SQLException, StoreException {
+                Query q = entityManager.createNamedQuery("GET_WORKFLOW_SUMMARY");
+                q.setParameter("id", id);
+                List<Object[]> rows = q.getResultList();
+                if (rows.size() == 0) {
+                    throw new StoreException(ErrorCode.E0604, id);
+                }
+                Object[] row = rows.get(0);
+                return new WorkflowJobSummary((String) row[0], WorkflowJob.Status.valueOf((String) row[1]),
+                                              (String) row[2], (String) row[3], (Date) row[4],
+                                              ((Number) row[5]).intValue());
+            }
+        });
+    }
+
     /**
      * Get the number of Workflows with the given status.
      *
@@ -188,18 +217,32 @@ public class WorkflowStore extends Store {
 
     /**
      * Update the data from Workflow Bean to DB along with the workflow instance data. Action table is not updated
+     * <p/>
+     * Only the fields changed since the bean was loaded or last updated are written, plus the last modified time. The
+     * fields are marked as not changed once the transaction commits, a retry after a rollback writes them again.
+     * <p/>
+     * In group commit mode the update is deferred until the transaction commits.
      *
      * @param wfBean Workflow Bean
      * @throws StoreException If Workflow doesn't exist
      */
     public void updateWorkflow(final WorkflowJobBean wfBean) throws StoreException {
         ParamChecker.notNull(wfBean, "WorkflowJobBean");
-        doOperation("updateWorkflow", new Callable<Void>() {
+        doOperation("updateWorkflow", true, new Callable<Void>() {
             public Void call() throws SQLException, StoreException, WorkflowException {
-                Query q = entityManager.createNamedQuery("UPDATE_WORKFLOW");
-                q.setParameter("id", wfBean.getId());
-                setWFQueryParameters(wfBean, q);
-                q.executeUpdate();
+                final Map<String, Object> values = wfBean.getUpdatableFields();
+                PartialUpdate update = new PartialUpdate("WorkflowJobBean", wfBean.getId(), wfBean.getDirtyFields());
+                update.set("lastModifiedTimestamp", new Date());
+                update.increment("version");
+                if (!deferWrite("UPDATE_WORKFLOW:" + wfBean.getId(), wfBean, update)) {
+                    applyWrite(update);
+                }
+                afterCommit(new Runnable() {
+                    public void run() {
+                        wfBean.resetDirtyFields(values);
+                    }
+                });
+                incrUpdateBytes("updateWorkflow", update);
                 return null;
             }
         });
@@ -264,18 +307,34 @@ public class WorkflowStore extends Store {
 
     /**
      * Update the given action bean to DB.
+     * <p/>
+     * Only the fields changed since the bean was loaded or last updated are written, nothing is written if there are
+     * none. The fields are marked as not changed once the transaction commits, a retry after a rollback writes them
+     * again.
+     * <p/>
+     * In group commit mode the update is deferred until the transaction commits.
      *
      * @param action Action Bean
      * @throws StoreException if action doesn't exist
      */
     public void updateAction(final WorkflowActionBean action) throws StoreException {
         ParamChecker.notNull(action, "WorkflowActionBean");
-        doOperation("updateAction", new Callable<Void>() {
+        doOperation("updateAction", true, new Callable<Void>() {
             public Void call() throws SQLException, StoreException, WorkflowException {
-                Query q = entityManager.createNamedQuery("UPDATE_ACTION");
-                q.setParameter("id", action.getId());
-                setActionQueryParameters(action, q);
-                q.executeUpdate();
+                final Map<String, Object> values = action.getUpdatableFields();
+                PartialUpdate update = new PartialUpdate("WorkflowActionBean", action.getId(),
+                                                         action.getDirtyFields());
+                if (!update.isEmpty()) {
+                    if (!deferWrite("UPDATE_ACTION:" + action.getId(), action, update)) {
+                        applyWrite(update);
+                    }
+                    incrUpdateBytes("updateAction", update);
+                    afterCommit(new Runnable() {
+                        public void run() {
+                            action.resetDirtyFields(values);
+                        }
+                    });
+                }
                 return null;
             }
         });
@@ -446,6 +505,87 @@ public class WorkflowStore extends Store {
         return actions;
     }
 
+    /**
+     * Load the status of all the actions that are pending for more than given time, without their configuration and
+     * data.
+     *
+     * @param minimumPendingAgeSecs Minimum Pending age in seconds
+     * @return List of action summaries
+     * @throws StoreException
+     */
+    public List<WorkflowActionSummary> getPendingActionSummaries(final long minimumPendingAgeSecs)
+            throws StoreException {
+        return doOperation("getPendingActionSummaries", new Callable<List<WorkflowActionSummary>>() {
+            public List<WorkflowActionSummary> call() throws SQLException, StoreException {
+                Timestamp ts = new Timestamp(System.currentTimeMillis() - minimumPendingAgeSecs * 1000);
+                return getActionSummaries("GET_PENDING_ACTIONS_SUMMARY", "pendingAge", ts);
+            }
+        });
+    }
+
+    /**
+     * Load the status of all the actions that are running and were last checked before now - checkAgeSecs, without
+     * their configuration and data. The summaries include the tracker URI of the actions and the owner of their
+     * workflow jobs.
+     *
+     * @param checkAgeSecs check age in seconds.
+     * @return List of action summaries.
+     * @throws StoreException
+     */
+    public List<WorkflowActionSummary> getRunningActionSummaries(final long checkAgeSecs) throws StoreException {
+        return doOperation("getRunningActionSummaries", new Callable<List<WorkflowActionSummary>>() {
+            public List<WorkflowActionSummary> call() throws SQLException, StoreException {
+                Timestamp ts = new Timestamp(System.currentTimeMillis() - checkAgeSecs * 1000);
+                return getActionSummaries("GET_RUNNING_ACTIONS_SUMMARY", "lastCheckTime", ts);
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<WorkflowActionSummary> getActionSummaries(String queryName, String param, Timestamp ts)
+            throws StoreException {
+        List<WorkflowActionSummary> actions = new ArrayList<WorkflowActionSummary>();
+        try {
+            Query q = entityManager.createNamedQuery(queryName);
+            q.setParameter(param, ts);
+            List<Object[]> rows = q.getResultList();
+            for (Object[] row : rows) {
+                boolean withOwner = row.length > 7;
+                actions.add(new WorkflowActionSummary((String) row[0], (String) row[1], (String) row[2],
+                                                      WorkflowAction.Status.valueOf((String) row[3]),
+                                                      (String) row[4], (Date) row[5], (Date) row[6],
+                                                      withOwner ? (String) row[7] : null,
+                                                      withOwner ? (String) row[8] : null,
+                                                      withOwner ? (String) row[9] : null));
+            }
+        }
+        catch (IllegalStateException e) {
+            throw new StoreException(ErrorCode.E0601, e.getMessage(), e);
+        }
+        return actions;
+    }
+
+    /**
+     * Set the last check time of the given actions with a bulk update, without loading them.
+     * <p/>
+     * Only the last check time is written, it does not overwrite changes done to the actions by commands.
+     *
+     * @param ids IDs of the actions, the caller bounds their number
+     * @param lastCheckTime last check time to set
+     * @return the number of actions updated
+     * @throws StoreException
+     */
+    public int updateActionsLastCheckTime(final List<String> ids, final Date lastCheckTime) throws StoreException {
+        return doOperation("updateActionsLastCheckTime", new Callable<Integer>() {
+            public Integer call() throws SQLException, StoreException {
+                Map<String, Object> parameters = new HashMap<String, Object>();
+                parameters.put("lastCheckTime", new Timestamp(lastCheckTime.getTime()));
+                return bulkUpdate("update WorkflowActionBean e set e.lastCheckTimestamp = :lastCheckTime",
+                                  parameters, "id", ids);
+            }
+        });
+    }
+
     /**
      * Load All the actions that are START_RETRY or START_MANUAL or END_RETRY or END_MANUAL.
      * 
@@ -768,49 +908,85 @@ public class WorkflowStore extends Store {
     private static final long DAY_IN_MS = 24 * 60 * 60 * 1000;
 
     /**
-     * Purge the Workflows Completed older than given days.
+     * Get the IDs of the Workflows completed older than given days.
      *
      * @param olderThanDays number of days for which to preserve the workflows
+     * @param limit maximum number of IDs to return
+     * @return the IDs of the workflows to purge
      * @throws StoreException
      */
-    public void purge(final long olderThanDays, final int limit) throws StoreException {
-        doOperation("purge", new Callable<Void>() {
-            public Void call() throws SQLException, StoreException, WorkflowException {
+    public List<String> getCompletedWorkflowIdsOlderThan(final long olderThanDays, final int limit)
+            throws StoreException {
+        return doOperation("getCompletedWorkflowIdsOlderThan", new Callable<List<String>>() {
+            @SuppressWarnings("unchecked")
+            public List<String> call() throws SQLException, StoreException {
                 Timestamp maxEndTime = new Timestamp(System.currentTimeMillis() - (olderThanDays * DAY_IN_MS));
-                Query q = entityManager.createNamedQuery("GET_COMPLETED_WORKFLOWS_OLDER_THAN");
+                Query q = entityManager.createNamedQuery("GET_COMPLETED_WORKFLOW_IDS_OLDER_THAN");
                 q.setParameter("endTime", maxEndTime);
                 q.setMaxResults(limit);
-                List<WorkflowJobBean> workflows = q.getResultList();
-                
-                int actionDeleted = 0;
-                if (workflows.size() != 0) {
-                    for (WorkflowJobBean w : workflows) {
-                        String wfId = w.getId();
-                        entityManager.remove(w);
-                        Query g = entityManager.createNamedQuery("DELETE_ACTIONS_FOR_WORKFLOW");
-                        g.setParameter("wfId", wfId);
-                        actionDeleted += g.executeUpdate();
-                    }
-                }
+                return q.getResultList();
+            }
+        });
+    }
 
-                XLog.getLog(getClass()).debug("ENDED Workflow Purge deleted jobs :" + workflows.size() + " and actions " + actionDeleted);
-                return null;
+    /**
+     * Delete the given Workflows and their actions with bulk deletes.
+     *
+     * @param wfIds IDs of the workflows to delete, the caller bounds their number
+     * @return the number of actions deleted
+     * @throws StoreException
+     */
+    public int purgeWorkflows(final List<String> wfIds) throws StoreException {
+        return doOperation("purgeWorkflows", new Callable<Integer>() {
+            public Integer call() throws SQLException, StoreException {
+                int actionDeleted = bulkDelete("delete from WorkflowActionBean e", "wfId", wfIds, null);
+                int jobDeleted = bulkDelete("delete from WorkflowJobBean e", "id", wfIds, null);
+                XLog.getLog(getClass()).debug("Workflow Purge deleted jobs :" + jobDeleted + " and actions " +
+                        actionDeleted);
+                return actionDeleted;
             }
         });
     }
 
+    /**
+     * Purge the Workflows Completed older than given days.
+     *
+     * @param olderThanDays number of days for which to preserve the workflows
+     * @param limit maximum number of workflows to purge
+     * @return the number of workflows purged
+     * @throws StoreException
+     */
+    public int purge(final long olderThanDays, final int limit) throws StoreException {
+        List<String> wfIds = getCompletedWorkflowIdsOlderThan(olderThanDays, limit);
+        purgeWorkflows(wfIds);
+        return wfIds.size();
+    }
+
     private <V> V doOperation(String name, Callable<V> command) throws StoreException {
+        return doOperation(name, false, command);
+    }
+
+    /**
+     * Execute a store operation.
+     *
+     * @param name operation name, for instrumentation.
+     * @param deferring <code>true</code> if the operation defers its writes, otherwise the writes deferred so far are
+     * applied before the operation so it sees them.
+     * @param command the operation.
+     * @return the operation result.
+     * @throws StoreException thrown if the operation failed.
+     */
+    private <V> V doOperation(String name, boolean deferring, Callable<V> command) throws StoreException {
         try {
-            Instrumentation.Cron cron = new Instrumentation.Cron();
-            cron.start();
-            V retVal;
-            try {
-                retVal = command.call();
+            if (!deferring) {
+                applyDeferredWrites();
             }
-            finally {
-                cron.stop();
-            }
-            Services.get().get(InstrumentationService.class).get().addCron(INSTR_GROUP, name, cron);
+            long start = System.currentTimeMillis();
+            V retVal = command.call();
+            long time = System.currentTimeMillis() - start;
+            Instrumentation instrumentation = Services.get().get(InstrumentationService.class).get();
+            instrumentation.addTime(INSTR_GROUP, name, time, time);
+            instrumentation.addLatency(INSTR_GROUP, name, time);
             return retVal;
         }
         catch (StoreException ex) {
@@ -824,6 +1000,10 @@ public class WorkflowStore extends Store {
         }
     }
 
+    private void incrUpdateBytes(String name, PartialUpdate update) {
+        Services.get().get(InstrumentationService.class).get().incr(INSTR_GROUP, name + ".bytes", update.getBytes());
+    }
+
     private WorkflowJobBean getWorkflowOnly(final String id, boolean locking) throws SQLException,
             InterruptedException, StoreException {
         WorkflowJobBean wfBean = null;
@@ -876,6 +1056,7 @@ public class WorkflowStore extends Store {
         wfBean.setStartTime(w.getStartTime());
         wfBean.setStatus(w.getStatus());
         wfBean.setWfInstance(w.getWfInstance());
+        wfBean.resetDirtyFields();
         return wfBean;
     }
 
@@ -941,54 +1122,9 @@ public class WorkflowStore extends Store {
             action.setStartTime(a.getStartTime());
             action.setStatus(a.getStatus());
             action.setJobId(a.getWfId());
+            action.resetDirtyFields();
             return action;
         }
         return null;
     }
-
-    private void setWFQueryParameters(WorkflowJobBean wfBean, Query q) {
-        q.setParameter("appName", wfBean.getAppName());
-        q.setParameter("appPath", wfBean.getAppPath());
-        q.setParameter("conf", wfBean.getConf());
-        q.setParameter("groupName", wfBean.getGroup());
-        q.setParameter("run", wfBean.getRun());
-        q.setParameter("user", wfBean.getUser());
-        q.setParameter("authToken", wfBean.getAuthToken());
-        q.setParameter("createdTime", wfBean.getCreatedTimestamp());
-        q.setParameter("endTime", wfBean.getEndTimestamp());
-        q.setParameter("externalId", wfBean.getExternalId());
-        q.setParameter("lastModTime", new Date());
-        q.setParameter("logToken", wfBean.getLogToken());
-        q.setParameter("protoActionConf", wfBean.getProtoActionConf());
-        q.setParameter("slaXml", wfBean.getSlaXml());
-        q.setParameter("startTime", wfBean.getStartTimestamp());
-        q.setParameter("status", wfBean.getStatusStr());
-        q.setParameter("wfInstance", wfBean.getWfInstance());
-    }
-
-    private void setActionQueryParameters(WorkflowActionBean aBean, Query q) {
-        q.setParameter("conf", aBean.getConf());
-        q.setParameter("consoleUrl", aBean.getConsoleUrl());
-        q.setParameter("data", aBean.getData());
-        q.setParameter("errorCode", aBean.getErrorCode());
-        q.setParameter("errorMessage", aBean.getErrorMessage());
-        q.setParameter("externalId", aBean.getExternalId());
-        q.setParameter("externalStatus", aBean.getExternalStatus());
-        q.setParameter("name", aBean.getName());
-        q.setParameter("retries", aBean.getRetries());
-        q.setParameter("trackerUri", aBean.getTrackerUri());
-        q.setParameter("transition", aBean.getTransition());
-        q.setParameter("type", aBean.getType());
-        q.setParameter("endTime", aBean.getEndTimestamp());
-        q.setParameter("executionPath", aBean.getExecutionPath());
-        q.setParameter("lastCheckTime", aBean.getLastCheckTimestamp());
-        q.setParameter("logToken", aBean.getLogToken());
-        q.setParameter("pending", aBean.isPending() ? 1 : 0);
-        q.setParameter("pendingAge", aBean.getPendingAgeTimestamp());
-        q.setParameter("signalValue", aBean.getSignalValue());
-        q.setParameter("slaXml", aBean.getSlaXml());
-        q.setParameter("startTime", aBean.getStartTimestamp());
-        q.setParameter("status", aBean.getStatusStr());
-        q.setParameter("wfId", aBean.getWfId());
-    }
 }
@@ -0,0 +1,61 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.util;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A blocking queue of {@link PriorityDelayQueue.QueueElement} elements supporting priorities, queuing elements into
+ * the future and anti-starvation.
+ * <p/>
+ * Elements are consumed from the higher priorities first, an element that has waited more than the max wait time is
+ * promoted to the next higher priority.
+ * <p/>
+ * Implementations are the {@link PriorityDelayQueue} and the lock-free {@link ShardedPriorityDelayQueue}.
+ */
+public interface BlockingPriorityDelayQueue<E> extends BlockingQueue<PriorityDelayQueue.QueueElement<E>> {
+
+    /**
+     * Return number of priorities the queue supports.
+     *
+     * @return number of priorities the queue supports.
+     */
+    public int getPriorities();
+
+    /**
+     * Return the max wait time for elements before they are promoted to the next higher priority.
+     *
+     * @param unit time unit of the max wait time.
+     *
+     * @return the max wait time in the specified time unit.
+     */
+    public long getMaxWait(TimeUnit unit);
+
+    /**
+     * Return the maximum queue size.
+     *
+     * @return the maximum queue size. If <code>-1</code> the queue is unbounded.
+     */
+    public long getMaxSize();
+
+    /**
+     * Return the number of elements on each priority.
+     *
+     * @return the number of elements on each priority.
+     */
+    public int[] sizes();
+
+}
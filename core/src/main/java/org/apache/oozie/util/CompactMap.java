@@ -0,0 +1,269 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A map with <code>String</code> keys kept in arrays, without an entry object per entry.
+ * <p/>
+ * Keys and values are kept in two dense arrays, the keys are looked up through an open addressing table of array
+ * positions indexed by key hash. It takes two references and two ints per entry, it is meant for large maps of small
+ * values, such as the variables of a workflow instance.
+ * <p/>
+ * Entries are iterated in insertion order, except that removing an entry moves the last entry to its position, the
+ * order only depends on the operations done on the map.
+ * <p/>
+ * Keys cannot be <code>null</code>. The map is not thread safe.
+ */
+public class CompactMap<V> extends AbstractMap<String, V> {
+    private static final int INITIAL_CAPACITY = 8;
+
+    private String[] keys = new String[INITIAL_CAPACITY];
+    private Object[] values = new Object[INITIAL_CAPACITY];
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    private int size;
+
+    // position + 1 of the keys, 0 for an empty slot, the table is twice the capacity
+    private int[] table = new int[INITIAL_CAPACITY * 2];
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return (key instanceof String) && indexOf((String) key) >= 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        int index = (key instanceof String) ? indexOf((String) key) : -1;
+        return (index >= 0) ? (V) values[index] : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(String key, V value) {
+        ParamChecker.notNull(key, "key");
+        int index = indexOf(key);
+        if (index >= 0) {
+            V old = (V) values[index];
+            values[index] = value;
+            return old;
+        }
+        if (size == keys.length) {
+            grow();
+        }
+        index = size++;
+        keys[index] = key;
+        values[index] = value;
+        hashes[index] = key.hashCode();
+        table[findFreeSlot(hashes[index])] = index + 1;
+        return null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        int index = (key instanceof String) ? indexOf((String) key) : -1;
+        if (index < 0) {
+            return null;
+        }
+        V old = (V) values[index];
+        removeAt(index);
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, 0, size, null);
+        Arrays.fill(values, 0, size, null);
+        Arrays.fill(table, 0);
+        size = 0;
+    }
+
+    @Override
+    public Set<Map.Entry<String, V>> entrySet() {
+        return new AbstractSet<Map.Entry<String, V>>() {
+            @Override
+            public Iterator<Map.Entry<String, V>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private int indexOf(String key) {
+        int hash = key.hashCode();
+        int mask = table.length - 1;
+        for (int slot = spread(hash) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int index = table[slot] - 1;
+            if (hashes[index] == hash && keys[index].equals(key)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private void removeAt(int index) {
+        removeSlot(findSlot(index));
+        size--;
+        if (index != size) {
+            table[findSlot(size)] = index + 1;
+            keys[index] = keys[size];
+            values[index] = values[size];
+            hashes[index] = hashes[size];
+        }
+        keys[size] = null;
+        values[size] = null;
+    }
+
+    // keys of the same family, such as node variables, have close hashes
+    private static int spread(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void grow() {
+        int capacity = keys.length * 2;
+        keys = Arrays.copyOf(keys, capacity);
+        values = Arrays.copyOf(values, capacity);
+        hashes = Arrays.copyOf(hashes, capacity);
+        table = new int[capacity * 2];
+        for (int i = 0; i < size; i++) {
+            table[findFreeSlot(hashes[i])] = i + 1;
+        }
+    }
+
+    private int findFreeSlot(int hash) {
+        int mask = table.length - 1;
+        int slot = spread(hash) & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int findSlot(int index) {
+        int mask = table.length - 1;
+        int slot = spread(hashes[index]) & mask;
+        while (table[slot] != index + 1) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    // empties a slot shifting back the following entries of the probe sequence
+    private void removeSlot(int slot) {
+        int mask = table.length - 1;
+        int next = (slot + 1) & mask;
+        while (table[next] != 0) {
+            int home = spread(hashes[table[next] - 1]) & mask;
+            // the entry can fill the empty slot if the slot lies between its home slot and its current slot
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                table[slot] = table[next];
+                slot = next;
+            }
+            next = (next + 1) & mask;
+        }
+        table[slot] = 0;
+    }
+
+    private class Entry implements Map.Entry<String, V> {
+        private final int index;
+
+        private Entry(int index) {
+            this.index = index;
+        }
+
+        public String getKey() {
+            return keys[index];
+        }
+
+        @SuppressWarnings("unchecked")
+        public V getValue() {
+            return (V) values[index];
+        }
+
+        @SuppressWarnings("unchecked")
+        public V setValue(V value) {
+            V old = (V) values[index];
+            values[index] = value;
+            return old;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry e = (Map.Entry) o;
+            Object value = getValue();
+            return getKey().equals(e.getKey()) && ((value == null) ? e.getValue() == null : value.equals(e.getValue()));
+        }
+
+        @Override
+        public int hashCode() {
+            Object value = getValue();
+            return getKey().hashCode() ^ ((value == null) ? 0 : value.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+
+    private class EntryIterator implements Iterator<Map.Entry<String, V>> {
+        private int next;
+        private int last = -1;
+
+        public boolean hasNext() {
+            return next < size;
+        }
+
+        public Map.Entry<String, V> next() {
+            if (next >= size) {
+                throw new NoSuchElementException();
+            }
+            last = next++;
+            return new Entry(last);
+        }
+
+        // the last entry is moved to the position of the removed one, it is returned next
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            removeAt(last);
+            next = last;
+            last = -1;
+        }
+    }
+
+}
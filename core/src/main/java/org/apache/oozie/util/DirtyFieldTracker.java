@@ -0,0 +1,111 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.util;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Tracker of the persistent fields of a bean changed since the bean was loaded or last updated.
+ * <p/>
+ * The tracker keeps a snapshot of the field values, the changed fields are found by comparing the current values of
+ * the bean with the snapshot. Values are compared by content, <code>byte[]</code> values included, a LOB set again with
+ * the same content is not a changed field.
+ * <p/>
+ * Values are not copied into the snapshot, beans must replace mutable values instead of modifying them.
+ * <p/>
+ * Until a snapshot is taken all the fields are changed fields.
+ */
+public class DirtyFieldTracker {
+    private Map<String, Object> snapshot;
+
+    /**
+     * Take a snapshot of the field values.
+     *
+     * @param values field values keyed by field name.
+     */
+    public void reset(Map<String, Object> values) {
+        snapshot = values;
+    }
+
+    /**
+     * Return if a snapshot has been taken.
+     *
+     * @return <code>true</code> if a snapshot has been taken.
+     */
+    public boolean hasSnapshot() {
+        return snapshot != null;
+    }
+
+    /**
+     * Return the fields which value differs from the snapshot.
+     *
+     * @param values current field values keyed by field name.
+     * @return the changed fields with their current value, all the fields if there is no snapshot.
+     */
+    public Map<String, Object> getDirtyFields(Map<String, Object> values) {
+        if (snapshot == null) {
+            return values;
+        }
+        Map<String, Object> dirty = new LinkedHashMap<String, Object>();
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            if (!snapshot.containsKey(entry.getKey()) || !equal(snapshot.get(entry.getKey()), entry.getValue())) {
+                dirty.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return dirty;
+    }
+
+    private static boolean equal(Object a, Object b) {
+        if (a == b) {
+            return true;
+        }
+        if (a == null || b == null) {
+            return false;
+        }
+        if (a instanceof byte[] && b instanceof byte[]) {
+            return Arrays.equals((byte[]) a, (byte[]) b);
+        }
+        return a.equals(b);
+    }
+
+    /**
+     * Return the approximate number of bytes a field value takes when written to the database.
+     *
+     * @param value field value.
+     * @return the approximate size of the value in bytes.
+     */
+    public static long sizeOf(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof String) {
+            return ((String) value).length();
+        }
+        if (value instanceof byte[]) {
+            return ((byte[]) value).length;
+        }
+        if (value instanceof Integer) {
+            return 4;
+        }
+        if (value instanceof Long || value instanceof Double || value instanceof Date) {
+            return 8;
+        }
+        return value.toString().length();
+    }
+
+}
@@ -23,6 +23,8 @@ import java.io.Writer;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.zip.ZipOutputStream;
 import java.util.zip.ZipEntry;
 import java.util.jar.JarOutputStream;
@@ -254,4 +256,24 @@ public abstract class IOUtils {
         zipDir(classesDir, "", zos);
         return jar;
     }
+
+    /**
+     * Return the SHA-1 digest of a byte array as an hexadecimal string.
+     *
+     * @param array byte array.
+     * @return the hexadecimal SHA-1 digest of the byte array.
+     */
+    public static String digest(byte[] array) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(array);
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        }
+        catch (NoSuchAlgorithmException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
 }
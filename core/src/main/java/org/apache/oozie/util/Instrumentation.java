@@ -20,28 +20,27 @@ import org.apache.oozie.service.ConfigurationService;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * Instrumentation framework that supports Timers, Counters, Variables and Sampler instrumentation elements. <p/> All
- * instrumentation elements have a group and a name.
+ * Instrumentation framework that supports Timers, Latencies, Counters, Variables and Sampler instrumentation elements.
+ * <p/> All instrumentation elements have a group and a name.
  */
 public class Instrumentation {
     private ScheduledExecutorService scheduler;
-    private Lock counterLock;
-    private Lock timerLock;
-    private Lock variableLock;
     private Lock samplerLock;
     private Configuration configuration;
     private Map<String, Map<String, Map<String, Object>>> all;
@@ -49,25 +48,25 @@ public class Instrumentation {
     private Map<String, Map<String, Element<Timer>>> timers;
     private Map<String, Map<String, Element<Variable>>> variables;
     private Map<String, Map<String, Element<Double>>> samplers;
+    private Map<String, Map<String, Element<Latency>>> latencies;
 
     /**
      * Instrumentation constructor.
      */
     @SuppressWarnings("unchecked")
     public Instrumentation() {
-        counterLock = new ReentrantLock();
-        timerLock = new ReentrantLock();
-        variableLock = new ReentrantLock();
         samplerLock = new ReentrantLock();
         all = new LinkedHashMap<String, Map<String, Map<String, Object>>>();
         counters = new ConcurrentHashMap<String, Map<String, Element<Long>>>();
         timers = new ConcurrentHashMap<String, Map<String, Element<Timer>>>();
         variables = new ConcurrentHashMap<String, Map<String, Element<Variable>>>();
         samplers = new ConcurrentHashMap<String, Map<String, Element<Double>>>();
+        latencies = new ConcurrentHashMap<String, Map<String, Element<Latency>>>();
         all.put("variables", (Map<String, Map<String, Object>>) (Object) variables);
         all.put("samplers", (Map<String, Map<String, Object>>) (Object) samplers);
         all.put("counters", (Map<String, Map<String, Object>>) (Object) counters);
         all.put("timers", (Map<String, Map<String, Object>>) (Object) timers);
+        all.put("latencies", (Map<String, Map<String, Object>>) (Object) latencies);
     }
 
     /**
@@ -198,10 +197,67 @@ public class Instrumentation {
         T getValue();
     }
 
+    /**
+     * Number of stripes of the counters and timers updated concurrently, a power of two.
+     */
+    static final int STRIPES;
+
+    /**
+     * Slots between two stripes, 16 longs keep each stripe in its own cache line pair.
+     */
+    private static final int PADDING = 16;
+
+    static {
+        int stripes = 1;
+        while (stripes < Runtime.getRuntime().availableProcessors() && stripes < 32) {
+            stripes <<= 1;
+        }
+        STRIPES = stripes;
+    }
+
+    /**
+     * Return the stripe of the current thread.
+     *
+     * @return the stripe of the current thread.
+     */
+    private static int stripe() {
+        long id = Thread.currentThread().getId();
+        return (int) (id ^ (id >>> 16)) & (STRIPES - 1);
+    }
+
     /**
      * Counter Instrumentation element.
+     * <p/>
+     * Increments go to a single atomic value until two threads collide on it, from then on each thread increments
+     * its own stripe. The value is the sum of all of them.
      */
-    private static class Counter extends AtomicLong implements Element<Long> {
+    private static class Counter implements Element<Long> {
+        private final AtomicLong base = new AtomicLong();
+        private volatile AtomicLongArray cells;
+
+        /**
+         * Add to the counter.
+         *
+         * @param count value to add.
+         */
+        void add(long count) {
+            AtomicLongArray cells = this.cells;
+            if (cells == null) {
+                long value = base.get();
+                if (base.compareAndSet(value, value + count)) {
+                    return;
+                }
+                cells = inflate();
+            }
+            cells.getAndAdd(stripe() * PADDING, count);
+        }
+
+        private synchronized AtomicLongArray inflate() {
+            if (cells == null) {
+                cells = new AtomicLongArray(STRIPES * PADDING);
+            }
+            return cells;
+        }
 
         /**
          * Return the counter snapshot.
@@ -209,7 +265,14 @@ public class Instrumentation {
          * @return the counter snapshot.
          */
         public Long getValue() {
-            return get();
+            long value = base.get();
+            AtomicLongArray cells = this.cells;
+            if (cells != null) {
+                for (int i = 0; i < STRIPES; i++) {
+                    value += cells.get(i * PADDING);
+                }
+            }
+            return value;
         }
 
         /**
@@ -218,30 +281,184 @@ public class Instrumentation {
          * @return the String representation of the counter value.
          */
         public String toString() {
-            return Long.toString(get());
+            return Long.toString(getValue());
         }
 
     }
 
+    /**
+     * Histogram of times, with logarithmic buckets of linear sub-buckets.
+     * <p/>
+     * Times below 32 ms have their own bucket, above it each power of two is split in 16 sub-buckets, the value of a
+     * bucket is within 6.25% of the times recorded in it. Times above 2^41 ms are recorded in the last bucket.
+     */
+    static class Histogram {
+        private static final int SUB_BUCKET_BITS = 4;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        private static final int LINEAR_BUCKETS = SUB_BUCKETS << 1;
+        private static final int MAX_EXPONENT = 40;
+        static final int BUCKETS = LINEAR_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+        /**
+         * Record a time in the histogram.
+         *
+         * @param time time to record.
+         */
+        void record(long time) {
+            counts.getAndIncrement(getBucket(time));
+        }
+
+        /**
+         * Return a copy of the bucket counts of the histogram.
+         *
+         * @return the bucket counts.
+         */
+        long[] getCounts() {
+            long[] values = new long[BUCKETS];
+            addCounts(values);
+            return values;
+        }
+
+        /**
+         * Add the bucket counts of the histogram to the given ones.
+         *
+         * @param values bucket counts to add to.
+         */
+        void addCounts(long[] values) {
+            for (int i = 0; i < BUCKETS; i++) {
+                values[i] += counts.get(i);
+            }
+        }
+
+        /**
+         * Return the bucket of a time.
+         *
+         * @param time time.
+         * @return the bucket of the time.
+         */
+        static int getBucket(long time) {
+            if (time < LINEAR_BUCKETS) {
+                return (time < 0) ? 0 : (int) time;
+            }
+            if ((time >>> (MAX_EXPONENT + 1)) != 0) {
+                return BUCKETS - 1;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(time);
+            int subBucket = (int) (time >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+            return LINEAR_BUCKETS + (exponent - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + subBucket;
+        }
+
+        /**
+         * Return the highest time recorded in a bucket.
+         *
+         * @param bucket bucket.
+         * @return the highest time of the bucket.
+         */
+        static long getBucketValue(int bucket) {
+            if (bucket < LINEAR_BUCKETS) {
+                return bucket;
+            }
+            int exponent = (bucket - LINEAR_BUCKETS) / SUB_BUCKETS + SUB_BUCKET_BITS + 1;
+            int subBucket = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS;
+            int shift = exponent - SUB_BUCKET_BITS;
+            return ((long) (SUB_BUCKETS + subBucket) << shift) + (1L << shift) - 1;
+        }
+
+        /**
+         * Return a percentile of the times of a histogram.
+         *
+         * @param counts bucket counts of the histogram.
+         * @param percentile percentile, from 0 to 100.
+         * @param max maximum time recorded, the percentile is never greater than it.
+         * @return the percentile, 0 if the histogram is empty.
+         */
+        static long getPercentile(long[] counts, double percentile, long max) {
+            long total = 0;
+            for (long count : counts) {
+                total += count;
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(getBucketValue(i), max);
+                }
+            }
+            return max;
+        }
+    }
+
     /**
      * Timer Instrumentation element.
+     * <p/>
+     * Crons are added without locks. Like counters, a timer updates a single stripe until two threads collide on it,
+     * from then on each thread updates its own stripe. Own and total times are also recorded in histograms to
+     * provide percentiles.
+     * <p/>
+     * A timer snapshot is not atomic, a cron added while taking it may be partially included in it.
      */
     public static class Timer implements Element<Timer> {
-        Lock lock = new ReentrantLock();
-        private long ownTime;
-        private long totalTime;
-        private long ticks;
-        private long ownSquareTime;
-        private long totalSquareTime;
-        private long ownMinTime;
-        private long ownMaxTime;
-        private long totalMinTime;
-        private long totalMaxTime;
+        private static final int TICKS = 0;
+        private static final int OWN = 1;
+        private static final int TOTAL = 2;
+        private static final int OWN_SQUARE = 3;
+        private static final int TOTAL_SQUARE = 4;
+        private static final int OWN_MIN = 5;
+        private static final int OWN_MAX = 6;
+        private static final int TOTAL_MIN = 7;
+        private static final int TOTAL_MAX = 8;
+        private static final int SLOTS = 9;
+
+        private final AtomicLongArray base;
+        private volatile AtomicLongArray cells;
+        private final Histogram ownHistogram;
+        private final Histogram totalHistogram;
+
+        private final long[] values;
+        private final long[] ownCounts;
+        private final long[] totalCounts;
 
         /**
          * Timer constructor. <p/> It is project private for test purposes.
          */
         Timer() {
+            base = newStripes(1);
+            ownHistogram = new Histogram();
+            totalHistogram = new Histogram();
+            values = null;
+            ownCounts = null;
+            totalCounts = null;
+        }
+
+        private Timer(long[] values, long[] ownCounts, long[] totalCounts) {
+            base = null;
+            ownHistogram = null;
+            totalHistogram = null;
+            this.values = values;
+            this.ownCounts = ownCounts;
+            this.totalCounts = totalCounts;
+        }
+
+        private static AtomicLongArray newStripes(int stripes) {
+            AtomicLongArray array = new AtomicLongArray(stripes * PADDING);
+            for (int i = 0; i < stripes; i++) {
+                array.set(i * PADDING + OWN_MIN, Long.MAX_VALUE);
+                array.set(i * PADDING + TOTAL_MIN, Long.MAX_VALUE);
+            }
+            return array;
+        }
+
+        private synchronized AtomicLongArray inflate() {
+            if (cells == null) {
+                cells = newStripes(STRIPES);
+            }
+            return cells;
         }
 
         /**
@@ -250,7 +467,9 @@ public class Instrumentation {
          * @return the String representation of the timer value.
          */
         public String toString() {
-            return XLog.format("ticks[{0}] totalAvg[{1}] ownAvg[{2}]", ticks, getTotalAvg(), getOwnAvg());
+            return XLog.format("ticks[{0}] totalAvg[{1}] ownAvg[{2}] totalP50[{3}] totalP99[{4}] totalP999[{5}]",
+                               getTicks(), getTotalAvg(), getOwnAvg(), getTotalPercentile(50),
+                               getTotalPercentile(99), getTotalPercentile(99.9));
         }
 
         /**
@@ -259,23 +478,14 @@ public class Instrumentation {
          * @return the timer snapshot.
          */
         public Timer getValue() {
-            try {
-                lock.lock();
-                Timer timer = new Timer();
-                timer.ownTime = ownTime;
-                timer.totalTime = totalTime;
-                timer.ticks = ticks;
-                timer.ownSquareTime = ownSquareTime;
-                timer.totalSquareTime = totalSquareTime;
-                timer.ownMinTime = ownMinTime;
-                timer.ownMaxTime = ownMaxTime;
-                timer.totalMinTime = totalMinTime;
-                timer.totalMaxTime = totalMaxTime;
-                return timer;
+            if (values != null) {
+                return this;
             }
-            finally {
-                lock.unlock();
+            long[] snapshot = new long[SLOTS];
+            for (int i = 0; i < SLOTS; i++) {
+                snapshot[i] = reduce(i);
             }
+            return new Timer(snapshot, ownHistogram.getCounts(), totalHistogram.getCounts());
         }
 
         /**
@@ -284,40 +494,93 @@ public class Instrumentation {
          * @param cron Cron to add.
          */
         void addCron(Cron cron) {
-            try {
-                lock.lock();
-                long own = cron.getOwn();
-                long total = cron.getTotal();
-                ownTime += own;
-                totalTime += total;
-                ticks++;
-                ownSquareTime += own * own;
-                totalSquareTime += total * total;
-                if (ticks == 1) {
-                    ownMinTime = own;
-                    ownMaxTime = own;
-                    totalMinTime = total;
-                    totalMaxTime = total;
+            addTime(cron.getOwn(), cron.getTotal());
+        }
+
+        /**
+         * Add a timing to a timer.
+         *
+         * @param own own time.
+         * @param total total time.
+         */
+        void addTime(long own, long total) {
+            AtomicLongArray stripes = cells;
+            int offset = 0;
+            if (stripes == null) {
+                long ticks = base.get(TICKS);
+                if (base.compareAndSet(TICKS, ticks, ticks + 1)) {
+                    stripes = base;
                 }
                 else {
-                    ownMinTime = Math.min(ownMinTime, own);
-                    ownMaxTime = Math.max(ownMaxTime, own);
-                    totalMinTime = Math.min(totalMinTime, total);
-                    totalMaxTime = Math.max(totalMaxTime, total);
+                    stripes = inflate();
                 }
             }
-            finally {
-                lock.unlock();
+            if (stripes != base) {
+                offset = stripe() * PADDING;
+                stripes.getAndIncrement(offset + TICKS);
+            }
+            stripes.getAndAdd(offset + OWN, own);
+            stripes.getAndAdd(offset + TOTAL, total);
+            stripes.getAndAdd(offset + OWN_SQUARE, own * own);
+            stripes.getAndAdd(offset + TOTAL_SQUARE, total * total);
+            setMin(stripes, offset + OWN_MIN, own);
+            setMax(stripes, offset + OWN_MAX, own);
+            setMin(stripes, offset + TOTAL_MIN, total);
+            setMax(stripes, offset + TOTAL_MAX, total);
+            ownHistogram.record(own);
+            totalHistogram.record(total);
+        }
+
+        private static void setMin(AtomicLongArray stripes, int slot, long value) {
+            long current = stripes.get(slot);
+            while (value < current && !stripes.compareAndSet(slot, current, value)) {
+                current = stripes.get(slot);
+            }
+        }
+
+        private static void setMax(AtomicLongArray stripes, int slot, long value) {
+            long current = stripes.get(slot);
+            while (value > current && !stripes.compareAndSet(slot, current, value)) {
+                current = stripes.get(slot);
             }
         }
 
+        private long reduce(int slot) {
+            long value = reduce(base, 0, slot, (slot == OWN_MIN || slot == TOTAL_MIN) ? Long.MAX_VALUE : 0);
+            AtomicLongArray stripes = cells;
+            if (stripes != null) {
+                for (int i = 0; i < STRIPES; i++) {
+                    value = reduce(stripes, i * PADDING, slot, value);
+                }
+            }
+            return (value == Long.MAX_VALUE) ? 0 : value;
+        }
+
+        private static long reduce(AtomicLongArray stripes, int offset, int slot, long value) {
+            long stripeValue = stripes.get(offset + slot);
+            switch (slot) {
+                case OWN_MIN:
+                case TOTAL_MIN:
+                    return Math.min(value, stripeValue);
+                case OWN_MAX:
+                case TOTAL_MAX:
+                    return Math.max(value, stripeValue);
+                default:
+                    return value + stripeValue;
+            }
+        }
+
+        private long get(int slot) {
+            return (values != null) ? values[slot] : reduce(slot);
+        }
+
         /**
          * Return the own accumulated computing time by the timer.
          *
          * @return own accumulated computing time by the timer.
          */
         public long getOwn() {
-            return ownTime;
+            return get(OWN);
         }
 
         /**
@@ -326,7 +589,7 @@ public class Instrumentation {
          * @return total accumulated computing time by the timer.
          */
         public long getTotal() {
-            return totalTime;
+            return get(TOTAL);
         }
 
         /**
@@ -335,7 +598,7 @@ public class Instrumentation {
          * @return the number of times a cron was added to the timer.
          */
         public long getTicks() {
-            return ticks;
+            return get(TICKS);
         }
 
         /**
@@ -344,7 +607,7 @@ public class Instrumentation {
          * @return the sum of the square own timer.
          */
         public long getOwnSquareSum() {
-            return ownSquareTime;
+            return get(OWN_SQUARE);
         }
 
         /**
@@ -353,7 +616,7 @@ public class Instrumentation {
          * @return the sum of the square own timer.
          */
         public long getTotalSquareSum() {
-            return totalSquareTime;
+            return get(TOTAL_SQUARE);
         }
 
         /**
@@ -362,7 +625,7 @@ public class Instrumentation {
          * @return the own minimum time.
          */
         public long getOwnMin() {
-            return ownMinTime;
+            return get(OWN_MIN);
         }
 
         /**
@@ -371,7 +634,7 @@ public class Instrumentation {
          * @return the own maximum time.
          */
         public long getOwnMax() {
-            return ownMaxTime;
+            return get(OWN_MAX);
         }
 
         /**
@@ -380,7 +643,7 @@ public class Instrumentation {
          * @return the total minimum time.
          */
         public long getTotalMin() {
-            return totalMinTime;
+            return get(TOTAL_MIN);
         }
 
         /**
@@ -389,7 +652,7 @@ public class Instrumentation {
          * @return the total maximum time.
          */
         public long getTotalMax() {
-            return totalMaxTime;
+            return get(TOTAL_MAX);
         }
 
         /**
@@ -398,7 +661,8 @@ public class Instrumentation {
          * @return the own average time.
          */
         public long getOwnAvg() {
-            return (ticks != 0) ? ownTime / ticks : 0;
+            long ticks = getTicks();
+            return (ticks != 0) ? getOwn() / ticks : 0;
         }
 
         /**
@@ -407,7 +671,8 @@ public class Instrumentation {
          * @return the total average time.
          */
         public long getTotalAvg() {
-            return (ticks != 0) ? totalTime / ticks : 0;
+            long ticks = getTicks();
+            return (ticks != 0) ? getTotal() / ticks : 0;
         }
 
         /**
@@ -416,7 +681,7 @@ public class Instrumentation {
          * @return the total time standard deviation.
          */
         public double getTotalStdDev() {
-            return evalStdDev(ticks, totalTime, totalSquareTime);
+            return evalStdDev(getTicks(), getTotal(), getTotalSquareSum());
         }
 
         /**
@@ -425,7 +690,29 @@ public class Instrumentation {
          * @return the own time standard deviation.
          */
         public double getOwnStdDev() {
-            return evalStdDev(ticks, ownTime, ownSquareTime);
+            return evalStdDev(getTicks(), getOwn(), getOwnSquareSum());
+        }
+
+        /**
+         * Returns a percentile of the own times, within 6.25% of the exact value.
+         *
+         * @param percentile percentile, from 0 to 100, for example <code>99.9</code>.
+         * @return the percentile of the own times.
+         */
+        public long getOwnPercentile(double percentile) {
+            return Histogram.getPercentile((ownCounts != null) ? ownCounts : ownHistogram.getCounts(), percentile,
+                                           getOwnMax());
+        }
+
+        /**
+         * Returns a percentile of the total times, within 6.25% of the exact value.
+         *
+         * @param percentile percentile, from 0 to 100, for example <code>99.9</code>.
+         * @return the percentile of the total times.
+         */
+        public long getTotalPercentile(double percentile) {
+            return Histogram.getPercentile((totalCounts != null) ? totalCounts : totalHistogram.getCounts(),
+                                           percentile, getTotalMax());
         }
 
         private double evalStdDev(long n, long sn, long ssn) {
@@ -434,6 +721,182 @@ public class Instrumentation {
 
     }
 
+    /**
+     * Latency Instrumentation element, percentiles of the times recorded in the last minute and in the last 5
+     * minutes.
+     * <p/>
+     * Times are recorded without locks in a histogram per 30 seconds slot, the histogram of a slot is discarded once
+     * the slot is older than the largest window. A window includes the current, partial, slot, the last minute window
+     * covers between 30 and 60 seconds and the last 5 minutes window between 4.5 and 5 minutes.
+     */
+    public static class Latency implements Element<Latency> {
+
+        /**
+         * Windows of the latency, in minutes.
+         */
+        public static final int[] WINDOWS = {1, 5};
+
+        static final long SLOT_TIME = 30 * 1000;
+        private static final int SLOTS = 10;
+
+        private static class Slot {
+            private final long epoch;
+            private final Histogram histogram = new Histogram();
+            private final AtomicLong max = new AtomicLong();
+
+            private Slot(long epoch) {
+                this.epoch = epoch;
+            }
+        }
+
+        private final AtomicReferenceArray<Slot> slots;
+
+        private final long[] counts;
+        private final long[][] windowCounts;
+        private final long[] windowMax;
+
+        /**
+         * Latency constructor. <p/> It is project private for test purposes.
+         */
+        Latency() {
+            slots = new AtomicReferenceArray<Slot>(SLOTS);
+            counts = null;
+            windowCounts = null;
+            windowMax = null;
+        }
+
+        private Latency(long[] counts, long[][] windowCounts, long[] windowMax) {
+            slots = null;
+            this.counts = counts;
+            this.windowCounts = windowCounts;
+            this.windowMax = windowMax;
+        }
+
+        /**
+         * Record a time. <p/> It is project private for test purposes.
+         *
+         * @param time time to record, in milliseconds.
+         * @param now current time, in milliseconds.
+         */
+        void addTime(long time, long now) {
+            long epoch = now / SLOT_TIME;
+            int index = (int) (epoch % SLOTS);
+            Slot slot = slots.get(index);
+            if (slot == null || slot.epoch < epoch) {
+                Slot newSlot = new Slot(epoch);
+                slot = (slots.compareAndSet(index, slot, newSlot)) ? newSlot : slots.get(index);
+            }
+            slot.histogram.record(time);
+            long max = slot.max.get();
+            while (time > max && !slot.max.compareAndSet(max, time)) {
+                max = slot.max.get();
+            }
+        }
+
+        /**
+         * Return the latency snapshot.
+         *
+         * @return the latency snapshot.
+         */
+        public Latency getValue() {
+            return (slots != null) ? getValue(System.currentTimeMillis()) : this;
+        }
+
+        /**
+         * Return the latency snapshot. <p/> It is project private for test purposes.
+         *
+         * @param now current time, in milliseconds.
+         * @return the latency snapshot.
+         */
+        Latency getValue(long now) {
+            long epoch = now / SLOT_TIME;
+            long[] counts = new long[WINDOWS.length];
+            long[][] windowCounts = new long[WINDOWS.length][Histogram.BUCKETS];
+            long[] windowMax = new long[WINDOWS.length];
+            for (int i = 0; i < SLOTS; i++) {
+                Slot slot = slots.get(i);
+                if (slot != null && slot.epoch <= epoch) {
+                    for (int w = 0; w < WINDOWS.length; w++) {
+                        if (epoch - slot.epoch < WINDOWS[w] * 60 * 1000 / SLOT_TIME) {
+                            slot.histogram.addCounts(windowCounts[w]);
+                            windowMax[w] = Math.max(windowMax[w], slot.max.get());
+                        }
+                    }
+                }
+            }
+            for (int w = 0; w < WINDOWS.length; w++) {
+                for (long count : windowCounts[w]) {
+                    counts[w] += count;
+                }
+            }
+            return new Latency(counts, windowCounts, windowMax);
+        }
+
+        private int getWindow(int minutes) {
+            for (int w = 0; w < WINDOWS.length; w++) {
+                if (WINDOWS[w] == minutes) {
+                    return w;
+                }
+            }
+            throw new IllegalArgumentException(XLog.format("Invalid latency window [{0}]", minutes));
+        }
+
+        /**
+         * Return the number of times recorded in a window.
+         *
+         * @param minutes window, one of {@link #WINDOWS}.
+         * @return the number of times recorded in the window.
+         */
+        public long getCount(int minutes) {
+            return (slots != null) ? getValue().getCount(minutes) : counts[getWindow(minutes)];
+        }
+
+        /**
+         * Return the maximum time recorded in a window.
+         *
+         * @param minutes window, one of {@link #WINDOWS}.
+         * @return the maximum time recorded in the window.
+         */
+        public long getMax(int minutes) {
+            return (slots != null) ? getValue().getMax(minutes) : windowMax[getWindow(minutes)];
+        }
+
+        /**
+         * Return a percentile of the times recorded in a window, within 6.25% of the exact value.
+         *
+         * @param minutes window, one of {@link #WINDOWS}.
+         * @param percentile percentile, from 0 to 100, for example <code>99.9</code>.
+         * @return the percentile of the times, 0 if no time was recorded in the window.
+         */
+        public long getPercentile(int minutes, double percentile) {
+            if (slots != null) {
+                return getValue().getPercentile(minutes, percentile);
+            }
+            int w = getWindow(minutes);
+            return Histogram.getPercentile(windowCounts[w], percentile, windowMax[w]);
+        }
+
+        /**
+         * Return the String representation of the latency value.
+         *
+         * @return the String representation of the latency value.
+         */
+        public String toString() {
+            Latency latency = getValue();
+            StringBuilder sb = new StringBuilder();
+            for (int minutes : WINDOWS) {
+                if (sb.length() > 0) {
+                    sb.append(' ');
+                }
+                sb.append(XLog.format("{0}m[count[{1}] p50[{2}] p99[{3}] p999[{4}] max[{5}]]", minutes,
+                                      latency.getCount(minutes), latency.getPercentile(minutes, 50),
+                                      latency.getPercentile(minutes, 99), latency.getPercentile(minutes, 99.9),
+                                      latency.getMax(minutes)));
+            }
+            return sb.toString();
+        }
+    }
+
     /**
      * Add a cron to an instrumentation timer. The timer is created if it does not exists. <p/> This method is thread
      * safe.
@@ -443,75 +906,90 @@ public class Instrumentation {
      * @param cron cron to add to the timer.
      */
     public void addCron(String group, String name, Cron cron) {
-        Map<String, Element<Timer>> map = timers.get(group);
-        if (map == null) {
-            try {
-                timerLock.lock();
-                map = timers.get(group);
-                if (map == null) {
-                    map = new HashMap<String, Element<Timer>>();
-                    timers.put(group, map);
-                }
-            }
-            finally {
-                timerLock.unlock();
-            }
-        }
+        addTime(group, name, cron.getOwn(), cron.getTotal());
+    }
+
+    /**
+     * Add a timing to an instrumentation timer. The timer is created if it does not exists. <p/> This method is
+     * thread safe, it does not allocate once the timer exists.
+     *
+     * @param group timer group.
+     * @param name timer name.
+     * @param own own time, in milliseconds.
+     * @param total total time, in milliseconds.
+     */
+    public void addTime(String group, String name, long own, long total) {
+        ConcurrentMap<String, Element<Timer>> map = getGroup(timers, group);
         Timer timer = (Timer) map.get(name);
         if (timer == null) {
-            try {
-                timerLock.lock();
-                timer = (Timer) map.get(name);
-                if (timer == null) {
-                    timer = new Timer();
-                    map.put(name, timer);
-                }
+            timer = new Timer();
+            Timer existing = (Timer) map.putIfAbsent(name, timer);
+            if (existing != null) {
+                timer = existing;
             }
-            finally {
-                timerLock.unlock();
+        }
+        timer.addTime(own, total);
+    }
+
+    /**
+     * Add a time to an instrumentation latency. The latency is created if it does not exists. <p/> This method is
+     * thread safe.
+     *
+     * @param group latency group.
+     * @param name latency name.
+     * @param time time, in milliseconds.
+     */
+    public void addLatency(String group, String name, long time) {
+        ConcurrentMap<String, Element<Latency>> map = getGroup(latencies, group);
+        Latency latency = (Latency) map.get(name);
+        if (latency == null) {
+            latency = new Latency();
+            Latency existing = (Latency) map.putIfAbsent(name, latency);
+            if (existing != null) {
+                latency = existing;
             }
         }
-        timer.addCron(cron);
+        latency.addTime(time, System.currentTimeMillis());
     }
 
     /**
      * Increment an instrumentation counter. The counter is created if it does not exists. <p/> This method is thread
-     * safe.
+     * safe, it does not allocate once the counter exists.
      *
      * @param group counter group.
      * @param name counter name.
      * @param count increment to add to the counter.
      */
     public void incr(String group, String name, long count) {
-        Map<String, Element<Long>> map = counters.get(group);
-        if (map == null) {
-            try {
-                counterLock.lock();
-                map = counters.get(group);
-                if (map == null) {
-                    map = new HashMap<String, Element<Long>>();
-                    counters.put(group, map);
-                }
-            }
-            finally {
-                counterLock.unlock();
-            }
-        }
+        ConcurrentMap<String, Element<Long>> map = getGroup(counters, group);
         Counter counter = (Counter) map.get(name);
         if (counter == null) {
-            try {
-                counterLock.lock();
-                counter = (Counter) map.get(name);
-                if (counter == null) {
-                    counter = new Counter();
-                    map.put(name, counter);
-                }
+            counter = new Counter();
+            Counter existing = (Counter) map.putIfAbsent(name, counter);
+            if (existing != null) {
+                counter = existing;
             }
-            finally {
-                counterLock.unlock();
+        }
+        counter.add(count);
+    }
+
+    /**
+     * Return the map of a group of instrumentation elements, creating it if it does not exist.
+     *
+     * @param elements instrumentation elements.
+     * @param group group name.
+     * @return the map of the group.
+     */
+    private static <T> ConcurrentMap<String, T> getGroup(Map<String, Map<String, T>> elements, String group) {
+        Map<String, T> map = elements.get(group);
+        if (map == null) {
+            map = new ConcurrentHashMap<String, T>();
+            Map<String, T> existing = ((ConcurrentMap<String, Map<String, T>>) elements).putIfAbsent(group, map);
+            if (existing != null) {
+                map = existing;
             }
         }
-        counter.addAndGet(count);
+        return (ConcurrentMap<String, T>) map;
     }
 
     /**
@@ -530,24 +1008,9 @@ public class Instrumentation {
      */
     @SuppressWarnings("unchecked")
     public void addVariable(String group, String name, Variable variable) {
-        Map<String, Element<Variable>> map = variables.get(group);
-        if (map == null) {
-            try {
-                variableLock.lock();
-                map = variables.get(group);
-                if (map == null) {
-                    map = new HashMap<String, Element<Variable>>();
-                    variables.put(group, map);
-                }
-            }
-            finally {
-                variableLock.unlock();
-            }
-        }
-        if (map.containsKey(name)) {
+        if (getGroup(variables, group).putIfAbsent(name, variable) != null) {
             throw new RuntimeException(XLog.format("Variable group=[{0}] name=[{1}] already defined", group, name));
         }
-        map.put(name, variable);
     }
 
     /**
@@ -670,6 +1133,16 @@ public class Instrumentation {
         return timers;
     }
 
+    /**
+     * Return all the latencies. <p/> This method is thread safe. <p/> The latencies are live. The latency value is a
+     * snapshot at the time the {@link Instrumentation.Element#getValue()} is invoked.
+     *
+     * @return all latencies.
+     */
+    public Map<String, Map<String, Element<Latency>>> getLatencies() {
+        return latencies;
+    }
+
     /**
      * Return all the variables. <p/> This method is thread safe. <p/> The variables are live. The variable value is a
      * snapshot at the time the {@link Instrumentation.Element#getValue()} is invoked.
@@ -681,9 +1154,9 @@ public class Instrumentation {
     }
 
     /**
-     * Return a map containing all variables, counters and timers.
+     * Return a map containing all variables, samplers, counters, timers and latencies.
      *
-     * @return a map containing all variables, counters and timers.
+     * @return a map containing all variables, samplers, counters, timers and latencies.
      */
     public Map<String, Map<String, Map<String, Object>>> getAll() {
         return all;
@@ -776,14 +1249,7 @@ public class Instrumentation {
         }
         try {
             samplerLock.lock();
-            Map<String, Element<Double>> map = samplers.get(group);
-            if (map == null) {
-                map = samplers.get(group);
-                if (map == null) {
-                    map = new HashMap<String, Element<Double>>();
-                    samplers.put(group, map);
-                }
-            }
+            Map<String, Element<Double>> map = getGroup(samplers, group);
             if (map.containsKey(name)) {
                 throw new RuntimeException(XLog.format("Sampler group=[{0}] name=[{1}] already defined", group, name));
             }
@@ -0,0 +1,221 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache with least recently used eviction.
+ * <p/>
+ * The cache is bounded by number of entries and by total weight, the weight of an entry is given by {@link
+ * #weigh(Object, Object)}, by default all entries weigh 1. Entries heavier than the maximum weight are not cached.
+ * <p/>
+ * The cache keeps hits, misses and evictions counts, they can be exposed as instrumentation variables with {@link
+ * #instrument(Instrumentation, String, String)}.
+ * <p/>
+ * All methods are thread safe.
+ */
+public class LRUCache<K, V> {
+    private final int maxEntries;
+    private final long maxWeight;
+    private final LinkedHashMap<K, Entry<V>> map = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true);
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    private static class Entry<V> {
+        private final V value;
+        private final long weight;
+
+        private Entry(V value, long weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Create a cache.
+     *
+     * @param maxEntries maximum number of entries.
+     * @param maxWeight maximum total weight of the entries.
+     */
+    public LRUCache(int maxEntries, long maxWeight) {
+        this.maxEntries = ParamChecker.checkGTZero(maxEntries, "maxEntries");
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Return the weight of an entry, by default 1.
+     *
+     * @param key entry key.
+     * @param value entry value.
+     * @return the weight of the entry.
+     */
+    protected long weigh(K key, V value) {
+        return 1;
+    }
+
+    /**
+     * Return the value of an entry, it counts as a hit or as a miss.
+     *
+     * @param key entry key.
+     * @return the entry value, <code>null</code> if not cached.
+     */
+    public synchronized V get(K key) {
+        Entry<V> entry = map.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    /**
+     * Add an entry, least recently used entries are evicted until the cache is within its bounds.
+     *
+     * @param key entry key.
+     * @param value entry value.
+     * @return <code>true</code> if the entry was cached, <code>false</code> if it is heavier than the maximum weight.
+     */
+    public synchronized boolean put(K key, V value) {
+        ParamChecker.notNull(value, "value");
+        long entryWeight = weigh(key, value);
+        remove(key);
+        if (entryWeight > maxWeight) {
+            return false;
+        }
+        map.put(key, new Entry<V>(value, entryWeight));
+        weight += entryWeight;
+        Iterator<Map.Entry<K, Entry<V>>> it = map.entrySet().iterator();
+        while ((map.size() > maxEntries || weight > maxWeight) && it.hasNext()) {
+            Entry<V> eldest = it.next().getValue();
+            it.remove();
+            weight -= eldest.weight;
+            evictions++;
+        }
+        return true;
+    }
+
+    /**
+     * Remove an entry.
+     *
+     * @param key entry key.
+     * @return the removed value, <code>null</code> if not cached.
+     */
+    public synchronized V remove(K key) {
+        Entry<V> entry = map.remove(key);
+        if (entry != null) {
+            weight -= entry.weight;
+            return entry.value;
+        }
+        return null;
+    }
+
+    /**
+     * Remove all the entries.
+     */
+    public synchronized void clear() {
+        map.clear();
+        weight = 0;
+    }
+
+    /**
+     * Return the number of entries.
+     *
+     * @return the number of entries.
+     */
+    public synchronized int size() {
+        return map.size();
+    }
+
+    /**
+     * Return the total weight of the entries.
+     *
+     * @return the total weight of the entries.
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    /**
+     * Return the number of hits.
+     *
+     * @return the number of hits.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Return the number of misses.
+     *
+     * @return the number of misses.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Return the number of evictions.
+     *
+     * @return the number of evictions.
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Expose the cache hits, misses, evictions, entries and weight as instrumentation variables.
+     * <p/>
+     * The variables are named <code>[PREFIX].hits</code>, <code>[PREFIX].misses</code>,
+     * <code>[PREFIX].evictions</code>, <code>[PREFIX].entries</code> and <code>[PREFIX].weight</code>.
+     *
+     * @param instr instrumentation instance.
+     * @param group instrumentation group.
+     * @param prefix variable names prefix.
+     */
+    public void instrument(Instrumentation instr, String group, String prefix) {
+        instr.addVariable(group, prefix + ".hits", new Instrumentation.Variable<Long>() {
+            public Long getValue() {
+                return getHits();
+            }
+        });
+        instr.addVariable(group, prefix + ".misses", new Instrumentation.Variable<Long>() {
+            public Long getValue() {
+                return getMisses();
+            }
+        });
+        instr.addVariable(group, prefix + ".evictions", new Instrumentation.Variable<Long>() {
+            public Long getValue() {
+                return getEvictions();
+            }
+        });
+        instr.addVariable(group, prefix + ".entries", new Instrumentation.Variable<Long>() {
+            public Long getValue() {
+                return (long) size();
+            }
+        });
+        instr.addVariable(group, prefix + ".weight", new Instrumentation.Variable<Long>() {
+            public Long getValue() {
+                return getWeight();
+            }
+        });
+    }
+
+}
@@ -14,31 +14,82 @@
  */
 package org.apache.oozie.util;
 
-import java.util.HashMap;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * In memory resource locking that provides READ/WRITE lock capabilities.
+ * <p/>
+ * Lock entries are kept in a <code>ConcurrentHashMap</code> and they are reference counted, an entry is evicted when
+ * the last token holding or waiting for it is released. Obtaining an uncontended lock does not take any global
+ * monitor.
+ * <p/>
+ * If an {@link Instrumentation} is set, the wait time of contended locks is recorded in the <code>lock.wait</code>
+ * timer and in <code>lock.wait.&lt;bucket></code> histogram counters, contended and timed out acquisitions are counted
+ * and the resources with more threads waiting on them are reported by the <code>lock.hot</code> variable.
  */
 public class MemoryLocks {
-    final private HashMap<String, ReentrantReadWriteLock> locks = new HashMap<String, ReentrantReadWriteLock>();
+    public static final String INSTR_WAIT_TIMER = "lock.wait";
+    public static final String INSTR_CONTENDED_COUNTER = "lock.contended";
+    public static final String INSTR_TIMEOUT_COUNTER = "lock.timeout";
+    public static final String INSTR_HOT_VARIABLE = "lock.hot";
+
+    private static final long[] WAIT_BUCKETS = {1, 10, 100, 1000, 10000};
+    private static final String[] WAIT_BUCKET_NAMES = {"lock.wait.1ms", "lock.wait.10ms", "lock.wait.100ms",
+                                                       "lock.wait.1s", "lock.wait.10s", "lock.wait.more"};
+    private static final int HOT_RESOURCES = 10;
+
+    final private ConcurrentHashMap<String, LockEntry> locks = new ConcurrentHashMap<String, LockEntry>();
+    private Instrumentation instrumentation;
+    private String instrumentationGroup;
 
     private static enum Type {
         READ, WRITE
     }
 
+    /**
+     * Reference counted lock entry, once its reference count drops to zero it is dead and it cannot be retained
+     * anymore.
+     */
+    private static class LockEntry {
+        private final ReentrantReadWriteLock rwLock = new ReentrantReadWriteLock(true);
+        private final AtomicInteger refs = new AtomicInteger();
+
+        private boolean retain() {
+            int count;
+            do {
+                count = refs.get();
+                if (count < 0) {
+                    return false;
+                }
+            } while (!refs.compareAndSet(count, count + 1));
+            return true;
+        }
+
+        private boolean free() {
+            return refs.decrementAndGet() == 0 && refs.compareAndSet(0, -1);
+        }
+    }
+
     /**
      * Lock token returned when obtaining a lock, the token must be released when the lock is not needed anymore.
      */
     public class LockToken {
-        private final ReentrantReadWriteLock rwLock;
-        private final java.util.concurrent.locks.Lock lock;
+        private final LockEntry entry;
+        private final Lock lock;
         private final String resource;
 
-        private LockToken(ReentrantReadWriteLock rwLock, java.util.concurrent.locks.Lock lock, String resource) {
-            this.rwLock = rwLock;
+        private LockToken(LockEntry entry, Lock lock, String resource) {
+            this.entry = entry;
             this.lock = lock;
             this.resource = resource;
         }
@@ -47,16 +98,27 @@ public class MemoryLocks {
          * Release the lock.
          */
         public void release() {
-            int val = rwLock.getQueueLength();
-            if (val == 0) {
-                synchronized (locks) {
-                    locks.remove(resource);
-                }
-            }
             lock.unlock();
+            free(resource, entry);
         }
     }
 
+    /**
+     * Set the instrumentation to record lock contention to.
+     *
+     * @param instr instrumentation instance.
+     * @param group instrumentation group for the lock timers, counters and variables.
+     */
+    public void setInstrumentation(Instrumentation instr, String group) {
+        instrumentationGroup = group;
+        instr.addVariable(group, INSTR_HOT_VARIABLE, new Instrumentation.Variable<String>() {
+            public String getValue() {
+                return getHotResources(HOT_RESOURCES);
+            }
+        });
+        instrumentation = instr;
+    }
+
     /**
      * Return the number of active locks.
      *
@@ -66,6 +128,35 @@ public class MemoryLocks {
         return locks.size();
     }
 
+    /**
+     * Return the resources with more threads waiting for their lock.
+     *
+     * @param max maximum number of resources to return.
+     * @return a comma separated list of <code>resource=waiting-threads</code>, the ones with more waiting threads
+     *         first.
+     */
+    public String getHotResources(int max) {
+        List<Map.Entry<String, Integer>> waiting = new ArrayList<Map.Entry<String, Integer>>();
+        for (Map.Entry<String, LockEntry> entry : locks.entrySet()) {
+            int queued = entry.getValue().rwLock.getQueueLength();
+            if (queued > 0) {
+                waiting.add(new AbstractMap.SimpleImmutableEntry<String, Integer>(entry.getKey(), queued));
+            }
+        }
+        Collections.sort(waiting, new Comparator<Map.Entry<String, Integer>>() {
+            public int compare(Map.Entry<String, Integer> o1, Map.Entry<String, Integer> o2) {
+                return o2.getValue() - o1.getValue();
+            }
+        });
+        StringBuilder sb = new StringBuilder();
+        String separator = "";
+        for (int i = 0; i < waiting.size() && i < max; i++) {
+            sb.append(separator).append(waiting.get(i).getKey()).append('=').append(waiting.get(i).getValue());
+            separator = ", ";
+        }
+        return sb.toString();
+    }
+
     /**
      * Obtain a READ lock for a source.
      *
@@ -90,41 +181,87 @@ public class MemoryLocks {
         return getLock(resource, Type.WRITE, wait);
     }
 
-    private LockToken getLock(String resource, Type type, long wait) throws InterruptedException {
-        ReentrantReadWriteLock lockEntry;
-        synchronized (locks) {
-            if (locks.containsKey(resource)) {
-                lockEntry = locks.get(resource);
+    private LockEntry retain(String resource) {
+        while (true) {
+            LockEntry entry = locks.get(resource);
+            if (entry == null) {
+                LockEntry newEntry = new LockEntry();
+                entry = locks.putIfAbsent(resource, newEntry);
+                if (entry == null) {
+                    entry = newEntry;
+                }
             }
-            else {
-                lockEntry = new ReentrantReadWriteLock(true);
-                locks.put(resource, lockEntry);
+            if (entry.retain()) {
+                return entry;
             }
+            // the entry died between the lookup and the retain, it is being evicted
+            locks.remove(resource, entry);
         }
+    }
 
-        Lock lock = (type.equals(Type.READ)) ? lockEntry.readLock() : lockEntry.writeLock();
-
-        if (wait == -1) {
-            lock.lock();
+    private void free(String resource, LockEntry entry) {
+        if (entry.free()) {
+            locks.remove(resource, entry);
         }
-        else {
-            if (wait > 0) {
-                if (!lock.tryLock(wait, TimeUnit.MILLISECONDS)) {
-                    return null;
+    }
+
+    private LockToken getLock(String resource, Type type, long wait) throws InterruptedException {
+        LockEntry entry = retain(resource);
+        Lock lock = (type == Type.READ) ? entry.rwLock.readLock() : entry.rwLock.writeLock();
+        boolean locked = false;
+        try {
+            if (wait == 0) {
+                locked = lock.tryLock();
+                if (!locked) {
+                    incr(INSTR_CONTENDED_COUNTER);
                 }
             }
             else {
-                if (!lock.tryLock()) {
-                    return null;
+                // a zero timeout tryLock honors the fairness of the lock
+                locked = lock.tryLock(0, TimeUnit.MILLISECONDS);
+                if (!locked) {
+                    incr(INSTR_CONTENDED_COUNTER);
+                    Instrumentation.Cron cron = new Instrumentation.Cron();
+                    cron.start();
+                    if (wait == -1) {
+                        lock.lock();
+                        locked = true;
+                    }
+                    else {
+                        locked = lock.tryLock(wait, TimeUnit.MILLISECONDS);
+                    }
+                    cron.stop();
+                    addWaitCron(cron);
                 }
             }
+            if (!locked) {
+                incr(INSTR_TIMEOUT_COUNTER);
+            }
+        }
+        finally {
+            if (!locked) {
+                free(resource, entry);
+            }
         }
-        synchronized (locks) {
-            if (!locks.containsKey(resource)) {
-                locks.put(resource, lockEntry);
+        return (locked) ? new LockToken(entry, lock, resource) : null;
+    }
+
+    private void incr(String name) {
+        if (instrumentation != null) {
+            instrumentation.incr(instrumentationGroup, name, 1);
+        }
+    }
+
+    private void addWaitCron(Instrumentation.Cron cron) {
+        if (instrumentation != null) {
+            instrumentation.addCron(instrumentationGroup, INSTR_WAIT_TIMER, cron);
+            long waited = cron.getTotal();
+            int bucket = 0;
+            while (bucket < WAIT_BUCKETS.length && waited > WAIT_BUCKETS[bucket]) {
+                bucket++;
             }
+            instrumentation.incr(instrumentationGroup, WAIT_BUCKET_NAMES[bucket], 1);
         }
-        return new LockToken(lockEntry, lock, resource);
     }
 
 }
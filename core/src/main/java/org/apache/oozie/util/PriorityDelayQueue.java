@@ -21,7 +21,6 @@ import java.util.Collection;
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.DelayQueue;
 import java.util.concurrent.Delayed;
 import java.util.concurrent.TimeUnit;
@@ -48,7 +47,7 @@ import java.util.concurrent.locks.ReentrantLock;
  * seeking operations. This check is performed, the most every 1/2 second.
  */
 public class PriorityDelayQueue<E> extends AbstractQueue<PriorityDelayQueue.QueueElement<E>>
-        implements BlockingQueue<PriorityDelayQueue.QueueElement<E>> {
+        implements BlockingPriorityDelayQueue<E> {
 
     /**
      * Element wrapper required by the queue.
@@ -167,6 +166,24 @@ public class PriorityDelayQueue<E> extends AbstractQueue<PriorityDelayQueue.Queu
             return sb.toString();
         }
 
+        // package private accessors for the other queue implementations of this package
+
+        long getBaseTime() {
+            return baseTime;
+        }
+
+        boolean isInQueue() {
+            return inQueue;
+        }
+
+        void setInQueue(boolean inQueue) {
+            this.inQueue = inQueue;
+        }
+
+        void incrPriority() {
+            priority++;
+        }
+
     }
 
     /**
@@ -346,6 +363,8 @@ public class PriorityDelayQueue<E> extends AbstractQueue<PriorityDelayQueue.Queu
         if (!ignoreSize && currentSize != null && currentSize.get() >= maxSize) {
             return false;
         }
+        // set before adding the element, a consumer may poll it right after it is added
+        queueElement.inQueue = true;
         boolean accepted = queues[queueElement.getPriority()].offer(queueElement);
         debug("offer([{0}]), to P[{1}] delay[{2}ms] accepted[{3}]", queueElement.getElement().toString(),
               queueElement.getPriority(), queueElement.getDelay(TimeUnit.MILLISECONDS), accepted);
@@ -353,7 +372,9 @@ public class PriorityDelayQueue<E> extends AbstractQueue<PriorityDelayQueue.Queu
             if (currentSize != null) {
                 currentSize.incrementAndGet();
             }
-            queueElement.inQueue = true;
+        }
+        else {
+            queueElement.inQueue = false;
         }
         return accepted;
     }
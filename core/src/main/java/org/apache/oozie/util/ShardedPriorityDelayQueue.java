@@ -0,0 +1,574 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.util;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.oozie.util.PriorityDelayQueue.QueueElement;
+
+/**
+ * A lock-free {@link BlockingPriorityDelayQueue}.
+ * <p/>
+ * Each priority has its own shard made of a lock-free ready-list (a <code>ConcurrentLinkedQueue</code>) holding the
+ * elements whose delay has expired. Elements are consumed from the higher priority ready-lists first, within a
+ * ready-list elements are consumed in the order they became ready.
+ * <p/>
+ * Delayed elements are kept in a hashed timer-wheel with {@link #TICK} millisecond ticks. Elements with a delay longer
+ * than the wheel span stay in their bucket until the wheel reaches their tick on a later revolution. The wheel cursor
+ * is moved before its buckets are scanned, an element added to a bucket the cursor has gone past is moved to its
+ * ready-list by the thread adding it.
+ * <p/>
+ * The timer-wheel advance and the anti-starvation check are performed on polling and peeking operations by the first
+ * thread that finds them due, other threads do not wait for it. The anti-starvation semantics are the same of the
+ * {@link PriorityDelayQueue}, an element that has been ready for more than the maximum wait time is promoted to the
+ * next higher priority ready-list. The check is performed, the most every 1/2 second.
+ */
+public class ShardedPriorityDelayQueue<E> extends AbstractQueue<QueueElement<E>>
+        implements BlockingPriorityDelayQueue<E> {
+
+    /**
+     * Duration, in milliseconds, of a timer-wheel tick.
+     */
+    public static final long TICK = 1;
+
+    /**
+     * Number of buckets of the timer-wheel, it must be a power of 2.
+     */
+    public static final int WHEEL_SIZE = 1024;
+
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    private int priorities;
+    private ConcurrentLinkedQueue<QueueElement<E>>[] readyLists;
+    private ConcurrentLinkedQueue<QueueElement<E>>[] wheel;
+    private AtomicInteger[] prioritySizes;
+    private AtomicInteger currentSize = new AtomicInteger();
+    private AtomicInteger delayedSize = new AtomicInteger();
+    private int maxSize;
+    private long maxWait;
+
+    private final AtomicBoolean maintenance = new AtomicBoolean();
+    private volatile long processedTick;
+    private volatile long lastAntiStarvationCheck = 0;
+
+    /**
+     * Create a <code>ShardedPriorityDelayQueue</code>.
+     *
+     * @param priorities number of priorities the queue will support.
+     * @param maxWait max wait time for elements before they are promoted to the next higher priority.
+     * @param unit time unit of the max wait time.
+     * @param maxSize maximum size of the queue, -1 means unbounded.
+     */
+    @SuppressWarnings("unchecked")
+    public ShardedPriorityDelayQueue(int priorities, long maxWait, TimeUnit unit, int maxSize) {
+        if (priorities < 1) {
+            throw new IllegalArgumentException("priorities must be 1 or more");
+        }
+        if (maxWait < 0) {
+            throw new IllegalArgumentException("maxWait must be greater than 0");
+        }
+        if (maxSize < -1 || maxSize == 0) {
+            throw new IllegalArgumentException("maxSize must be -1 or greater than 0");
+        }
+        this.priorities = priorities;
+        this.maxWait = unit.toMillis(maxWait);
+        this.maxSize = maxSize;
+        readyLists = new ConcurrentLinkedQueue[priorities];
+        prioritySizes = new AtomicInteger[priorities];
+        for (int i = 0; i < priorities; i++) {
+            readyLists[i] = new ConcurrentLinkedQueue<QueueElement<E>>();
+            prioritySizes[i] = new AtomicInteger();
+        }
+        wheel = new ConcurrentLinkedQueue[WHEEL_SIZE];
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<QueueElement<E>>();
+        }
+        processedTick = tick(System.currentTimeMillis()) - 1;
+    }
+
+    private static long tick(long time) {
+        return time / TICK;
+    }
+
+    /**
+     * Return number of priorities the queue supports.
+     *
+     * @return number of priorities the queue supports.
+     */
+    public int getPriorities() {
+        return priorities;
+    }
+
+    /**
+     * Return the max wait time for elements before they are promoted to the next higher priority.
+     *
+     * @param unit time unit of the max wait time.
+     *
+     * @return the max wait time in the specified time unit.
+     */
+    public long getMaxWait(TimeUnit unit) {
+        return unit.convert(maxWait, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Return the maximum queue size.
+     *
+     * @return the maximum queue size. If <code>-1</code> the queue is unbounded.
+     */
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Return an iterator over all the {@link QueueElement} elements (both expired and unexpired) in this queue. The
+     * iterator does not return the elements in any particular order and it is "weakly consistent".
+     *
+     * @return an iterator over the {@link QueueElement} elements in this queue.
+     */
+    @Override
+    public Iterator<QueueElement<E>> iterator() {
+        List<QueueElement<E>> list = new ArrayList<QueueElement<E>>();
+        for (ConcurrentLinkedQueue<QueueElement<E>> readyList : readyLists) {
+            list.addAll(readyList);
+        }
+        for (ConcurrentLinkedQueue<QueueElement<E>> bucket : wheel) {
+            list.addAll(bucket);
+        }
+        return list.iterator();
+    }
+
+    /**
+     * Return the number of elements in the queue.
+     *
+     * @return the number of elements in the queue.
+     */
+    @Override
+    public int size() {
+        return currentSize.get();
+    }
+
+    /**
+     * Return the number of elements on each priority shard, both expired and unexpired.
+     *
+     * @return the number of elements on each priority shard.
+     */
+    @Override
+    public int[] sizes() {
+        int[] sizes = new int[priorities];
+        for (int i = 0; i < priorities; i++) {
+            sizes[i] = prioritySizes[i].get();
+        }
+        return sizes;
+    }
+
+    /**
+     * Insert the specified {@link QueueElement} element into the queue.
+     *
+     * @param queueElement the {@link QueueElement} element to add.
+     * @param ignoreSize if the queue is bound to a maximum size and the maximum size is reached, this parameter (if set
+     * to <tt>true</tt>) allows to ignore the maximum size and add the element to the queue.
+     *
+     * @return <tt>true</tt> if the element has been inserted, <tt>false</tt> if the element was not inserted (the queue
+     *         has reached its maximum size).
+     *
+     * @throws NullPointerException if the specified element is null
+     */
+    boolean offer(QueueElement<E> queueElement, boolean ignoreSize) {
+        if (queueElement == null) {
+            throw new NullPointerException("queueElement is NULL");
+        }
+        if (queueElement.getPriority() < 0 || queueElement.getPriority() >= priorities) {
+            throw new IllegalArgumentException("priority out of range");
+        }
+        if (queueElement.isInQueue()) {
+            throw new IllegalStateException("queueElement already in a queue");
+        }
+        if (ignoreSize || maxSize == -1) {
+            currentSize.incrementAndGet();
+        }
+        else {
+            int size;
+            do {
+                size = currentSize.get();
+                if (size >= maxSize) {
+                    debug("offer([{0}]), rejected, queue full", queueElement.getElement().toString());
+                    return false;
+                }
+            } while (!currentSize.compareAndSet(size, size + 1));
+        }
+        queueElement.setInQueue(true);
+        prioritySizes[queueElement.getPriority()].incrementAndGet();
+
+        long elementTick = tick(queueElement.getBaseTime());
+        if (elementTick <= processedTick) {
+            readyLists[queueElement.getPriority()].offer(queueElement);
+        }
+        else {
+            ConcurrentLinkedQueue<QueueElement<E>> bucket = wheel[(int) (elementTick & WHEEL_MASK)];
+            delayedSize.incrementAndGet();
+            bucket.offer(queueElement);
+            // the cursor may have gone past the element tick while it was being added to the bucket, the bucket may
+            // have already been scanned
+            if (elementTick <= processedTick && bucket.remove(queueElement)) {
+                delayedSize.decrementAndGet();
+                readyLists[queueElement.getPriority()].offer(queueElement);
+            }
+        }
+        debug("offer([{0}]), to P[{1}] delay[{2}ms] accepted[true]", queueElement.getElement().toString(),
+              queueElement.getPriority(), queueElement.getDelay(TimeUnit.MILLISECONDS));
+        return true;
+    }
+
+    /**
+     * Insert the specified element into the queue.
+     *
+     * @param queueElement the {@link QueueElement} element to add.
+     * @return <tt>true</tt> if the element has been inserted, <tt>false</tt> if the element was not inserted (the queue
+     *         has reached its maximum size).
+     *
+     * @throws NullPointerException if the specified element is null
+     */
+    @Override
+    public boolean offer(QueueElement<E> queueElement) {
+        return offer(queueElement, false);
+    }
+
+    /**
+     * Insert the specified element into the queue, see {@link #offer(QueueElement)}.
+     *
+     * @param queueElement the {@link QueueElement} element to add.
+     * @return <tt>true</tt> if the element has been inserted, <tt>false</tt> if the element was not inserted (the queue
+     *         has reached its maximum size).
+     */
+    @Override
+    public boolean add(QueueElement<E> queueElement) {
+        return offer(queueElement, false);
+    }
+
+    /**
+     * Insert the specified element into the queue ignoring the maximum size.
+     *
+     * @param queueElement the element to add.
+     */
+    @Override
+    public void put(QueueElement<E> queueElement) {
+        offer(queueElement, true);
+    }
+
+    /**
+     * Insert the specified element into the queue ignoring the maximum size, the timeout value is ignored as the
+     * element is added immediately.
+     *
+     * @param queueElement the element to add.
+     * @param timeout ignored.
+     * @param unit ignored.
+     * @return <tt>true</tt>.
+     */
+    @Override
+    public boolean offer(QueueElement<E> queueElement, long timeout, TimeUnit unit) {
+        return offer(queueElement, true);
+    }
+
+    /**
+     * Retrieve and remove the head of this queue, or return <tt>null</tt> if this queue has no elements with an expired
+     * delay.
+     * <p/>
+     * The retrieved element is the oldest ready one from the highest priority shard.
+     * <p/>
+     * Invocations to this method advance the timer-wheel and run the anti-starvation (once every interval check).
+     *
+     * @return the head of this queue, or <tt>null</tt> if this queue has no elements with an expired delay.
+     */
+    @Override
+    public QueueElement<E> poll() {
+        maintenance();
+        for (int i = priorities - 1; i >= 0; i--) {
+            QueueElement<E> e = readyLists[i].poll();
+            if (e != null) {
+                removed(e);
+                debug("poll(): [{0}], from P[{1}]", e.getElement().toString(), i);
+                return e;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Retrieve, but does not remove, the head of this queue, or returns <tt>null</tt> if this queue is empty.  Unlike
+     * <tt>poll</tt>, if no expired elements are available in the queue, this method returns the element that will
+     * expire next, if one exists.
+     * <p/>
+     * The timer-wheel is scanned in tick order from the cursor and the scan stops at the first tick with elements,
+     * the whole wheel is scanned only if all the delayed elements are beyond the wheel span.
+     *
+     * @return the head of this queue, or <tt>null</tt> if this queue is empty.
+     */
+    @Override
+    public QueueElement<E> peek() {
+        maintenance();
+        for (int i = priorities - 1; i >= 0; i--) {
+            QueueElement<E> e = readyLists[i].peek();
+            if (e != null) {
+                debug("peek(): [{0}], from P[{1}]", e.getElement().toString(), i);
+                return e;
+            }
+        }
+        QueueElement<E> next = null;
+        if (delayedSize.get() > 0) {
+            long from = processedTick + 1;
+            for (long t = from; next == null && t < from + WHEEL_SIZE; t++) {
+                for (QueueElement<E> e : wheel[(int) (t & WHEEL_MASK)]) {
+                    if (tick(e.getBaseTime()) <= t && isBefore(e, next)) {
+                        next = e;
+                    }
+                }
+            }
+            if (next == null) {
+                for (ConcurrentLinkedQueue<QueueElement<E>> bucket : wheel) {
+                    for (QueueElement<E> e : bucket) {
+                        if (isBefore(e, next)) {
+                            next = e;
+                        }
+                    }
+                }
+            }
+        }
+        if (next != null) {
+            debug("peek(): [{0}], from P[{1}]", next.getElement().toString(), next.getPriority());
+        }
+        else {
+            debug("peek(): NULL");
+        }
+        return next;
+    }
+
+    private static <E> boolean isBefore(QueueElement<E> e, QueueElement<E> other) {
+        return other == null || e.getBaseTime() < other.getBaseTime() ||
+               (e.getBaseTime() == other.getBaseTime() && e.getPriority() > other.getPriority());
+    }
+
+    private void removed(QueueElement<E> e) {
+        e.setInQueue(false);
+        prioritySizes[e.getPriority()].decrementAndGet();
+        currentSize.decrementAndGet();
+    }
+
+    /**
+     * Advance the timer-wheel up to the last elapsed tick and run the anti-starvation check every
+     * {@link PriorityDelayQueue#ANTI_STARVATION_INTERVAL} milliseconds.
+     * <p/>
+     * Only one thread performs the maintenance at the time, other threads skip it.
+     */
+    private void maintenance() {
+        long now = System.currentTimeMillis();
+        // last tick whose elements have all expired
+        long limit = tick(now + 1) - 1;
+        boolean antiStarvationDue = now - lastAntiStarvationCheck > PriorityDelayQueue.ANTI_STARVATION_INTERVAL;
+        if ((limit > processedTick || antiStarvationDue) && maintenance.compareAndSet(false, true)) {
+            try {
+                if (limit > processedTick) {
+                    advanceWheel(limit);
+                }
+                if (antiStarvationDue) {
+                    antiStarvation();
+                    lastAntiStarvationCheck = System.currentTimeMillis();
+                }
+            }
+            finally {
+                maintenance.set(false);
+            }
+        }
+    }
+
+    /**
+     * Move to the ready-lists all the elements whose tick is equal or lower than the given tick.
+     * <p/>
+     * The cursor is moved before scanning the buckets, elements added to a bucket after it has been scanned see the
+     * new cursor and move themselves to the ready-lists.
+     *
+     * @param limit last tick to process, it must be fully elapsed.
+     */
+    private void advanceWheel(long limit) {
+        long from = processedTick + 1;
+        long to = Math.min(limit, processedTick + WHEEL_SIZE);
+        processedTick = limit;
+        int moved = 0;
+        for (long t = from; t <= to; t++) {
+            ConcurrentLinkedQueue<QueueElement<E>> bucket = wheel[(int) (t & WHEEL_MASK)];
+            for (QueueElement<E> e : bucket) {
+                if (tick(e.getBaseTime()) <= limit && bucket.remove(e)) {
+                    delayedSize.decrementAndGet();
+                    readyLists[e.getPriority()].offer(e);
+                    moved++;
+                }
+            }
+        }
+        if (moved > 0) {
+            debug("timer-wheel, moved {0} element(s) to ready, ticks [{1}-{2}]", moved, from, limit);
+        }
+    }
+
+    /**
+     * Promote ready elements beyond max wait time to the next higher priority ready-list.
+     */
+    private void antiStarvation() {
+        for (int i = 0; i < priorities - 1; i++) {
+            int moved = 0;
+            ConcurrentLinkedQueue<QueueElement<E>> lowerQ = readyLists[i];
+            QueueElement<E> e = lowerQ.peek();
+            while (e != null && e.getDelay(TimeUnit.MILLISECONDS) < -maxWait) {
+                if (lowerQ.remove(e)) {
+                    prioritySizes[i].decrementAndGet();
+                    e.setDelay(0, TimeUnit.MILLISECONDS);
+                    e.incrPriority();
+                    prioritySizes[i + 1].incrementAndGet();
+                    readyLists[i + 1].offer(e);
+                    moved++;
+                }
+                e = lowerQ.peek();
+            }
+            debug("anti-starvation, moved {0} element(s) from P[{1}] to P[{2}]", moved, i, i + 1);
+        }
+    }
+
+    /**
+     * Method for debugging purposes. This implementation is a <tt>NOP</tt>.
+     * <p/>
+     * This method should be overriden for logging purposes.
+     * <p/>
+     * Message templates used by this class are in JDK's <tt>MessageFormat</tt> syntax.
+     *
+     * @param msgTemplate message template.
+     * @param msgArgs arguments for the message template.
+     */
+    protected void debug(String msgTemplate, Object... msgArgs) {
+    }
+
+    /**
+     * Retrieve and removes the head of this queue, waiting if necessary until an element becomes available.
+     * <p/>
+     * IMPORTANT: This implementation has a delay of up to 10ms (when the queue is empty) to detect a new element
+     * is available. It is doing a 10ms sleep.
+     *
+     * @return the head of this queue
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Override
+    public QueueElement<E> take() throws InterruptedException {
+        QueueElement<E> e = poll();
+        while (e == null) {
+            Thread.sleep(10);
+            e = poll();
+        }
+        return e;
+    }
+
+    /**
+     * Retrieve and removes the head of this queue, waiting up to the specified wait time if necessary for an element
+     * to become available.
+     *
+     * @param timeout how long to wait before giving up, in units of <tt>unit</tt>
+     * @param unit a <tt>TimeUnit</tt> determining how to interpret the <tt>timeout</tt> parameter
+     * @return the head of this queue, or <tt>null</tt> if the specified waiting time elapses before an element is
+     *         available
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Override
+    public QueueElement<E> poll(long timeout, TimeUnit unit) throws InterruptedException {
+        QueueElement<E> e = poll();
+        long time = System.currentTimeMillis() + unit.toMillis(timeout);
+        while (e == null && time > System.currentTimeMillis()) {
+            Thread.sleep(10);
+            e = poll();
+        }
+        return e;
+    }
+
+    /**
+     * Return the number of additional elements that this queue can accept without blocking, or <tt>-1</tt> if the
+     * queue is unbounded.
+     *
+     * @return the remaining capacity
+     */
+    @Override
+    public int remainingCapacity() {
+        return (maxSize == -1) ? -1 : maxSize - size();
+    }
+
+    /**
+     * Remove all available elements from this queue and adds them to the given collection.
+     *
+     * @param c the collection to transfer elements into
+     * @return the number of elements transferred
+     */
+    @Override
+    public int drainTo(Collection<? super QueueElement<E>> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Remove at most the given number of available elements from this queue and adds them to the given collection.
+     *
+     * @param c the collection to transfer elements into
+     * @param maxElements the maximum number of elements to transfer
+     * @return the number of elements transferred
+     */
+    @Override
+    public int drainTo(Collection<? super QueueElement<E>> c, int maxElements) {
+        if (c == this) {
+            throw new IllegalArgumentException("cannot drain a queue to itself");
+        }
+        int count = 0;
+        QueueElement<E> e;
+        while (count < maxElements && (e = poll()) != null) {
+            c.add(e);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Removes all of the elements from this queue. The queue will be empty after this call returns.
+     */
+    @Override
+    public void clear() {
+        for (ConcurrentLinkedQueue<QueueElement<E>> readyList : readyLists) {
+            clear(readyList);
+        }
+        for (ConcurrentLinkedQueue<QueueElement<E>> bucket : wheel) {
+            delayedSize.addAndGet(-clear(bucket));
+        }
+    }
+
+    private int clear(ConcurrentLinkedQueue<QueueElement<E>> q) {
+        int count = 0;
+        QueueElement<E> e = q.poll();
+        while (e != null) {
+            removed(e);
+            count++;
+            e = q.poll();
+        }
+        return count;
+    }
+
+}
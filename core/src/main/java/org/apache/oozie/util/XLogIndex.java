@@ -0,0 +1,370 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Sidecar index of a rotated log file.
+ * <p/>
+ * The index maps the job IDs of the log statements to the byte ranges of the log file holding them, each range tagged
+ * with the time bucket (minute) of its log statements. A log statement, including its continuation lines, is indexed
+ * under all the <code>JOB[...]</code> values of its first line.
+ * <p/>
+ * The index of a log file is stored next to it in the <code>.[LOG_FILE].idx</code> file, it is valid as long as the
+ * size and modification time of the log file are the ones it was built for. Rotated log files are not modified, an
+ * index is built once for them.
+ */
+public class XLogIndex {
+
+    /**
+     * Log info parameter indexed.
+     */
+    public static final String JOB_PARAMETER = "JOB";
+
+    /**
+     * Time bucket of the index, in milliseconds.
+     */
+    public static final long BUCKET = 60 * 1000;
+
+    private static final int MAGIC = 0x4F4C4958;
+    private static final byte VERSION = 1;
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final Pattern RECORD_PATTERN =
+            Pattern.compile("(\\d\\d\\d\\d-\\d\\d-\\d\\d \\d\\d:\\d\\d):\\d\\d,\\d\\d\\d\\s+\\w+\\s+");
+    private static final Pattern JOB_PATTERN = Pattern.compile(" " + JOB_PARAMETER + "\\[([^\\]]*)\\] ");
+
+    /**
+     * Byte range of a log file.
+     */
+    public static class Range {
+        private final long bucket;
+        private final long start;
+        private long end;
+
+        private Range(long bucket, long start, long end) {
+            this.bucket = bucket;
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * Return the time bucket of the log statements in the range.
+         *
+         * @return the time bucket, start of the minute in milliseconds, -1 if unknown.
+         */
+        public long getBucket() {
+            return bucket;
+        }
+
+        /**
+         * Return the offset of the first byte of the range.
+         *
+         * @return the offset of the first byte of the range.
+         */
+        public long getStart() {
+            return start;
+        }
+
+        /**
+         * Return the offset following the last byte of the range.
+         *
+         * @return the offset following the last byte of the range.
+         */
+        public long getEnd() {
+            return end;
+        }
+    }
+
+    /**
+     * Return the index file of a log file.
+     *
+     * @param logFile log file.
+     * @return the index file of the log file.
+     */
+    public static File getIndexFile(File logFile) {
+        return new File(logFile.getParentFile(), "." + logFile.getName() + INDEX_SUFFIX);
+    }
+
+    /**
+     * Index the rotated log files of a log directory that do not have a valid index, and delete the indexes of the log
+     * files that do not exist anymore.
+     *
+     * @param dir log directory.
+     * @param logName name of the active log file, rotated log files start with it.
+     * @return the number of indexed log files.
+     * @throws IOException thrown if a log file could not be indexed.
+     */
+    public static int indexDirectory(File dir, String logName) throws IOException {
+        int indexed = 0;
+        String[] children = dir.list();
+        if (children != null) {
+            for (String name : children) {
+                File file = new File(dir, name);
+                if (name.startsWith(logName) && !name.equals(logName)) {
+                    if (!isIndexed(file)) {
+                        build(file);
+                        indexed++;
+                    }
+                }
+                else {
+                    if (name.startsWith("." + logName) && name.endsWith(INDEX_SUFFIX)) {
+                        String logFileName = name.substring(1, name.length() - INDEX_SUFFIX.length());
+                        if (!new File(dir, logFileName).exists()) {
+                            file.delete();
+                        }
+                    }
+                }
+            }
+        }
+        return indexed;
+    }
+
+    /**
+     * Return if a log file has a valid index.
+     *
+     * @param logFile log file.
+     * @return <code>true</code> if the log file has a valid index.
+     */
+    public static boolean isIndexed(File logFile) {
+        File indexFile = getIndexFile(logFile);
+        if (!indexFile.exists()) {
+            return false;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile), 64));
+            try {
+                return readHeader(in, logFile);
+            }
+            finally {
+                in.close();
+            }
+        }
+        catch (IOException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Build the index of a log file.
+     * <p/>
+     * The index is written to a temporary file and renamed, readers never see a partial index.
+     *
+     * @param logFile log file.
+     * @throws IOException thrown if the log file could not be indexed.
+     */
+    public static void build(File logFile) throws IOException {
+        long length = logFile.length();
+        long lastModified = logFile.lastModified();
+        Map<String, List<Range>> jobs = scan(new FileInputStream(logFile));
+
+        File indexFile = getIndexFile(logFile);
+        File tmpFile = new File(indexFile.getParentFile(), indexFile.getName() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile), 64 * 1024));
+        try {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(length);
+            out.writeLong(lastModified);
+            out.writeInt(jobs.size());
+            for (Map.Entry<String, List<Range>> entry : jobs.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue().size());
+                for (Range range : entry.getValue()) {
+                    out.writeLong(range.bucket);
+                    out.writeLong(range.start);
+                    out.writeLong(range.end);
+                }
+            }
+        }
+        finally {
+            out.close();
+        }
+        indexFile.delete();
+        if (!tmpFile.renameTo(indexFile)) {
+            tmpFile.delete();
+            throw new IOException(XLog.format("Could not rename index file [{0}]", tmpFile));
+        }
+    }
+
+    /**
+     * Return the byte ranges of a log file holding the log statements of a job within a time interval.
+     *
+     * @param logFile log file.
+     * @param jobId job ID.
+     * @param startTime start of the time interval, in milliseconds.
+     * @param endTime end of the time interval, in milliseconds.
+     * @return the byte ranges ordered by offset, <code>null</code> if the log file does not have a valid index.
+     */
+    public static List<Range> getRanges(File logFile, String jobId, long startTime, long endTime) {
+        File indexFile = getIndexFile(logFile);
+        if (!indexFile.exists()) {
+            return null;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile), 64 * 1024));
+            try {
+                if (!readHeader(in, logFile)) {
+                    return null;
+                }
+                List<Range> ranges = new ArrayList<Range>();
+                int jobs = in.readInt();
+                for (int i = 0; i < jobs; i++) {
+                    String job = in.readUTF();
+                    int count = in.readInt();
+                    if (job.equals(jobId)) {
+                        for (int j = 0; j < count; j++) {
+                            Range range = new Range(in.readLong(), in.readLong(), in.readLong());
+                            if (range.bucket < 0 || (range.bucket + BUCKET > startTime && range.bucket <= endTime)) {
+                                ranges.add(range);
+                            }
+                        }
+                        break;
+                    }
+                    in.skipBytes(count * 24);
+                }
+                return ranges;
+            }
+            finally {
+                in.close();
+            }
+        }
+        catch (IOException ex) {
+            XLog.getLog(XLogIndex.class).warn("Could not read log index [{0}], {1}", indexFile, ex.getMessage());
+            return null;
+        }
+    }
+
+    private static boolean readHeader(DataInputStream in, File logFile) throws IOException {
+        return in.readInt() == MAGIC && in.readByte() == VERSION && in.readLong() == logFile.length()
+                && in.readLong() == logFile.lastModified();
+    }
+
+    /**
+     * Scan a log, the ranges of the log statements of each job are merged when contiguous and in the same bucket.
+     */
+    static Map<String, List<Range>> scan(InputStream is) throws IOException {
+        Scanner scanner = new Scanner();
+        byte[] buffer = new byte[64 * 1024];
+        byte[] line = new byte[1024];
+        int lineLength = 0;
+        long offset = 0;
+        try {
+            int read = is.read(buffer);
+            while (read != -1) {
+                for (int i = 0; i < read; i++) {
+                    if (lineLength == line.length) {
+                        byte[] newLine = new byte[line.length * 2];
+                        System.arraycopy(line, 0, newLine, 0, lineLength);
+                        line = newLine;
+                    }
+                    line[lineLength++] = buffer[i];
+                    if (buffer[i] == '\n') {
+                        scanner.line(line, lineLength, offset);
+                        offset += lineLength;
+                        lineLength = 0;
+                    }
+                }
+                read = is.read(buffer);
+            }
+            if (lineLength > 0) {
+                scanner.line(line, lineLength, offset);
+                offset += lineLength;
+            }
+        }
+        finally {
+            is.close();
+        }
+        return scanner.finish(offset);
+    }
+
+    private static class Scanner {
+        private final Map<String, List<Range>> jobs = new LinkedHashMap<String, List<Range>>();
+        private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+        private final Set<String> recordJobs = new HashSet<String>();
+        private String minute;
+        private long bucket = -1;
+        private long recordStart;
+
+        private void line(byte[] line, int length, long offset) throws IOException {
+            String text = new String(line, 0, length, "ISO-8859-1");
+            Matcher matcher = RECORD_PATTERN.matcher(text);
+            if (matcher.lookingAt()) {
+                addRecord(offset);
+                recordStart = offset;
+                if (!matcher.group(1).equals(minute)) {
+                    minute = matcher.group(1);
+                    try {
+                        bucket = dateFormat.parse(minute).getTime();
+                    }
+                    catch (ParseException ex) {
+                        bucket = -1;
+                    }
+                }
+                Matcher jobMatcher = JOB_PATTERN.matcher(text);
+                while (jobMatcher.find()) {
+                    String job = jobMatcher.group(1);
+                    if (job.length() > 0 && !job.equals("-")) {
+                        recordJobs.add(job);
+                    }
+                }
+            }
+        }
+
+        private Map<String, List<Range>> finish(long offset) {
+            addRecord(offset);
+            return jobs;
+        }
+
+        private void addRecord(long end) {
+            if (end > recordStart) {
+                for (String job : recordJobs) {
+                    List<Range> ranges = jobs.get(job);
+                    if (ranges == null) {
+                        ranges = new ArrayList<Range>();
+                        jobs.put(job, ranges);
+                    }
+                    Range last = (ranges.isEmpty()) ? null : ranges.get(ranges.size() - 1);
+                    if (last != null && last.end == recordStart && last.bucket == bucket) {
+                        last.end = end;
+                    }
+                    else {
+                        ranges.add(new Range(bucket, recordStart, end));
+                    }
+                }
+            }
+            recordJobs.clear();
+        }
+    }
+
+}
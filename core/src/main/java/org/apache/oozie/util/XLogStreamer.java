@@ -19,6 +19,9 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
@@ -80,6 +83,7 @@ public class XLogStreamer {
                     }
                     this.logLevels.put(levels[i].toUpperCase(), 1);
                 }
+                filterPattern = null;
             }
         }
 
@@ -87,9 +91,21 @@ public class XLogStreamer {
             if (filterParams.containsKey(filterParam)) {
                 noFilter = false;
                 filterParams.put(filterParam, value);
+                filterPattern = null;
             }
         }
 
+        /**
+         * Return the value of a filter parameter.
+         *
+         * @param filterParam filter parameter.
+         * @return the value set for the parameter, <code>null</code> if not set.
+         */
+        public String getParameter(String filterParam) {
+            String value = filterParams.get(filterParam);
+            return (DEFAULT_REGEX.equals(value)) ? null : value;
+        }
+
         public static void defineParameter(String filterParam) {
             parameters.add(filterParam);
         }
@@ -141,9 +157,12 @@ public class XLogStreamer {
 
         /**
          * Constructs the regular expression according to the filter and assigns it to fileterPattarn. ".*" will be
-         * assigned if no filters are set.
+         * assigned if no filters are set. The pattern is constructed again only if the filter changed.
          */
         public void constructPattern() {
+            if (filterPattern != null) {
+                return;
+            }
             if (noFilter && logLevels == null) {
                 filterPattern = Pattern.compile(ALLOW_ALL_REGEX);
                 return;
@@ -188,6 +207,9 @@ public class XLogStreamer {
     /**
      * Gets the files that are modified between startTime and endTime in the given logPath and streams the log after
      * applying the filters.
+     * <p/>
+     * If the filter is for a job, the rotated log files having a valid {@link XLogIndex} are not scanned, only the
+     * byte ranges holding the log statements of the job are read.
      *
      * @param startTime
      * @param endTime
@@ -207,11 +229,100 @@ public class XLogStreamer {
         }
         File dir = new File(logPath);
         ArrayList<FileInfo> fileList = getFileList(dir, startTimeMillis, endTimeMillis, logRotation, logFile);
+        String jobId = (logFilter != null) ? logFilter.getParameter(XLogIndex.JOB_PARAMETER) : null;
         for (int i = 0; i < fileList.size(); i++) {
-            InputStream ifs;
-            ifs = new FileInputStream(fileList.get(i).getFileName());
-            XLogReader logReader = new XLogReader(ifs, logFilter, logWriter);
-            logReader.processLog();
+            File file = new File(fileList.get(i).getFileName());
+            List<XLogIndex.Range> ranges = null;
+            if (jobId != null && !file.getName().equals(logFile)) {
+                ranges = XLogIndex.getRanges(file, jobId, startTimeMillis - logRotation, endTimeMillis + logRotation);
+            }
+            if (ranges != null) {
+                streamRanges(file, ranges);
+            }
+            else {
+                InputStream ifs;
+                ifs = new FileInputStream(file);
+                try {
+                    XLogReader logReader = new XLogReader(ifs, logFilter, logWriter);
+                    logReader.processLog();
+                }
+                finally {
+                    ifs.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Streams the given byte ranges of an indexed log file, the log file is memory mapped.
+     *
+     * @param file log file.
+     * @param ranges byte ranges ordered by offset.
+     * @throws IOException
+     */
+    private void streamRanges(File file, List<XLogIndex.Range> ranges) throws IOException {
+        if (ranges.isEmpty()) {
+            return;
+        }
+        FileInputStream fis = new FileInputStream(file);
+        try {
+            FileChannel channel = fis.getChannel();
+            long size = channel.size();
+            MappedByteBuffer mapped = (size <= Integer.MAX_VALUE)
+                    ? channel.map(FileChannel.MapMode.READ_ONLY, 0, size) : null;
+            int i = 0;
+            while (i < ranges.size()) {
+                long start = ranges.get(i).getStart();
+                long end = ranges.get(i).getEnd();
+                // contiguous ranges are streamed together
+                for (i++; i < ranges.size() && ranges.get(i).getStart() == end; i++) {
+                    end = ranges.get(i).getEnd();
+                }
+                ByteBuffer buffer;
+                if (mapped != null) {
+                    buffer = mapped.duplicate();
+                    buffer.limit((int) end).position((int) start);
+                }
+                else {
+                    buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+                }
+                XLogReader logReader = new XLogReader(new ByteBufferInputStream(buffer), logFilter, logWriter);
+                logReader.processLog();
+            }
+        }
+        finally {
+            fis.close();
+        }
+    }
+
+    /**
+     * InputStream reading the remaining bytes of a byte buffer.
+     */
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        public ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return (buffer.hasRemaining()) ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            len = Math.min(len, buffer.remaining());
+            buffer.get(b, off, len);
+            return len;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
         }
     }
 
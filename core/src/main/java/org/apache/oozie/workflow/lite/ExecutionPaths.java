@@ -0,0 +1,188 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.workflow.lite;
+
+import java.util.Arrays;
+
+/**
+ * Execution paths of a workflow instance, kept in parallel arrays.
+ * <p/>
+ * An execution path is encoded as the node IDs of the fork transitions leading to it, the root path is the empty
+ * array. For each path the store keeps the ID of the node the path is at and whether that node has been started.
+ * <p/>
+ * Paths are looked up through an open addressing table of positions indexed by path hash. Removing a path moves the
+ * last path into its position, positions are valid until the next removal.
+ */
+class ExecutionPaths {
+    static final int[] ROOT = new int[0];
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    private int[][] paths = new int[INITIAL_CAPACITY][];
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    private int[] nodes = new int[INITIAL_CAPACITY];
+    private boolean[] started = new boolean[INITIAL_CAPACITY];
+    private int size;
+
+    // position + 1 of the paths, 0 for an empty slot, the table is at least twice the capacity
+    private int[] table = new int[INITIAL_CAPACITY * 2];
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Return the position of a path.
+     *
+     * @param path execution path.
+     * @return the position of the path, <code>-1</code> if not present.
+     */
+    int indexOf(int[] path) {
+        int hash = Arrays.hashCode(path);
+        int mask = table.length - 1;
+        for (int slot = spread(hash) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int index = table[slot] - 1;
+            if (hashes[index] == hash && Arrays.equals(paths[index], path)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Set the node of a path, the path is added if not present. The node is not started.
+     *
+     * @param path execution path.
+     * @param node node ID.
+     * @return the position of the path.
+     */
+    int put(int[] path, int node) {
+        int index = indexOf(path);
+        if (index == -1) {
+            if (size == paths.length) {
+                grow();
+            }
+            index = size++;
+            paths[index] = path;
+            hashes[index] = Arrays.hashCode(path);
+            table[findFreeSlot(hashes[index])] = index + 1;
+        }
+        setNode(index, node);
+        return index;
+    }
+
+    void remove(int index) {
+        removeSlot(findSlot(index));
+        size--;
+        if (index != size) {
+            table[findSlot(size)] = index + 1;
+            paths[index] = paths[size];
+            hashes[index] = hashes[size];
+            nodes[index] = nodes[size];
+            started[index] = started[size];
+        }
+        paths[size] = null;
+    }
+
+    /**
+     * Set the node of the path at a position. The node is not started.
+     *
+     * @param index position of the path.
+     * @param node node ID.
+     */
+    void setNode(int index, int node) {
+        nodes[index] = node;
+        started[index] = false;
+    }
+
+    int[] getPath(int index) {
+        return paths[index];
+    }
+
+    int getNode(int index) {
+        return nodes[index];
+    }
+
+    boolean isStarted(int index) {
+        return started[index];
+    }
+
+    void setStarted(int index, boolean value) {
+        started[index] = value;
+    }
+
+    static int[] createChildPath(int[] path, int node) {
+        int[] child = Arrays.copyOf(path, path.length + 1);
+        child[path.length] = node;
+        return child;
+    }
+
+    static int[] getParentPath(int[] path) {
+        return (path.length == 0) ? null : Arrays.copyOf(path, path.length - 1);
+    }
+
+    // paths of the same fork differ in their last node ID only, their hashes are consecutive
+    private static int spread(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void grow() {
+        int capacity = paths.length * 2;
+        paths = Arrays.copyOf(paths, capacity);
+        hashes = Arrays.copyOf(hashes, capacity);
+        nodes = Arrays.copyOf(nodes, capacity);
+        started = Arrays.copyOf(started, capacity);
+        table = new int[capacity * 2];
+        for (int i = 0; i < size; i++) {
+            table[findFreeSlot(hashes[i])] = i + 1;
+        }
+    }
+
+    private int findFreeSlot(int hash) {
+        int mask = table.length - 1;
+        int slot = spread(hash) & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int findSlot(int index) {
+        int mask = table.length - 1;
+        int slot = spread(hashes[index]) & mask;
+        while (table[slot] != index + 1) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    // empties a slot shifting back the following entries of the probe sequence
+    private void removeSlot(int slot) {
+        int mask = table.length - 1;
+        int next = (slot + 1) & mask;
+        while (table[next] != 0) {
+            int home = spread(hashes[table[next] - 1]) & mask;
+            // the entry can fill the empty slot if the slot lies between its home slot and its current slot
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                table[slot] = table[next];
+                slot = next;
+            }
+            next = (next + 1) & mask;
+        }
+        table[slot] = 0;
+    }
+
+}
@@ -28,15 +28,22 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 //TODO javadoc
 public class LiteWorkflowApp implements Writable, WorkflowApp {
     private String name;
     private String definition;
     private Map<String, NodeDef> nodesMap = new LinkedHashMap<String, NodeDef>();
+    // node IDs are the positions of the nodes in the definition, instances keep their execution state by node ID
+    private Map<String, Integer> nodeIds = new HashMap<String, Integer>();
+    private List<NodeDef> nodes = new ArrayList<NodeDef>();
+    private List<Set<String>> nodeTransitions = new ArrayList<Set<String>>();
     private boolean complete = false;
 
     LiteWorkflowApp() {
@@ -45,7 +52,7 @@ public class LiteWorkflowApp implements Writable, WorkflowApp {
     public LiteWorkflowApp(String name, String definition, StartNodeDef startNode) {
         this.name = ParamChecker.notEmpty(name, "name");
         this.definition = ParamChecker.notEmpty(definition, "definition");
-        nodesMap.put(StartNodeDef.START, startNode);
+        putNode(StartNodeDef.START, startNode);
     }
 
     public boolean equals(LiteWorkflowApp other) {
@@ -70,7 +77,7 @@ public class LiteWorkflowApp implements Writable, WorkflowApp {
             throw new WorkflowException(ErrorCode.E0706,
                                         XLog.format("Node [{0}] cannot transition to itself", node.getName()));
         }
-        nodesMap.put(node.getName(), node);
+        putNode(node.getName(), node);
         if (node instanceof EndNodeDef) {
             complete = true;
         }
@@ -93,6 +100,37 @@ public class LiteWorkflowApp implements Writable, WorkflowApp {
         return nodesMap.get(name);
     }
 
+    /**
+     * Return the ID of a node, its position in the definition.
+     * <p/>
+     * Node IDs are stable across serialization, the nodes are written and read in definition order.
+     *
+     * @param name node name.
+     * @return the node ID, <code>-1</code> if the definition has no such node.
+     */
+    public int getNodeId(String name) {
+        Integer id = nodeIds.get(name);
+        return (id != null) ? id : -1;
+    }
+
+    /**
+     * Return a node by ID.
+     *
+     * @param id node ID.
+     * @return the node.
+     */
+    public NodeDef getNode(int id) {
+        return nodes.get(id);
+    }
+
+    private void putNode(String name, NodeDef node) {
+        nodesMap.put(name, node);
+        nodeIds.put(name, nodes.size());
+        nodes.add(node);
+        // a fork node may have hundreds of transitions
+        nodeTransitions.add(new HashSet<String>(node.getTransitions()));
+    }
+
     public void validateWorkflowIntegrity() {
         //TODO traverse wf, ensure there are not cycles, no open paths, and one END
     }
@@ -100,8 +138,8 @@ public class LiteWorkflowApp implements Writable, WorkflowApp {
     public void validateTransition(String name, String transition) {
         ParamChecker.notEmpty(name, "name");
         ParamChecker.notEmpty(transition, "transition");
-        NodeDef node = getNode(name);
-        if (!node.getTransitions().contains(transition)) {
+        int id = getNodeId(name);
+        if (id == -1 || !nodeTransitions.get(id).contains(transition)) {
             throw new IllegalArgumentException("invalid transition");
         }
     }
@@ -14,6 +14,9 @@
  */
 package org.apache.oozie.workflow.lite;
 
+import org.apache.oozie.service.DBLiteWorkflowStoreService;
+import org.apache.oozie.service.Services;
+import org.apache.oozie.service.WorkflowStoreService;
 import org.apache.oozie.service.XLogService;
 import org.apache.oozie.service.DagXLogInfoService;
 import org.apache.oozie.client.OozieClient;
@@ -23,7 +26,11 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.oozie.workflow.WorkflowApp;
 import org.apache.oozie.workflow.WorkflowException;
 import org.apache.oozie.workflow.WorkflowInstance;
+import org.apache.oozie.util.CompactMap;
+import org.apache.oozie.util.IOUtils;
+import org.apache.oozie.util.LRUCache;
 import org.apache.oozie.util.ParamChecker;
+import org.apache.oozie.util.WritableUtils;
 import org.apache.oozie.util.XLog;
 import org.apache.oozie.util.XConfiguration;
 import org.apache.oozie.ErrorCode;
@@ -33,38 +40,66 @@ import java.io.DataOutput;
 import java.io.IOException;
 import java.io.ByteArrayOutputStream;
 import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 
 //TODO javadoc
 public class LiteWorkflowInstance implements Writable, WorkflowInstance {
     private static final String TRANSITION_TO = "transition.to";
 
+    private static final int FORMAT_MARKER = 0xFFFF;
+    private static final int FORMAT_VERSION = 2;
+    // execution paths keyed by node name instead of node ID
+    private static final int FORMAT_VERSION_NODE_NAMES = 1;
+    private static final int FLAG_APP_COMPRESSED = 1;
+    private static final int FLAG_CONF_COMPRESSED = 2;
+
+    private static final int LOG_USER = 0;
+    private static final int LOG_GROUP = 1;
+    private static final int LOG_APP = 2;
+    private static final int LOG_TOKEN = 3;
+    private static final int LOG_INFO_SIZE = 4;
+
+    private static final String UTF8 = "UTF-8";
+
     private XLog log;
 
     private static String PATH_SEPARATOR = "/";
     private static String ROOT = PATH_SEPARATOR;
     private static String TRANSITION_SEPARATOR = "#";
 
-    private static class NodeInstance {
-        String nodeName;
-        boolean started = false;
+    // execution path as written by the formats keyed by node name
+    private static class NamedPath {
+        private final String path;
+        private final String nodeName;
+        private final boolean started;
 
-        private NodeInstance(String nodeName) {
+        private NamedPath(String path, String nodeName, boolean started) {
+            this.path = path;
             this.nodeName = nodeName;
+            this.started = started;
         }
     }
 
     private class Context implements NodeHandler.Context {
         private NodeDef nodeDef;
+        private int[] path;
+        // string form of the path, created on first use
         private String executionPath;
         private String exitState;
         private Status status = Status.RUNNING;
+        private boolean pathDeleted = false;
 
-        private Context(NodeDef nodeDef, String executionPath, String exitState) {
+        private Context(NodeDef nodeDef, int[] path, String executionPath, String exitState) {
             this.nodeDef = nodeDef;
+            this.path = path;
             this.executionPath = executionPath;
             this.exitState = exitState;
         }
@@ -74,6 +109,9 @@ public class LiteWorkflowInstance implements Writable, WorkflowInstance {
         }
 
         public String getExecutionPath() {
+            if (executionPath == null && path != null) {
+                executionPath = formatPath(path);
+            }
             return executionPath;
         }
 
@@ -86,7 +124,7 @@ public class LiteWorkflowInstance implements Writable, WorkflowInstance {
         }
 
         public String createExecutionPath(String name) {
-            return LiteWorkflowInstance.createChildPath(executionPath, name);
+            return LiteWorkflowInstance.createChildPath(getExecutionPath(), name);
         }
 
         public String createFullTransition(String executionPath, String transition) {
@@ -94,11 +132,14 @@ public class LiteWorkflowInstance implements Writable, WorkflowInstance {
         }
 
         public void deleteExecutionPath() {
-            if (!executionPaths.containsKey(executionPath)) {
+            int index = executionPaths.indexOf(path);
+            if (index == -1) {
                 throw new IllegalStateException();
             }
-            executionPaths.remove(executionPath);
-            executionPath = LiteWorkflowInstance.getParentPath(executionPath);
+            executionPaths.remove(index);
+            path = ExecutionPaths.getParentPath(path);
+            executionPath = null;
+            pathDeleted = true;
         }
 
         public void failJob() {
@@ -144,9 +185,20 @@ public class LiteWorkflowInstance implements Writable, WorkflowInstance {
     private Configuration conf;
     private String instanceId;
     private Status status;
-    private Map<String, NodeInstance> executionPaths = new HashMap<String, NodeInstance>();
-    private Map<String, String> persistentVars = new HashMap<String, String>();
-    private Map<String, Object> transientVars = new HashMap<String, Object>();
+    private ExecutionPaths executionPaths = new ExecutionPaths();
+    private Map<String, String> persistentVars = new CompactMap<String>();
+    private Map<String, Object> transientVars = new CompactMap<Object>();
+
+    // user, group, app name and log token, they are kept with the execution state so the log context can be set
+    // without decoding the configuration and the definition
+    private String[] logInfo;
+
+    // serialized definition and configuration, decoded on first use
+    private String appDigest;
+    private byte[] appBytes;
+    private boolean appCompressed;
+    private byte[] confBytes;
+    private boolean confCompressed;
 
     protected LiteWorkflowInstance() {
         log = XLog.getLog(getClass());
@@ -157,6 +209,8 @@ public class LiteWorkflowInstance implements Writable, WorkflowInstance {
         this.def = ParamChecker.notNull(def, "def");
         this.instanceId = ParamChecker.notNull(instanceId, "instanceId");
         this.conf = ParamChecker.notNull(conf, "conf");
+        logInfo = new String[]{conf.get(OozieClient.USER_NAME), conf.get(OozieClient.GROUP_NAME), def.getName(),
+                conf.get(OozieClient.LOG_TOKEN, "")};
         refreshLog();
         status = Status.PREP;
     }
@@ -167,8 +221,8 @@ public class LiteWorkflowInstance implements Writable, WorkflowInstance {
         }
         log.debug(XLog.STD, "Starting job");
         status = Status.RUNNING;
-        executionPaths.put(ROOT, new NodeInstance(StartNodeDef.START));
-        return signal(ROOT, StartNodeDef.START);
+        executionPaths.put(ExecutionPaths.ROOT, getDef().getNodeId(StartNodeDef.START));
+        return signal(ExecutionPaths.ROOT, ROOT, StartNodeDef.START);
     }
 
     //todo if suspended store signal and use when resuming
@@ -176,33 +230,34 @@ public class LiteWorkflowInstance implements Writable, WorkflowInstance {
     public synchronized boolean signal(String executionPath, String signalValue) throws WorkflowException {
         ParamChecker.notEmpty(executionPath, "executionPath");
         ParamChecker.notNull(signalValue, "signalValue");
+        return signal(parsePath(executionPath), executionPath, signalValue);
+    }
+
+    // the path is null if the execution path string is not valid for the definition
+    private boolean signal(int[] path, String executionPath, String signalValue) throws WorkflowException {
         log.debug(XLog.STD, "Signaling job execution path [{0}] signal value [{1}]", executionPath, signalValue);
         if (status != Status.RUNNING) {
             throw new WorkflowException(ErrorCode.E0716);
         }
-        NodeInstance nodeJob = executionPaths.get(executionPath);
-        if (nodeJob == null) {
+        int index = (path != null) ? executionPaths.indexOf(path) : -1;
+        if (index == -1) {
             status = Status.FAILED;
             log.error("invalid execution path [{0}]", executionPath);
         }
-        NodeDef nodeDef = null;
-        if (!status.isEndState()) {
-            nodeDef = def.getNode(nodeJob.nodeName);
-            if (nodeDef == null) {
-                status = Status.FAILED;
-                log.error("invalid transition [{0}]", nodeJob.nodeName);
-            }
-        }
         if (!status.isEndState()) {
+            NodeDef nodeDef = getDef().getNode(executionPaths.getNode(index));
             NodeHandler nodeHandler = newInstance(nodeDef.getHandlerClass());
             boolean exiting = true;
 
-            Context context = new Context(nodeDef, executionPath, signalValue);
-            if (!nodeJob.started) {
+            Context context = new Context(nodeDef, path, executionPath, signalValue);
+            if (!executionPaths.isStarted(index)) {
                 try {
                     nodeHandler.loopDetection(context);
                     exiting = nodeHandler.enter(context);
-                    nodeJob.started = true;
+                    // a join node deletes the execution paths of all but the last branch on enter
+                    if (!context.pathDeleted) {
+                        executionPaths.setStarted(index, true);
+                    }
                 }
                 catch (WorkflowException ex) {
                     status = Status.FAILED;
@@ -211,7 +266,6 @@ public class LiteWorkflowInstance implements Writable, WorkflowInstance {
             }
 
             if (exiting) {
-                List<String> pathsToStart = new ArrayList<String>();
                 List<String> fullTransitions;
                 try {
                     fullTransitions = nodeHandler.multiExit(context);
@@ -231,25 +285,27 @@ public class LiteWorkflowInstance implements Writable, WorkflowInstance {
 
                 if (context.status == Status.KILLED) {
                     status = Status.KILLED;
-                    log.debug(XLog.STD, "Completing job, kill node [{0}]", nodeJob.nodeName);
+                    log.debug(XLog.STD, "Completing job, kill node [{0}]", nodeDef.getName());
                 }
                 else {
                     if (context.status == Status.FAILED) {
                         status = Status.FAILED;
-                        log.debug(XLog.STD, "Completing job, fail node [{0}]", nodeJob.nodeName);
+                        log.debug(XLog.STD, "Completing job, fail node [{0}]", nodeDef.getName());
                     }
                     else {
                         if (context.status == Status.SUCCEEDED) {
                             status = Status.SUCCEEDED;
-                            log.debug(XLog.STD, "Completing job, end node [{0}]", nodeJob.nodeName);
+                            log.debug(XLog.STD, "Completing job, end node [{0}]", nodeDef.getName());
                         }
 /*
                 else if (context.status == Status.SUSPENDED) {
                     status = Status.SUSPENDED;
-                    log.debug(XLog.STD, "Completing job, end node [{0}]", nodeJob.nodeName);
+                    log.debug(XLog.STD, "Completing job, end node [{0}]", nodeDef.getName());
                 }
 */
                         else {
+                            List<int[]> pathsToStart = new ArrayList<int[]>(fullTransitions.size());
+                            List<String> pathNamesToStart = new ArrayList<String>(fullTransitions.size());
                             for (String fullTransition : fullTransitions) {
                                 // this is the whole trick for forking, we need the
                                 // executionpath and the transition
@@ -257,15 +313,34 @@ public class LiteWorkflowInstance implements Writable, WorkflowInstance {
                                 // executionpath is different from transition
                                 // in the case of forking they are the same
 
-                                log.debug(XLog.STD, "Exiting node [{0}] with transition[{1}]", nodeJob.nodeName,
+                                log.debug(XLog.STD, "Exiting node [{0}] with transition[{1}]", nodeDef.getName(),
                                           fullTransition);
 
                                 String execPathFromTransition = getExecutionPath(fullTransition);
                                 String transition = getTransitionNode(fullTransition);
-                                def.validateTransition(nodeJob.nodeName, transition);
-
-                                NodeInstance nodeJobInPath = executionPaths.get(execPathFromTransition);
-                                if ((nodeJobInPath == null) || (!transition.equals(nodeJobInPath.nodeName))) {
+                                getDef().validateTransition(nodeDef.getName(), transition);
+
+                                // without forking the transition is in the execution path of the node
+                                int[] pathFromTransition = (execPathFromTransition.equals(context.executionPath))
+                                        ? context.path : parsePath(execPathFromTransition);
+                                if (pathFromTransition == null) {
+                                    status = Status.FAILED;
+                                    log.error("invalid execution path [{0}]", execPathFromTransition);
+                                    break;
+                                }
+                                int indexInPath = (pathFromTransition == context.path && !context.pathDeleted)
+                                        ? index : executionPaths.indexOf(pathFromTransition);
+                                int transitionNode = getDef().getNodeId(transition);
+                                if (transitionNode == -1) {
+                                    // the node has exited, it is not terminated with the workflow
+                                    if (indexInPath != -1) {
+                                        executionPaths.setStarted(indexInPath, false);
+                                    }
+                                    status = Status.FAILED;
+                                    log.error("invalid transition [{0}]", transition);
+                                    break;
+                                }
+                                if ((indexInPath == -1) || (executionPaths.getNode(indexInPath) != transitionNode)) {
                                     // TODO explain this IF better
                                     // If the WfJob is signaled with the parent
                                     // execution executionPath again
@@ -274,14 +349,22 @@ public class LiteWorkflowInstance implements Writable, WorkflowInstance {
                                     // so this is required to prevent that..
                                     // Question : Should we throw an error in this case
                                     // ??
-                                    executionPaths.put(execPathFromTransition, new NodeInstance(transition));
-                                    pathsToStart.add(execPathFromTransition);
+                                    if (indexInPath == -1) {
+                                        executionPaths.put(pathFromTransition, transitionNode);
+                                    }
+                                    else {
+                                        executionPaths.setNode(indexInPath, transitionNode);
+                                    }
+                                    pathsToStart.add(pathFromTransition);
+                                    pathNamesToStart.add(execPathFromTransition);
                                 }
 
                             }
                             // signal all new synch transitions
-                            for (String pathToStart : pathsToStart) {
-                                signal(pathToStart, "::synch::");
+                            if (!status.isEndState()) {
+                                for (int i = 0; i < pathsToStart.size(); i++) {
+                                    signal(pathsToStart.get(i), pathNamesToStart.get(i), "::synch::");
+                                }
                             }
                         }
                     }
@@ -402,17 +485,17 @@ public class LiteWorkflowInstance implements Writable, WorkflowInstance {
 
     private List<String> terminateNodes(Status endStatus) {
         List<String> endNodes = new ArrayList<String>();
-        for (Map.Entry<String, NodeInstance> entry : executionPaths.entrySet()) {
-            if (entry.getValue().started) {
-                NodeDef nodeDef = def.getNode(entry.getValue().nodeName);
+        for (int i = 0; i < executionPaths.size(); i++) {
+            if (executionPaths.isStarted(i)) {
+                NodeDef nodeDef = getDef().getNode(executionPaths.getNode(i));
                 NodeHandler nodeHandler = newInstance(nodeDef.getHandlerClass());
                 try {
                     if (endStatus == Status.KILLED) {
-                        nodeHandler.kill(new Context(nodeDef, entry.getKey(), null));
+                        nodeHandler.kill(new Context(nodeDef, executionPaths.getPath(i), null, null));
                     }
                     else {
                         if (endStatus == Status.FAILED) {
-                            nodeHandler.fail(new Context(nodeDef, entry.getKey(), null));
+                            nodeHandler.fail(new Context(nodeDef, executionPaths.getPath(i), null, null));
                         }
                     }
                     endNodes.add(nodeDef.getName());
@@ -428,16 +511,15 @@ public class LiteWorkflowInstance implements Writable, WorkflowInstance {
 
     private String failNode(String nodeName) {
         String failedNode = null;
-        for (Map.Entry<String, NodeInstance> entry : executionPaths.entrySet()) {
-            String node = entry.getKey();
-            NodeInstance nodeInstance = entry.getValue();
-            if (nodeInstance.started && nodeInstance.nodeName.equals(nodeName)) {
-                NodeDef nodeDef = def.getNode(nodeInstance.nodeName);
+        int node = getDef().getNodeId(nodeName);
+        for (int i = 0; i < executionPaths.size(); i++) {
+            if (executionPaths.isStarted(i) && executionPaths.getNode(i) == node) {
+                NodeDef nodeDef = getDef().getNode(node);
                 NodeHandler nodeHandler = newInstance(nodeDef.getHandlerClass());
                 try {
-                    nodeHandler.fail(new Context(nodeDef, node, null));
+                    nodeHandler.fail(new Context(nodeDef, executionPaths.getPath(i), null, null));
                     failedNode = nodeDef.getName();
-                    nodeInstance.started = false;
+                    executionPaths.setStarted(i, false);
                 }
                 catch (Exception ex) {
                     log.warn(XLog.STD, "Error failing node [{0}]", nodeDef.getName(), ex);
@@ -450,14 +532,12 @@ public class LiteWorkflowInstance implements Writable, WorkflowInstance {
 
     private List<String> killNodes() {
         List<String> killedNodes = new ArrayList<String>();
-        for (Map.Entry<String, NodeInstance> entry : executionPaths.entrySet()) {
-            String node = entry.getKey();
-            NodeInstance nodeInstance = entry.getValue();
-            if (nodeInstance.started) {
-                NodeDef nodeDef = def.getNode(nodeInstance.nodeName);
+        for (int i = 0; i < executionPaths.size(); i++) {
+            if (executionPaths.isStarted(i)) {
+                NodeDef nodeDef = getDef().getNode(executionPaths.getNode(i));
                 NodeHandler nodeHandler = newInstance(nodeDef.getHandlerClass());
                 try {
-                    nodeHandler.kill(new Context(nodeDef, node, null));
+                    nodeHandler.kill(new Context(nodeDef, executionPaths.getPath(i), null, null));
                     killedNodes.add(nodeDef.getName());
                 }
                 catch (Exception ex) {
@@ -469,7 +549,36 @@ public class LiteWorkflowInstance implements Writable, WorkflowInstance {
     }
 
     public LiteWorkflowApp getProcessDefinition() {
-        return def;
+        return getDef();
+    }
+
+    // the path of the root is "/", the path of a forked node is the path of the fork followed by "[node]/"
+    private String formatPath(int[] path) {
+        StringBuilder sb = new StringBuilder(PATH_SEPARATOR);
+        for (int node : path) {
+            sb.append(getDef().getNode(node).getName()).append(PATH_SEPARATOR);
+        }
+        return sb.toString();
+    }
+
+    // returns null if the execution path is not valid for the definition
+    private int[] parsePath(String executionPath) {
+        if (!executionPath.startsWith(PATH_SEPARATOR) || !executionPath.endsWith(PATH_SEPARATOR)) {
+            return null;
+        }
+        LiteWorkflowApp app = getDef();
+        int[] path = ExecutionPaths.ROOT;
+        int start = 1;
+        while (start < executionPath.length()) {
+            int end = executionPath.indexOf(PATH_SEPARATOR, start);
+            int node = app.getNodeId(executionPath.substring(start, end));
+            if (node == -1) {
+                return null;
+            }
+            path = ExecutionPaths.createChildPath(path, node);
+            start = end + 1;
+        }
+        return path;
     }
 
     private static String createChildPath(String path, String child) {
@@ -506,10 +615,10 @@ public class LiteWorkflowInstance implements Writable, WorkflowInstance {
     }
 
     private void refreshLog() {
-        XLog.Info.get().setParameter(XLogService.USER, conf.get(OozieClient.USER_NAME));
-        XLog.Info.get().setParameter(XLogService.GROUP, conf.get(OozieClient.GROUP_NAME));
-        XLog.Info.get().setParameter(DagXLogInfoService.APP, def.getName());
-        XLog.Info.get().setParameter(DagXLogInfoService.TOKEN, conf.get(OozieClient.LOG_TOKEN, ""));
+        XLog.Info.get().setParameter(XLogService.USER, logInfo[LOG_USER]);
+        XLog.Info.get().setParameter(XLogService.GROUP, logInfo[LOG_GROUP]);
+        XLog.Info.get().setParameter(DagXLogInfoService.APP, logInfo[LOG_APP]);
+        XLog.Info.get().setParameter(DagXLogInfoService.TOKEN, logInfo[LOG_TOKEN]);
         XLog.Info.get().setParameter(DagXLogInfoService.JOB, instanceId);
         log = XLog.getLog(getClass());
     }
@@ -522,25 +631,163 @@ public class LiteWorkflowInstance implements Writable, WorkflowInstance {
         this.status = status;
     }
 
+    /**
+     * Serialize the workflow instance.
+     * <p/>
+     * The instance is written in the binary format: a header (marker, version and flags) followed by the execution
+     * state (id, status, log info, execution paths and variables), the definition and the configuration. Execution
+     * paths and their nodes are written as node IDs, so they are read without decoding the definition. The
+     * definition and the configuration are written as length prefixed sections, optionally compressed, so the
+     * execution state can be read without decoding them. The configuration is written as key/value pairs. The
+     * definition is identified by the digest of its serialized form, instances of the same definition share a single
+     * decoded definition.
+     * <p/>
+     * If the definition or the configuration have not been decoded since the instance was read, their serialized form
+     * is written back as is.
+     * <p/>
+     * If {@link DBLiteWorkflowStoreService#CONF_INSTANCE_ORIGINAL_FORMAT} is set the instance is written in the
+     * original format instead, so it can be read by servers that do not support the binary format.
+     *
+     * @param dOut data output.
+     * @throws IOException thrown if the instance could not be written.
+     */
+    @Override
+    public synchronized void write(DataOutput dOut) throws IOException {
+        if (isOriginalFormatEnabled()) {
+            writeOriginalFormat(dOut);
+            return;
+        }
+        boolean compress = isCompressionEnabled();
+        if (appBytes == null) {
+            byte[] array = writeApp(def);
+            appDigest = IOUtils.digest(array);
+            appCompressed = compress;
+            appBytes = (compress) ? deflate(array) : array;
+        }
+        byte[] confArray = confBytes;
+        boolean confArrayCompressed = confCompressed;
+        if (conf != null) {
+            confArray = writeConf(conf);
+            confArrayCompressed = compress;
+            if (compress) {
+                confArray = deflate(confArray);
+            }
+        }
+
+        dOut.writeShort(FORMAT_MARKER);
+        dOut.writeByte(FORMAT_VERSION);
+        dOut.writeByte(((appCompressed) ? FLAG_APP_COMPRESSED : 0) |
+                ((confArrayCompressed) ? FLAG_CONF_COMPRESSED : 0));
+        dOut.writeUTF(instanceId);
+        dOut.writeUTF(status.toString());
+        for (String info : logInfo) {
+            WritableUtils.writeStr(dOut, info);
+        }
+        writeExecutionPaths(dOut);
+        dOut.writeInt(persistentVars.size());
+        for (Map.Entry<String, String> entry : persistentVars.entrySet()) {
+            dOut.writeUTF(entry.getKey());
+            dOut.writeUTF(entry.getValue());
+        }
+        dOut.writeUTF(appDigest);
+        dOut.writeInt(appBytes.length);
+        dOut.write(appBytes);
+        dOut.writeInt(confArray.length);
+        dOut.write(confArray);
+    }
+
+    /**
+     * Deserialize the workflow instance.
+     * <p/>
+     * Both the binary format and the original format (XML configuration followed by the definition and the execution
+     * state) are read. In the binary format the definition and the configuration are decoded on first use, except
+     * for instances written with execution paths keyed by node name, the definition is needed to resolve them.
+     *
+     * @param dIn data input.
+     * @throws IOException thrown if the instance could not be read.
+     */
     @Override
-    public void write(DataOutput dOut) throws IOException {
+    public synchronized void readFields(DataInput dIn) throws IOException {
+        // the original format starts with the instance ID UTF string, its length is never the format marker
+        int marker = dIn.readUnsignedShort();
+        if (marker == FORMAT_MARKER) {
+            int version = dIn.readByte();
+            if (version != FORMAT_VERSION && version != FORMAT_VERSION_NODE_NAMES) {
+                throw new IOException(XLog.format("Unsupported workflow instance format version [{0}]", version));
+            }
+            int flags = dIn.readByte();
+            instanceId = dIn.readUTF();
+            status = Status.valueOf(dIn.readUTF());
+            logInfo = new String[LOG_INFO_SIZE];
+            for (int i = 0; i < logInfo.length; i++) {
+                logInfo[i] = WritableUtils.readStr(dIn);
+            }
+            List<NamedPath> namedPaths = null;
+            if (version == FORMAT_VERSION) {
+                readExecutionPaths(dIn);
+            }
+            else {
+                namedPaths = readNamedPaths(dIn);
+            }
+            readVars(dIn);
+            appDigest = dIn.readUTF();
+            appBytes = new byte[dIn.readInt()];
+            dIn.readFully(appBytes);
+            appCompressed = (flags & FLAG_APP_COMPRESSED) != 0;
+            confBytes = new byte[dIn.readInt()];
+            dIn.readFully(confBytes);
+            confCompressed = (flags & FLAG_CONF_COMPRESSED) != 0;
+            def = null;
+            conf = null;
+            if (namedPaths != null) {
+                resolvePaths(namedPaths);
+            }
+        }
+        else {
+            byte[] id = new byte[marker + 2];
+            id[0] = (byte) (marker >>> 8);
+            id[1] = (byte) marker;
+            dIn.readFully(id, 2, marker);
+            instanceId = DataInputStream.readUTF(new DataInputStream(new ByteArrayInputStream(id)));
+
+            //Hadoop Configuration has to get its act right
+            int len = dIn.readInt();
+            byte[] array = new byte[len];
+            dIn.readFully(array);
+            ByteArrayInputStream bais = new ByteArrayInputStream(array);
+            conf = new XConfiguration(bais);
+
+            def = new LiteWorkflowApp();
+            def.readFields(dIn);
+            status = Status.valueOf(dIn.readUTF());
+            List<NamedPath> namedPaths = readNamedPaths(dIn);
+            readVars(dIn);
+            resolvePaths(namedPaths);
+            logInfo = new String[]{conf.get(OozieClient.USER_NAME), conf.get(OozieClient.GROUP_NAME), def.getName(),
+                    conf.get(OozieClient.LOG_TOKEN, "")};
+            appBytes = null;
+            confBytes = null;
+        }
+        refreshLog();
+    }
+
+    private void writeOriginalFormat(DataOutput dOut) throws IOException {
         dOut.writeUTF(instanceId);
 
-        //Hadoop Configuration has to get its act right
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        conf.writeXml(baos);
+        getConf().writeXml(baos);
         baos.close();
         byte[] array = baos.toByteArray();
         dOut.writeInt(array.length);
         dOut.write(array);
 
-        def.write(dOut);
+        getDef().write(dOut);
         dOut.writeUTF(status.toString());
         dOut.writeInt(executionPaths.size());
-        for (Map.Entry<String, NodeInstance> entry : executionPaths.entrySet()) {
-            dOut.writeUTF(entry.getKey());
-            dOut.writeUTF(entry.getValue().nodeName);
-            dOut.writeBoolean(entry.getValue().started);
+        for (int i = 0; i < executionPaths.size(); i++) {
+            dOut.writeUTF(formatPath(executionPaths.getPath(i)));
+            dOut.writeUTF(getDef().getNode(executionPaths.getNode(i)).getName());
+            dOut.writeBoolean(executionPaths.isStarted(i));
         }
         dOut.writeInt(persistentVars.size());
         for (Map.Entry<String, String> entry : persistentVars.entrySet()) {
@@ -549,45 +796,214 @@ public class LiteWorkflowInstance implements Writable, WorkflowInstance {
         }
     }
 
-    @Override
-    public void readFields(DataInput dIn) throws IOException {
-        instanceId = dIn.readUTF();
+    // the execution paths are written as a single block of ints: the number of paths followed, for each path, by its
+    // depth, its node IDs, the ID of the node it is at and its started flag
+    private void writeExecutionPaths(DataOutput dOut) throws IOException {
+        int length = 1;
+        for (int i = 0; i < executionPaths.size(); i++) {
+            length += executionPaths.getPath(i).length + 3;
+        }
+        int[] ints = new int[length];
+        int pos = 0;
+        ints[pos++] = executionPaths.size();
+        for (int i = 0; i < executionPaths.size(); i++) {
+            int[] path = executionPaths.getPath(i);
+            ints[pos++] = path.length;
+            for (int node : path) {
+                ints[pos++] = node;
+            }
+            ints[pos++] = executionPaths.getNode(i);
+            ints[pos++] = (executionPaths.isStarted(i)) ? 1 : 0;
+        }
+        byte[] array = new byte[length * 4];
+        for (int i = 0; i < length; i++) {
+            array[i * 4] = (byte) (ints[i] >>> 24);
+            array[i * 4 + 1] = (byte) (ints[i] >>> 16);
+            array[i * 4 + 2] = (byte) (ints[i] >>> 8);
+            array[i * 4 + 3] = (byte) ints[i];
+        }
+        dOut.writeInt(length);
+        dOut.write(array);
+    }
 
-        //Hadoop Configuration has to get its act right
-        int len = dIn.readInt();
-        byte[] array = new byte[len];
+    private void readExecutionPaths(DataInput dIn) throws IOException {
+        byte[] array = new byte[dIn.readInt() * 4];
         dIn.readFully(array);
-        ByteArrayInputStream bais = new ByteArrayInputStream(array);
-        conf = new XConfiguration(bais);
+        int[] ints = new int[array.length / 4];
+        for (int i = 0; i < ints.length; i++) {
+            ints[i] = ((array[i * 4] & 0xFF) << 24) | ((array[i * 4 + 1] & 0xFF) << 16) |
+                    ((array[i * 4 + 2] & 0xFF) << 8) | (array[i * 4 + 3] & 0xFF);
+        }
+        executionPaths = new ExecutionPaths();
+        int pos = 0;
+        int numExPaths = ints[pos++];
+        for (int x = 0; x < numExPaths; x++) {
+            int depth = ints[pos++];
+            int[] path = (depth == 0) ? ExecutionPaths.ROOT : Arrays.copyOfRange(ints, pos, pos + depth);
+            pos += depth;
+            int index = executionPaths.put(path, ints[pos++]);
+            executionPaths.setStarted(index, ints[pos++] != 0);
+        }
+    }
 
-        def = new LiteWorkflowApp();
-        def.readFields(dIn);
-        status = Status.valueOf(dIn.readUTF());
+    private static List<NamedPath> readNamedPaths(DataInput dIn) throws IOException {
         int numExPaths = dIn.readInt();
+        List<NamedPath> namedPaths = new ArrayList<NamedPath>(numExPaths);
         for (int x = 0; x < numExPaths; x++) {
             String path = dIn.readUTF();
             String nodeName = dIn.readUTF();
             boolean isStarted = dIn.readBoolean();
-            NodeInstance nodeInstance = new NodeInstance(nodeName);
-            nodeInstance.started = isStarted;
-            executionPaths.put(path, nodeInstance);
+            namedPaths.add(new NamedPath(path, nodeName, isStarted));
         }
+        return namedPaths;
+    }
+
+    private void resolvePaths(List<NamedPath> namedPaths) throws IOException {
+        executionPaths = new ExecutionPaths();
+        for (NamedPath namedPath : namedPaths) {
+            int[] path = parsePath(namedPath.path);
+            int node = getDef().getNodeId(namedPath.nodeName);
+            if (path == null || node == -1) {
+                throw new IOException(XLog.format("Invalid execution path [{0}] node [{1}]", namedPath.path,
+                                                  namedPath.nodeName));
+            }
+            executionPaths.setStarted(executionPaths.put(path, node), namedPath.started);
+        }
+    }
+
+    private void readVars(DataInput dIn) throws IOException {
         int numVars = dIn.readInt();
         for (int x = 0; x < numVars; x++) {
             String vName = dIn.readUTF();
             String vVal = dIn.readUTF();
             persistentVars.put(vName, vVal);
         }
-        refreshLog();
+    }
+
+    private static boolean isCompressionEnabled() {
+        Services services = Services.get();
+        return (services == null) ||
+                services.getConf().getBoolean(DBLiteWorkflowStoreService.CONF_INSTANCE_COMPRESSION, true);
+    }
+
+    private static boolean isOriginalFormatEnabled() {
+        Services services = Services.get();
+        return (services != null) &&
+                services.getConf().getBoolean(DBLiteWorkflowStoreService.CONF_INSTANCE_ORIGINAL_FORMAT, false);
+    }
+
+    // decoded definitions are shared by the instances of the same definition, null if there is no cache
+    private static LRUCache<String, LiteWorkflowApp> getAppCache() {
+        Services services = Services.get();
+        WorkflowStoreService storeService = (services != null) ? services.get(WorkflowStoreService.class) : null;
+        return (storeService instanceof DBLiteWorkflowStoreService)
+                ? ((DBLiteWorkflowStoreService) storeService).getAppCache() : null;
+    }
+
+    private static byte[] writeApp(LiteWorkflowApp app) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DataOutputStream dos = new DataOutputStream(baos);
+        app.write(dos);
+        dos.close();
+        return baos.toByteArray();
+    }
+
+    private static LiteWorkflowApp readApp(byte[] array, boolean compressed) throws IOException {
+        DataInputStream dis = new DataInputStream(inflate(array, compressed));
+        LiteWorkflowApp app = new LiteWorkflowApp();
+        app.readFields(dis);
+        return app;
+    }
+
+    // configuration values may be longer than what writeUTF() supports, keys and values are written as UTF-8 arrays
+    private static byte[] writeConf(Configuration conf) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DataOutputStream dos = new DataOutputStream(baos);
+        List<Map.Entry<String, String>> entries = new ArrayList<Map.Entry<String, String>>();
+        for (Map.Entry<String, String> entry : conf) {
+            entries.add(entry);
+        }
+        dos.writeInt(entries.size());
+        for (Map.Entry<String, String> entry : entries) {
+            writeString(dos, entry.getKey());
+            writeString(dos, entry.getValue());
+        }
+        dos.close();
+        return baos.toByteArray();
+    }
+
+    private static Configuration readConf(byte[] array, boolean compressed) throws IOException {
+        DataInputStream dis = new DataInputStream(inflate(array, compressed));
+        Configuration conf = new XConfiguration();
+        int size = dis.readInt();
+        for (int i = 0; i < size; i++) {
+            conf.set(readString(dis), readString(dis));
+        }
+        return conf;
+    }
+
+    private static void writeString(DataOutput dOut, String str) throws IOException {
+        byte[] array = str.getBytes(UTF8);
+        dOut.writeInt(array.length);
+        dOut.write(array);
+    }
+
+    private static String readString(DataInput dIn) throws IOException {
+        byte[] array = new byte[dIn.readInt()];
+        dIn.readFully(array);
+        return new String(array, UTF8);
+    }
+
+    private static byte[] deflate(byte[] array) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(array.length / 4 + 16);
+        DeflaterOutputStream dos = new DeflaterOutputStream(baos);
+        dos.write(array);
+        dos.close();
+        return baos.toByteArray();
+    }
+
+    private static InputStream inflate(byte[] array, boolean compressed) {
+        InputStream is = new ByteArrayInputStream(array);
+        return (compressed) ? new InflaterInputStream(is) : is;
     }
 
     @Override
-    public Configuration getConf() {
+    public synchronized Configuration getConf() {
+        if (conf == null) {
+            try {
+                conf = readConf(confBytes, confCompressed);
+                confBytes = null;
+            }
+            catch (IOException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
         return conf;
     }
 
     @Override
     public WorkflowApp getApp() {
+        return getDef();
+    }
+
+    private synchronized LiteWorkflowApp getDef() {
+        if (def == null) {
+            LRUCache<String, LiteWorkflowApp> appCache = getAppCache();
+            if (appCache != null) {
+                def = appCache.get(appDigest);
+            }
+            if (def == null) {
+                try {
+                    def = readApp(appBytes, appCompressed);
+                }
+                catch (IOException ex) {
+                    throw new RuntimeException(ex);
+                }
+                if (appCache != null) {
+                    appCache.put(appDigest, def);
+                }
+            }
+        }
         return def;
     }
 
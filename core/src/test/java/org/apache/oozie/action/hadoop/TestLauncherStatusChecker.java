@@ -0,0 +1,136 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.action.hadoop;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hadoop.mapred.JobClient;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.JobID;
+import org.apache.hadoop.mapred.JobStatus;
+import org.apache.oozie.ErrorCode;
+import org.apache.oozie.client.WorkflowAction;
+import org.apache.oozie.service.HadoopAccessorException;
+import org.apache.oozie.service.HadoopAccessorService;
+import org.apache.oozie.service.Services;
+import org.apache.oozie.store.WorkflowActionSummary;
+import org.apache.oozie.test.XTestCase;
+
+public class TestLauncherStatusChecker extends XTestCase {
+    private static final String JOB_1 = "job_201010010000_0001";
+    private static final String JOB_2 = "job_201010010000_0002";
+    private static final String JOB_3 = "job_201010010000_0003";
+
+    private static final AtomicInteger LISTINGS = new AtomicInteger();
+
+    /**
+     * Stand-in JobClient, jobs 1 and 2 are running in the JobTracker <code>jt1</code>, job 3 in <code>jt2</code>.
+     */
+    public static class StandInJobClient extends JobClient {
+        private String jobTracker;
+
+        public StandInJobClient(String jobTracker) {
+            this.jobTracker = jobTracker;
+        }
+
+        @Override
+        public JobStatus[] jobsToComplete() throws IOException {
+            LISTINGS.incrementAndGet();
+            List<String> jobIds = ("jt1".equals(jobTracker)) ? Arrays.asList(JOB_1, JOB_2) : Arrays.asList(JOB_3);
+            List<JobStatus> statuses = new ArrayList<JobStatus>();
+            for (String jobId : jobIds) {
+                statuses.add(new JobStatus(JobID.forName(jobId), 0.5f, 0f, JobStatus.RUNNING));
+            }
+            return statuses.toArray(new JobStatus[statuses.size()]);
+        }
+
+        @Override
+        public synchronized void close() {
+        }
+    }
+
+    public static class StandInHadoopAccessorService extends HadoopAccessorService {
+
+        @Override
+        public JobClient createJobClient(String user, String group, JobConf conf) throws HadoopAccessorException {
+            String jobTracker = conf.get("mapred.job.tracker");
+            if ("down".equals(jobTracker)) {
+                throw new HadoopAccessorException(ErrorCode.E0902, "JobTracker down");
+            }
+            return new StandInJobClient(jobTracker);
+        }
+    }
+
+    private Services services;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        setSystemProperty(Services.CONF_SERVICE_EXT_CLASSES, StandInHadoopAccessorService.class.getName());
+        services = new Services();
+        services.init();
+        LISTINGS.set(0);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        services.destroy();
+        super.tearDown();
+    }
+
+    private WorkflowActionSummary createAction(String id, String type, String externalId, String jobTracker,
+                                               String user) {
+        return new WorkflowActionSummary(id, "wf", type, WorkflowAction.Status.RUNNING, externalId, null, null,
+                                         jobTracker, user, "g");
+    }
+
+    public void testGetRunningActions() throws Exception {
+        List<WorkflowActionSummary> actions = new ArrayList<WorkflowActionSummary>();
+        actions.add(createAction("a1", "java", JOB_1, "jt1", "u1"));
+        actions.add(createAction("a2", "map-reduce", JOB_2, "jt1", "u1"));
+        // job completed
+        actions.add(createAction("a3", "pig", "job_201010010000_0004", "jt1", "u1"));
+        actions.add(createAction("a4", "java", JOB_1, "jt1", "u2"));
+        actions.add(createAction("a5", "java", JOB_3, "jt2", "u1"));
+        // job running in another JobTracker
+        actions.add(createAction("a6", "java", JOB_3, "jt1", "u1"));
+        // not a Hadoop action
+        actions.add(createAction("a7", "fs", JOB_1, "jt1", "u1"));
+        // not started
+        actions.add(createAction("a8", "java", null, null, "u1"));
+        // JobTracker not reachable
+        actions.add(createAction("a9", "java", JOB_1, "down", "u1"));
+
+        LauncherStatusChecker checker = new LauncherStatusChecker();
+        Set<String> running = checker.getRunningActions(actions);
+        assertEquals(new HashSet<String>(Arrays.asList("a1", "a2", "a4", "a5")), running);
+
+        // one listing per JobTracker and user
+        assertEquals(3, LISTINGS.get());
+        assertEquals(3, checker.getListings());
+    }
+
+    public void testNoActions() throws Exception {
+        assertTrue(new LauncherStatusChecker().getRunningActions(new ArrayList<WorkflowActionSummary>()).isEmpty());
+        assertEquals(0, LISTINGS.get());
+    }
+
+}
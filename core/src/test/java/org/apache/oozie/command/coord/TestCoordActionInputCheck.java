@@ -27,6 +27,7 @@ import org.apache.oozie.client.CoordinatorAction.Status;
 import org.apache.oozie.client.CoordinatorJob.Execution;
 import org.apache.oozie.client.CoordinatorJob.Timeunit;
 import org.apache.oozie.command.CommandException;
+import org.apache.oozie.service.DependencyCheckService;
 import org.apache.oozie.service.Services;
 import org.apache.oozie.service.StoreService;
 import org.apache.oozie.store.CoordinatorStore;
@@ -69,6 +70,33 @@ public class TestCoordActionInputCheck extends XTestCase {
         checkCoordAction(jobId + "@1");
     }
 
+    public void testActionInputCheckWithoutDependencyCheckService() throws Exception {
+        // an oozie.services overridden without the DependencyCheckService
+        String classes = services.getConf().get(Services.CONF_SERVICE_CLASSES);
+        services.destroy();
+        setSystemProperty(Services.CONF_SERVICE_CLASSES,
+                          classes.replaceAll("\\s*" + DependencyCheckService.class.getName() + "\\s*,?", ""));
+        services = new Services();
+        services.init();
+        assertNull(services.get(DependencyCheckService.class));
+
+        String jobId = "0000000-" + new Date().getTime() + "-testActionInputCheckWithoutDCS-C";
+        CoordinatorStore store = Services.get().get(StoreService.class).getStore(CoordinatorStore.class);
+        try {
+            addRecordToJobTable(jobId, store);
+        }
+        finally {
+            store.closeTrx();
+        }
+        Date startTime = DateUtils.parseDateUTC("2009-02-01T23:59Z");
+        Date endTime = DateUtils.parseDateUTC("2009-02-02T23:59Z");
+        new CoordActionMaterializeCommand(jobId, startTime, endTime).call();
+        createDir(getTestCaseDir() + "/2009/29/");
+        createDir(getTestCaseDir() + "/2009/15/");
+        new CoordActionInputCheckCommand(jobId + "@1").call();
+        checkCoordAction(jobId + "@1");
+    }
+
     private void addRecordToActionTable(String jobId, int actionNum, CoordinatorStore store) throws StoreException {
         // CoordinatorStore store = new CoordinatorStore(false);
         CoordinatorActionBean action = new CoordinatorActionBean();
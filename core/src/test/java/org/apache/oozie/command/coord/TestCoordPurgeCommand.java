@@ -15,6 +15,7 @@
 package org.apache.oozie.command.coord;
 
 import java.util.Date;
+import java.util.Map;
 
 import org.apache.oozie.CoordinatorActionBean;
 import org.apache.oozie.CoordinatorJobBean;
@@ -23,12 +24,15 @@ import org.apache.oozie.client.CoordinatorJob;
 import org.apache.oozie.client.CoordinatorAction.Status;
 import org.apache.oozie.client.CoordinatorJob.Execution;
 import org.apache.oozie.command.CommandException;
+import org.apache.oozie.service.InstrumentationService;
+import org.apache.oozie.service.PurgeService;
 import org.apache.oozie.service.Services;
 import org.apache.oozie.service.StoreService;
 import org.apache.oozie.store.CoordinatorStore;
 import org.apache.oozie.store.StoreException;
 import org.apache.oozie.test.XTestCase;
 import org.apache.oozie.util.DateUtils;
+import org.apache.oozie.util.Instrumentation;
 
 public class TestCoordPurgeCommand extends XTestCase {
     private Services services;
@@ -37,6 +41,7 @@ public class TestCoordPurgeCommand extends XTestCase {
         super.setUp();
         services = new Services();
         services.init();
+        cleanUpDBTables();
     }
 
     protected void tearDown() throws Exception {
@@ -64,6 +69,35 @@ public class TestCoordPurgeCommand extends XTestCase {
         checkCoordJobs(jobId);
     }
 
+    public void testChunkedCoordPurgeCommand() throws Exception {
+        final String jobIdPrefix = "0000000-" + new Date().getTime() + "-testChunkedCoordPurgeCommand-C";
+        CoordinatorStore store = Services.get().get(StoreService.class).getStore(CoordinatorStore.class);
+        try {
+            for (int i = 0; i < 5; i++) {
+                addRecordToJobTable(jobIdPrefix + i, store);
+                addRecordToActionTable(jobIdPrefix + i, 1, store);
+            }
+        }
+        finally {
+            store.closeTrx();
+        }
+        new CoordPurgeCommand(7, 2, 0, 0, 0).call();
+        final Map<String, Instrumentation.Element<Long>> counters = Services.get().get(InstrumentationService.class)
+                .get().getCounters().get(PurgeService.INSTRUMENTATION_GROUP);
+        waitFor(5000, new Predicate() {
+            public boolean evaluate() throws Exception {
+                return counters.get(PurgeService.INSTR_COORD_JOBS_COUNTER).getValue() == 5;
+            }
+        });
+        assertEquals(5, (long) counters.get(PurgeService.INSTR_COORD_JOBS_COUNTER).getValue());
+        assertEquals(5, (long) counters.get(PurgeService.INSTR_COORD_ACTIONS_COUNTER).getValue());
+        assertEquals(3, (long) counters.get(PurgeService.INSTR_CHUNKS_COUNTER).getValue());
+        for (int i = 0; i < 5; i++) {
+            checkCoordAction(jobIdPrefix + i + "@1");
+            checkCoordJobs(jobIdPrefix + i);
+        }
+    }
+
     private void addRecordToActionTable(String jobId, int actionNum, CoordinatorStore store) throws Exception {
         CoordinatorActionBean action = new CoordinatorActionBean();
         action.setJobId(jobId);
@@ -0,0 +1,226 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.command.wf;
+
+import java.util.Date;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.oozie.ErrorCode;
+import org.apache.oozie.WorkflowActionBean;
+import org.apache.oozie.WorkflowJobBean;
+import org.apache.oozie.action.ActionExecutor;
+import org.apache.oozie.action.ActionExecutorException;
+import org.apache.oozie.client.OozieClient;
+import org.apache.oozie.client.WorkflowAction;
+import org.apache.oozie.client.WorkflowJob;
+import org.apache.oozie.command.CommandException;
+import org.apache.oozie.service.ActionService;
+import org.apache.oozie.service.InstrumentationService;
+import org.apache.oozie.service.Services;
+import org.apache.oozie.service.WorkflowStoreService;
+import org.apache.oozie.store.WorkflowStore;
+import org.apache.oozie.test.XTestCase;
+import org.apache.oozie.util.Instrumentation;
+import org.apache.oozie.util.XmlUtils;
+import org.apache.oozie.workflow.WorkflowInstance;
+import org.apache.oozie.workflow.lite.EndNodeDef;
+import org.apache.oozie.workflow.lite.LiteWorkflowApp;
+import org.apache.oozie.workflow.lite.StartNodeDef;
+
+public class TestActionCommand extends XTestCase {
+    private static volatile boolean suspendWorkflow;
+    private static volatile boolean touchWorkflow;
+
+    /**
+     * Executor starting and checking the action while the workflow is suspended or updated by someone else, if
+     * requested.
+     */
+    public static class SuspendingActionExecutor extends ActionExecutor {
+
+        public SuspendingActionExecutor() {
+            super("test-suspending");
+        }
+
+        public void initActionType() {
+        }
+
+        public void start(Context context, WorkflowAction action) throws ActionExecutorException {
+            suspend(context);
+            context.setStartData("job_1", "tracker", "console");
+        }
+
+        public void end(Context context, WorkflowAction action) throws ActionExecutorException {
+        }
+
+        public void check(Context context, WorkflowAction action) throws ActionExecutorException {
+            suspend(context);
+            context.setExternalStatus("RUNNING");
+        }
+
+        private void suspend(Context context) {
+            if (suspendWorkflow || touchWorkflow) {
+                try {
+                    WorkflowStore store = Services.get().get(WorkflowStoreService.class).create();
+                    store.beginTrx();
+                    WorkflowJobBean workflow = store.getWorkflow(context.getWorkflow().getId(), false);
+                    if (suspendWorkflow) {
+                        workflow.setStatus(WorkflowJob.Status.SUSPENDED);
+                    }
+                    store.updateWorkflow(workflow);
+                    store.commitTrx();
+                    store.closeTrx();
+                }
+                catch (Exception ex) {
+                    throw new RuntimeException(ex);
+                }
+            }
+        }
+
+        public void kill(Context context, WorkflowAction action) throws ActionExecutorException {
+        }
+
+        public boolean isCompleted(String externalStatus) {
+            return false;
+        }
+    }
+
+    private Services services;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        services = new Services();
+        services.init();
+        cleanUpDBTables();
+        services.get(ActionService.class).register(SuspendingActionExecutor.class);
+        suspendWorkflow = false;
+        touchWorkflow = false;
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        services.destroy();
+        super.tearDown();
+    }
+
+    private WorkflowActionBean insertAction(WorkflowAction.Status status) throws Exception {
+        LiteWorkflowApp app = new LiteWorkflowApp("testApp", "<workflow-app/>", new StartNodeDef("end"))
+                .addNode(new EndNodeDef("end"));
+        Configuration conf = new Configuration();
+        conf.set(OozieClient.APP_PATH, "testPath");
+        conf.set(OozieClient.USER_NAME, getTestUser());
+        conf.set(OozieClient.GROUP_NAME, getTestGroup());
+        WorkflowInstance wfInstance = services.get(WorkflowStoreService.class).getWorkflowLibWithNoDB()
+                .createInstance(app, conf);
+        WorkflowJobBean workflow = new WorkflowJobBean();
+        workflow.setId(wfInstance.getId());
+        workflow.setAppName(app.getName());
+        workflow.setAppPath(conf.get(OozieClient.APP_PATH));
+        workflow.setConf(XmlUtils.prettyPrint(conf).toString());
+        workflow.setProtoActionConf(XmlUtils.prettyPrint(conf).toString());
+        workflow.setCreatedTime(new Date());
+        workflow.setLastModifiedTime(new Date(System.currentTimeMillis() - 60 * 1000));
+        workflow.setStatus(WorkflowJob.Status.RUNNING);
+        workflow.setRun(0);
+        workflow.setUser(getTestUser());
+        workflow.setGroup(getTestGroup());
+        workflow.setWorkflowInstance(wfInstance);
+
+        WorkflowActionBean action = new WorkflowActionBean();
+        action.setId(workflow.getId() + "@a");
+        action.setJobId(workflow.getId());
+        action.setName("a");
+        action.setType("test-suspending");
+        action.setConf("<test/>");
+        action.setStatus(status);
+        action.setPending();
+
+        WorkflowStore store = services.get(WorkflowStoreService.class).create();
+        store.beginTrx();
+        store.insertWorkflow(workflow);
+        store.insertAction(action);
+        store.commitTrx();
+        store.closeTrx();
+        return action;
+    }
+
+    private WorkflowActionBean getAction(String id) throws Exception {
+        WorkflowStore store = services.get(WorkflowStoreService.class).create();
+        store.beginTrx();
+        WorkflowActionBean action = store.getAction(id, false);
+        store.commitTrx();
+        store.closeTrx();
+        return action;
+    }
+
+    public void testCheck() throws Exception {
+        WorkflowActionBean action = insertAction(WorkflowAction.Status.RUNNING);
+        new ActionCheckCommand(action.getId()).call();
+
+        assertEquals("RUNNING", getAction(action.getId()).getExternalStatus());
+        Instrumentation.Element<Instrumentation.Timer> timer = services.get(InstrumentationService.class).get()
+                .getTimers().get("commands.transactions").get("action.check");
+        assertEquals(1, timer.getValue().getTicks());
+    }
+
+    public void testCheckWorkflowChanged() throws Exception {
+        WorkflowActionBean action = insertAction(WorkflowAction.Status.RUNNING);
+        suspendWorkflow = true;
+        try {
+            new ActionCheckCommand(action.getId()).call();
+            fail();
+        }
+        catch (CommandException ex) {
+            assertEquals(ErrorCode.E0809, ex.getErrorCode());
+        }
+
+        // the executor outcome has been discarded
+        assertNull(getAction(action.getId()).getExternalStatus());
+    }
+
+    public void testCheckWorkflowUpdated() throws Exception {
+        // an update keeping the status, within the resolution of the last modified time
+        WorkflowActionBean action = insertAction(WorkflowAction.Status.RUNNING);
+        touchWorkflow = true;
+        try {
+            new ActionCheckCommand(action.getId()).call();
+            fail();
+        }
+        catch (CommandException ex) {
+            assertEquals(ErrorCode.E0809, ex.getErrorCode());
+        }
+        assertNull(getAction(action.getId()).getExternalStatus());
+    }
+
+    public void testStartWorkflowChanged() throws Exception {
+        WorkflowActionBean action = insertAction(WorkflowAction.Status.PREP);
+        suspendWorkflow = true;
+        try {
+            new ActionStartCommand(action.getId(), action.getType()).call();
+            fail();
+        }
+        catch (CommandException ex) {
+            assertEquals(ErrorCode.E0809, ex.getErrorCode());
+        }
+
+        // the external job has been submitted, its start data is kept
+        action = getAction(action.getId());
+        assertEquals("job_1", action.getExternalId());
+        assertEquals("tracker", action.getTrackerUri());
+        assertEquals(WorkflowAction.Status.RUNNING, action.getStatus());
+        assertTrue(action.isPending());
+    }
+
+}
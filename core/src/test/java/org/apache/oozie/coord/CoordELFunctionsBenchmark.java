@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.coord;
+
+import java.util.Calendar;
+import java.util.Date;
+
+import org.apache.oozie.client.OozieClient;
+import org.apache.oozie.service.ELService;
+import org.apache.oozie.service.Services;
+import org.apache.oozie.test.XTestCase;
+import org.apache.oozie.util.DateUtils;
+import org.apache.oozie.util.ELEvaluator;
+
+/**
+ * Materializations per second of the <code>coord:current()</code> input events of a coordinator action, for a 5
+ * minutes dataset with an initial instance 5 years before the action nominal times, compared with iterating from the
+ * initial instance.
+ * <p/>
+ * It is not run as part of the testcases, it is run with <code>mvn test -Dtest=CoordELFunctionsBenchmark</code>.
+ */
+public class CoordELFunctionsBenchmark extends XTestCase {
+    private static final int ACTIONS = 2000;
+    private static final int ITERATED_ACTIONS = 20;
+    private static final String INPUT_EVENTS = "${coord:current(0)} ${coord:current(-1)} ${coord:current(-2)} "
+            + "${coord:current(-3)}";
+
+    public void testCurrent() throws Exception {
+        Services services = new Services();
+        services.init();
+        try {
+            ELEvaluator eval = Services.get().get(ELService.class).createEvaluator("coord-action-create");
+            eval.setVariable(OozieClient.USER_NAME, getTestUser());
+            eval.setVariable(OozieClient.GROUP_NAME, getTestGroup());
+            SyncCoordDataset ds = new SyncCoordDataset();
+            ds.setName("logs");
+            ds.setType("SYNC");
+            ds.setFrequency(5);
+            ds.setTimeUnit(TimeUnit.MINUTE);
+            ds.setInitInstance(DateUtils.parseDateUTC("2005-01-01T00:00Z"));
+            ds.setTimeZone(DateUtils.getTimeZone("America/Los_Angeles"));
+            ds.setUriTemplate("hdfs://localhost:9000/logs/${YEAR}/${MONTH}/${DAY}/${HOUR}/${MINUTE}");
+            ds.setDoneFlag("");
+            SyncCoordAction action = new SyncCoordAction();
+            action.setActionId("00000-oozie-C@1");
+            action.setName("benchmark");
+            action.setTimeZone(DateUtils.getTimeZone("America/Los_Angeles"));
+            CoordELFunctions.configureEvaluator(eval, ds, action);
+
+            Date start = DateUtils.parseDateUTC("2010-01-01T00:00Z");
+            long time = System.currentTimeMillis();
+            for (int i = 0; i < ACTIONS; i++) {
+                action.setNominalTime(new Date(start.getTime() + i * 5 * 60 * 1000L));
+                CoordELFunctions.evalAndWrap(eval, INPUT_EVENTS);
+            }
+            time = System.currentTimeMillis() - time;
+            System.out.println(String.format("materializations/sec, calculated: %10.1f",
+                                             ACTIONS * 1000d / Math.max(1, time)));
+
+            time = System.currentTimeMillis();
+            for (int i = 0; i < ITERATED_ACTIONS; i++) {
+                Date nominal = new Date(start.getTime() + i * 5 * 60 * 1000L);
+                for (int j = 0; j < 4; j++) {
+                    iterate(ds, nominal);
+                }
+            }
+            time = System.currentTimeMillis() - time;
+            System.out.println(String.format("materializations/sec, iterated  : %10.1f",
+                                             ITERATED_ACTIONS * 1000d / Math.max(1, time)));
+        }
+        finally {
+            services.destroy();
+        }
+    }
+
+    private int iterate(SyncCoordDataset ds, Date effective) {
+        Calendar origCurrent = Calendar.getInstance();
+        origCurrent.setTime(ds.getInitInstance());
+        origCurrent.setTimeZone(ds.getTimeZone());
+        Calendar calEffectiveTime = Calendar.getInstance();
+        calEffectiveTime.setTime(effective);
+        calEffectiveTime.setTimeZone(ds.getTimeZone());
+        Calendar current = (Calendar) origCurrent.clone();
+        int count = 0;
+        while (current.compareTo(calEffectiveTime) <= 0) {
+            current = (Calendar) origCurrent.clone();
+            count++;
+            current.add(ds.getTimeUnit().getCalendarUnit(), count * ds.getFrequency());
+        }
+        return count - 1;
+    }
+
+}
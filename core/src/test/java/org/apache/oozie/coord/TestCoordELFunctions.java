@@ -700,6 +700,28 @@ public class TestCoordELFunctions extends XTestCase {
         // Add test cases with EOM and EOD option
     }
 
+    public void testLatestListedSince() throws Exception {
+        init("coord-action-start");
+        String expr = "${coord:latest(0)}";
+        Configuration conf = new Configuration();
+        injectKerberosInfo(conf);
+        eval.setVariable(CoordELFunctions.CONFIGURATION, conf);
+        String testDir = getTestCaseDir();
+        ds.setUriTemplate("file://" + testDir + "/${YEAR}/${MONTH}/${DAY}");
+        createDir(testDir + "/2009/09/08");
+        eval.setVariable(CoordELFunctions.LISTED_SINCE, System.currentTimeMillis());
+        assertEquals("2009-09-08T23:59Z", CoordELFunctions.evalAndWrap(eval, expr));
+
+        // the listing is reused in the same check cycle
+        createDir(testDir + "/2009/09/09");
+        assertEquals("2009-09-08T23:59Z", CoordELFunctions.evalAndWrap(eval, expr));
+
+        // the listing of a previous check cycle is not reused
+        Thread.sleep(10);
+        eval.setVariable(CoordELFunctions.LISTED_SINCE, System.currentTimeMillis());
+        assertEquals("2009-09-09T23:59Z", CoordELFunctions.evalAndWrap(eval, expr));
+    }
+
     public void testPh1Future() throws Exception {
         init("coord-job-submit-instances");
         String expr = "${coord:future(1, 10)}";
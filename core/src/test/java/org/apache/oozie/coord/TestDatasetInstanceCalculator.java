@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.coord;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.TimeZone;
+
+import junit.framework.TestCase;
+import org.apache.oozie.util.DateUtils;
+
+public class TestDatasetInstanceCalculator extends TestCase {
+
+    public void testBeforeInitialInstance() throws Exception {
+        Date initial = DateUtils.parseDateUTC("2009-01-01T00:00Z");
+        assertEquals(-1, DatasetInstanceCalculator.getCurrentIndex(initial, TimeZone.getTimeZone("UTC"),
+                                                                   TimeUnit.DAY, 1,
+                                                                   DateUtils.parseDateUTC("2008-12-31T23:59Z")));
+        assertEquals(0, DatasetInstanceCalculator.getCurrentIndex(initial, TimeZone.getTimeZone("UTC"),
+                                                                  TimeUnit.DAY, 1, initial));
+    }
+
+    public void testMinutes() throws Exception {
+        assertSameAsIteration("2005-01-01T00:00Z", "UTC", TimeUnit.MINUTE, 5, 30);
+        assertSameAsIteration("2005-01-01T00:03Z", "America/Los_Angeles", TimeUnit.MINUTE, 45, 365);
+    }
+
+    public void testHours() throws Exception {
+        assertSameAsIteration("2005-03-13T01:00Z", "America/Los_Angeles", TimeUnit.HOUR, 1, 365);
+        assertSameAsIteration("2005-01-01T00:00Z", "Asia/Kolkata", TimeUnit.HOUR, 6, 5 * 365);
+    }
+
+    public void testDaysAcrossDaylightSavingTime() throws Exception {
+        assertSameAsIteration("2005-01-02T08:00Z", "America/Los_Angeles", TimeUnit.DAY, 1, 5 * 365);
+        assertSameAsIteration("2005-01-02T01:30Z", "Europe/London", TimeUnit.DAY, 3, 5 * 365);
+        assertSameAsIteration("2005-01-02T00:00Z", "America/Los_Angeles", TimeUnit.END_OF_DAY, 7, 5 * 365);
+    }
+
+    public void testMonths() throws Exception {
+        assertSameAsIteration("2005-01-31T08:00Z", "America/Los_Angeles", TimeUnit.MONTH, 1, 5 * 365);
+        assertSameAsIteration("2005-02-28T00:00Z", "UTC", TimeUnit.MONTH, 5, 5 * 365);
+        assertSameAsIteration("2005-01-01T00:00Z", "UTC", TimeUnit.END_OF_MONTH, 12, 5 * 365);
+    }
+
+    /**
+     * Compare the calculated current instances with the instances found iterating from the initial instance, for
+     * effective times spread over the given days, both in order and out of order to exercise the cached anchors.
+     */
+    private void assertSameAsIteration(String initialStr, String tz, TimeUnit timeUnit, int frequency, int days)
+            throws Exception {
+        Date initial = DateUtils.parseDateUTC(initialStr);
+        TimeZone timeZone = TimeZone.getTimeZone(tz);
+        long step = days * 24 * 60 * 60 * 1000L / 101;
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < 101; i++) {
+                long offset = (pass == 0) ? i * step : ((i * 37) % 101) * step;
+                Date effective = new Date(initial.getTime() + offset + (i % 7) * 60 * 1000);
+                int expected = iterate(initial, timeZone, timeUnit, frequency, effective);
+                int index = DatasetInstanceCalculator.getCurrentIndex(initial, timeZone, timeUnit, frequency,
+                                                                      effective);
+                assertEquals(initialStr + " " + tz + " " + effective, expected, index);
+                Calendar instance = DatasetInstanceCalculator.getInstance(initial, timeZone, timeUnit, frequency,
+                                                                          index);
+                assertFalse(instance.getTime().after(effective));
+            }
+        }
+    }
+
+    private int iterate(Date initial, TimeZone timeZone, TimeUnit timeUnit, int frequency, Date effective) {
+        Calendar origCurrent = Calendar.getInstance();
+        origCurrent.setTime(initial);
+        origCurrent.setTimeZone(timeZone);
+        Calendar calEffectiveTime = Calendar.getInstance();
+        calEffectiveTime.setTime(effective);
+        calEffectiveTime.setTimeZone(timeZone);
+        Calendar current = (Calendar) origCurrent.clone();
+        int count = 0;
+        while (current.compareTo(calEffectiveTime) <= 0) {
+            current = (Calendar) origCurrent.clone();
+            count++;
+            current.add(timeUnit.getCalendarUnit(), count * frequency);
+        }
+        return count - 1;
+    }
+
+}
@@ -17,9 +17,11 @@ package org.apache.oozie.service;
 import org.apache.oozie.service.DBLiteWorkflowStoreService;
 import org.apache.oozie.store.WorkflowStore;
 import org.apache.oozie.store.StoreException;
+import org.apache.oozie.store.WorkflowJobSummary;
 import org.apache.oozie.WorkflowJobBean;
 import org.apache.oozie.WorkflowActionBean;
 import org.apache.oozie.WorkflowsInfo;
+import org.apache.oozie.client.WorkflowJob;
 
 import java.util.List;
 import java.util.Map;
@@ -41,6 +43,10 @@ public class ForTestWorkflowStoreService extends DBLiteWorkflowStoreService {
                 return wf;
             }
 
+            public WorkflowJobSummary getWorkflowSummary(String id) throws StoreException {
+                return new WorkflowJobSummary(id, WorkflowJob.Status.PREP, "u", "g", null, 0);
+            }
+
             public WorkflowJobBean getWorkflowInfo(String id) throws StoreException {
                 return null;//To change body of implemented methods use File | Settings | File Templates.
             }
@@ -19,6 +19,7 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.Writer;
+import java.util.Map;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
@@ -31,6 +32,7 @@ import org.apache.oozie.ForTestingActionExecutor;
 import org.apache.oozie.client.OozieClient;
 import org.apache.oozie.test.XFsTestCase;
 import org.apache.oozie.util.IOUtils;
+import org.apache.oozie.util.Instrumentation;
 import org.apache.oozie.util.XConfiguration;
 import org.apache.oozie.util.XLog;
 
@@ -138,10 +140,48 @@ public class TestAuthorizationService extends XFsTestCase {
             }
         }
 
+        Instrumentation instr = new Instrumentation();
+        as.instrument(instr);
         as.authorizeForJob(getTestUser(), jobId, false);
         as.authorizeForJob(getTestUser(), jobId, true);
         //Because of group support and all users belong to same group
         as.authorizeForJob("blah", jobId, true);
+
+        // the job owner is read from the store once
+        assertEquals(1, getCacheVariable(instr, "misses"));
+        assertEquals(1, getCacheVariable(instr, "hits"));
+    }
+
+    private long getCacheVariable(Instrumentation instr, String name) {
+        Map<String, Instrumentation.Element<Instrumentation.Variable>> variables =
+                instr.getVariables().get("authorization");
+        return (Long) ((Instrumentation.Variable) variables.get("job.owner.cache." + name)).getValue();
+    }
+
+    public void testJobOwnerCacheEviction() throws Exception {
+        services.getConf().setInt(AuthorizationService.CONF_JOB_OWNER_CACHE_SIZE, 1);
+        services.setService(ForTestAuthorizationService.class);
+        services.setService(ForTestWorkflowStoreService.class);
+        AuthorizationService as = services.get(AuthorizationService.class);
+        Instrumentation instr = new Instrumentation();
+        as.instrument(instr);
+
+        as.authorizeForJob("u", "1-W", true);
+        as.authorizeForJob("u", "1-W", true);
+        assertEquals(1, getCacheVariable(instr, "misses"));
+        assertEquals(1, getCacheVariable(instr, "hits"));
+        as.authorizeForJob("u", "2-W", true);
+        as.authorizeForJob("u", "1-W", true);
+        assertEquals(3, getCacheVariable(instr, "misses"));
+        assertEquals(2, getCacheVariable(instr, "evictions"));
+        try {
+            as.authorizeForJob("x", "1-W", true);
+            fail();
+        }
+        catch (AuthorizationException ex) {
+            assertEquals(ErrorCode.E0508, ex.getErrorCode());
+        }
+        assertEquals(2, getCacheVariable(instr, "hits"));
     }
 
     public void testDefaultGroup() throws Exception {
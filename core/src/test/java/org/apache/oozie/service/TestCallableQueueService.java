@@ -19,6 +19,7 @@ import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.oozie.test.XTestCase;
+import org.apache.oozie.util.Instrumentation;
 import org.apache.oozie.util.XCallable;
 
 public class TestCallableQueueService extends XTestCase {
@@ -102,6 +103,29 @@ public class TestCallableQueueService extends XTestCase {
 
     }
 
+    public void testShardedQueuing() throws Exception {
+        setSystemProperty(CallableQueueService.CONF_QUEUE_SHARDED, "true");
+        Services services = new Services();
+        services.init();
+
+        CallableQueueService queueservice = services.get(CallableQueueService.class);
+
+        final MyCallable callable1 = new MyCallable();
+        final MyCallable callable2 = new MyCallable();
+        long scheduled = System.currentTimeMillis();
+        queueservice.queue(callable1);
+        queueservice.queue(callable2, 1000);
+        waitFor(3000, new Predicate() {
+            public boolean evaluate() throws Exception {
+                return callable1.executed != 0 && callable2.executed != 0;
+            }
+        });
+        assertTrue(callable1.executed != 0);
+        assertTrue(callable2.executed >= scheduled + 1000);
+
+        services.destroy();
+    }
+
     public void testDelayedQueuing() throws Exception {
         Services services = new Services();
         services.init();
@@ -254,6 +278,68 @@ public class TestCallableQueueService extends XTestCase {
         services.destroy();
     }
 
+    public void testTypeConcurrencyLimit() throws Exception {
+        Services services = new Services();
+        services.getConf().setInt(CallableQueueService.CONF_CALLABLE_CONCURRENCY + ".type", 1);
+        services.init();
+
+        CLCallable.resetConcurrency();
+        final CallableQueueService queueservice = services.get(CallableQueueService.class);
+
+        final Instrumentation instr = services.get(InstrumentationService.class).get();
+
+        for (int i = 0; i < 5; i++) {
+            queueservice.queue(new CLCallable());
+        }
+
+        waitFor(3000, new Predicate() {
+            public boolean evaluate() throws Exception {
+                return instr.getCounters().get("callablequeue").get("executed").getValue() == 5;
+            }
+        });
+
+        assertEquals(5L, (long) instr.getCounters().get("callablequeue").get("executed").getValue());
+        assertEquals(1, CLCallable.getConcurrency());
+        assertTrue(instr.getCounters().get("callablequeue").get("type#exceeded.concurrency").getValue() > 0);
+        assertNotNull(instr.getVariables().get("callablequeue").get("type#waiting"));
+
+        services.destroy();
+    }
+
+    public void testParkedCountTowardsQueueSize() throws Exception {
+        Services services = new Services();
+        services.getConf().setInt(CallableQueueService.CONF_QUEUE_SIZE, 3);
+        services.getConf().setInt(CallableQueueService.CONF_CALLABLE_CONCURRENCY + ".type", 1);
+        services.init();
+
+        CallableQueueService queueservice = services.get(CallableQueueService.class);
+        final Instrumentation instr = services.get(InstrumentationService.class).get();
+
+        // one callable runs, up to 3 are parked, the queue is full with the parked ones
+        int accepted = 0;
+        for (int i = 0; i < 6; i++) {
+            if (queueservice.queue(new MyCallable("type", 0, 300))) {
+                accepted++;
+            }
+            Thread.sleep(20);
+        }
+        assertTrue(accepted <= 4);
+        assertEquals(6L - accepted,
+                     (long) instr.getCounters().get("callablequeue").get("type#rejected").getValue());
+        assertTrue(instr.getCounters().get("callablequeue").get("type#exceeded.concurrency").getValue() > 0);
+
+        final int expected = accepted;
+        waitFor(3000, new Predicate() {
+            public boolean evaluate() throws Exception {
+                return instr.getCounters().get("callablequeue").get("executed").getValue() == expected;
+            }
+        });
+        assertEquals((long) expected, (long) instr.getCounters().get("callablequeue").get("executed").getValue());
+        assertEquals(0, queueservice.queueSize());
+
+        services.destroy();
+    }
+
     public void testSerialConcurrencyLimit() throws Exception {
         EXEC_ORDER = new AtomicLong();
         Services services = new Services();
@@ -286,10 +372,12 @@ public class TestCallableQueueService extends XTestCase {
             first = Math.min(first, c.executed);
         }
 
+        // the second batch runs as soon as the first one ends, without being requeued with a delay
         int secondBatch = 0;
         for (MyCallable c : callables) {
-            if (c.executed - first > CallableQueueService.CONCURRENCY_DELAY) {
+            if (c.executed - first >= 50) {
                 secondBatch++;
+                assertTrue(c.executed - first < 400);
             }
         }
         assertEquals(2, secondBatch);
@@ -330,7 +418,7 @@ public class TestCallableQueueService extends XTestCase {
 
         int secondBatch = 0;
         for (MyCallable c : callables) {
-            if (c.executed - first > CallableQueueService.CONCURRENCY_DELAY) {
+            if (c.executed - first >= 50) {
                 secondBatch++;
             }
         }
@@ -14,12 +14,101 @@
  */
 package org.apache.oozie.service;
 
+import java.util.Date;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.oozie.WorkflowActionBean;
+import org.apache.oozie.WorkflowJobBean;
+import org.apache.oozie.action.ActionExecutor;
+import org.apache.oozie.action.ActionExecutorException;
+import org.apache.oozie.client.OozieClient;
+import org.apache.oozie.client.WorkflowAction;
+import org.apache.oozie.client.WorkflowJob;
 import org.apache.oozie.service.Services;
 import org.apache.oozie.service.CallbackService;
+import org.apache.oozie.store.WorkflowStore;
 import org.apache.oozie.test.XTestCase;
+import org.apache.oozie.util.Instrumentation;
+import org.apache.oozie.util.XmlUtils;
+import org.apache.oozie.workflow.WorkflowInstance;
+import org.apache.oozie.workflow.lite.EndNodeDef;
+import org.apache.oozie.workflow.lite.LiteWorkflowApp;
+import org.apache.oozie.workflow.lite.StartNodeDef;
 
 public class TestCallbackService extends XTestCase {
 
+    /**
+     * Executor completing on any callback, the check records the external status.
+     */
+    public static class CallbackActionExecutor extends ActionExecutor {
+
+        public CallbackActionExecutor() {
+            super("test-callback");
+        }
+
+        public void initActionType() {
+        }
+
+        public void start(Context context, WorkflowAction action) throws ActionExecutorException {
+        }
+
+        public void end(Context context, WorkflowAction action) throws ActionExecutorException {
+        }
+
+        public void check(Context context, WorkflowAction action) throws ActionExecutorException {
+            context.setExternalStatus("CHECKED");
+        }
+
+        public void kill(Context context, WorkflowAction action) throws ActionExecutorException {
+        }
+
+        public boolean isCompleted(String externalStatus) {
+            return true;
+        }
+    }
+
+    private String insertAction(Services services) throws Exception {
+        LiteWorkflowApp app = new LiteWorkflowApp("testApp", "<workflow-app/>", new StartNodeDef("end"))
+                .addNode(new EndNodeDef("end"));
+        Configuration conf = new Configuration();
+        conf.set(OozieClient.APP_PATH, "testPath");
+        conf.set(OozieClient.USER_NAME, getTestUser());
+        conf.set(OozieClient.GROUP_NAME, getTestGroup());
+        WorkflowInstance wfInstance = services.get(WorkflowStoreService.class).getWorkflowLibWithNoDB()
+                .createInstance(app, conf);
+        WorkflowJobBean workflow = new WorkflowJobBean();
+        workflow.setId(wfInstance.getId());
+        workflow.setAppName(app.getName());
+        workflow.setAppPath(conf.get(OozieClient.APP_PATH));
+        workflow.setConf(XmlUtils.prettyPrint(conf).toString());
+        workflow.setProtoActionConf(XmlUtils.prettyPrint(conf).toString());
+        workflow.setCreatedTime(new Date());
+        workflow.setLastModifiedTime(new Date());
+        workflow.setStatus(WorkflowJob.Status.RUNNING);
+        workflow.setRun(0);
+        workflow.setUser(getTestUser());
+        workflow.setGroup(getTestGroup());
+        workflow.setWorkflowInstance(wfInstance);
+
+        WorkflowActionBean action = new WorkflowActionBean();
+        action.setId(workflow.getId() + "@a");
+        action.setJobId(workflow.getId());
+        action.setName("a");
+        action.setType("test-callback");
+        action.setConf("<test/>");
+        action.setStatus(WorkflowAction.Status.RUNNING);
+        action.setPending();
+
+        WorkflowStore store = services.get(WorkflowStoreService.class).create();
+        store.beginTrx();
+        store.insertWorkflow(workflow);
+        store.insertAction(action);
+        store.commitTrx();
+        store.closeTrx();
+        return action.getId();
+    }
+
     public void testService() throws Exception {
         Services services = new Services();
         services.init();
@@ -43,4 +132,111 @@ public class TestCallbackService extends XTestCase {
         services.destroy();
     }
 
+    public void testIngest() throws Exception {
+        setSystemProperty(CallbackService.CONF_MAX_PENDING, "2");
+        setSystemProperty(CallbackService.CONF_DISPATCH_INTERVAL, "3600000");
+        Services services = new Services();
+        services.init();
+        try {
+            CallbackService cs = services.get(CallbackService.class);
+            assertTrue(cs.ingest("a", "RUNNING", null, 1));
+            assertTrue(cs.ingest("a", "SUCCEEDED", null, 1));
+            assertTrue(cs.ingest("b", "SUCCEEDED", null, 1));
+            assertEquals(2, cs.getPendingCount());
+            assertFalse(cs.ingest("c", "SUCCEEDED", null, 1));
+            assertEquals(2, cs.getPendingCount());
+
+            cs.dispatch();
+            assertEquals(0, cs.getPendingCount());
+            assertTrue(cs.ingest("a", "SUCCEEDED", null, 1));
+            assertEquals(0, cs.getPendingCount());
+            assertTrue(cs.ingest("a", "KILLED", null, 1));
+            assertEquals(1, cs.getPendingCount());
+
+            Map<String, Instrumentation.Element<Long>> counters = services.get(InstrumentationService.class).get()
+                    .getCounters().get(CallbackService.INSTRUMENTATION_GROUP);
+            assertEquals(3, (long) counters.get(CallbackService.INSTR_ACCEPTED_COUNTER).getValue());
+            assertEquals(2, (long) counters.get(CallbackService.INSTR_DEDUPED_COUNTER).getValue());
+            assertEquals(1, (long) counters.get(CallbackService.INSTR_DROPPED_COUNTER).getValue());
+            assertEquals(2, (long) counters.get(CallbackService.INSTR_DISPATCHED_COUNTER).getValue());
+            assertEquals(1, cs.getRetryAfter());
+        }
+        finally {
+            services.destroy();
+        }
+    }
+
+    public void testDispatchBatchesPerJob() throws Exception {
+        setSystemProperty(CallbackService.CONF_DISPATCH_INTERVAL, "3600000");
+        setSystemProperty(CallbackService.CONF_BATCH_SIZE, "2");
+        Services services = new Services();
+        services.init();
+        try {
+            CallbackService cs = services.get(CallbackService.class);
+            assertTrue(cs.ingest("j1@a", "SUCCEEDED", null, 1));
+            assertTrue(cs.ingest("j2@a", "SUCCEEDED", null, 1));
+            assertTrue(cs.ingest("j1@b", "SUCCEEDED", null, 1));
+            assertTrue(cs.ingest("j1@c", "SUCCEEDED", null, 1));
+            cs.dispatch();
+            assertEquals(0, cs.getPendingCount());
+
+            // [j1@a, j1@b], [j2@a], [j1@c]
+            Map<String, Instrumentation.Element<Long>> counters = services.get(InstrumentationService.class).get()
+                    .getCounters().get(CallbackService.INSTRUMENTATION_GROUP);
+            assertEquals(4, (long) counters.get(CallbackService.INSTR_DISPATCHED_COUNTER).getValue());
+            assertEquals(3, (long) counters.get(CallbackService.INSTR_BATCHES_COUNTER).getValue());
+        }
+        finally {
+            services.destroy();
+        }
+    }
+
+    public void testDestroyProcessesPendingCallbacks() throws Exception {
+        setSystemProperty(CallbackService.CONF_DISPATCH_INTERVAL, "3600000");
+        Services services = new Services();
+        services.init();
+        String actionId;
+        try {
+            cleanUpDBTables();
+            services.get(ActionService.class).register(CallbackActionExecutor.class);
+            actionId = insertAction(services);
+            assertTrue(services.get(CallbackService.class).ingest(actionId, "DONE", null, 1));
+        }
+        finally {
+            services.destroy();
+        }
+
+        // the acknowledged callback has been processed while shutting down
+        services = new Services();
+        services.init();
+        try {
+            WorkflowStore store = services.get(WorkflowStoreService.class).create();
+            store.beginTrx();
+            WorkflowActionBean action = store.getAction(actionId, false);
+            store.commitTrx();
+            store.closeTrx();
+            assertEquals("CHECKED", action.getExternalStatus());
+        }
+        finally {
+            services.destroy();
+        }
+    }
+
+    public void testDestroyRejectsCallbacks() throws Exception {
+        setSystemProperty(CallbackService.CONF_DISPATCH_INTERVAL, "3600000");
+        Services services = new Services();
+        services.init();
+        try {
+            CallbackService cs = services.get(CallbackService.class);
+            assertTrue(cs.ingest("j1@a", "SUCCEEDED", null, 1));
+            cs.destroy();
+            assertEquals(0, cs.getPendingCount());
+            assertFalse(cs.ingest("j1@b", "SUCCEEDED", null, 1));
+            assertEquals(0, cs.getPendingCount());
+        }
+        finally {
+            services.destroy();
+        }
+    }
+
 }
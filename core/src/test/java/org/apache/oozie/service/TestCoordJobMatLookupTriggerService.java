@@ -19,6 +19,7 @@ import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.Writer;
+import java.util.Arrays;
 import java.util.Date;
 
 import org.apache.hadoop.fs.FileSystem;
@@ -27,6 +28,9 @@ import org.apache.oozie.CoordinatorJobBean;
 import org.apache.oozie.client.CoordinatorJob;
 import org.apache.oozie.client.CoordinatorJob.Execution;
 import org.apache.oozie.service.CoordJobMatLookupTriggerService.CoordJobMatLookupTriggerRunnable;
+import org.apache.oozie.service.CoordJobMatLookupTriggerService.CoordJobMatReconciliationRunnable;
+import org.apache.oozie.service.CoordJobMatLookupTriggerService.CoordJobMatSchedulerRunnable;
+import org.apache.oozie.service.CoordJobMatLookupTriggerService.MaterializationSchedule;
 import org.apache.oozie.store.CoordinatorStore;
 import org.apache.oozie.store.StoreException;
 import org.apache.oozie.test.XFsTestCase;
@@ -172,4 +176,58 @@ public class TestCoordJobMatLookupTriggerService extends XFsTestCase {
             fail();
         }
     }
-}
\ No newline at end of file
+
+    public void testMaterializationSchedule() throws Exception {
+        MaterializationSchedule schedule = new MaterializationSchedule();
+        schedule.schedule("a", new Date(100));
+        schedule.schedule("b", new Date(50));
+        schedule.schedule("c", new Date(300));
+        assertEquals(3, schedule.size());
+
+        // rescheduling replaces the scheduled time
+        schedule.schedule("b", new Date(200));
+        assertFalse(schedule.scheduleIfAbsent("a", new Date(10)));
+        assertEquals(3, schedule.size());
+
+        assertEquals(Arrays.asList("a"), schedule.pollDue(150));
+        assertEquals(Arrays.asList("b"), schedule.pollDue(250));
+        assertTrue(schedule.scheduleIfAbsent("a", new Date(400)));
+        assertEquals(Arrays.asList("c", "a"), schedule.pollDue(500));
+        assertEquals(0, schedule.size());
+        assertTrue(schedule.pollDue(Long.MAX_VALUE).isEmpty());
+    }
+
+    /**
+     * Test event driven mode. The reconciliation picks up the job from the database and the scheduler queues its
+     * materialization lookup.
+     *
+     * @throws Exception
+     */
+    public void testEventDriven() throws Exception {
+        Date start = new Date();
+        Date end = new Date(start.getTime() + 3600 * 1000);
+        final String jobId = "0000000-" + start.getTime() + "-testCoordRecoveryService-C";
+        CoordinatorStore store = Services.get().get(StoreService.class).getStore(CoordinatorStore.class);
+        store.beginTrx();
+        addRecordToJobTable(jobId, store, start, end);
+        store.commitTrx();
+        store.closeTrx();
+
+        MaterializationSchedule schedule = new MaterializationSchedule();
+        new CoordJobMatReconciliationRunnable(schedule).run();
+        assertEquals(1, schedule.size());
+
+        new CoordJobMatSchedulerRunnable(schedule, 3600, 1000).run();
+        assertEquals(0, schedule.size());
+        waitFor(10000, new Predicate() {
+            public boolean evaluate() throws Exception {
+                CoordinatorStore store = Services.get().get(StoreService.class).getStore(CoordinatorStore.class);
+                store.beginTrx();
+                CoordinatorJobBean coordJob = store.getCoordinatorJob(jobId, false);
+                store.commitTrx();
+                store.closeTrx();
+                return coordJob.getStatus() != CoordinatorJob.Status.PREP;
+            }
+        });
+    }
+}
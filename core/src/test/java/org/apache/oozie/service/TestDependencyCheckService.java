@@ -0,0 +1,254 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FilterFileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.oozie.test.XTestCase;
+import org.apache.oozie.util.Instrumentation;
+
+public class TestDependencyCheckService extends XTestCase {
+    private static final AtomicInteger STATUS_CALLS = new AtomicInteger();
+    private static final AtomicInteger LIST_CALLS = new AtomicInteger();
+
+    /**
+     * Filesystem counting the namenode calls of the existence checks.
+     */
+    public static class CountingFileSystem extends FilterFileSystem {
+
+        public CountingFileSystem(FileSystem fs) {
+            super(fs);
+        }
+
+        @Override
+        public FileStatus getFileStatus(Path f) throws IOException {
+            STATUS_CALLS.incrementAndGet();
+            return super.getFileStatus(f);
+        }
+
+        @Override
+        public FileStatus[] listStatus(Path f) throws IOException {
+            LIST_CALLS.incrementAndGet();
+            return super.listStatus(f);
+        }
+    }
+
+    public static class CountingHadoopAccessorService extends HadoopAccessorService {
+
+        @Override
+        public FileSystem createFileSystem(String user, String group, URI uri, Configuration conf)
+                throws HadoopAccessorException {
+            return new CountingFileSystem(super.createFileSystem(user, group, uri, conf));
+        }
+    }
+
+    private Services services;
+    private Configuration conf;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        setSystemProperty(Services.CONF_SERVICE_EXT_CLASSES, CountingHadoopAccessorService.class.getName());
+        services = new Services();
+        conf = new Configuration();
+        STATUS_CALLS.set(0);
+        LIST_CALLS.set(0);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        services.destroy();
+        super.tearDown();
+    }
+
+    private String createDependency(String path, boolean create) throws IOException {
+        File file = new File(getTestCaseDir(), path);
+        if (create) {
+            file.mkdirs();
+        }
+        return "file://" + file.getAbsolutePath();
+    }
+
+    private Map<String, Boolean> check(List<String> uris, boolean stopAtMissing) throws IOException {
+        return services.get(DependencyCheckService.class).checkExists(uris, getTestUser(), getTestGroup(), conf,
+                                                                        stopAtMissing);
+    }
+
+    public void testGroupByDirectory() throws Exception {
+        services.init();
+        List<String> uris = new ArrayList<String>();
+        for (int i = 0; i < 24; i++) {
+            uris.add(createDependency("2010/01/01/" + i, true));
+        }
+        uris.add(createDependency("2010/01/01/24", false));
+
+        Map<String, Boolean> exists = check(uris, false);
+        assertEquals(25, exists.size());
+        for (int i = 0; i < 24; i++) {
+            assertEquals(Boolean.TRUE, exists.get(uris.get(i)));
+        }
+        assertEquals(Boolean.FALSE, exists.get(uris.get(24)));
+        assertEquals(1, LIST_CALLS.get());
+        assertEquals(0, STATUS_CALLS.get());
+
+        Map<String, Map<String, Instrumentation.Element<Long>>> counters =
+                services.get(InstrumentationService.class).get().getCounters();
+        assertEquals(25, (long) counters.get("dependency_check").get("uris").getValue());
+        assertEquals(1, (long) counters.get("dependency_check").get("listStatus.calls").getValue());
+    }
+
+    public void testSingleDependencyUsesExists() throws Exception {
+        services.init();
+        String uri = createDependency("a/1", true);
+        assertEquals(Boolean.TRUE, check(Arrays.asList(uri), false).get(uri));
+        assertEquals(0, LIST_CALLS.get());
+        assertEquals(1, STATUS_CALLS.get());
+    }
+
+    public void testAlwaysList() throws Exception {
+        services.init();
+        DependencyCheckService dcs = services.get(DependencyCheckService.class);
+        List<String> uris = Arrays.asList(createDependency("a/1", true), createDependency("a/2", false));
+        Map<String, Boolean> exists = dcs.checkExists(Arrays.asList(uris.get(1)), getTestUser(), getTestGroup(),
+                                                      conf, false, true);
+        assertEquals(Boolean.FALSE, exists.get(uris.get(1)));
+        assertEquals(1, LIST_CALLS.get());
+        assertEquals(0, STATUS_CALLS.get());
+
+        // the next instance in the same directory uses the listing
+        exists = dcs.checkExists(Arrays.asList(uris.get(0)), getTestUser(), getTestGroup(), conf, false, true);
+        assertEquals(Boolean.TRUE, exists.get(uris.get(0)));
+        assertEquals(1, LIST_CALLS.get());
+        assertEquals(0, STATUS_CALLS.get());
+    }
+
+    public void testListedSince() throws Exception {
+        services.init();
+        DependencyCheckService dcs = services.get(DependencyCheckService.class);
+        List<String> uris = Arrays.asList(createDependency("a/1", true), createDependency("a/2", false));
+        dcs.checkExists(uris, getTestUser(), getTestGroup(), conf, false, true);
+        assertEquals(1, LIST_CALLS.get());
+
+        // the listing made before is not reused, the instance created since is found
+        createDependency("a/2", true);
+        Thread.sleep(10);
+        long listedSince = System.currentTimeMillis();
+        Map<String, Boolean> exists = dcs.checkExists(Arrays.asList(uris.get(1)), getTestUser(), getTestGroup(),
+                                                      conf, false, true, listedSince);
+        assertEquals(Boolean.TRUE, exists.get(uris.get(1)));
+        assertEquals(2, LIST_CALLS.get());
+
+        // the listing made since is reused
+        String uri = createDependency("a/3", false);
+        exists = dcs.checkExists(Arrays.asList(uri), getTestUser(), getTestGroup(), conf, false, true, listedSince);
+        assertEquals(Boolean.FALSE, exists.get(uri));
+        assertEquals(2, LIST_CALLS.get());
+    }
+
+    public void testDedupe() throws Exception {
+        services.init();
+        String uri = createDependency("a/1", false);
+        Map<String, Boolean> exists = check(Arrays.asList(uri, uri, uri), false);
+        assertEquals(1, exists.size());
+        assertEquals(Boolean.FALSE, exists.get(uri));
+        assertEquals(0, LIST_CALLS.get());
+        assertEquals(1, STATUS_CALLS.get());
+    }
+
+    public void testMissingDirectory() throws Exception {
+        services.init();
+        List<String> uris = Arrays.asList(createDependency("missing/1", false), createDependency("missing/2", false));
+        Map<String, Boolean> exists = check(uris, false);
+        assertEquals(Boolean.FALSE, exists.get(uris.get(0)));
+        assertEquals(Boolean.FALSE, exists.get(uris.get(1)));
+        assertEquals(1, LIST_CALLS.get());
+        assertEquals(0, STATUS_CALLS.get());
+    }
+
+    public void testPositiveCache() throws Exception {
+        services.getConf().setInt(DependencyCheckService.CONF_LISTING_TTL, 0);
+        services.init();
+        List<String> uris = Arrays.asList(createDependency("a/1", true), createDependency("a/2", true),
+                                          createDependency("b/1", true));
+        check(uris, false);
+        assertEquals(1, LIST_CALLS.get());
+        assertEquals(1, STATUS_CALLS.get());
+
+        Map<String, Boolean> exists = check(uris, false);
+        assertEquals(3, exists.size());
+        assertFalse(exists.containsValue(Boolean.FALSE));
+        assertEquals(1, LIST_CALLS.get());
+        assertEquals(1, STATUS_CALLS.get());
+
+        // a different user does not see the cached dependencies
+        services.get(DependencyCheckService.class).checkExists(uris, getTestUser2(), getTestGroup(), conf, false);
+        assertEquals(2, LIST_CALLS.get());
+        assertEquals(2, STATUS_CALLS.get());
+    }
+
+    public void testListingReuse() throws Exception {
+        services.init();
+        List<String> uris = Arrays.asList(createDependency("a/1", true), createDependency("a/2", false));
+        Map<String, Boolean> exists = check(uris, false);
+        assertEquals(Boolean.TRUE, exists.get(uris.get(0)));
+        assertEquals(Boolean.FALSE, exists.get(uris.get(1)));
+        assertEquals(1, LIST_CALLS.get());
+
+        // another action waiting on the same directory uses the listing
+        String uri = createDependency("a/3", true);
+        exists = check(Arrays.asList(uris.get(1), uri), false);
+        assertEquals(Boolean.FALSE, exists.get(uris.get(1)));
+        assertEquals(Boolean.FALSE, exists.get(uri));
+        assertEquals(1, LIST_CALLS.get());
+        assertEquals(0, STATUS_CALLS.get());
+    }
+
+    public void testNoListingReuse() throws Exception {
+        services.getConf().setInt(DependencyCheckService.CONF_LISTING_TTL, 0);
+        services.init();
+        List<String> uris = Arrays.asList(createDependency("a/1", true), createDependency("a/2", false));
+        assertEquals(Boolean.FALSE, check(uris, false).get(uris.get(1)));
+        createDependency("a/2", true);
+        assertEquals(Boolean.TRUE, check(uris, false).get(uris.get(1)));
+        assertEquals(1, LIST_CALLS.get());
+        assertEquals(1, STATUS_CALLS.get());
+    }
+
+    public void testStopAtMissing() throws Exception {
+        services.init();
+        List<String> uris = Arrays.asList(createDependency("a/1", true), createDependency("b/1", false),
+                                          createDependency("c/1", true), createDependency("a/2", true));
+        Map<String, Boolean> exists = check(uris, true);
+        assertEquals(Boolean.TRUE, exists.get(uris.get(0)));
+        assertEquals(Boolean.FALSE, exists.get(uris.get(1)));
+        assertFalse(exists.containsKey(uris.get(2)));
+        assertEquals(Boolean.TRUE, exists.get(uris.get(3)));
+        assertEquals(1, LIST_CALLS.get());
+        assertEquals(1, STATUS_CALLS.get());
+    }
+
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class TestHadoopAccessorPool extends TestCase {
+
+    private static class ClosingPool extends HadoopAccessorPool<String> {
+        private List<String> closed = new ArrayList<String>();
+
+        private ClosingPool(boolean shared, int maxSize, long idleTimeout) {
+            super(shared, maxSize, idleTimeout);
+        }
+
+        @Override
+        protected void close(String instance) {
+            closed.add(instance);
+        }
+    }
+
+    public void testShared() throws Exception {
+        ClosingPool pool = new ClosingPool(true, 2, 60 * 1000);
+        assertNull(pool.borrow("u,g,hdfs://a"));
+        assertEquals("a1", pool.add("u,g,hdfs://a", "a1"));
+        assertEquals("a1", pool.add("u,g,hdfs://a", "a2"));
+        assertEquals("a1", pool.borrow("u,g,hdfs://a"));
+        assertEquals("a1", pool.borrow("u,g,hdfs://a"));
+        assertEquals(1, pool.size());
+        assertEquals(1, pool.getCreated());
+        assertEquals(2, pool.getHits());
+
+        Thread.sleep(10);
+        assertNull(pool.borrow("u,g,hdfs://b"));
+        pool.add("u,g,hdfs://b", "b1");
+        assertNull(pool.borrow("u,g,hdfs://c"));
+        pool.add("u,g,hdfs://c", "c1");
+        assertEquals(2, pool.size());
+        assertEquals(1, pool.getEvictions());
+        assertEquals("[a1]", pool.closed.toString());
+        assertNull(pool.borrow("u,g,hdfs://a"));
+    }
+
+    public void testExclusive() {
+        ClosingPool pool = new ClosingPool(false, 2, 60 * 1000);
+        assertNull(pool.borrow("u,g,jt"));
+        assertNull(pool.borrow("u,g,jt"));
+        assertNull(pool.borrow("u,g,jt"));
+        assertEquals(0, pool.size());
+
+        pool.release("u,g,jt", "j1");
+        pool.release("u,g,jt", "j2");
+        pool.release("u,g,jt", "j3");
+        assertEquals(2, pool.size());
+        assertEquals("[j3]", pool.closed.toString());
+
+        assertEquals("j2", pool.borrow("u,g,jt"));
+        assertEquals(1, pool.size());
+        assertEquals("j1", pool.borrow("u,g,jt"));
+        assertEquals(0, pool.size());
+        assertNull(pool.borrow("u,g,jt"));
+        assertEquals(4, pool.getCreated());
+        assertEquals(2, pool.getHits());
+    }
+
+    public void testEvictIdle() throws Exception {
+        ClosingPool pool = new ClosingPool(false, 10, 100);
+        pool.release("u,g,jt1", "j1");
+        Thread.sleep(200);
+        pool.release("u,g,jt1", "j2");
+        pool.release("u,g,jt2", "j3");
+        pool.evictIdle();
+        assertEquals(2, pool.size());
+        assertEquals("[j1]", pool.closed.toString());
+        assertEquals("j2", pool.borrow("u,g,jt1"));
+
+        Thread.sleep(200);
+        pool.evictIdle();
+        assertEquals(0, pool.size());
+        assertEquals("[j1, j3]", pool.closed.toString());
+
+        pool.release("u,g,jt1", "j2");
+        pool.clear();
+        assertEquals(0, pool.size());
+        assertEquals("[j1, j3, j2]", pool.closed.toString());
+    }
+
+}
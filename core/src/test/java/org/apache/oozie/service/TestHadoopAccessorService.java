@@ -15,11 +15,13 @@
 package org.apache.oozie.service;
 
 import org.apache.oozie.test.XTestCase;
+import org.apache.oozie.util.Instrumentation;
 import org.apache.hadoop.mapred.JobConf;
 import org.apache.hadoop.mapred.JobClient;
 import org.apache.hadoop.fs.FileSystem;
 
 import java.net.URI;
+import java.util.Map;
 
 public class TestHadoopAccessorService extends XTestCase {
 
@@ -78,4 +80,55 @@ public class TestHadoopAccessorService extends XTestCase {
         assertNotNull(fs);
     }
 
+
+    private long getPoolVariable(String name) {
+        Map<String, Map<String, Instrumentation.Element<Instrumentation.Variable>>> variables =
+                Services.get().get(InstrumentationService.class).get().getVariables();
+        return (Long) ((Instrumentation.Variable) variables.get("hadoop").get(name)).getValue();
+    }
+
+    public void testFileSystemPool() throws Exception {
+        HadoopAccessorService has = Services.get().get(HadoopAccessorService.class);
+        JobConf conf = new JobConf();
+        conf.set("fs.default.name", getNameNodeUri());
+        injectKerberosInfo(conf);
+        URI uri = new URI(getNameNodeUri());
+
+        FileSystem fs1 = has.createFileSystem(getTestUser(), getTestGroup(), uri, conf);
+        FileSystem fs2 = has.createFileSystem(getTestUser(), getTestGroup(), uri, conf);
+        assertSame(fs1, fs2);
+        assertEquals(1, getPoolVariable("filesystem.created"));
+        assertEquals(1, getPoolVariable("filesystem.pool.hits"));
+        assertEquals(1, getPoolVariable("filesystem.pool.size"));
+
+        has.createFileSystem(getTestUser2(), getTestGroup(), uri, conf);
+        assertEquals(2, getPoolVariable("filesystem.created"));
+        assertEquals(2, getPoolVariable("filesystem.pool.size"));
+    }
+
+    public void testJobClientPool() throws Exception {
+        HadoopAccessorService has = Services.get().get(HadoopAccessorService.class);
+        JobConf conf = new JobConf();
+        conf.set("mapred.job.tracker", getJobTrackerUri());
+        conf.set("fs.default.name", getNameNodeUri());
+        injectKerberosInfo(conf);
+
+        JobClient jc1 = has.createJobClient(getTestUser(), getTestGroup(), conf);
+        JobClient jc2 = has.createJobClient(getTestUser(), getTestGroup(), conf);
+        assertNotSame(jc1, jc2);
+        assertEquals(2, getPoolVariable("jobclient.created"));
+        assertEquals(0, getPoolVariable("jobclient.pool.size"));
+
+        jc1.close();
+        jc1.close();
+        assertEquals(1, getPoolVariable("jobclient.pool.size"));
+        JobClient jc3 = has.createJobClient(getTestUser(), getTestGroup(), conf);
+        assertSame(jc1, jc3);
+        assertEquals(1, getPoolVariable("jobclient.pool.hits"));
+        assertEquals(0, getPoolVariable("jobclient.pool.size"));
+        jc2.close();
+        jc3.close();
+        assertEquals(2, getPoolVariable("jobclient.pool.size"));
+    }
+
 }
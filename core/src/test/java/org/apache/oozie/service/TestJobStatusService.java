@@ -0,0 +1,63 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.service;
+
+import org.apache.oozie.test.XTestCase;
+
+public class TestJobStatusService extends XTestCase {
+
+    public void testService() throws Exception {
+        Services services = new Services();
+        services.init();
+        assertNotNull(services.get(JobStatusService.class));
+        services.destroy();
+    }
+
+    public void testSubscriptions() throws Exception {
+        setSystemProperty(JobStatusService.CONF_MAX_SUBSCRIPTIONS, "2");
+        Services services = new Services();
+        services.init();
+        try {
+            JobStatusService jss = services.get(JobStatusService.class);
+            JobStatusService.Subscription s1 = jss.subscribe("a");
+            JobStatusService.Subscription s2 = jss.subscribe("a");
+            assertNotNull(s1);
+            assertNotNull(s2);
+            assertNull(jss.subscribe("b"));
+
+            jss.publish("b", "RUNNING");
+            assertNull(s1.next(10));
+            jss.publish("a", "RUNNING");
+            jss.publish("a", "SUCCEEDED");
+            assertEquals("RUNNING", s1.next(10));
+            assertEquals("SUCCEEDED", s1.next(10));
+            assertNull(s1.next(10));
+            assertEquals("RUNNING", s2.next(10));
+
+            jss.unsubscribe(s1);
+            jss.unsubscribe(s1);
+            JobStatusService.Subscription s3 = jss.subscribe("b");
+            assertNotNull(s3);
+            jss.publish("b", "KILLED");
+            assertEquals("KILLED", s3.next(10));
+            jss.unsubscribe(s2);
+            jss.unsubscribe(s3);
+        }
+        finally {
+            services.destroy();
+        }
+    }
+
+}
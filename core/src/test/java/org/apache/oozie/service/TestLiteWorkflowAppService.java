@@ -22,6 +22,7 @@ import org.apache.oozie.workflow.WorkflowException;
 import org.apache.oozie.workflow.lite.LiteWorkflowApp;
 import org.apache.oozie.test.XTestCase;
 import org.apache.oozie.util.IOUtils;
+import org.apache.oozie.util.Instrumentation;
 import org.apache.oozie.util.XConfiguration;
 import org.apache.oozie.action.ActionExecutor;
 import org.apache.oozie.action.ActionExecutorException;
@@ -34,6 +35,7 @@ import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import junit.framework.Assert;
 
@@ -481,4 +483,74 @@ public class TestLiteWorkflowAppService extends XTestCase {
         }
     }
 
+    public void testParseDefCache() throws Exception {
+        Services services = new Services();
+        try {
+            services.init();
+
+            Reader reader = IOUtils.getResourceAsReader("wf-schema-valid.xml", -1);
+            Writer writer = new FileWriter(getTestCaseDir() + "/workflow.xml");
+            IOUtils.copyCharStream(reader, writer);
+
+            WorkflowAppService wps = services.get(WorkflowAppService.class);
+            Configuration jobConf = new XConfiguration();
+            jobConf.set(OozieClient.APP_PATH, "file://" + getTestCaseDir() + File.separator + "workflow.xml");
+            jobConf.set(OozieClient.USER_NAME, getTestUser());
+            jobConf.set(OozieClient.GROUP_NAME, "group");
+            injectKerberosInfo(jobConf);
+
+            WorkflowApp app = wps.parseDef(jobConf, "authToken");
+            assertEquals("test-wf", app.getName());
+            assertTrue(app == wps.parseDef(jobConf, "authToken"));
+
+            Map<String, Instrumentation.Element<Instrumentation.Variable>> variables =
+                    services.get(InstrumentationService.class).get().getVariables().get("workflowapp");
+            assertEquals(new Long(1), ((Instrumentation.Variable) variables.get("cache.hits")).getValue());
+            assertEquals(new Long(1), ((Instrumentation.Variable) variables.get("cache.misses")).getValue());
+            assertEquals(new Long(1), ((Instrumentation.Variable) variables.get("cache.entries")).getValue());
+            assertEquals(new Long(app.getDefinition().length()),
+                         ((Instrumentation.Variable) variables.get("cache.weight")).getValue());
+
+            // a modified definition is parsed again
+            reader = IOUtils.getResourceAsReader("wf-schema-valid.xml", -1);
+            writer = new FileWriter(getTestCaseDir() + "/workflow.xml");
+            IOUtils.copyCharStream(reader, writer);
+            writer = new FileWriter(getTestCaseDir() + "/workflow.xml", true);
+            writer.write("<!-- modified -->");
+            writer.close();
+            WorkflowApp modified = wps.parseDef(jobConf, "authToken");
+            assertFalse(app == modified);
+            assertEquals("test-wf", modified.getName());
+            assertEquals(new Long(2), ((Instrumentation.Variable) variables.get("cache.misses")).getValue());
+        }
+        finally {
+            services.destroy();
+        }
+    }
+
+    public void testParseDefNoCache() throws Exception {
+        Services services = new Services();
+        try {
+            services.getConf().setInt(WorkflowAppService.CONF_CACHE_MAX_ENTRIES, 0);
+            services.init();
+
+            Reader reader = IOUtils.getResourceAsReader("wf-schema-valid.xml", -1);
+            Writer writer = new FileWriter(getTestCaseDir() + "/workflow.xml");
+            IOUtils.copyCharStream(reader, writer);
+
+            WorkflowAppService wps = services.get(WorkflowAppService.class);
+            Configuration jobConf = new XConfiguration();
+            jobConf.set(OozieClient.APP_PATH, "file://" + getTestCaseDir() + File.separator + "workflow.xml");
+            jobConf.set(OozieClient.USER_NAME, getTestUser());
+            jobConf.set(OozieClient.GROUP_NAME, "group");
+            injectKerberosInfo(jobConf);
+
+            WorkflowApp app = wps.parseDef(jobConf, "authToken");
+            assertFalse(app == wps.parseDef(jobConf, "authToken"));
+        }
+        finally {
+            services.destroy();
+        }
+    }
+
 }
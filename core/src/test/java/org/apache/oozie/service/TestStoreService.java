@@ -38,4 +38,9 @@ public class TestStoreService extends XTestCase {
         assertNotNull(em);
         em.close();
     }
+
+    public void testEntitiesEnhanced() throws Exception {
+        // the build enhances the entities, the runtime enhancement fallback is for IDE runs only
+        assertTrue(StoreService.isEnhanced());
+    }
 }
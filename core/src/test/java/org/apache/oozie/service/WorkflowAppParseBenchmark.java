@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.service;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.Reader;
+import java.io.Writer;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.oozie.client.OozieClient;
+import org.apache.oozie.test.XTestCase;
+import org.apache.oozie.util.IOUtils;
+import org.apache.oozie.util.XConfiguration;
+
+/**
+ * Submissions per second of the workflow definition parsing done on the submit path, {@link
+ * WorkflowAppService#parseDef(Configuration, String)}, with and without the parsed definition cache.
+ * <p/>
+ * It is not run as part of the testcases, it is run with <code>mvn test -Dtest=WorkflowAppParseBenchmark</code>.
+ */
+public class WorkflowAppParseBenchmark extends XTestCase {
+    private static final int SUBMISSIONS = 2000;
+
+    public void testParseDef() throws Exception {
+        Reader reader = IOUtils.getResourceAsReader("wf-schema-valid.xml", -1);
+        Writer writer = new FileWriter(getTestCaseDir() + "/workflow.xml");
+        IOUtils.copyCharStream(reader, writer);
+
+        double noCache = run(0);
+        double cache = run(500);
+        System.out.println(String.format("submissions/sec: no cache[%.1f] cache[%.1f]", noCache, cache));
+    }
+
+    private double run(int cacheEntries) throws Exception {
+        Services services = new Services();
+        services.getConf().setInt(WorkflowAppService.CONF_CACHE_MAX_ENTRIES, cacheEntries);
+        services.init();
+        try {
+            WorkflowAppService wps = services.get(WorkflowAppService.class);
+            Configuration jobConf = new XConfiguration();
+            jobConf.set(OozieClient.APP_PATH, "file://" + getTestCaseDir() + File.separator + "workflow.xml");
+            jobConf.set(OozieClient.USER_NAME, getTestUser());
+            jobConf.set(OozieClient.GROUP_NAME, getTestGroup());
+            injectKerberosInfo(jobConf);
+
+            // warm up
+            for (int i = 0; i < SUBMISSIONS / 10; i++) {
+                wps.parseDef(jobConf, "authToken");
+            }
+            long start = System.currentTimeMillis();
+            for (int i = 0; i < SUBMISSIONS; i++) {
+                wps.parseDef(jobConf, "authToken");
+            }
+            long elapsed = Math.max(1, System.currentTimeMillis() - start);
+            return SUBMISSIONS * 1000.0 / elapsed;
+        }
+        finally {
+            services.destroy();
+        }
+    }
+
+}
@@ -152,6 +152,9 @@ public class MockDagEngineService extends DagEngineService {
                 properties = actionData;
                 return;
             }
+            if (actionId.equals("full")) {
+                throw new DagEngineException(ErrorCode.E0404, 1, 1);
+            }
             throw new DagEngineException(ErrorCode.ETEST, actionId);
         }
 
@@ -54,6 +54,14 @@ public class TestCallbackServlet extends DagServletTestCase {
                 conn = (HttpURLConnection) url.openConnection();
                 assertEquals(HttpServletResponse.SC_OK, conn.getResponseCode());
 
+                params = new HashMap<String, String>();
+                params.put("id", "full");
+                params.put("status", "ok");
+                url = createURL("", params);
+                conn = (HttpURLConnection) url.openConnection();
+                assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, conn.getResponseCode());
+                assertNotNull(conn.getHeaderField("Retry-After"));
+
                 return null;
             }
         });
@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.servlet;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.oozie.WorkflowJobBean;
+import org.apache.oozie.client.OozieClient;
+import org.apache.oozie.client.WorkflowJob;
+import org.apache.oozie.client.rest.RestConstants;
+import org.apache.oozie.service.AuthorizationService;
+import org.apache.oozie.service.DBLiteWorkflowStoreService;
+import org.apache.oozie.service.ForTestAuthorizationService;
+import org.apache.oozie.service.Services;
+import org.apache.oozie.service.WorkflowStoreService;
+import org.apache.oozie.store.WorkflowStore;
+import org.apache.oozie.util.XmlUtils;
+import org.apache.oozie.workflow.WorkflowInstance;
+import org.apache.oozie.workflow.lite.EndNodeDef;
+import org.apache.oozie.workflow.lite.LiteWorkflowApp;
+import org.apache.oozie.workflow.lite.StartNodeDef;
+
+/**
+ * Cost of the <code>V1JobServlet</code> GET path and of the job authorization checks with security enabled.
+ * <p/>
+ * The GET requests are served by the mock engines, the job authorization checks are done against a workflow stored
+ * in the test database, with and without the job owner cache.
+ * <p/>
+ * It is not run as part of the testcases, it is run with <code>mvn test -Dtest=V1JobServletBenchmark</code>.
+ */
+public class V1JobServletBenchmark extends DagServletTestCase {
+    private static final int REQUESTS = 2000;
+
+    static {
+        new V1JobServlet();
+    }
+
+    public void testGetAndAuthorize() throws Exception {
+        runTest("/v1/job/*", V1JobServlet.class, true, new Callable<Void>() {
+            public Void call() throws Exception {
+                MockDagEngineService.reset();
+                Map<String, String> params = new HashMap<String, String>();
+                params.put(RestConstants.JOB_SHOW_PARAM, RestConstants.JOB_SHOW_INFO);
+                URL url = createURL(MockDagEngineService.JOB_ID + 1, params);
+                byte[] buffer = new byte[4096];
+                long time = System.currentTimeMillis();
+                for (int i = 0; i < REQUESTS; i++) {
+                    HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+                    conn.setRequestMethod("GET");
+                    assertEquals(HttpServletResponse.SC_OK, conn.getResponseCode());
+                    InputStream is = conn.getInputStream();
+                    while (is.read(buffer) > -1) {
+                    }
+                    is.close();
+                }
+                time = System.currentTimeMillis() - time;
+                System.out.println(String.format("GET show=info              : %8.3f ms/request",
+                                                 (double) time / REQUESTS));
+
+                Services.get().setService(DBLiteWorkflowStoreService.class);
+                String jobId = insertWorkflow("u");
+                System.out.println(String.format("authorizeForJob, no cache  : %8.3f ms/check",
+                                                 authorize(jobId, 0)));
+                System.out.println(String.format("authorizeForJob, cached    : %8.3f ms/check",
+                                                 authorize(jobId, 10000)));
+                return null;
+            }
+        });
+    }
+
+    private double authorize(String jobId, int cacheSize) throws Exception {
+        Services.get().getConf().setInt(AuthorizationService.CONF_JOB_OWNER_CACHE_SIZE, cacheSize);
+        Services.get().setService(ForTestAuthorizationService.class);
+        AuthorizationService auth = Services.get().get(AuthorizationService.class);
+        long time = System.currentTimeMillis();
+        for (int i = 0; i < REQUESTS; i++) {
+            auth.authorizeForJob("u", jobId, true);
+        }
+        return (double) (System.currentTimeMillis() - time) / REQUESTS;
+    }
+
+    private String insertWorkflow(String user) throws Exception {
+        LiteWorkflowApp app = new LiteWorkflowApp("testApp", "<workflow-app/>", new StartNodeDef("end"))
+                .addNode(new EndNodeDef("end"));
+        Configuration conf = new Configuration();
+        conf.set(OozieClient.APP_PATH, "testPath");
+        conf.set(OozieClient.USER_NAME, user);
+        conf.set(OozieClient.GROUP_NAME, "testGroup");
+        WorkflowInstance wfInstance = Services.get().get(WorkflowStoreService.class).getWorkflowLibWithNoDB()
+                .createInstance(app, conf);
+        WorkflowJobBean workflow = new WorkflowJobBean();
+        workflow.setId(wfInstance.getId());
+        workflow.setAppName(app.getName());
+        workflow.setAppPath(conf.get(OozieClient.APP_PATH));
+        workflow.setConf(XmlUtils.prettyPrint(conf).toString());
+        workflow.setCreatedTime(new Date());
+        workflow.setStatus(WorkflowJob.Status.PREP);
+        workflow.setUser(user);
+        workflow.setGroup("testGroup");
+        workflow.setWorkflowInstance(wfInstance);
+        WorkflowStore store = Services.get().get(WorkflowStoreService.class).create();
+        store.beginTrx();
+        store.insertWorkflow(workflow);
+        store.commitTrx();
+        store.closeTrx();
+        return workflow.getId();
+    }
+
+}
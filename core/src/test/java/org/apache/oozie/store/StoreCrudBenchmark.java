@@ -0,0 +1,235 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.store;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.oozie.CoordinatorActionBean;
+import org.apache.oozie.CoordinatorJobBean;
+import org.apache.oozie.WorkflowActionBean;
+import org.apache.oozie.WorkflowJobBean;
+import org.apache.oozie.client.CoordinatorAction;
+import org.apache.oozie.client.CoordinatorJob;
+import org.apache.oozie.client.WorkflowAction;
+import org.apache.oozie.client.WorkflowJob;
+import org.apache.oozie.service.CoordinatorStoreService;
+import org.apache.oozie.service.Services;
+import org.apache.oozie.service.StoreService;
+import org.apache.oozie.service.WorkflowStoreService;
+import org.apache.oozie.test.XTestCase;
+
+/**
+ * Cost of the {@link WorkflowStore} and {@link CoordinatorStore} CRUD hot paths against the test database.
+ * <p/>
+ * Workflow jobs, workflow actions, coordinator jobs and coordinator actions are inserted, loaded and updated, each
+ * operation in its own transaction. The average time per operation is printed out together with the JPA entities
+ * enhancement mode, so load and flush costs can be compared across releases.
+ * <p/>
+ * It is not run as part of the testcases, it is run with <code>mvn test -Dtest=StoreCrudBenchmark</code>, the number
+ * of entities per operation can be set with <code>-Doozie.test.benchmark.entities=N</code> (default 500).
+ */
+public class StoreCrudBenchmark extends XTestCase {
+    private Services services;
+    private int entities;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        services = new Services();
+        cleanUpDB(services.getConf());
+        services.init();
+        entities = Integer.parseInt(System.getProperty("oozie.test.benchmark.entities", "500"));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        services.destroy();
+        super.tearDown();
+    }
+
+    private abstract class Operation {
+        private final String name;
+
+        private Operation(String name) {
+            this.name = name;
+        }
+
+        abstract void run(Store store, int i) throws Exception;
+
+        abstract Store createStore() throws Exception;
+
+        void measure() throws Exception {
+            // warm up
+            run(Math.min(entities, 50), true);
+            long time = run(entities, false);
+            System.out.println(String.format("%-28s: %8.3f ms/op", name, (double) time / entities));
+        }
+
+        private long run(int count, boolean warmUp) throws Exception {
+            long start = System.currentTimeMillis();
+            for (int i = 0; i < count; i++) {
+                Store store = createStore();
+                store.beginTrx();
+                run(store, (warmUp) ? -i - 1 : i);
+                store.commitTrx();
+                store.closeTrx();
+            }
+            return System.currentTimeMillis() - start;
+        }
+    }
+
+    private abstract class WorkflowOperation extends Operation {
+        private WorkflowOperation(String name) {
+            super(name);
+        }
+
+        @Override
+        Store createStore() throws Exception {
+            return Services.get().get(WorkflowStoreService.class).create();
+        }
+    }
+
+    private abstract class CoordinatorOperation extends Operation {
+        private CoordinatorOperation(String name) {
+            super(name);
+        }
+
+        @Override
+        Store createStore() throws Exception {
+            return Services.get().get(CoordinatorStoreService.class).create();
+        }
+    }
+
+    public void testCrud() throws Exception {
+        System.out.println("JPA entities enhanced at build time: " + StoreService.isEnhanced());
+        final List<String> workflowIds = new ArrayList<String>();
+        final List<String> warmUpWorkflowIds = new ArrayList<String>();
+
+        new WorkflowOperation("WorkflowStore.insertWorkflow") {
+            void run(Store store, int i) throws Exception {
+                WorkflowJobBean workflow = TestStoreGroupCommit.createWorkflow("u" + i);
+                ((WorkflowStore) store).insertWorkflow(workflow);
+                ((i < 0) ? warmUpWorkflowIds : workflowIds).add(workflow.getId());
+            }
+        }.measure();
+        new WorkflowOperation("WorkflowStore.getWorkflow") {
+            void run(Store store, int i) throws Exception {
+                ((WorkflowStore) store).getWorkflow(getId(workflowIds, warmUpWorkflowIds, i), false);
+            }
+        }.measure();
+        new WorkflowOperation("WorkflowStore.updateWorkflow") {
+            void run(Store store, int i) throws Exception {
+                WorkflowStore wfStore = (WorkflowStore) store;
+                WorkflowJobBean workflow = wfStore.getWorkflow(getId(workflowIds, warmUpWorkflowIds, i), false);
+                workflow.setStatus(WorkflowJob.Status.RUNNING);
+                workflow.setStartTime(new Date());
+                wfStore.updateWorkflow(workflow);
+            }
+        }.measure();
+
+        new WorkflowOperation("WorkflowStore.insertAction") {
+            void run(Store store, int i) throws Exception {
+                WorkflowActionBean action = new WorkflowActionBean();
+                action.setId(getId(workflowIds, warmUpWorkflowIds, i) + "@a");
+                action.setJobId(getId(workflowIds, warmUpWorkflowIds, i));
+                action.setName("a");
+                action.setConf("<java/>");
+                action.setStatus(WorkflowAction.Status.PREP);
+                ((WorkflowStore) store).insertAction(action);
+            }
+        }.measure();
+        new WorkflowOperation("WorkflowStore.getAction") {
+            void run(Store store, int i) throws Exception {
+                ((WorkflowStore) store).getAction(getId(workflowIds, warmUpWorkflowIds, i) + "@a", false);
+            }
+        }.measure();
+        new WorkflowOperation("WorkflowStore.updateAction") {
+            void run(Store store, int i) throws Exception {
+                WorkflowStore wfStore = (WorkflowStore) store;
+                WorkflowActionBean action = wfStore.getAction(getId(workflowIds, warmUpWorkflowIds, i) + "@a", false);
+                action.setStatus(WorkflowAction.Status.RUNNING);
+                action.setExternalStatus("RUNNING");
+                action.setLastCheckTime(new Date());
+                wfStore.updateAction(action);
+            }
+        }.measure();
+
+        new CoordinatorOperation("CoordinatorStore.insertJob") {
+            void run(Store store, int i) throws Exception {
+                CoordinatorJobBean job = new CoordinatorJobBean();
+                job.setId("job-" + i);
+                job.setAppName("app");
+                job.setAppPath("path");
+                job.setStatus(CoordinatorJob.Status.PREP);
+                job.setCreatedTime(new Date());
+                job.setUser("u");
+                job.setGroup("g");
+                job.setConf("<configuration/>");
+                job.setJobXml("<coordinator-app/>");
+                job.setFrequency(1);
+                job.setTimeUnit(CoordinatorJob.Timeunit.DAY);
+                job.setStartTime(new Date());
+                job.setEndTime(new Date());
+                ((CoordinatorStore) store).insertCoordinatorJob(job);
+            }
+        }.measure();
+        new CoordinatorOperation("CoordinatorStore.getJob") {
+            void run(Store store, int i) throws Exception {
+                ((CoordinatorStore) store).getCoordinatorJob("job-" + i, false);
+            }
+        }.measure();
+        new CoordinatorOperation("CoordinatorStore.updateJob") {
+            void run(Store store, int i) throws Exception {
+                CoordinatorStore coordStore = (CoordinatorStore) store;
+                CoordinatorJobBean job = coordStore.getCoordinatorJob("job-" + i, false);
+                job.setStatus(CoordinatorJob.Status.RUNNING);
+                coordStore.updateCoordinatorJob(job);
+            }
+        }.measure();
+
+        new CoordinatorOperation("CoordinatorStore.insertAction") {
+            void run(Store store, int i) throws Exception {
+                CoordinatorActionBean action = new CoordinatorActionBean();
+                action.setId("job-" + i + "@1");
+                action.setJobId("job-" + i);
+                action.setActionNumber(1);
+                action.setNominalTime(new Date());
+                action.setStatus(CoordinatorAction.Status.WAITING);
+                action.setActionXml("<coordinator-app/>");
+                ((CoordinatorStore) store).insertCoordinatorAction(action);
+            }
+        }.measure();
+        new CoordinatorOperation("CoordinatorStore.getAction") {
+            void run(Store store, int i) throws Exception {
+                ((CoordinatorStore) store).getCoordinatorAction("job-" + i + "@1", false);
+            }
+        }.measure();
+        new CoordinatorOperation("CoordinatorStore.updateAction") {
+            void run(Store store, int i) throws Exception {
+                CoordinatorStore coordStore = (CoordinatorStore) store;
+                CoordinatorActionBean action = coordStore.getCoordinatorAction("job-" + i + "@1", false);
+                action.setStatus(CoordinatorAction.Status.READY);
+                coordStore.updateCoordinatorAction(action);
+            }
+        }.measure();
+    }
+
+    private static String getId(List<String> ids, List<String> warmUpIds, int i) {
+        return (i < 0) ? warmUpIds.get(-i - 1) : ids.get(i);
+    }
+
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.store;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.oozie.WorkflowJobBean;
+import org.apache.oozie.client.WorkflowJob;
+import org.apache.oozie.service.Services;
+import org.apache.oozie.service.StoreService;
+import org.apache.oozie.service.WorkflowStoreService;
+import org.apache.oozie.test.XTestCase;
+
+/**
+ * Commands per second, with and without group commit, of command like transactions that read a workflow job, update
+ * it and commit, against the test database.
+ * <p/>
+ * It is not run as part of the testcases, it is run with <code>mvn test -Dtest=StoreGroupCommitBenchmark</code>.
+ */
+public class StoreGroupCommitBenchmark extends XTestCase {
+    private static final int THREADS = 20;
+    private static final int COMMANDS_PER_THREAD = 100;
+
+    public void testCommandsPerSecond() throws Exception {
+        double plain = run(false);
+        double grouped = run(true);
+        System.out.println(String.format("threads[%d] commands/sec: no group commit[%.1f] group commit[%.1f]",
+                                         THREADS, plain, grouped));
+    }
+
+    private double run(boolean groupCommit) throws Exception {
+        Services services = new Services();
+        cleanUpDB(services.getConf());
+        services.getConf().setBoolean(StoreService.CONF_GROUP_COMMIT, groupCommit);
+        services.init();
+        try {
+            final List<String> ids = new ArrayList<String>();
+            WorkflowStore store = Services.get().get(WorkflowStoreService.class).create();
+            store.beginTrx();
+            for (int i = 0; i < THREADS; i++) {
+                WorkflowJobBean workflow = TestStoreGroupCommit.createWorkflow("u" + i);
+                store.insertWorkflow(workflow);
+                ids.add(workflow.getId());
+            }
+            store.commitTrx();
+            store.closeTrx();
+
+            final CountDownLatch done = new CountDownLatch(THREADS);
+            long start = System.currentTimeMillis();
+            for (final String id : ids) {
+                new Thread() {
+                    public void run() {
+                        try {
+                            for (int i = 0; i < COMMANDS_PER_THREAD; i++) {
+                                WorkflowStore store = Services.get().get(WorkflowStoreService.class).create();
+                                store.beginTrx();
+                                WorkflowJobBean workflow = store.getWorkflow(id, false);
+                                workflow.setStatus((i % 2 == 0) ? WorkflowJob.Status.RUNNING
+                                                                : WorkflowJob.Status.SUSPENDED);
+                                store.updateWorkflow(workflow);
+                                store.commitTrx();
+                                store.closeTrx();
+                            }
+                        }
+                        catch (Exception ex) {
+                            throw new RuntimeException(ex);
+                        }
+                        finally {
+                            done.countDown();
+                        }
+                    }
+                }.start();
+            }
+            done.await();
+            long elapsed = Math.max(1, System.currentTimeMillis() - start);
+            return THREADS * COMMANDS_PER_THREAD * 1000.0 / elapsed;
+        }
+        finally {
+            services.destroy();
+        }
+    }
+
+}
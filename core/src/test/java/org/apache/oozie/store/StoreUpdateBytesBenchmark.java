@@ -0,0 +1,136 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.store;
+
+import java.util.Date;
+import java.util.Map;
+
+import org.apache.oozie.WorkflowActionBean;
+import org.apache.oozie.WorkflowJobBean;
+import org.apache.oozie.client.WorkflowAction;
+import org.apache.oozie.client.WorkflowJob;
+import org.apache.oozie.service.InstrumentationService;
+import org.apache.oozie.service.Services;
+import org.apache.oozie.service.WorkflowStoreService;
+import org.apache.oozie.test.XTestCase;
+import org.apache.oozie.util.DirtyFieldTracker;
+import org.apache.oozie.util.Instrumentation;
+
+/**
+ * Bytes written per command by the workflow and action updates, against the test database.
+ * <p/>
+ * A workflow with a large configuration and an action are updated the way <code>SignalCommand</code> (job and action
+ * status) and <code>ActionCheckCommand</code> (action external status and last check time) do. The bytes written by
+ * the partial updates are compared with the bytes a full row update writes.
+ * <p/>
+ * It is not run as part of the testcases, it is run with <code>mvn test -Dtest=StoreUpdateBytesBenchmark</code>.
+ */
+public class StoreUpdateBytesBenchmark extends XTestCase {
+    private static final int COMMANDS = 100;
+    private static final int CONF_SIZE = 100 * 1024;
+
+    private Services services;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        services = new Services();
+        cleanUpDB(services.getConf());
+        services.init();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        services.destroy();
+        super.tearDown();
+    }
+
+    public void testBytesPerCommand() throws Exception {
+        StringBuilder conf = new StringBuilder("<configuration>");
+        while (conf.length() < CONF_SIZE) {
+            conf.append("<property><name>p").append(conf.length()).append("</name><value>v</value></property>");
+        }
+        conf.append("</configuration>");
+
+        WorkflowJobBean workflow = TestStoreGroupCommit.createWorkflow("u");
+        workflow.setConf(conf.toString());
+        workflow.setProtoActionConf(conf.toString());
+        WorkflowActionBean action = new WorkflowActionBean();
+        action.setId(workflow.getId() + "@a");
+        action.setJobId(workflow.getId());
+        action.setName("a");
+        action.setConf(conf.toString());
+        action.setStatus(WorkflowAction.Status.PREP);
+        WorkflowStore store = Services.get().get(WorkflowStoreService.class).create();
+        store.beginTrx();
+        store.insertWorkflow(workflow);
+        store.insertAction(action);
+        store.commitTrx();
+        store.closeTrx();
+
+        long full = 0;
+        long time = System.currentTimeMillis();
+        for (int i = 0; i < COMMANDS; i++) {
+            store = Services.get().get(WorkflowStoreService.class).create();
+            store.beginTrx();
+            workflow = store.getWorkflow(workflow.getId(), false);
+            action = store.getAction(action.getId(), false);
+            workflow.setStatus((i % 2 == 0) ? WorkflowJob.Status.RUNNING : WorkflowJob.Status.SUSPENDED);
+            action.setStatus((i % 2 == 0) ? WorkflowAction.Status.RUNNING : WorkflowAction.Status.OK);
+            full += sizeOf(workflow.getUpdatableFields()) + 8 + sizeOf(action.getUpdatableFields());
+            store.updateWorkflow(workflow);
+            store.updateAction(action);
+            store.commitTrx();
+            store.closeTrx();
+        }
+        time = System.currentTimeMillis() - time;
+        long signal = getBytes("updateWorkflow.bytes") + getBytes("updateAction.bytes");
+        System.out.println(String.format("SignalCommand-like     : full row [%d] bytes/command, partial [%d] " +
+                "bytes/command, %d ms/command", full / COMMANDS, signal / COMMANDS, time / COMMANDS));
+
+        full = 0;
+        time = System.currentTimeMillis();
+        for (int i = 0; i < COMMANDS; i++) {
+            store = Services.get().get(WorkflowStoreService.class).create();
+            store.beginTrx();
+            action = store.getAction(action.getId(), false);
+            action.setExternalStatus((i % 2 == 0) ? "RUNNING" : "PREP");
+            action.setLastCheckTime(new Date());
+            full += sizeOf(action.getUpdatableFields());
+            store.updateAction(action);
+            store.commitTrx();
+            store.closeTrx();
+        }
+        time = System.currentTimeMillis() - time;
+        long check = getBytes("updateWorkflow.bytes") + getBytes("updateAction.bytes") - signal;
+        System.out.println(String.format("ActionCheckCommand-like: full row [%d] bytes/command, partial [%d] " +
+                "bytes/command, %d ms/command", full / COMMANDS, check / COMMANDS, time / COMMANDS));
+    }
+
+    private long sizeOf(Map<String, Object> fields) {
+        long bytes = 0;
+        for (Object value : fields.values()) {
+            bytes += DirtyFieldTracker.sizeOf(value);
+        }
+        return bytes;
+    }
+
+    private long getBytes(String name) {
+        Instrumentation instr = Services.get().get(InstrumentationService.class).get();
+        Map<String, Instrumentation.Element<Long>> counters = instr.getCounters().get("db");
+        return (counters != null && counters.containsKey(name)) ? counters.get(name).getValue() : 0;
+    }
+
+}
@@ -57,6 +57,7 @@ public class TestCoordinatorStore extends XTestCase {
             _testUpdateCoordJob(jobId);
             _testInsertAction(jobId, actionId);
             _testGetAction(jobId, actionId);
+            _testGetSummaries(jobId, actionId);
             _testGetActionForJob(jobId, actionId);
             _testGetActionForJobInExecOrder(jobId, actionId);
             _testGetActionForJobInLastOnly(jobId, actionId);
@@ -220,6 +221,30 @@ public class TestCoordinatorStore extends XTestCase {
         }
     }
 
+    private void _testGetSummaries(String jobId, String actionId) throws StoreException {
+        store.beginTrx();
+        try {
+            CoordinatorJobSummary job = store.getCoordinatorJobSummary(jobId);
+            assertEquals(jobId, job.getId());
+            assertEquals("testUser", job.getUser());
+            assertEquals("testGroup", job.getGroup());
+            assertNotNull(job.getStatus());
+            // the action is READY, it is neither running nor waiting for recovery
+            for (CoordinatorActionSummary action : store.getRunningActionSummariesOlderThan(60)) {
+                assertFalse(action.getId().equals(actionId));
+            }
+            for (CoordinatorActionSummary action : store.getRecoveryActionSummariesOlderThan(60)) {
+                assertFalse(action.getId().equals(actionId));
+            }
+            store.commitTrx();
+        }
+        catch (Exception ex) {
+            store.rollbackTrx();
+            ex.printStackTrace();
+            fail("Unable to GET summaries for COORD Job. jobId =" + jobId);
+        }
+    }
+
     private void _testGetRecoveryActionsGroupByJobId(String jobId) throws StoreException {
         store.beginTrx();
         try {
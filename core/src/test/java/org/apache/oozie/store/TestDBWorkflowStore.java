@@ -27,6 +27,7 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.oozie.client.WorkflowAction;
 import org.apache.oozie.client.WorkflowJob;
 import org.apache.oozie.client.OozieClient;
+import org.apache.oozie.ErrorCode;
 import org.apache.oozie.WorkflowActionBean;
 import org.apache.oozie.WorkflowJobBean;
 import org.apache.oozie.WorkflowsInfo;
@@ -70,6 +71,7 @@ public class TestDBWorkflowStore extends XTestCase {
     public void testDBWorkflowStore() throws Exception {
         _testInsertWF();
         _testGetWF();
+        _testGetWFSummary();
         _testUpdateWF();
         _testGetStatusCount();
         // _testWaitWriteLock();
@@ -83,6 +85,8 @@ public class TestDBWorkflowStore extends XTestCase {
         System.out.println("after _testGetActionForWFFailure()");
         _testGetPendingActions();
         System.out.println("after _testPendingAction()");
+        _testGetPendingActionSummaries();
+        _testUpdateActionsLastCheckTime();
         _testGetWFInfo();
         System.out.println("after _testWFInfo()");
         // _testGetWFInfos();
@@ -163,6 +167,22 @@ public class TestDBWorkflowStore extends XTestCase {
         assertEquals(wfBean.getWorkflowInstance().getId(), wfBean1.getId());
     }
 
+    private void _testGetWFSummary() throws StoreException {
+        WorkflowJobSummary summary = store.getWorkflowSummary(wfBean1.getId());
+        assertEquals(wfBean1.getId(), summary.getId());
+        assertEquals(WorkflowJob.Status.PREP, summary.getStatus());
+        assertEquals(wfBean1.getUser(), summary.getUser());
+        assertEquals(wfBean1.getGroup(), summary.getGroup());
+        assertEquals(0, summary.getVersion());
+        try {
+            store.getWorkflowSummary("non-existing-jobid");
+            fail("Should have seen StoreException.");
+        }
+        catch (StoreException ex) {
+            assertEquals(ErrorCode.E0604, ex.getErrorCode());
+        }
+    }
+
     private void _testUpdateWF() throws StoreException {
         wfBean1.setStatus(WorkflowJob.Status.SUCCEEDED);
         WorkflowInstance wfInstance = wfBean1.getWorkflowInstance();
@@ -171,6 +191,7 @@ public class TestDBWorkflowStore extends XTestCase {
         wfBean1.setExternalId("testExtId");
         store.getWorkflow(wfBean1.getId(), false);
         store.updateWorkflow(wfBean1);
+        assertEquals(1, store.getWorkflowSummary(wfBean1.getId()).getVersion());
         WorkflowJobBean wfBean = store.getWorkflow(wfBean1.getId(), false);
         assertEquals("hello", wfBean.getWorkflowInstance().getVar("test"));
         assertEquals(wfBean.getStatus(), WorkflowJob.Status.SUCCEEDED);
@@ -389,6 +410,49 @@ public class TestDBWorkflowStore extends XTestCase {
         store.commitTrx();
     }
 
+    private void _testGetPendingActionSummaries() throws StoreException {
+        store.beginTrx();
+        WorkflowActionSummary summary = null;
+        for (WorkflowActionSummary action : store.getPendingActionSummaries(5)) {
+            if (action.getId().equals(actionId)) {
+                summary = action;
+            }
+        }
+        assertNotNull(summary);
+        assertEquals(wfBean1.getId(), summary.getJobId());
+        assertEquals(WorkflowAction.Status.OK, summary.getStatus());
+        assertNotNull(summary.getPendingAge());
+        for (WorkflowActionSummary action : store.getRunningActionSummaries(0)) {
+            assertFalse(action.getId().equals(actionId));
+        }
+        store.commitTrx();
+    }
+
+    private void _testUpdateActionsLastCheckTime() throws StoreException {
+        WorkflowActionBean a11 = store.getAction(actionId, false);
+        a11.setStatus(WorkflowAction.Status.RUNNING);
+        a11.setTrackerUri("jt");
+        store.beginTrx();
+        store.updateAction(a11);
+        Date lastCheckTime = new Date((System.currentTimeMillis() / 1000 - 60) * 1000);
+        assertEquals(1, store.updateActionsLastCheckTime(Arrays.asList(actionId), lastCheckTime));
+        store.commitTrx();
+
+        store.beginTrx();
+        assertEquals(lastCheckTime.getTime(), store.getAction(actionId, false).getLastCheckTime().getTime());
+        WorkflowActionSummary summary = null;
+        for (WorkflowActionSummary action : store.getRunningActionSummaries(0)) {
+            if (action.getId().equals(actionId)) {
+                summary = action;
+            }
+        }
+        assertNotNull(summary);
+        assertEquals("jt", summary.getTrackerUri());
+        assertEquals(wfBean1.getUser(), summary.getUser());
+        assertEquals(wfBean1.getGroup(), summary.getGroup());
+        store.commitTrx();
+    }
+
     private void _testGetWFInfo() throws StoreException {
         store.beginTrx();
         WorkflowJobBean wfBean = store.getWorkflowInfo(wfBean1.getId());
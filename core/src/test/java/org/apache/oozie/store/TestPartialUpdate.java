@@ -0,0 +1,186 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.store;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.oozie.WorkflowActionBean;
+import org.apache.oozie.WorkflowJobBean;
+import org.apache.oozie.client.WorkflowAction;
+import org.apache.oozie.client.WorkflowJob;
+import org.apache.oozie.service.InstrumentationService;
+import org.apache.oozie.service.Services;
+import org.apache.oozie.service.WorkflowStoreService;
+import org.apache.oozie.test.XTestCase;
+import org.apache.oozie.util.Instrumentation;
+
+public class TestPartialUpdate extends XTestCase {
+    private Services services;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        services = new Services();
+        cleanUpDB(services.getConf());
+        services.init();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        services.destroy();
+        super.tearDown();
+    }
+
+    public void testStatement() {
+        Map<String, Object> fields = new LinkedHashMap<String, Object>();
+        fields.put("status", "RUNNING");
+        fields.put("conf", "<configuration/>");
+        PartialUpdate update = new PartialUpdate("WorkflowJobBean", "id", fields);
+        assertEquals("update WorkflowJobBean e set e.status = :p0, e.conf = :p1 where e.id = :id",
+                     update.getStatement());
+        assertEquals(7 + 16, update.getBytes());
+
+        fields.clear();
+        fields.put("status", "SUCCEEDED");
+        fields.put("run", 1);
+        PartialUpdate next = new PartialUpdate("WorkflowJobBean", "id", fields);
+        next.merge(update);
+        assertEquals("update WorkflowJobBean e set e.status = :p0, e.run = :p1, e.conf = :p2 where e.id = :id",
+                     next.getStatement());
+        assertEquals(9 + 4 + 16, next.getBytes());
+
+        assertTrue(new PartialUpdate("WorkflowJobBean", "id", new LinkedHashMap<String, Object>()).isEmpty());
+
+        PartialUpdate increment = new PartialUpdate("WorkflowJobBean", "id", new LinkedHashMap<String, Object>());
+        increment.increment("version");
+        assertFalse(increment.isEmpty());
+        next.merge(increment);
+        assertEquals("update WorkflowJobBean e set e.status = :p0, e.run = :p1, e.conf = :p2, " +
+                     "e.version = e.version + 1 where e.id = :id", next.getStatement());
+    }
+
+    private long getBytes(String name) {
+        Instrumentation instr = Services.get().get(InstrumentationService.class).get();
+        Map<String, Instrumentation.Element<Long>> counters = instr.getCounters().get("db");
+        return (counters != null && counters.containsKey(name)) ? counters.get(name).getValue() : 0;
+    }
+
+    public void testUpdateWorkflow() throws Exception {
+        WorkflowJobBean workflow = TestStoreGroupCommit.createWorkflow("u");
+        WorkflowStore store = Services.get().get(WorkflowStoreService.class).create();
+        store.beginTrx();
+        store.insertWorkflow(workflow);
+        store.commitTrx();
+        store.closeTrx();
+
+        store = Services.get().get(WorkflowStoreService.class).create();
+        store.beginTrx();
+        workflow = store.getWorkflow(workflow.getId(), false);
+        assertTrue(workflow.getDirtyFields().isEmpty());
+        workflow.setStatus(WorkflowJob.Status.RUNNING);
+        workflow.setConf(new String(workflow.getConf()));
+        assertEquals("[status]", workflow.getDirtyFields().keySet().toString());
+        store.updateWorkflow(workflow);
+        assertEquals("[status]", workflow.getDirtyFields().keySet().toString());
+        store.commitTrx();
+        store.closeTrx();
+        assertTrue(workflow.getDirtyFields().isEmpty());
+
+        // status and last modified time only
+        assertEquals(7 + 8, getBytes("updateWorkflow.bytes"));
+
+        store = Services.get().get(WorkflowStoreService.class).create();
+        store.beginTrx();
+        WorkflowJobBean loaded = store.getWorkflow(workflow.getId(), false);
+        assertEquals(WorkflowJob.Status.RUNNING, loaded.getStatus());
+        assertEquals(workflow.getConf(), loaded.getConf());
+        assertNotNull(loaded.getWorkflowInstance());
+        store.commitTrx();
+        store.closeTrx();
+    }
+
+    public void testUpdateAction() throws Exception {
+        WorkflowActionBean action = new WorkflowActionBean();
+        action.setId("a-" + System.currentTimeMillis());
+        action.setJobId("w");
+        action.setName("a");
+        action.setConf("<action/>");
+        action.setStatus(WorkflowAction.Status.PREP);
+        WorkflowStore store = Services.get().get(WorkflowStoreService.class).create();
+        store.beginTrx();
+        store.insertAction(action);
+        store.commitTrx();
+        store.closeTrx();
+
+        store = Services.get().get(WorkflowStoreService.class).create();
+        store.beginTrx();
+        action = store.getAction(action.getId(), false);
+        store.updateAction(action);
+        assertEquals(0, getBytes("updateAction.bytes"));
+        action.setStatus(WorkflowAction.Status.RUNNING);
+        action.setExternalStatus("RUNNING");
+        store.updateAction(action);
+        store.commitTrx();
+        store.closeTrx();
+        assertEquals(7 + 7, getBytes("updateAction.bytes"));
+
+        store = Services.get().get(WorkflowStoreService.class).create();
+        store.beginTrx();
+        WorkflowActionBean loaded = store.getAction(action.getId(), false);
+        assertEquals(WorkflowAction.Status.RUNNING, loaded.getStatus());
+        assertEquals("RUNNING", loaded.getExternalStatus());
+        assertEquals("<action/>", loaded.getConf());
+        store.commitTrx();
+        store.closeTrx();
+    }
+
+    public void testRollbackKeepsDirtyFields() throws Exception {
+        WorkflowActionBean action = new WorkflowActionBean();
+        action.setId("a-" + System.currentTimeMillis());
+        action.setJobId("w");
+        action.setName("a");
+        action.setStatus(WorkflowAction.Status.PREP);
+        WorkflowStore store = Services.get().get(WorkflowStoreService.class).create();
+        store.beginTrx();
+        store.insertAction(action);
+        store.commitTrx();
+        store.closeTrx();
+
+        store = Services.get().get(WorkflowStoreService.class).create();
+        store.beginTrx();
+        action = store.getAction(action.getId(), false);
+        action.setStatus(WorkflowAction.Status.RUNNING);
+        store.updateAction(action);
+        store.rollbackTrx();
+        store.closeTrx();
+        assertEquals("[status]", action.getDirtyFields().keySet().toString());
+
+        // the retry writes the status again
+        store = Services.get().get(WorkflowStoreService.class).create();
+        store.beginTrx();
+        store.updateAction(action);
+        store.commitTrx();
+        store.closeTrx();
+        assertTrue(action.getDirtyFields().isEmpty());
+
+        store = Services.get().get(WorkflowStoreService.class).create();
+        store.beginTrx();
+        assertEquals(WorkflowAction.Status.RUNNING, store.getAction(action.getId(), false).getStatus());
+        store.commitTrx();
+        store.closeTrx();
+    }
+
+}
@@ -14,9 +14,13 @@
  */
 package org.apache.oozie.store;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
 import org.apache.oozie.SLAEventBean;
+import org.apache.oozie.client.SLAEvent;
 import org.apache.oozie.service.SLAStoreService;
 import org.apache.oozie.service.Services;
 import org.apache.oozie.test.XTestCase;
@@ -52,6 +56,64 @@ public class TestSLAStore extends XTestCase {
         }
     }
 
+    public void testStreamSLAEvents() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            SLAEventBean sla = createSLAEvent("s" + i);
+            sla.setAppType(SLAEvent.SlaAppType.WORKFLOW_JOB);
+            sla.setJobStatus(SLAEvent.Status.STARTED);
+            sla.setStatusTimestamp(new Date());
+            store.beginTrx();
+            store.insertSLAEvent(sla);
+            store.commitTrx();
+        }
+        final List<SLAEventBean> events = new ArrayList<SLAEventBean>();
+        SLAStore.SLAEventHandler handler = new SLAStore.SLAEventHandler() {
+            public void handle(SLAEventBean event) throws IOException {
+                events.add(event);
+            }
+        };
+        long lastSeqId = store.streamSLAEventsNewerSeqLimited(0, 2, handler);
+        assertEquals(2, events.size());
+        assertEquals("s0", events.get(0).getSlaId());
+        assertEquals(SLAEvent.Status.STARTED, events.get(1).getJobStatus());
+        assertEquals(events.get(1).getEvent_id(), lastSeqId);
+        assertFalse(store.getEntityManager().contains(events.get(0)));
+
+        events.clear();
+        lastSeqId = store.streamSLAEventsNewerSeqLimited(lastSeqId, 10, handler);
+        assertEquals(1, events.size());
+        assertEquals("s2", events.get(0).getSlaId());
+        assertEquals(events.get(0).getEvent_id(), lastSeqId);
+
+        events.clear();
+        assertEquals(lastSeqId, store.streamSLAEventsNewerSeqLimited(lastSeqId, 10, handler));
+        assertEquals(0, events.size());
+    }
+
+    public void testSLAEventNotifier() throws Exception {
+        final long version = SLAEventNotifier.getVersion();
+        assertEquals(version, SLAEventNotifier.await(version, 10));
+        final long[] woken = new long[]{version};
+        Thread waiter = new Thread() {
+            public void run() {
+                try {
+                    woken[0] = SLAEventNotifier.await(version, 10000);
+                }
+                catch (InterruptedException ex) {
+                }
+            }
+        };
+        waiter.start();
+        SLAEventBean sla = createSLAEvent("n");
+        sla.setAppType(SLAEvent.SlaAppType.WORKFLOW_JOB);
+        sla.setJobStatus(SLAEvent.Status.SUCCEEDED);
+        store.beginTrx();
+        store.insertSLAEvent(sla);
+        store.commitTrx();
+        waiter.join(5000);
+        assertTrue(woken[0] > version);
+    }
+
     private void _testGetSlaEventSeqNewerLimited(long seqId, int limitLen) {
         // store.beginTrx();
         try {
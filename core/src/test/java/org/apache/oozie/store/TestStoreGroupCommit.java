@@ -0,0 +1,214 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.store;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.oozie.WorkflowJobBean;
+import org.apache.oozie.client.OozieClient;
+import org.apache.oozie.client.WorkflowJob;
+import org.apache.oozie.service.InstrumentationService;
+import org.apache.oozie.service.Services;
+import org.apache.oozie.service.StoreService;
+import org.apache.oozie.service.WorkflowStoreService;
+import org.apache.oozie.test.XTestCase;
+import org.apache.oozie.util.Instrumentation;
+import org.apache.oozie.util.XmlUtils;
+import org.apache.oozie.workflow.WorkflowApp;
+import org.apache.oozie.workflow.WorkflowInstance;
+import org.apache.oozie.workflow.WorkflowLib;
+import org.apache.oozie.workflow.lite.EndNodeDef;
+import org.apache.oozie.workflow.lite.LiteWorkflowApp;
+import org.apache.oozie.workflow.lite.StartNodeDef;
+
+public class TestStoreGroupCommit extends XTestCase {
+    private Services services;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        services = new Services();
+        cleanUpDB(services.getConf());
+        services.getConf().setBoolean(StoreService.CONF_GROUP_COMMIT, true);
+        services.init();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        services.destroy();
+        super.tearDown();
+    }
+
+    static WorkflowJobBean createWorkflow(String user) throws Exception {
+        WorkflowApp app = new LiteWorkflowApp("testApp", "<workflow-app/>", new StartNodeDef("end"))
+                .addNode(new EndNodeDef("end"));
+        Configuration conf = new Configuration();
+        conf.set(OozieClient.APP_PATH, "testPath");
+        conf.set(OozieClient.USER_NAME, user);
+        conf.set(OozieClient.GROUP_NAME, "testGroup");
+        WorkflowLib workflowLib = Services.get().get(WorkflowStoreService.class).getWorkflowLibWithNoDB();
+        WorkflowInstance wfInstance = workflowLib.createInstance(app, conf);
+        WorkflowJobBean workflow = new WorkflowJobBean();
+        workflow.setId(wfInstance.getId());
+        workflow.setAppName(app.getName());
+        workflow.setAppPath(conf.get(OozieClient.APP_PATH));
+        workflow.setConf(XmlUtils.prettyPrint(conf).toString());
+        workflow.setCreatedTime(new Date());
+        workflow.setStatus(WorkflowJob.Status.PREP);
+        workflow.setRun(0);
+        workflow.setUser(user);
+        workflow.setGroup("testGroup");
+        workflow.setWorkflowInstance(wfInstance);
+        return workflow;
+    }
+
+    private List<String> insertWorkflows(int count) throws Exception {
+        List<String> ids = new ArrayList<String>();
+        WorkflowStore store = Services.get().get(WorkflowStoreService.class).create();
+        store.beginTrx();
+        for (int i = 0; i < count; i++) {
+            WorkflowJobBean workflow = createWorkflow("u" + i);
+            store.insertWorkflow(workflow);
+            ids.add(workflow.getId());
+        }
+        store.commitTrx();
+        store.closeTrx();
+        return ids;
+    }
+
+    private WorkflowJob.Status getStatus(String id) throws Exception {
+        WorkflowStore store = Services.get().get(WorkflowStoreService.class).create();
+        store.beginTrx();
+        WorkflowJob.Status status = store.getWorkflow(id, false).getStatus();
+        store.commitTrx();
+        store.closeTrx();
+        return status;
+    }
+
+    public void testGroupCommit() throws Exception {
+        List<String> ids = insertWorkflows(10);
+        List<Thread> threads = new ArrayList<Thread>();
+        final List<Exception> errors = new ArrayList<Exception>();
+        for (final String id : ids) {
+            Thread thread = new Thread() {
+                public void run() {
+                    try {
+                        WorkflowStore store = Services.get().get(WorkflowStoreService.class).create();
+                        store.beginTrx();
+                        WorkflowJobBean workflow = store.getWorkflow(id, false);
+                        workflow.setStatus(WorkflowJob.Status.PREP);
+                        store.updateWorkflow(workflow);
+                        workflow.setStatus(WorkflowJob.Status.RUNNING);
+                        store.updateWorkflow(workflow);
+                        store.commitTrx();
+                        store.closeTrx();
+                    }
+                    catch (Exception ex) {
+                        synchronized (errors) {
+                            errors.add(ex);
+                        }
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, errors.size());
+        for (String id : ids) {
+            assertEquals(WorkflowJob.Status.RUNNING, getStatus(id));
+        }
+
+        // the two updates of each store are coalesced into one write
+        Instrumentation instr = Services.get().get(InstrumentationService.class).get();
+        assertEquals(10L, (long) instr.getCounters().get("db").get("group.commit.writes").getValue());
+        assertEquals(10L, (long) instr.getCounters().get("db").get("group.commit.stores").getValue());
+        assertTrue(instr.getCounters().get("db").get("group.commit.batches").getValue() <= 10);
+    }
+
+    public void testRollbackDiscardsDeferredWrites() throws Exception {
+        String id = insertWorkflows(1).get(0);
+        WorkflowStore store = Services.get().get(WorkflowStoreService.class).create();
+        store.beginTrx();
+        WorkflowJobBean workflow = store.getWorkflow(id, false);
+        workflow.setStatus(WorkflowJob.Status.RUNNING);
+        store.updateWorkflow(workflow);
+        store.rollbackTrx();
+        store.closeTrx();
+        assertEquals(WorkflowJob.Status.PREP, getStatus(id));
+    }
+
+    public void testDeferredPartialUpdatesAreMerged() throws Exception {
+        String id = insertWorkflows(1).get(0);
+        WorkflowStore store = Services.get().get(WorkflowStoreService.class).create();
+        store.beginTrx();
+        WorkflowJobBean workflow = store.getWorkflow(id, false);
+        workflow.setStatus(WorkflowJob.Status.RUNNING);
+        store.updateWorkflow(workflow);
+        workflow.setExternalId("external");
+        store.updateWorkflow(workflow);
+        store.commitTrx();
+        store.closeTrx();
+
+        store = Services.get().get(WorkflowStoreService.class).create();
+        store.beginTrx();
+        workflow = store.getWorkflow(id, false);
+        assertEquals(WorkflowJob.Status.RUNNING, workflow.getStatus());
+        assertEquals("external", workflow.getExternalId());
+        store.commitTrx();
+        store.closeTrx();
+    }
+
+    public void testMixedTransactionCommitsInOwnTransaction() throws Exception {
+        String id = insertWorkflows(1).get(0);
+        WorkflowStore store = Services.get().get(WorkflowStoreService.class).create();
+        store.beginTrx();
+        WorkflowJobBean workflow = store.getWorkflow(id, false);
+        workflow.setStatus(WorkflowJob.Status.RUNNING);
+        store.updateWorkflow(workflow);
+        WorkflowJobBean other = createWorkflow("other");
+        store.insertWorkflow(other);
+        store.commitTrx();
+        store.closeTrx();
+
+        assertEquals(WorkflowJob.Status.RUNNING, getStatus(id));
+        assertEquals(WorkflowJob.Status.PREP, getStatus(other.getId()));
+
+        // the deferred update went with the insert, not through the group committer
+        Instrumentation instr = Services.get().get(InstrumentationService.class).get();
+        Map<String, Instrumentation.Element<Long>> counters = instr.getCounters().get("db");
+        assertTrue(counters == null || !counters.containsKey("group.commit.writes"));
+    }
+
+    public void testQueriesSeeDeferredWrites() throws Exception {
+        String id = insertWorkflows(1).get(0);
+        WorkflowStore store = Services.get().get(WorkflowStoreService.class).create();
+        store.beginTrx();
+        WorkflowJobBean workflow = store.getWorkflow(id, false);
+        workflow.setStatus(WorkflowJob.Status.RUNNING);
+        store.updateWorkflow(workflow);
+        int running = store.getWorkflowCountWithStatus(WorkflowJob.Status.RUNNING.toString());
+        store.commitTrx();
+        store.closeTrx();
+        assertEquals(1, running);
+    }
+
+}
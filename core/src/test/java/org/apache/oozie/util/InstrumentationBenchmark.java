@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.util;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.oozie.test.XTestCase;
+
+/**
+ * Throughput of counter and timer updates from 64 threads on the same instrumentation elements, and cost of a
+ * snapshot of all the timers as done by the admin instrumentation requests.
+ * <p/>
+ * It is not run as part of the testcases, it is run with <code>mvn test -Dtest=InstrumentationBenchmark</code>.
+ */
+public class InstrumentationBenchmark extends XTestCase {
+    private static final int THREADS = 64;
+    private static final int UPDATES = 200000;
+    private static final String[] NAMES = {"a", "b", "c", "d", "e", "f", "g", "h"};
+
+    public void testUpdates() throws Exception {
+        // warm up
+        run(false);
+        run(true);
+
+        System.out.println(String.format("counter updates/sec, %d threads: %,.0f", THREADS, run(false)));
+        System.out.println(String.format("timer updates/sec, %d threads  : %,.0f", THREADS, run(true)));
+    }
+
+    public void testSnapshot() throws Exception {
+        Instrumentation inst = new Instrumentation();
+        for (int i = 0; i < 200; i++) {
+            for (int j = 0; j < 1000; j++) {
+                inst.addTime("group" + (i % 10), "timer" + i, j, j);
+            }
+        }
+        long time = System.nanoTime();
+        int snapshots = 1000;
+        for (int i = 0; i < snapshots; i++) {
+            for (Map<String, Instrumentation.Element<Instrumentation.Timer>> group : inst.getTimers().values()) {
+                for (Instrumentation.Element<Instrumentation.Timer> timer : group.values()) {
+                    timer.getValue().getTotalPercentile(99);
+                }
+            }
+        }
+        time = System.nanoTime() - time;
+        System.out.println(String.format("snapshot of 200 timers with p99 : %8.3f ms", time / 1000000d / snapshots));
+    }
+
+    private double run(final boolean timers) throws Exception {
+        final Instrumentation inst = new Instrumentation();
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch end = new CountDownLatch(THREADS);
+        for (int i = 0; i < THREADS; i++) {
+            new Thread() {
+                public void run() {
+                    try {
+                        start.await();
+                        for (int j = 0; j < UPDATES; j++) {
+                            String name = NAMES[j % NAMES.length];
+                            if (timers) {
+                                inst.addTime("benchmark", name, j & 1023, j & 1023);
+                            }
+                            else {
+                                inst.incr("benchmark", name, 1);
+                            }
+                        }
+                    }
+                    catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                    finally {
+                        end.countDown();
+                    }
+                }
+            }.start();
+        }
+        long time = System.nanoTime();
+        start.countDown();
+        end.await();
+        time = System.nanoTime() - time;
+        return (double) THREADS * UPDATES / time * 1000000000d;
+    }
+
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.util;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.oozie.util.PriorityDelayQueue.QueueElement;
+
+/**
+ * Throughput benchmark of the {@link PriorityDelayQueue} and the {@link ShardedPriorityDelayQueue}.
+ * <p/>
+ * For 1 to 64 threads, the same number of producer and consumer threads offer and poll elements with random
+ * priorities, 10% of them with a small delay. The elapsed time and the throughput of each run is printed out.
+ * <p/>
+ * It is not a testcase, it is run from the command line with the test classpath:
+ * <p/>
+ * <code>java -cp ... org.apache.oozie.util.PriorityDelayQueueBenchmark [ELEMENTS_PER_PRODUCER]</code>
+ */
+public class PriorityDelayQueueBenchmark {
+    private static final int PRIORITIES = 3;
+
+    public static void main(String[] args) throws Exception {
+        int elements = (args.length > 0) ? Integer.parseInt(args[0]) : 20000;
+
+        // warm up
+        run(false, 4, elements);
+        run(true, 4, elements);
+
+        System.out.println("threads  PriorityDelayQueue(ops/ms)  ShardedPriorityDelayQueue(ops/ms)");
+        for (int threads = 1; threads <= 64; threads *= 2) {
+            double locked = run(false, threads, elements);
+            double sharded = run(true, threads, elements);
+            System.out.println(String.format("%7d  %26.1f  %33.1f", threads, locked, sharded));
+        }
+    }
+
+    private static double run(boolean sharded, int threads, final int elements) throws Exception {
+        final BlockingPriorityDelayQueue<Integer> queue = (sharded)
+                ? new ShardedPriorityDelayQueue<Integer>(PRIORITIES, 500, TimeUnit.MILLISECONDS, -1)
+                : new PriorityDelayQueue<Integer>(PRIORITIES, 500, TimeUnit.MILLISECONDS, -1);
+        final int total = threads * elements;
+        final AtomicInteger consumed = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(2 * threads);
+
+        for (int i = 0; i < threads; i++) {
+            new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        start.await();
+                        for (int j = 0; j < elements; j++) {
+                            int delay = (j % 10 == 0) ? 5 : 0;
+                            queue.offer(new QueueElement<Integer>(j, j % PRIORITIES, delay, TimeUnit.MILLISECONDS));
+                        }
+                    }
+                    catch (InterruptedException ex) {
+                        throw new RuntimeException(ex);
+                    }
+                    finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+            new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        start.await();
+                        while (consumed.get() < total) {
+                            if (queue.poll() != null) {
+                                consumed.incrementAndGet();
+                            }
+                            else {
+                                Thread.yield();
+                            }
+                        }
+                    }
+                    catch (InterruptedException ex) {
+                        throw new RuntimeException(ex);
+                    }
+                    finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+        return (double) total / Math.max(1, elapsed);
+    }
+
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class TestCompactMap extends TestCase {
+
+    public void testPutGetRemove() {
+        Map<String, String> map = new CompactMap<String>();
+        assertTrue(map.isEmpty());
+        assertNull(map.put("b", "B"));
+        assertNull(map.put("a", "A"));
+        assertNull(map.put("c", "C"));
+        assertEquals("B", map.put("b", "BB"));
+        assertEquals(3, map.size());
+        assertEquals("A", map.get("a"));
+        assertEquals("BB", map.get("b"));
+        assertTrue(map.containsKey("c"));
+        assertFalse(map.containsKey("d"));
+        assertNull(map.get(1));
+
+        assertEquals("BB", map.remove("b"));
+        assertNull(map.remove("b"));
+        assertEquals(2, map.size());
+        assertNull(map.get("b"));
+        assertEquals("C", map.get("c"));
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get("a"));
+    }
+
+    public void testGrowth() {
+        Map<String, Integer> map = new CompactMap<Integer>();
+        Map<String, Integer> expected = new HashMap<String, Integer>();
+        for (int i = 1000; i > 0; i--) {
+            map.put("k" + i, i);
+            expected.put("k" + i, i);
+        }
+        assertEquals(expected, map);
+        assertEquals(expected.hashCode(), map.hashCode());
+        for (int i = 1; i <= 1000; i += 2) {
+            assertEquals(new Integer(i), map.remove("k" + i));
+            expected.remove("k" + i);
+        }
+        assertEquals(expected, map);
+    }
+
+    public void testIteration() {
+        CompactMap<String> map = new CompactMap<String>();
+        map.put("c", "C");
+        map.put("a", "A");
+        map.put("d", "D");
+        map.put("b", "B");
+
+        // in insertion order
+        assertEquals(Arrays.asList("c", "a", "d", "b"), new ArrayList<String>(map.keySet()));
+
+        Iterator<Map.Entry<String, String>> it = map.entrySet().iterator();
+        int visited = 0;
+        while (it.hasNext()) {
+            Map.Entry<String, String> entry = it.next();
+            visited++;
+            if (entry.getKey().equals("b") || entry.getKey().equals("c")) {
+                it.remove();
+            }
+            else {
+                entry.setValue(entry.getValue() + entry.getValue());
+            }
+        }
+        assertEquals(4, visited);
+        Map<String, String> expected = new HashMap<String, String>();
+        expected.put("a", "AA");
+        expected.put("d", "DD");
+        assertEquals(expected, map);
+
+        // removing moves the last entry to the position of the removed one
+        map.put("e", "E");
+        map.remove("a");
+        assertEquals(Arrays.asList("d", "e"), new ArrayList<String>(map.keySet()));
+    }
+
+}
@@ -0,0 +1,62 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.util;
+
+import java.sql.Timestamp;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class TestDirtyFieldTracker extends TestCase {
+
+    private Map<String, Object> values(String status, String conf, byte[] instance, Timestamp end) {
+        Map<String, Object> values = new LinkedHashMap<String, Object>();
+        values.put("status", status);
+        values.put("conf", conf);
+        values.put("instance", instance);
+        values.put("end", end);
+        return values;
+    }
+
+    public void testDirtyFields() {
+        DirtyFieldTracker tracker = new DirtyFieldTracker();
+        assertFalse(tracker.hasSnapshot());
+        assertEquals(4, tracker.getDirtyFields(values("PREP", "<conf/>", new byte[]{1}, null)).size());
+
+        tracker.reset(values("PREP", "<conf/>", new byte[]{1, 2}, null));
+        assertTrue(tracker.hasSnapshot());
+        assertTrue(tracker.getDirtyFields(values("PREP", new String("<conf/>"), new byte[]{1, 2}, null)).isEmpty());
+
+        Map<String, Object> dirty = tracker.getDirtyFields(values("RUNNING", "<conf/>", new byte[]{1, 3},
+                                                                  new Timestamp(0)));
+        assertEquals("[status, instance, end]", dirty.keySet().toString());
+        assertEquals("RUNNING", dirty.get("status"));
+
+        tracker.reset(values("RUNNING", "<conf/>", new byte[]{1, 3}, new Timestamp(0)));
+        dirty = tracker.getDirtyFields(values("RUNNING", null, new byte[]{1, 3}, new Timestamp(0)));
+        assertEquals("[conf]", dirty.keySet().toString());
+        assertNull(dirty.get("conf"));
+    }
+
+    public void testSizeOf() {
+        assertEquals(0, DirtyFieldTracker.sizeOf(null));
+        assertEquals(3, DirtyFieldTracker.sizeOf("abc"));
+        assertEquals(5, DirtyFieldTracker.sizeOf(new byte[5]));
+        assertEquals(4, DirtyFieldTracker.sizeOf(1));
+        assertEquals(8, DirtyFieldTracker.sizeOf(new Timestamp(0)));
+    }
+
+}
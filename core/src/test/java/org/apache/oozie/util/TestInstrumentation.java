@@ -289,15 +289,116 @@ public class TestInstrumentation extends XTestCase {
         Instrumentation.Cron cron1 = new Instrumentation.Cron();
         inst.addCron("a", "1", cron1);
 
-        assertEquals(4, inst.getAll().size());
+        assertEquals(5, inst.getAll().size());
         assertEquals(1, inst.getAll().get("variables").size());
         assertEquals(1, inst.getAll().get("counters").size());
         assertEquals(1, inst.getAll().get("timers").size());
         assertEquals(0, inst.getAll().get("samplers").size());
+        assertEquals(0, inst.getAll().get("latencies").size());
         assertEquals(new Long(0), ((Instrumentation.Element) inst.getAll().get("variables").get("a").get("1")).getValue());
         assertEquals(new Long(1), ((Instrumentation.Element) inst.getAll().get("counters").get("a").get("1")).getValue());
         assertEquals(cron1.getOwn(), ((Instrumentation.Timer) ((Instrumentation.Element) inst.getAll().
                 get("timers").get("a").get("1")).getValue()).getOwn());
     }
 
+    public void testTimerPercentiles() throws Exception {
+        Instrumentation.Timer timer = new Instrumentation.Timer();
+        assertEquals(0, timer.getOwnPercentile(99));
+        for (int i = 1; i <= 1000; i++) {
+            timer.addTime(i, i * 10);
+        }
+        Instrumentation.Timer snapshot = timer.getValue();
+        assertEquals(1000, snapshot.getTicks());
+        assertEquals(1, snapshot.getOwnMin());
+        assertEquals(1000, snapshot.getOwnMax());
+        assertEquals(10, snapshot.getTotalMin());
+        assertEquals(10000, snapshot.getTotalMax());
+        assertEquals(500, snapshot.getOwnPercentile(50), 500 * 0.0625);
+        assertEquals(990, snapshot.getOwnPercentile(99), 990 * 0.0625);
+        assertEquals(999, snapshot.getOwnPercentile(99.9), 999 * 0.0625);
+        assertEquals(9990, snapshot.getTotalPercentile(99.9), 9990 * 0.0625);
+        assertTrue(snapshot.getOwnPercentile(100) <= snapshot.getOwnMax());
+
+        for (long time : new long[]{0, 31, 32, 1000, 123456789L, Long.MAX_VALUE}) {
+            int bucket = Instrumentation.Histogram.getBucket(time);
+            assertTrue(bucket >= 0 && bucket < Instrumentation.Histogram.BUCKETS);
+            if (time < (1L << 41)) {
+                long value = Instrumentation.Histogram.getBucketValue(bucket);
+                assertTrue(value >= time);
+                assertTrue(value <= time + time * 0.0625 + 1);
+            }
+        }
+    }
+
+    public void testLatency() throws Exception {
+        Instrumentation.Latency latency = new Instrumentation.Latency();
+        long now = 1000 * Instrumentation.Latency.SLOT_TIME;
+        for (int i = 1; i <= 100; i++) {
+            latency.addTime(i, now);
+        }
+        latency.addTime(1000, now + Instrumentation.Latency.SLOT_TIME);
+
+        Instrumentation.Latency snapshot = latency.getValue(now + Instrumentation.Latency.SLOT_TIME);
+        assertEquals(101, snapshot.getCount(1));
+        assertEquals(101, snapshot.getCount(5));
+        assertEquals(1000, snapshot.getMax(1));
+        assertEquals(50, snapshot.getPercentile(1, 50), 50 * 0.0625);
+        assertEquals(1000, snapshot.getPercentile(1, 99.9));
+
+        // the first slot leaves the 1 minute window
+        snapshot = latency.getValue(now + 2 * Instrumentation.Latency.SLOT_TIME);
+        assertEquals(1, snapshot.getCount(1));
+        assertEquals(1000, snapshot.getPercentile(1, 50));
+        assertEquals(101, snapshot.getCount(5));
+
+        // all slots leave the 5 minutes window, and the slots are reused
+        snapshot = latency.getValue(now + 11 * Instrumentation.Latency.SLOT_TIME);
+        assertEquals(0, snapshot.getCount(1));
+        assertEquals(0, snapshot.getCount(5));
+        assertEquals(0, snapshot.getPercentile(5, 99));
+        latency.addTime(7, now + 10 * Instrumentation.Latency.SLOT_TIME);
+        snapshot = latency.getValue(now + 10 * Instrumentation.Latency.SLOT_TIME);
+        assertEquals(1, snapshot.getCount(1));
+        assertEquals(7, snapshot.getMax(1));
+        assertEquals(2, snapshot.getCount(5));
+        assertEquals(1000, snapshot.getMax(5));
+
+        try {
+            snapshot.getCount(2);
+            fail();
+        }
+        catch (IllegalArgumentException ex) {
+            //nop
+        }
+
+        Instrumentation inst = new Instrumentation();
+        inst.addLatency("a", "1", 5);
+        assertEquals(1, inst.getLatencies().get("a").get("1").getValue().getCount(1));
+    }
+
+    public void testConcurrentUpdates() throws Exception {
+        final Instrumentation inst = new Instrumentation();
+        Thread[] threads = new Thread[16];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                public void run() {
+                    for (int j = 0; j < 10000; j++) {
+                        inst.incr("a", "1", 1);
+                        inst.addTime("a", "1", j % 100, j % 100);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(new Long(16 * 10000), inst.getCounters().get("a").get("1").getValue());
+        Instrumentation.Timer timer = inst.getTimers().get("a").get("1").getValue();
+        assertEquals(16 * 10000, timer.getTicks());
+        assertEquals(16 * 100 * 4950, timer.getOwn());
+        assertEquals(0, timer.getOwnMin());
+        assertEquals(99, timer.getOwnMax());
+    }
+
 }
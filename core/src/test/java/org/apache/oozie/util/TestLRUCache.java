@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.util;
+
+import junit.framework.TestCase;
+
+public class TestLRUCache extends TestCase {
+
+    public void testEntriesBound() {
+        LRUCache<String, String> cache = new LRUCache<String, String>(2, Long.MAX_VALUE);
+        assertTrue(cache.put("a", "A"));
+        assertTrue(cache.put("b", "B"));
+        assertEquals("A", cache.get("a"));
+        assertTrue(cache.put("c", "C"));
+        assertEquals(2, cache.size());
+        assertNull(cache.get("b"));
+        assertEquals("A", cache.get("a"));
+        assertEquals("C", cache.get("c"));
+        assertEquals(3, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getEvictions());
+    }
+
+    public void testWeightBound() {
+        LRUCache<String, String> cache = new LRUCache<String, String>(10, 10) {
+            @Override
+            protected long weigh(String key, String value) {
+                return value.length();
+            }
+        };
+        assertTrue(cache.put("a", "12345"));
+        assertTrue(cache.put("b", "1234"));
+        assertEquals(9, cache.getWeight());
+        assertTrue(cache.put("c", "12"));
+        assertEquals(6, cache.getWeight());
+        assertNull(cache.get("a"));
+        assertFalse(cache.put("d", "12345678901"));
+        assertNull(cache.get("d"));
+        assertEquals(2, cache.size());
+
+        assertTrue(cache.put("b", "1"));
+        assertEquals(3, cache.getWeight());
+        assertEquals("1", cache.remove("b"));
+        assertEquals(2, cache.getWeight());
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getWeight());
+    }
+
+    public void testInstrumentation() {
+        Instrumentation instr = new Instrumentation();
+        LRUCache<String, String> cache = new LRUCache<String, String>(1, Long.MAX_VALUE);
+        cache.instrument(instr, "g", "cache");
+        cache.put("a", "A");
+        cache.get("a");
+        cache.get("b");
+        cache.put("b", "B");
+        assertEquals(new Long(1), ((Instrumentation.Variable) instr.getVariables().get("g").get("cache.hits"))
+                .getValue());
+        assertEquals(new Long(1), ((Instrumentation.Variable) instr.getVariables().get("g").get("cache.misses"))
+                .getValue());
+        assertEquals(new Long(1), ((Instrumentation.Variable) instr.getVariables().get("g").get("cache.evictions"))
+                .getValue());
+        assertEquals(new Long(1), ((Instrumentation.Variable) instr.getVariables().get("g").get("cache.entries"))
+                .getValue());
+    }
+
+}
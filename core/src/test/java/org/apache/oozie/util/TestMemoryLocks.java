@@ -214,4 +214,42 @@ public class TestMemoryLocks extends XTestCase {
         assertEquals("a:1-L a:1-U a:2-L a:2-U", sb.toString().trim());
     }
 
+    public void testLockEviction() throws Exception {
+        MemoryLocks.LockToken t1 = locks.getReadLock("a", -1);
+        MemoryLocks.LockToken t2 = locks.getReadLock("a", -1);
+        MemoryLocks.LockToken t3 = locks.getWriteLock("b", -1);
+        assertEquals(2, locks.size());
+        t1.release();
+        assertEquals(2, locks.size());
+        t2.release();
+        assertEquals(1, locks.size());
+        t3.release();
+        assertEquals(0, locks.size());
+        assertNotNull(locks.getWriteLock("a", 0));
+    }
+
+    public void testContentionInstrumentation() throws Exception {
+        Instrumentation instr = new Instrumentation();
+        locks.setInstrumentation(instr, "locks");
+        StringBuffer sb = new StringBuffer("");
+        Locker l1 = new WriteLocker("a", 1, -1, sb);
+        Locker l2 = new WriteLocker("a", 2, 0, sb);
+        Locker l3 = new WriteLocker("a", 3, -1, sb);
+
+        new Thread(l1).start();
+        Thread.sleep(500);
+        new Thread(l2).start();
+        new Thread(l3).start();
+        Thread.sleep(500);
+        assertEquals("a=1", locks.getHotResources(10));
+        l1.finish();
+        Thread.sleep(500);
+        l3.finish();
+        Thread.sleep(500);
+        assertEquals("a:1-L a:2-N a:1-U a:3-L a:3-U", sb.toString().trim());
+        assertEquals(0, locks.size());
+        assertEquals(2L, (long) instr.getCounters().get("locks").get(MemoryLocks.INSTR_CONTENDED_COUNTER).getValue());
+        assertEquals(1L, instr.getTimers().get("locks").get(MemoryLocks.INSTR_WAIT_TIMER).getValue().getTicks());
+    }
+
 }
@@ -0,0 +1,220 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.util;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.oozie.util.PriorityDelayQueue.QueueElement;
+
+public class TestShardedPriorityDelayQueue extends TestCase {
+
+    public void testBoundUnboundQueueSize() {
+        BlockingPriorityDelayQueue<Integer> q =
+                new ShardedPriorityDelayQueue<Integer>(1, 1000, TimeUnit.MILLISECONDS, -1);
+        assertEquals(1, q.getPriorities());
+        assertEquals(-1, q.getMaxSize());
+        assertEquals(0, q.size());
+        assertTrue(q.offer(new QueueElement<Integer>(1)));
+        assertTrue(q.offer(new QueueElement<Integer>(1)));
+        assertEquals(2, q.size());
+
+        q = new ShardedPriorityDelayQueue<Integer>(1, 1000, TimeUnit.MILLISECONDS, 1);
+        assertEquals(1, q.getMaxSize());
+        assertTrue(q.offer(new QueueElement<Integer>(1)));
+        assertEquals(1, q.size());
+        assertFalse(q.offer(new QueueElement<Integer>(1)));
+        assertEquals(1, q.size());
+        assertNotNull(q.poll());
+        assertEquals(0, q.size());
+        assertTrue(q.offer(new QueueElement<Integer>(1)));
+        assertEquals(1, q.size());
+    }
+
+    public void testPoll() throws Exception {
+        BlockingPriorityDelayQueue<Integer> q =
+                new ShardedPriorityDelayQueue<Integer>(3, 500, TimeUnit.MILLISECONDS, -1);
+
+        q.offer(new QueueElement<Integer>(1));
+        assertEquals((Integer) 1, q.poll().getElement());
+        assertEquals(0, q.size());
+
+        q.offer(new QueueElement<Integer>(2, 0, 10, TimeUnit.MILLISECONDS));
+        assertNull(q.poll());
+        Thread.sleep(12);
+        assertEquals((Integer) 2, q.poll().getElement());
+        assertEquals(0, q.size());
+
+        q.offer(new QueueElement<Integer>(10, 0, 0, TimeUnit.MILLISECONDS));
+        q.offer(new QueueElement<Integer>(30, 2, 0, TimeUnit.MILLISECONDS));
+        q.offer(new QueueElement<Integer>(20, 1, 0, TimeUnit.MILLISECONDS));
+        assertEquals((Integer) 30, q.poll().getElement());
+        assertEquals((Integer) 20, q.poll().getElement());
+        assertEquals((Integer) 10, q.poll().getElement());
+        assertEquals(0, q.size());
+
+        q.offer(new QueueElement<Integer>(10, 0, 10, TimeUnit.MILLISECONDS));
+        q.offer(new QueueElement<Integer>(30, 2, 20, TimeUnit.MILLISECONDS));
+        q.offer(new QueueElement<Integer>(20, 1, 0, TimeUnit.MILLISECONDS));
+        Thread.sleep(22);
+        List<Integer> list = new ArrayList<Integer>();
+        while (list.size() != 3) {
+            QueueElement<Integer> e = q.poll();
+            if (e != null) {
+                list.add(e.getElement());
+            }
+        }
+        assertEquals((Integer) 30, list.get(0));
+        assertEquals((Integer) 20, list.get(1));
+        assertEquals((Integer) 10, list.get(2));
+        assertEquals(0, q.size());
+    }
+
+    public void testLongDelay() throws Exception {
+        BlockingPriorityDelayQueue<Integer> q =
+                new ShardedPriorityDelayQueue<Integer>(1, 500, TimeUnit.MILLISECONDS, -1);
+        long delay = ShardedPriorityDelayQueue.TICK * ShardedPriorityDelayQueue.WHEEL_SIZE + 100;
+        q.offer(new QueueElement<Integer>(1, 0, delay, TimeUnit.MILLISECONDS));
+        long start = System.currentTimeMillis();
+        QueueElement<Integer> e = q.poll();
+        while (e == null) {
+            Thread.sleep(10);
+            e = q.poll();
+        }
+        assertTrue(System.currentTimeMillis() - start >= delay - 10);
+        assertEquals(0, q.size());
+    }
+
+    public void testPeek() throws Exception {
+        BlockingPriorityDelayQueue<Integer> q =
+                new ShardedPriorityDelayQueue<Integer>(3, 500, TimeUnit.MILLISECONDS, -1);
+        assertNull(q.peek());
+
+        q.offer(new QueueElement<Integer>(30, 2, 200, TimeUnit.MILLISECONDS));
+        q.offer(new QueueElement<Integer>(10, 0, 100, TimeUnit.MILLISECONDS));
+        assertEquals((Integer) 10, q.peek().getElement());
+
+        q.offer(new QueueElement<Integer>(20, 1, 0, TimeUnit.MILLISECONDS));
+        assertEquals((Integer) 20, q.peek().getElement());
+        assertEquals(3, q.size());
+    }
+
+    public void testPeekBeyondWheel() throws Exception {
+        BlockingPriorityDelayQueue<Integer> q =
+                new ShardedPriorityDelayQueue<Integer>(3, 500, TimeUnit.MILLISECONDS, -1);
+        long span = ShardedPriorityDelayQueue.TICK * ShardedPriorityDelayQueue.WHEEL_SIZE;
+        q.offer(new QueueElement<Integer>(20, 0, 3 * span, TimeUnit.MILLISECONDS));
+        q.offer(new QueueElement<Integer>(10, 0, 2 * span, TimeUnit.MILLISECONDS));
+        assertEquals((Integer) 10, q.peek().getElement());
+
+        q.offer(new QueueElement<Integer>(30, 0, span / 2, TimeUnit.MILLISECONDS));
+        assertEquals((Integer) 30, q.peek().getElement());
+
+        q.clear();
+        assertNull(q.peek());
+        assertEquals(0, q.size());
+    }
+
+    public void testAntiStarvation() throws Exception {
+        BlockingPriorityDelayQueue<Integer> q =
+                new ShardedPriorityDelayQueue<Integer>(3, 500, TimeUnit.MILLISECONDS, -1);
+        q.offer(new QueueElement<Integer>(1));
+        q.peek();
+        assertEquals(1, q.sizes()[0]);
+        Thread.sleep(600);
+        q.peek();
+        assertEquals(1, q.sizes()[1]);
+        Thread.sleep(600);
+        q.peek();
+        assertEquals(1, q.sizes()[2]);
+        assertEquals(2, q.poll().getPriority());
+    }
+
+    public void testConcurrency() throws Exception {
+        final int threads = 5;
+        final int elements = 100;
+        final int priorities = 5;
+        final AtomicInteger consumed = new AtomicInteger();
+        final BlockingPriorityDelayQueue<String> queue =
+                new ShardedPriorityDelayQueue<String>(priorities, 100, TimeUnit.MILLISECONDS, -1);
+
+        List<Thread> producers = new ArrayList<Thread>();
+        for (int i = 0; i < threads; i++) {
+            final int count = i;
+            Thread thread = new Thread(new Runnable() {
+                public void run() {
+                    for (int j = 0; j < elements; j++) {
+                        queue.offer(new QueueElement<String>(count + " - " + j, (int) (Math.random() * priorities),
+                                                             (int) (Math.random() * 50), TimeUnit.MILLISECONDS));
+                    }
+                }
+            });
+            producers.add(thread);
+            thread.start();
+        }
+        for (int i = 0; i < threads; i++) {
+            new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        while (consumed.get() < threads * elements) {
+                            if (queue.poll(10, TimeUnit.MILLISECONDS) != null) {
+                                consumed.incrementAndGet();
+                            }
+                        }
+                    }
+                    catch (InterruptedException ex) {
+                        throw new RuntimeException(ex);
+                    }
+                }
+            }).start();
+        }
+        for (Thread thread : producers) {
+            thread.join();
+        }
+        long limit = System.currentTimeMillis() + 5000;
+        while (consumed.get() < threads * elements && System.currentTimeMillis() < limit) {
+            Thread.sleep(10);
+        }
+        assertEquals(threads * elements, consumed.get());
+        assertEquals(0, queue.size());
+    }
+
+    public void testIteratorAndClear() throws Exception {
+        BlockingPriorityDelayQueue<Integer> q =
+                new ShardedPriorityDelayQueue<Integer>(3, 500, TimeUnit.MILLISECONDS, -1);
+        q.offer(new QueueElement<Integer>(1, 1, 1000, TimeUnit.MILLISECONDS));
+        q.offer(new QueueElement<Integer>(10, 0, 0, TimeUnit.MILLISECONDS));
+        q.offer(new QueueElement<Integer>(30, 2, 0, TimeUnit.MILLISECONDS));
+
+        Iterator<QueueElement<Integer>> it = q.iterator();
+        int size = 0;
+        while (it.hasNext()) {
+            it.next();
+            size++;
+        }
+        assertEquals(3, size);
+
+        q.clear();
+        assertEquals(0, q.size());
+        assertNull(q.peek());
+        assertEquals(0, q.sizes()[1]);
+    }
+
+}
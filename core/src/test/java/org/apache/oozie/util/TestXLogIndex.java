@@ -0,0 +1,205 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.util;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.oozie.test.XTestCase;
+
+public class TestXLogIndex extends XTestCase {
+    private static final String JOB1 = "0000001-100101000000000-oozie-W";
+    private static final String JOB2 = "0000002-100101000000000-oozie-W";
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        XLogStreamer.Filter.reset();
+        XLogStreamer.Filter.defineParameter("USER");
+        XLogStreamer.Filter.defineParameter("GROUP");
+        XLogStreamer.Filter.defineParameter("TOKEN");
+        XLogStreamer.Filter.defineParameter("APP");
+        XLogStreamer.Filter.defineParameter("JOB");
+        XLogStreamer.Filter.defineParameter("ACTION");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        XLogStreamer.Filter.reset();
+        super.tearDown();
+    }
+
+    private String line(String time, String level, String id, String job, String msg) {
+        return "2010-01-01 " + time + ",000 " + level + " Test:1 - USER[test] GROUP[-] TOKEN[-] APP[app] JOB[" +
+                job + "] ACTION[-] " + id + " " + msg + "\n";
+    }
+
+    private File createLog(String name) throws IOException {
+        File file = new File(getTestCaseDir(), name);
+        FileWriter writer = new FileWriter(file);
+        writer.write("orphan continuation line\n");
+        writer.write(line("10:00:00", "INFO", "_L1_", JOB1, "start"));
+        writer.write(line("10:00:01", "INFO", "_L2_", JOB1, "multi line"));
+        writer.write("_L2A_ continuation\n");
+        writer.write(line("10:00:02", "DEBUG", "_L3_", JOB2, "other job"));
+        writer.write(line("10:00:03", "WARN", "_L4_", JOB1, "after other job"));
+        writer.write(line("10:01:00", "INFO", "_L5_", JOB1, "next minute"));
+        writer.write(line("10:01:01", "INFO", "_L6_", "-", "no job"));
+        writer.write("2010-01-01 10:01:02,000  INFO Test:1 - no log info\n");
+        writer.write(line("10:05:00", "INFO", "_L7_", JOB1, "last, no new line").trim());
+        writer.close();
+        return file;
+    }
+
+    private String read(File file, XLogIndex.Range range) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            byte[] bytes = new byte[(int) (range.getEnd() - range.getStart())];
+            raf.seek(range.getStart());
+            raf.readFully(bytes);
+            return new String(bytes, "UTF-8");
+        }
+        finally {
+            raf.close();
+        }
+    }
+
+    public void testIndex() throws Exception {
+        File file = createLog("oozie.log.2010-01-01-10");
+        assertFalse(XLogIndex.isIndexed(file));
+        assertNull(XLogIndex.getRanges(file, JOB1, 0, Long.MAX_VALUE));
+
+        XLogIndex.build(file);
+        assertTrue(XLogIndex.isIndexed(file));
+        assertTrue(XLogIndex.getIndexFile(file).exists());
+
+        List<XLogIndex.Range> ranges = XLogIndex.getRanges(file, JOB1, 0, Long.MAX_VALUE);
+        assertEquals(4, ranges.size());
+        String range = read(file, ranges.get(0));
+        assertTrue(range.startsWith("2010-01-01 10:00:00"));
+        assertTrue(range.contains("_L1_"));
+        assertTrue(range.contains("_L2_"));
+        assertTrue(range.endsWith("_L2A_ continuation\n"));
+        range = read(file, ranges.get(1));
+        assertTrue(range.contains("_L4_"));
+        assertFalse(range.contains("_L3_"));
+        assertFalse(range.contains("_L5_"));
+
+        // contiguous log statements in a different time bucket are in a different range
+        assertEquals(ranges.get(1).getEnd(), ranges.get(2).getStart());
+        range = read(file, ranges.get(2));
+        assertTrue(range.contains("_L5_"));
+        assertFalse(range.contains("_L6_"));
+        range = read(file, ranges.get(3));
+        assertTrue(range.contains("_L7_"));
+        assertTrue(range.endsWith("no new line"));
+
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+        assertEquals(format.parse("2010-01-01 10:00").getTime(), ranges.get(0).getBucket());
+        assertEquals(format.parse("2010-01-01 10:00").getTime(), ranges.get(1).getBucket());
+        assertEquals(format.parse("2010-01-01 10:01").getTime(), ranges.get(2).getBucket());
+        assertEquals(format.parse("2010-01-01 10:05").getTime(), ranges.get(3).getBucket());
+
+        ranges = XLogIndex.getRanges(file, JOB2, 0, Long.MAX_VALUE);
+        assertEquals(1, ranges.size());
+        assertTrue(read(file, ranges.get(0)).contains("_L3_"));
+
+        assertEquals(0, XLogIndex.getRanges(file, "-", 0, Long.MAX_VALUE).size());
+        assertEquals(0, XLogIndex.getRanges(file, "unknown", 0, Long.MAX_VALUE).size());
+    }
+
+    public void testTimeBuckets() throws Exception {
+        File file = createLog("oozie.log.2010-01-01-10");
+        XLogIndex.build(file);
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        long start = format.parse("2010-01-01 10:00:30").getTime();
+        long end = format.parse("2010-01-01 10:02:00").getTime();
+        List<XLogIndex.Range> ranges = XLogIndex.getRanges(file, JOB1, start, end);
+        assertEquals(3, ranges.size());
+        assertTrue(read(file, ranges.get(0)).contains("_L1_"));
+        assertTrue(read(file, ranges.get(2)).contains("_L5_"));
+    }
+
+    public void testStaleIndex() throws Exception {
+        File file = createLog("oozie.log.2010-01-01-10");
+        XLogIndex.build(file);
+        FileWriter writer = new FileWriter(file, true);
+        writer.write("\nappended\n");
+        writer.close();
+        assertFalse(XLogIndex.isIndexed(file));
+        assertNull(XLogIndex.getRanges(file, JOB1, 0, Long.MAX_VALUE));
+    }
+
+    public void testIndexDirectory() throws Exception {
+        File dir = new File(getTestCaseDir());
+        createLog("oozie.log");
+        File rotated1 = createLog("oozie.log.2010-01-01-10");
+        File rotated2 = createLog("oozie.log.2010-01-01-11");
+        createLog("other.log.2010-01-01-10");
+        assertEquals(2, XLogIndex.indexDirectory(dir, "oozie.log"));
+        assertFalse(XLogIndex.isIndexed(new File(dir, "oozie.log")));
+        assertFalse(XLogIndex.isIndexed(new File(dir, "other.log.2010-01-01-10")));
+        assertTrue(XLogIndex.isIndexed(rotated1));
+        assertTrue(XLogIndex.isIndexed(rotated2));
+        assertEquals(0, XLogIndex.indexDirectory(dir, "oozie.log"));
+
+        rotated2.delete();
+        assertEquals(0, XLogIndex.indexDirectory(dir, "oozie.log"));
+        assertFalse(XLogIndex.getIndexFile(rotated2).exists());
+        assertTrue(XLogIndex.getIndexFile(rotated1).exists());
+    }
+
+    public void testIndexedStreaming() throws Exception {
+        createLog("oozie.log");
+        File rotated = createLog("oozie.log.2010-01-01-10");
+        long now = System.currentTimeMillis();
+        new File(getTestCaseDir(), "oozie.log").setLastModified(now);
+        rotated.setLastModified(now - 1000);
+
+        XLogStreamer.Filter filter = new XLogStreamer.Filter();
+        filter.setParameter("JOB", JOB1);
+        filter.setLogLevel("INFO|WARN");
+        StringWriter scanned = new StringWriter();
+        new XLogStreamer(filter, scanned, getTestCaseDir(), "oozie.log", 3600).streamLog(null, null);
+
+        XLogIndex.indexDirectory(new File(getTestCaseDir()), "oozie.log");
+        StringWriter indexed = new StringWriter();
+        new XLogStreamer(filter, indexed, getTestCaseDir(), "oozie.log", 3600).streamLog(null, null);
+        assertEquals(scanned.toString(), indexed.toString());
+
+        String[] out = indexed.toString().split("\n");
+        assertEquals(12, out.length);
+        assertTrue(out[0].contains("_L1_"));
+        assertTrue(out[2].contains("_L2A_"));
+        assertTrue(out[3].contains("_L4_"));
+        assertTrue(out[4].contains("_L5_"));
+        assertTrue(out[5].contains("_L7_"));
+        assertTrue(out[6].contains("_L1_"));
+
+        // the time bounds apply to the log statements of the indexed log files with a slack of one rotation period,
+        // the log statements of the rotated log file are 2010 ones
+        indexed = new StringWriter();
+        new XLogStreamer(filter, indexed, getTestCaseDir(), "oozie.log", 3600).streamLog(new Date(now - 60000),
+                                                                                       new Date(now));
+        assertEquals(6, indexed.toString().split("\n").length);
+    }
+
+}
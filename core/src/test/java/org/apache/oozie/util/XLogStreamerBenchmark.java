@@ -0,0 +1,154 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.util;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Benchmark of the job log streaming with and without the {@link XLogIndex} of the rotated log files.
+ * <p/>
+ * A synthetic log directory is generated, hourly rotated log files with the interleaved log statements of many jobs,
+ * some of them multi line. The log of a single job is streamed by scanning all the log files and by seeking into the
+ * indexed log files. The elapsed times, including the time to index the log files, are printed out.
+ * <p/>
+ * It is not a testcase, it is run from the command line with the test classpath:
+ * <p/>
+ * <code>java -cp ... org.apache.oozie.util.XLogStreamerBenchmark [LOG_DIR] [TOTAL_MB] [FILES] [JOBS]</code>
+ */
+public class XLogStreamerBenchmark {
+    private static final String LOG_FILE = "oozie.log";
+    private static final long HOUR = 60 * 60 * 1000;
+
+    public static void main(String[] args) throws Exception {
+        File dir = new File((args.length > 0) ? args[0] : System.getProperty("java.io.tmpdir") + "/oozie-log-bench");
+        long totalMb = (args.length > 1) ? Long.parseLong(args[1]) : 2048;
+        int files = (args.length > 2) ? Integer.parseInt(args[2]) : 8;
+        int jobs = (args.length > 3) ? Integer.parseInt(args[3]) : 1000;
+
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Could not create " + dir);
+        }
+        long start = System.currentTimeMillis();
+        long now = generate(dir, totalMb * 1024 * 1024 / files, files, jobs);
+        System.out.println(String.format("generated %d MB in %d files, %d jobs: %d ms", totalMb, files, jobs,
+                                         System.currentTimeMillis() - start));
+
+        XLogStreamer.Filter.reset();
+        XLogStreamer.Filter.defineParameter("USER");
+        XLogStreamer.Filter.defineParameter("GROUP");
+        XLogStreamer.Filter.defineParameter("TOKEN");
+        XLogStreamer.Filter.defineParameter("APP");
+        XLogStreamer.Filter.defineParameter("JOB");
+        XLogStreamer.Filter.defineParameter("ACTION");
+        String jobId = getJobId(jobs / 2);
+
+        start = System.currentTimeMillis();
+        long scanned = stream(dir, jobId, now, files);
+        long scanTime = System.currentTimeMillis() - start;
+
+        start = System.currentTimeMillis();
+        int indexed = XLogIndex.indexDirectory(dir, LOG_FILE);
+        long indexTime = System.currentTimeMillis() - start;
+
+        start = System.currentTimeMillis();
+        long seeked = stream(dir, jobId, now, files);
+        long seekTime = System.currentTimeMillis() - start;
+
+        System.out.println(String.format("full scan       : %8d ms, %d chars", scanTime, scanned));
+        System.out.println(String.format("index build     : %8d ms, %d files", indexTime, indexed));
+        System.out.println(String.format("indexed stream  : %8d ms, %d chars", seekTime, seeked));
+        if (scanned != seeked) {
+            throw new IllegalStateException("Indexed streaming output differs from the full scan one");
+        }
+    }
+
+    private static String getJobId(int job) {
+        return String.format("%07d-100101000000000-oozie-W", job);
+    }
+
+    /**
+     * Generate the rotated log files, oldest first, and an empty active log file, return the current time.
+     */
+    private static long generate(File dir, long fileSize, int files, int jobs) throws IOException {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss,SSS");
+        SimpleDateFormat suffixFormat = new SimpleDateFormat("yyyy-MM-dd-HH");
+        long now = (System.currentTimeMillis() / HOUR) * HOUR;
+        long statement = 0;
+        for (int i = files; i > 0; i--) {
+            long hour = now - i * HOUR;
+            File file = new File(dir, LOG_FILE + "." + suffixFormat.format(new Date(hour)));
+            if (file.length() < fileSize) {
+                Writer writer = new BufferedWriter(new FileWriter(file), 1024 * 1024);
+                long written = 0;
+                long time = hour;
+                while (written < fileSize) {
+                    String job = getJobId((int) (statement % jobs));
+                    String level = (statement % 7 == 0) ? "DEBUG" : "INFO";
+                    StringBuilder sb = new StringBuilder(256);
+                    sb.append(dateFormat.format(new Date(time))).append(" ").append(level);
+                    sb.append(" ActionStartCommand:525 - USER[test] GROUP[users] TOKEN[-] APP[app-");
+                    sb.append(statement % jobs).append("] JOB[").append(job).append("] ACTION[").append(job);
+                    sb.append("@action] [***").append(job).append("@action***]Action status=RUNNING\n");
+                    if (statement % 50 == 0) {
+                        sb.append("java.lang.Exception: synthetic\n\tat org.apache.oozie.Test.run(Test.java:1)\n");
+                    }
+                    writer.write(sb.toString());
+                    written += sb.length();
+                    time = Math.min(time + 1, hour + HOUR - 1);
+                    statement++;
+                }
+                writer.close();
+            }
+            file.setLastModified(hour + HOUR - 1);
+        }
+        File active = new File(dir, LOG_FILE);
+        new FileWriter(active).close();
+        active.setLastModified(now);
+        return now;
+    }
+
+    private static long stream(File dir, String jobId, long now, int files) throws IOException {
+        XLogStreamer.Filter filter = new XLogStreamer.Filter();
+        filter.setParameter("JOB", jobId);
+        CountingWriter writer = new CountingWriter();
+        new XLogStreamer(filter, writer, dir.getAbsolutePath(), LOG_FILE, 3600).streamLog(
+                new Date(now - (files + 1) * HOUR), new Date(now));
+        return writer.count;
+    }
+
+    private static class CountingWriter extends Writer {
+        private long count;
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+}
@@ -0,0 +1,114 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.workflow.lite;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.oozie.service.Services;
+import org.apache.oozie.test.XTestCase;
+import org.apache.oozie.util.WritableUtils;
+import org.apache.oozie.util.XConfiguration;
+import org.apache.oozie.workflow.WorkflowInstance;
+
+/**
+ * Time to run a workflow with a 500-way fork/join, {@link LiteWorkflowInstance#start} forks the branches, each branch
+ * is then signaled once, and time to write and read the instance while all the branches are running.
+ * <p/>
+ * It is not run as part of the testcases, it is run with <code>mvn test -Dtest=LiteWorkflowInstanceBenchmark</code>.
+ */
+public class LiteWorkflowInstanceBenchmark extends XTestCase {
+    private static final int BRANCHES = 500;
+    private static final int RUNS = 1000;
+
+    public static class AsynchNodeHandler extends NodeHandler {
+
+        public boolean enter(Context context) {
+            return false;
+        }
+
+        public String exit(Context context) {
+            return context.getNodeDef().getTransitions().get(0);
+        }
+    }
+
+    private Services services;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        services = new Services();
+        services.init();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        services.destroy();
+        super.tearDown();
+    }
+
+    public void testForkJoin() throws Exception {
+        List<String> branches = new ArrayList<String>();
+        for (int i = 0; i < BRANCHES; i++) {
+            branches.add("action" + i);
+        }
+        LiteWorkflowApp app = new LiteWorkflowApp("wf", "<workflow-app/>", new StartNodeDef("fork"))
+                .addNode(new ForkNodeDef("fork", branches));
+        for (String branch : branches) {
+            app.addNode(new NodeDef(branch, null, AsynchNodeHandler.class, Arrays.asList("join")));
+        }
+        app.addNode(new JoinNodeDef("join", "end")).addNode(new EndNodeDef("end"));
+
+        // warm up
+        run(app, RUNS / 10);
+
+        long[] times = run(app, RUNS);
+        System.out.println(String.format("fork/join[%d] us/run: start[%.1f] signals[%.1f] write[%.1f] read[%.1f]" +
+                " bytes[%d]", BRANCHES, times[0] / 1000.0 / RUNS, times[1] / 1000.0 / RUNS,
+                                         times[2] / 1000.0 / RUNS, times[3] / 1000.0 / RUNS, times[4]));
+    }
+
+    // returns the start, signals, write and read times in nanoseconds, and the serialized size
+    private long[] run(LiteWorkflowApp app, int runs) throws Exception {
+        long[] times = new long[5];
+        for (int run = 0; run < runs; run++) {
+            LiteWorkflowInstance job = new LiteWorkflowInstance(app, new XConfiguration(), "job-" + run);
+
+            long start = System.nanoTime();
+            job.start();
+            times[0] += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            byte[] array = WritableUtils.toByteArray(job);
+            times[2] += System.nanoTime() - start;
+            times[4] = array.length;
+
+            start = System.nanoTime();
+            job = WritableUtils.fromByteArray(array, LiteWorkflowInstance.class);
+            job.getProcessDefinition();
+            times[3] += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < BRANCHES; i++) {
+                job.signal("/action" + i + "/", "OK");
+            }
+            times[1] += System.nanoTime() - start;
+            assertEquals(WorkflowInstance.Status.SUCCEEDED, job.getStatus());
+        }
+        return times;
+    }
+
+}
@@ -0,0 +1,79 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.workflow.lite;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class TestExecutionPaths extends TestCase {
+
+    public void testPutRemove() {
+        ExecutionPaths paths = new ExecutionPaths();
+        int root = paths.put(ExecutionPaths.ROOT, 0);
+        int[] child = ExecutionPaths.createChildPath(ExecutionPaths.ROOT, 2);
+        int index = paths.put(child, 2);
+        assertEquals(2, paths.size());
+        assertEquals(index, paths.indexOf(new int[]{2}));
+        assertFalse(paths.isStarted(index));
+        paths.setStarted(index, true);
+        assertTrue(paths.isStarted(index));
+
+        // setting the node of a path resets the started flag
+        assertEquals(index, paths.put(child, 3));
+        assertEquals(3, paths.getNode(index));
+        assertFalse(paths.isStarted(index));
+
+        paths.remove(root);
+        assertEquals(1, paths.size());
+        assertEquals(-1, paths.indexOf(ExecutionPaths.ROOT));
+        assertEquals(3, paths.getNode(paths.indexOf(child)));
+        assertEquals(0, ExecutionPaths.getParentPath(child).length);
+        assertNull(ExecutionPaths.getParentPath(ExecutionPaths.ROOT));
+    }
+
+    public void testManyPaths() {
+        ExecutionPaths paths = new ExecutionPaths();
+        Map<String, Integer> expected = new HashMap<String, Integer>();
+        List<int[]> added = new ArrayList<int[]>();
+        Random random = new Random(0);
+        for (int i = 0; i < 5000; i++) {
+            if (added.isEmpty() || random.nextInt(3) > 0) {
+                int[] path = new int[]{random.nextInt(50), random.nextInt(50)};
+                paths.put(path, i);
+                if (expected.put(path[0] + "/" + path[1], i) == null) {
+                    added.add(path);
+                }
+            }
+            else {
+                int[] path = added.remove(random.nextInt(added.size()));
+                paths.remove(paths.indexOf(path));
+                expected.remove(path[0] + "/" + path[1]);
+            }
+        }
+        assertEquals(expected.size(), paths.size());
+        for (int[] path : added) {
+            assertEquals(expected.get(path[0] + "/" + path[1]).intValue(), paths.getNode(paths.indexOf(path)));
+        }
+        for (int i = 0; i < paths.size(); i++) {
+            assertEquals(i, paths.indexOf(paths.getPath(i)));
+        }
+    }
+
+}
@@ -0,0 +1,279 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License. See accompanying LICENSE file.
+ */
+package org.apache.oozie.workflow.lite;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.Arrays;
+
+import org.apache.oozie.client.OozieClient;
+import org.apache.oozie.service.DBLiteWorkflowStoreService;
+import org.apache.oozie.service.Services;
+import org.apache.oozie.service.WorkflowStoreService;
+import org.apache.oozie.test.XTestCase;
+import org.apache.oozie.util.IOUtils;
+import org.apache.oozie.util.WritableUtils;
+import org.apache.oozie.util.XConfiguration;
+import org.apache.oozie.workflow.WorkflowInstance;
+
+public class TestLiteWorkflowInstance extends XTestCase {
+    private Services services;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        services = new Services();
+        services.init();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        services.destroy();
+        super.tearDown();
+    }
+
+    private LiteWorkflowApp createApp() throws Exception {
+        return new LiteWorkflowApp("wf", "<worklfow-app/>", new StartNodeDef("one"))
+                .addNode(new NodeDef("one", null, TestLiteWorkflowLib.AsynchNodeHandler.class,
+                                     Arrays.asList(new String[]{"end"})))
+                .addNode(new EndNodeDef("end"));
+    }
+
+    private XConfiguration createConf() {
+        XConfiguration conf = new XConfiguration();
+        conf.set(OozieClient.USER_NAME, "u");
+        conf.set(OozieClient.GROUP_NAME, "g");
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            sb.append("value").append(i % 10);
+        }
+        conf.set("large", sb.toString());
+        for (int i = 0; i < 100; i++) {
+            conf.set("key" + i, "value" + i);
+        }
+        return conf;
+    }
+
+    // the format used before the binary format
+    private byte[] writeOriginalFormat(LiteWorkflowApp app, XConfiguration conf) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DataOutputStream dOut = new DataOutputStream(baos);
+        dOut.writeUTF("1");
+        ByteArrayOutputStream confOut = new ByteArrayOutputStream();
+        conf.writeXml(confOut);
+        byte[] array = confOut.toByteArray();
+        dOut.writeInt(array.length);
+        dOut.write(array);
+        app.write(dOut);
+        dOut.writeUTF(WorkflowInstance.Status.RUNNING.toString());
+        dOut.writeInt(1);
+        dOut.writeUTF("/");
+        dOut.writeUTF("one");
+        dOut.writeBoolean(true);
+        dOut.writeInt(1);
+        dOut.writeUTF("a");
+        dOut.writeUTF("A");
+        dOut.close();
+        return baos.toByteArray();
+    }
+
+    // the binary format with execution paths keyed by node name, uncompressed
+    private byte[] writeNodeNamesFormat(LiteWorkflowApp app) throws Exception {
+        ByteArrayOutputStream appOut = new ByteArrayOutputStream();
+        DataOutputStream dAppOut = new DataOutputStream(appOut);
+        app.write(dAppOut);
+        dAppOut.close();
+        byte[] appArray = appOut.toByteArray();
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DataOutputStream dOut = new DataOutputStream(baos);
+        dOut.writeShort(0xFFFF);
+        dOut.writeByte(1);
+        dOut.writeByte(0);
+        dOut.writeUTF("1");
+        dOut.writeUTF(WorkflowInstance.Status.RUNNING.toString());
+        for (String info : new String[]{"u", "g", "wf", ""}) {
+            WritableUtils.writeStr(dOut, info);
+        }
+        dOut.writeInt(3);
+        dOut.writeUTF("/");
+        dOut.writeUTF("f");
+        dOut.writeBoolean(true);
+        dOut.writeUTF("/a/");
+        dOut.writeUTF("a");
+        dOut.writeBoolean(true);
+        dOut.writeUTF("/b/");
+        dOut.writeUTF("b");
+        dOut.writeBoolean(true);
+        dOut.writeInt(1);
+        dOut.writeUTF(ForkNodeDef.FORK_COUNT_PREFIX + "/");
+        dOut.writeUTF("2");
+        dOut.writeUTF(IOUtils.digest(appArray));
+        dOut.writeInt(appArray.length);
+        dOut.write(appArray);
+        dOut.writeInt(4);
+        dOut.writeInt(0);
+        dOut.close();
+        return baos.toByteArray();
+    }
+
+    private LiteWorkflowApp createForkApp(int branches) throws Exception {
+        String[] names = new String[branches];
+        for (int i = 0; i < branches; i++) {
+            names[i] = "" + (char) ('a' + i);
+        }
+        LiteWorkflowApp app = new LiteWorkflowApp("wf", "<worklfow-app/>", new StartNodeDef("f"))
+                .addNode(new ForkNodeDef("f", Arrays.asList(names)));
+        for (String name : names) {
+            app.addNode(new NodeDef(name, null, TestLiteWorkflowLib.AsynchNodeHandler.class,
+                                    Arrays.asList(new String[]{"j"})));
+        }
+        return app.addNode(new JoinNodeDef("j", "end")).addNode(new EndNodeDef("end"));
+    }
+
+    public void testWriteRead() throws Exception {
+        XConfiguration conf = createConf();
+        LiteWorkflowInstance job = new LiteWorkflowInstance(createApp(), conf, "1");
+        job.setVar("a", "A");
+        job.start();
+
+        byte[] array = WritableUtils.toByteArray(job);
+        job = WritableUtils.fromByteArray(array, LiteWorkflowInstance.class);
+        assertEquals("1", job.getId());
+        assertEquals(WorkflowInstance.Status.RUNNING, job.getStatus());
+        assertEquals("A", job.getVar("a"));
+        assertEquals(conf.get("large"), job.getConf().get("large"));
+        assertEquals("value99", job.getConf().get("key99"));
+        assertEquals("wf", job.getApp().getName());
+        assertNotNull(job.getProcessDefinition().getNode("one"));
+
+        job.signal("/", "");
+        assertEquals(WorkflowInstance.Status.SUCCEEDED, job.getStatus());
+    }
+
+    public void testLazyRead() throws Exception {
+        LiteWorkflowInstance job = new LiteWorkflowInstance(createApp(), createConf(), "1");
+        job.start();
+        byte[] array = WritableUtils.toByteArray(job);
+
+        // the definition and the configuration are not decoded, they are written back as they were read
+        job = WritableUtils.fromByteArray(array, LiteWorkflowInstance.class);
+        assertEquals(WorkflowInstance.Status.RUNNING, job.getStatus());
+        assertTrue(Arrays.equals(array, WritableUtils.toByteArray(job)));
+
+        job.getConf().set("key0", "changed");
+        job = WritableUtils.fromByteArray(WritableUtils.toByteArray(job), LiteWorkflowInstance.class);
+        assertEquals("changed", job.getConf().get("key0"));
+    }
+
+    public void testCompression() throws Exception {
+        LiteWorkflowInstance job = new LiteWorkflowInstance(createApp(), createConf(), "1");
+        byte[] compressed = WritableUtils.toByteArray(job);
+
+        services.getConf().setBoolean(DBLiteWorkflowStoreService.CONF_INSTANCE_COMPRESSION, false);
+        job = new LiteWorkflowInstance(createApp(), createConf(), "1");
+        byte[] uncompressed = WritableUtils.toByteArray(job);
+        assertTrue(compressed.length < uncompressed.length);
+
+        job = WritableUtils.fromByteArray(uncompressed, LiteWorkflowInstance.class);
+        assertEquals("value1", job.getConf().get("key1"));
+        job = WritableUtils.fromByteArray(compressed, LiteWorkflowInstance.class);
+        assertEquals("value1", job.getConf().get("key1"));
+    }
+
+    public void testReadOriginalFormat() throws Exception {
+        XConfiguration conf = createConf();
+        byte[] original = writeOriginalFormat(createApp(), conf);
+        LiteWorkflowInstance job = WritableUtils.fromByteArray(original, LiteWorkflowInstance.class);
+        assertEquals("1", job.getId());
+        assertEquals(WorkflowInstance.Status.RUNNING, job.getStatus());
+        assertEquals("A", job.getVar("a"));
+        assertEquals(conf.get("large"), job.getConf().get("large"));
+        assertEquals("wf", job.getApp().getName());
+
+        // rewritten in the binary format
+        byte[] array = WritableUtils.toByteArray(job);
+        assertTrue(array.length < original.length);
+        job = WritableUtils.fromByteArray(array, LiteWorkflowInstance.class);
+        assertEquals(conf.get("large"), job.getConf().get("large"));
+        job.signal("/", "");
+        assertEquals(WorkflowInstance.Status.SUCCEEDED, job.getStatus());
+    }
+
+    public void testWriteOriginalFormat() throws Exception {
+        LiteWorkflowInstance job = new LiteWorkflowInstance(createForkApp(2), createConf(), "1");
+        job.start();
+        job.signal("/a/", "");
+
+        services.getConf().setBoolean(DBLiteWorkflowStoreService.CONF_INSTANCE_ORIGINAL_FORMAT, true);
+        byte[] array = WritableUtils.toByteArray(job);
+        assertTrue(new DataInputStream(new ByteArrayInputStream(array)).readUnsignedShort() != 0xFFFF);
+
+        job = WritableUtils.fromByteArray(array, LiteWorkflowInstance.class);
+        assertEquals(WorkflowInstance.Status.RUNNING, job.getStatus());
+        assertEquals("value1", job.getConf().get("key1"));
+        assertEquals("j", job.getTransition("a"));
+        job.signal("/b/", "");
+        assertEquals(WorkflowInstance.Status.SUCCEEDED, job.getStatus());
+    }
+
+    public void testAppCache() throws Exception {
+        LiteWorkflowInstance job = new LiteWorkflowInstance(createApp(), createConf(), "1");
+        byte[] array = WritableUtils.toByteArray(job);
+
+        // instances of the same definition share the decoded definition
+        LiteWorkflowInstance job1 = WritableUtils.fromByteArray(array, LiteWorkflowInstance.class);
+        LiteWorkflowInstance job2 = WritableUtils.fromByteArray(array, LiteWorkflowInstance.class);
+        assertSame(job1.getApp(), job2.getApp());
+        assertEquals(1, ((DBLiteWorkflowStoreService) services.get(WorkflowStoreService.class)).getAppCache().size());
+    }
+
+    public void testForkWriteRead() throws Exception {
+        LiteWorkflowInstance job = new LiteWorkflowInstance(createForkApp(3), createConf(), "1");
+        job.start();
+        job.signal("/b/", "");
+        assertEquals(WorkflowInstance.Status.RUNNING, job.getStatus());
+
+        byte[] array = WritableUtils.toByteArray(job);
+        job = WritableUtils.fromByteArray(array, LiteWorkflowInstance.class);
+        assertEquals("2", job.getVar(ForkNodeDef.FORK_COUNT_PREFIX + "/"));
+        assertEquals("j", job.getTransition("b"));
+
+        job.signal("/a/", "");
+        array = WritableUtils.toByteArray(job);
+        job = WritableUtils.fromByteArray(array, LiteWorkflowInstance.class);
+        assertEquals(WorkflowInstance.Status.RUNNING, job.getStatus());
+        job.signal("/c/", "");
+        assertEquals(WorkflowInstance.Status.SUCCEEDED, job.getStatus());
+        assertNull(job.getVar(ForkNodeDef.FORK_COUNT_PREFIX + "/"));
+    }
+
+    public void testReadNodeNamesFormat() throws Exception {
+        byte[] nodeNames = writeNodeNamesFormat(createForkApp(2));
+        LiteWorkflowInstance job = WritableUtils.fromByteArray(nodeNames, LiteWorkflowInstance.class);
+        assertEquals(WorkflowInstance.Status.RUNNING, job.getStatus());
+        assertEquals("2", job.getVar(ForkNodeDef.FORK_COUNT_PREFIX + "/"));
+
+        // rewritten with the execution paths keyed by node ID
+        job = WritableUtils.fromByteArray(WritableUtils.toByteArray(job), LiteWorkflowInstance.class);
+        job.signal("/a/", "");
+        assertEquals(WorkflowInstance.Status.RUNNING, job.getStatus());
+        job.signal("/b/", "");
+        assertEquals(WorkflowInstance.Status.SUCCEEDED, job.getStatus());
+    }
+
+}